@@ -1,7 +1,18 @@
 package org.molgenis.beacon.service.impl;
 
+import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Objects.requireNonNull;
+import static org.molgenis.data.security.EntityTypePermission.COUNT_DATA;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.isActualTransactionActive;
 
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
 import org.molgenis.beacon.config.Beacon;
 import org.molgenis.beacon.config.BeaconDataset;
 import org.molgenis.beacon.config.BeaconMetadata;
@@ -11,7 +22,14 @@ import org.molgenis.beacon.controller.model.exceptions.NestedBeaconException;
 import org.molgenis.beacon.controller.model.exceptions.UnknownBeaconException;
 import org.molgenis.beacon.service.BeaconQueryService;
 import org.molgenis.data.DataService;
+import org.molgenis.data.MolgenisDataException;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.security.EntityIdentityUtils;
+import org.molgenis.data.security.EntityTypeIdentity;
 import org.molgenis.data.support.QueryImpl;
+import org.molgenis.data.util.ConcurrentQueryExecutor;
+import org.molgenis.security.acl.MutableAclClassService;
+import org.molgenis.security.core.UserPermissionEvaluator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -20,9 +38,22 @@ import org.springframework.stereotype.Component;
 public class BeaconQueryServiceImpl implements BeaconQueryService {
   private static final Logger LOG = LoggerFactory.getLogger(BeaconQueryServiceImpl.class);
   private final DataService dataService;
+  private final VariantIndexService variantIndexService;
+  private final UserPermissionEvaluator userPermissionEvaluator;
+  private final MutableAclClassService mutableAclClassService;
+  private final ConcurrentQueryExecutor concurrentQueryExecutor;
 
-  public BeaconQueryServiceImpl(DataService dataService) {
+  public BeaconQueryServiceImpl(
+      DataService dataService,
+      VariantIndexService variantIndexService,
+      UserPermissionEvaluator userPermissionEvaluator,
+      MutableAclClassService mutableAclClassService,
+      ConcurrentQueryExecutor concurrentQueryExecutor) {
     this.dataService = requireNonNull(dataService);
+    this.variantIndexService = requireNonNull(variantIndexService);
+    this.userPermissionEvaluator = requireNonNull(userPermissionEvaluator);
+    this.mutableAclClassService = requireNonNull(mutableAclClassService);
+    this.concurrentQueryExecutor = requireNonNull(concurrentQueryExecutor);
   }
 
   @Override
@@ -70,19 +101,66 @@ public class BeaconQueryServiceImpl implements BeaconQueryService {
       String referenceBases,
       String alternateBases,
       String beaconId) {
-    boolean exists = false;
     Beacon beacon = dataService.findOneById(BeaconMetadata.BEACON, beaconId, Beacon.class);
-    if (beacon != null) {
-      for (BeaconDataset beaconDataset : beacon.getDataSets()) {
-        exists =
-            queryBeaconDataset(beaconDataset, referenceName, start, referenceBases, alternateBases);
-      }
-    } else {
+    if (beacon == null) {
       throw new UnknownBeaconException(
           beaconId,
           BeaconAlleleRequest.create(referenceName, start, referenceBases, alternateBases));
     }
-    return exists;
+
+    List<BeaconDataset> beaconDatasets = newArrayList(beacon.getDataSets());
+    if (beaconDatasets.size() <= 1
+        || isActualTransactionActive()
+        || ConcurrentQueryExecutor.isQueryThread()) {
+      // datasets modified in the current transaction are not visible to other threads and query
+      // threads must not wait for other queries
+      return beaconDatasets
+          .stream()
+          .anyMatch(
+              beaconDataset ->
+                  queryBeaconDataset(
+                      beaconDataset, referenceName, start, referenceBases, alternateBases));
+    }
+    return queryBeaconDatasets(
+        beaconDatasets, referenceName, start, referenceBases, alternateBases);
+  }
+
+  /**
+   * Queries the datasets concurrently and returns as soon as one of the datasets contains the
+   * variant.
+   */
+  private boolean queryBeaconDatasets(
+      List<BeaconDataset> beaconDatasets,
+      String referenceName,
+      Long start,
+      String referenceBases,
+      String alternateBases) {
+    CompletionService<Boolean> completionService =
+        new ExecutorCompletionService<>(concurrentQueryExecutor);
+    List<Future<Boolean>> futures = new ArrayList<>(beaconDatasets.size());
+    try {
+      for (BeaconDataset beaconDataset : beaconDatasets) {
+        futures.add(
+            completionService.submit(
+                () ->
+                    queryBeaconDataset(
+                        beaconDataset, referenceName, start, referenceBases, alternateBases)));
+      }
+
+      for (int i = 0; i < futures.size(); ++i) {
+        if (completionService.take().get()) {
+          return true;
+        }
+      }
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MolgenisDataException(e);
+    } catch (ExecutionException e) {
+      throw new UncheckedExecutionException(e.getCause());
+    } finally {
+      futures.forEach(future -> future.cancel(false));
+    }
   }
 
   private boolean queryBeaconDataset(
@@ -91,6 +169,14 @@ public class BeaconQueryServiceImpl implements BeaconQueryService {
       Long start,
       String referenceBases,
       String alternateBases) {
+    Optional<VariantIndex> variantIndex =
+        referenceName != null && start != null && isIndexAllowed(beaconDataset)
+            ? variantIndexService.getIndex(beaconDataset)
+            : Optional.empty();
+    if (variantIndex.isPresent()) {
+      return variantIndex.get().contains(referenceName, start, referenceBases, alternateBases);
+    }
+
     /* Use a count query to determine if a variation exists */
 
     String alt = beaconDataset.getGenomeBrowserAttributes().getAlt();
@@ -116,4 +202,14 @@ public class BeaconQueryServiceImpl implements BeaconQueryService {
                 .eq(alt, alternateBases))
         > 0;
   }
+
+  /**
+   * A variant index contains all dataset rows, only use it if the user is allowed to count all rows
+   * of the dataset.
+   */
+  private boolean isIndexAllowed(BeaconDataset beaconDataset) {
+    EntityType entityType = beaconDataset.getDatasetEntityType();
+    return userPermissionEvaluator.hasPermission(new EntityTypeIdentity(entityType), COUNT_DATA)
+        && !mutableAclClassService.hasAclClass(EntityIdentityUtils.toType(entityType));
+  }
 }
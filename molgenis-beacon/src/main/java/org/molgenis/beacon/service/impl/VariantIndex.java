@@ -0,0 +1,129 @@
+package org.molgenis.beacon.service.impl;
+
+import static java.util.Comparator.comparingLong;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Compact in-memory index of the variants in a beacon dataset: chromosome → sorted positions →
+ * reference and alternate bases.
+ */
+public class VariantIndex {
+  private final Map<String, ChromosomeIndex> chromosomeIndices;
+  private final int size;
+
+  private VariantIndex(Map<String, ChromosomeIndex> chromosomeIndices, int size) {
+    this.chromosomeIndices = ImmutableMap.copyOf(chromosomeIndices);
+    this.size = size;
+  }
+
+  /** Returns whether the index contains a variant with the given position and alleles */
+  public boolean contains(String chromosome, long position, String ref, String alt) {
+    ChromosomeIndex chromosomeIndex = chromosomeIndices.get(chromosome);
+    return chromosomeIndex != null && chromosomeIndex.contains(position, ref, alt);
+  }
+
+  /** Returns the number of variants in the index */
+  int size() {
+    return size;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private static class ChromosomeIndex {
+    private final long[] positions;
+    private final String[] refs;
+    private final String[] alts;
+
+    ChromosomeIndex(long[] positions, String[] refs, String[] alts) {
+      this.positions = positions;
+      this.refs = refs;
+      this.alts = alts;
+    }
+
+    boolean contains(long position, String ref, String alt) {
+      for (int i = lowerBound(position); i < positions.length && positions[i] == position; ++i) {
+        if (Objects.equals(refs[i], ref) && Objects.equals(alts[i], alt)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /** Returns the index of the first position that is greater than or equal to the position */
+    private int lowerBound(long position) {
+      int low = 0;
+      int high = positions.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (positions[mid] < position) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+  }
+
+  public static class Builder {
+    private final Map<String, List<Variant>> variants = new HashMap<>();
+    /** allele strings are highly repetitive, store each distinct value once */
+    private final Map<String, String> alleles = new HashMap<>();
+
+    private Builder() {}
+
+    public Builder add(String chromosome, long position, String ref, String alt) {
+      variants
+          .computeIfAbsent(chromosome, key -> new ArrayList<>())
+          .add(new Variant(position, toAllele(ref), toAllele(alt)));
+      return this;
+    }
+
+    public VariantIndex build() {
+      Map<String, ChromosomeIndex> chromosomeIndices = new HashMap<>();
+      int[] totalSize = {0};
+      variants.forEach(
+          (chromosome, chromosomeVariants) -> {
+            chromosomeVariants.sort(comparingLong(variant -> variant.position));
+
+            int size = chromosomeVariants.size();
+            totalSize[0] += size;
+            long[] positions = new long[size];
+            String[] refs = new String[size];
+            String[] alts = new String[size];
+            for (int i = 0; i < size; ++i) {
+              Variant variant = chromosomeVariants.get(i);
+              positions[i] = variant.position;
+              refs[i] = variant.ref;
+              alts[i] = variant.alt;
+            }
+            chromosomeIndices.put(chromosome, new ChromosomeIndex(positions, refs, alts));
+          });
+      return new VariantIndex(chromosomeIndices, totalSize[0]);
+    }
+
+    private String toAllele(String value) {
+      return value != null ? alleles.computeIfAbsent(value, key -> key) : null;
+    }
+  }
+
+  private static class Variant {
+    private final long position;
+    private final String ref;
+    private final String alt;
+
+    Variant(long position, String ref, String alt) {
+      this.position = position;
+      this.ref = ref;
+      this.alt = alt;
+    }
+  }
+}
@@ -0,0 +1,229 @@
+package org.molgenis.beacon.service.impl;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static org.molgenis.data.meta.model.AttributeMetadata.ATTRIBUTE_META_DATA;
+import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
+import static org.molgenis.data.util.EntityTypeUtils.isStringType;
+import static org.molgenis.data.util.EntityTypeUtils.isTextType;
+import static org.molgenis.security.core.runas.RunAsSystemAspect.runAsSystem;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.molgenis.beacon.config.BeaconDataset;
+import org.molgenis.data.DataService;
+import org.molgenis.data.Entity;
+import org.molgenis.data.EntityKey;
+import org.molgenis.data.Fetch;
+import org.molgenis.data.Query;
+import org.molgenis.data.meta.AttributeType;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.support.QueryImpl;
+import org.molgenis.data.transaction.DefaultMolgenisTransactionListener;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionManager;
+import org.molgenis.genomebrowser.meta.GenomeBrowserAttributes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates and caches a {@link VariantIndex} per beacon dataset.
+ *
+ * <p>An index contains all rows of the dataset regardless of the permissions of the current user,
+ * callers are responsible for checking permissions before using an index. Indices of a dataset are
+ * evicted after a transaction that modified the data or the metadata of the dataset is committed.
+ * The total number of variants in the cached indices is bounded, least recently used indices are
+ * evicted first.
+ */
+@Component
+public class VariantIndexService extends DefaultMolgenisTransactionListener {
+  private static final Logger LOG = LoggerFactory.getLogger(VariantIndexService.class);
+
+  private static final String DEFAULT_REF = "REF";
+  private static final String DEFAULT_ALT = "ALT";
+
+  private final DataService dataService;
+  private final TransactionInformation transactionInformation;
+
+  private final Cache<IndexKey, VariantIndex> indices;
+  /**
+   * maps entity type id to the number of committed transactions that modified its data, used to
+   * discard indices that were being created while the data changed
+   */
+  private final Map<String, Long> versions = new ConcurrentHashMap<>();
+  /**
+   * number of committed transactions that changed metadata of unknown entity types, used to discard
+   * indices that were being created while the metadata changed
+   */
+  private final AtomicLong metadataVersion = new AtomicLong();
+
+  VariantIndexService(
+      DataService dataService,
+      TransactionInformation transactionInformation,
+      TransactionManager transactionManager,
+      @Value("${beacon.variant_index.max_variants:5000000}") long maxVariants) {
+    this.dataService = requireNonNull(dataService);
+    this.transactionInformation = requireNonNull(transactionInformation);
+    this.indices =
+        CacheBuilder.newBuilder()
+            .maximumWeight(maxVariants)
+            .<IndexKey, VariantIndex>weigher((key, variantIndex) -> variantIndex.size())
+            .expireAfterAccess(1, HOURS)
+            .build();
+    requireNonNull(transactionManager).addTransactionListener(this);
+  }
+
+  /**
+   * Returns the variant index of the beacon dataset, creating it if it does not exist yet.
+   *
+   * @return the variant index or an empty optional if the dataset attributes cannot be indexed or
+   *     if the dataset was modified in the current transaction
+   */
+  public Optional<VariantIndex> getIndex(BeaconDataset beaconDataset) {
+    EntityType entityType = beaconDataset.getDatasetEntityType();
+    if (!transactionInformation.isRepositoryCompletelyClean(entityType)) {
+      return Optional.empty();
+    }
+
+    GenomeBrowserAttributes genomeBrowserAttributes = beaconDataset.getGenomeBrowserAttributes();
+    String chrom = genomeBrowserAttributes.getChrom();
+    String pos = genomeBrowserAttributes.getPos();
+    String ref = getAttributeName(genomeBrowserAttributes.getRef(), DEFAULT_REF);
+    String alt = getAttributeName(genomeBrowserAttributes.getAlt(), DEFAULT_ALT);
+    if (!isIndexable(entityType, chrom, pos, ref, alt)) {
+      return Optional.empty();
+    }
+
+    String entityTypeId = entityType.getId();
+    long version = versions.getOrDefault(entityTypeId, 0L);
+    IndexKey indexKey =
+        IndexKey.create(entityTypeId, chrom, pos, ref, alt, version, metadataVersion.get());
+    try {
+      return Optional.of(indices.get(indexKey, () -> createIndex(indexKey)));
+    } catch (ExecutionException e) {
+      throw new UncheckedExecutionException(e.getCause());
+    }
+  }
+
+  @Override
+  public void afterCommitTransaction(String transactionId) {
+    Set<String> dirtyRepositories = transactionInformation.getDirtyRepositories();
+    if (dirtyRepositories.contains(ATTRIBUTE_META_DATA)
+        || transactionInformation.getEntirelyDirtyRepositories().contains(ENTITY_TYPE_META_DATA)) {
+      // the entity types of changed attributes are unknown
+      metadataVersion.incrementAndGet();
+      indices.invalidateAll();
+    } else if (dirtyRepositories.contains(ENTITY_TYPE_META_DATA)) {
+      transactionInformation
+          .getDirtyEntities()
+          .stream()
+          .filter(entityKey -> entityKey.getEntityTypeId().equals(ENTITY_TYPE_META_DATA))
+          .map(EntityKey::getId)
+          .forEach(entityTypeId -> evictAll(entityTypeId.toString()));
+    }
+    dirtyRepositories.forEach(this::evictAll);
+  }
+
+  private void evictAll(String entityTypeId) {
+    versions.merge(entityTypeId, 1L, Long::sum);
+    indices.asMap().keySet().removeIf(key -> key.getEntityTypeId().equals(entityTypeId));
+  }
+
+  private VariantIndex createIndex(IndexKey indexKey) {
+    LOG.debug("Creating variant index for '{}'", indexKey.getEntityTypeId());
+
+    Fetch fetch =
+        new Fetch()
+            .field(indexKey.getChrom())
+            .field(indexKey.getPos())
+            .field(indexKey.getRef())
+            .field(indexKey.getAlt());
+    Query<Entity> query = new QueryImpl<Entity>().fetch(fetch);
+    VariantIndex.Builder builder = VariantIndex.builder();
+    runAsSystem(
+        () -> {
+          try (Stream<Entity> entities = dataService.findAll(indexKey.getEntityTypeId(), query)) {
+            entities.forEach(entity -> addVariant(builder, entity, indexKey));
+          }
+        });
+    return builder.build();
+  }
+
+  private static void addVariant(VariantIndex.Builder builder, Entity entity, IndexKey indexKey) {
+    String chrom = entity.getString(indexKey.getChrom());
+    Object pos = entity.get(indexKey.getPos());
+    if (chrom != null && pos != null) {
+      builder.add(
+          chrom,
+          ((Number) pos).longValue(),
+          entity.getString(indexKey.getRef()),
+          entity.getString(indexKey.getAlt()));
+    }
+  }
+
+  private static String getAttributeName(String attributeName, String defaultAttributeName) {
+    return attributeName == null || attributeName.isEmpty() ? defaultAttributeName : attributeName;
+  }
+
+  private static boolean isIndexable(
+      EntityType entityType, String chrom, String pos, String ref, String alt) {
+    if (chrom == null || pos == null) {
+      return false;
+    }
+    Attribute posAttribute = entityType.getAttribute(pos);
+    if (posAttribute == null) {
+      return false;
+    }
+    AttributeType posType = posAttribute.getDataType();
+    return (posType == AttributeType.INT || posType == AttributeType.LONG)
+        && isStringAttribute(entityType, chrom)
+        && isStringAttribute(entityType, ref)
+        && isStringAttribute(entityType, alt);
+  }
+
+  private static boolean isStringAttribute(EntityType entityType, String attributeName) {
+    Attribute attribute = entityType.getAttribute(attributeName);
+    return attribute != null && (isStringType(attribute) || isTextType(attribute));
+  }
+
+  @AutoValue
+  abstract static class IndexKey {
+    abstract String getEntityTypeId();
+
+    abstract String getChrom();
+
+    abstract String getPos();
+
+    abstract String getRef();
+
+    abstract String getAlt();
+
+    abstract long getVersion();
+
+    abstract long getMetadataVersion();
+
+    static IndexKey create(
+        String entityTypeId,
+        String chrom,
+        String pos,
+        String ref,
+        String alt,
+        long version,
+        long metadataVersion) {
+      return new AutoValue_VariantIndexService_IndexKey(
+          entityTypeId, chrom, pos, ref, alt, version, metadataVersion);
+    }
+  }
+}
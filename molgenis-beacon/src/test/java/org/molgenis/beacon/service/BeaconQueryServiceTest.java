@@ -1,13 +1,18 @@
 package org.molgenis.beacon.service;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
+import static org.molgenis.data.security.EntityTypePermission.COUNT_DATA;
 import static org.testng.Assert.assertEquals;
 
 import com.google.common.collect.Lists;
+import java.util.Optional;
 import org.mockito.Mock;
 import org.molgenis.beacon.config.Beacon;
 import org.molgenis.beacon.config.BeaconDataset;
@@ -17,11 +22,19 @@ import org.molgenis.beacon.controller.model.BeaconAlleleResponse;
 import org.molgenis.beacon.controller.model.exceptions.BeaconException;
 import org.molgenis.beacon.controller.model.exceptions.NestedBeaconException;
 import org.molgenis.beacon.service.impl.BeaconQueryServiceImpl;
+import org.molgenis.beacon.service.impl.VariantIndex;
+import org.molgenis.beacon.service.impl.VariantIndexService;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Query;
+import org.molgenis.data.security.EntityTypeIdentity;
 import org.molgenis.data.support.QueryImpl;
+import org.molgenis.data.util.ConcurrentQueryExecutor;
+import org.molgenis.security.acl.MutableAclClassService;
+import org.molgenis.security.core.UserPermissionEvaluator;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -29,6 +42,10 @@ public class BeaconQueryServiceTest {
   private BeaconQueryService beaconQueryService;
 
   @Mock private DataService dataService;
+  @Mock private VariantIndexService variantIndexService;
+  @Mock private UserPermissionEvaluator userPermissionEvaluator;
+  @Mock private MutableAclClassService mutableAclClassService;
+  private ConcurrentQueryExecutor concurrentQueryExecutor;
 
   private Query<Entity> query1;
   private Query<Entity> query2;
@@ -38,6 +55,16 @@ public class BeaconQueryServiceTest {
 
   private static final String BEACON_ID = "beacon";
 
+  @BeforeClass
+  public void setUpBeforeClass() {
+    concurrentQueryExecutor = new ConcurrentQueryExecutor();
+  }
+
+  @AfterClass
+  public void tearDownAfterClass() {
+    concurrentQueryExecutor.shutdown();
+  }
+
   @BeforeMethod
   public void beforeMethod() {
     initMocks(this);
@@ -78,7 +105,13 @@ public class BeaconQueryServiceTest {
             .and()
             .eq(dataset2.getGenomeBrowserAttributes().getAlt(), "T");
 
-    beaconQueryService = new BeaconQueryServiceImpl(dataService);
+    beaconQueryService =
+        new BeaconQueryServiceImpl(
+            dataService,
+            variantIndexService,
+            userPermissionEvaluator,
+            mutableAclClassService,
+            concurrentQueryExecutor);
   }
 
   @Test
@@ -141,6 +174,94 @@ public class BeaconQueryServiceTest {
     assertEquals(actualResponse, expectedResponse);
   }
 
+  @Test
+  public void queryExistsIndexTest() {
+    Beacon beacon = mock(Beacon.class);
+    when(beacon.getDataSets()).thenReturn(Lists.newArrayList(dataset1));
+
+    when(dataService.findOneById(BeaconMetadata.BEACON, BEACON_ID, Beacon.class))
+        .thenReturn(beacon);
+    when(userPermissionEvaluator.hasPermission(new EntityTypeIdentity("dataset1"), COUNT_DATA))
+        .thenReturn(true);
+    when(mutableAclClassService.hasAclClass("entity-dataset1")).thenReturn(false);
+    VariantIndex variantIndex = VariantIndex.builder().add("1", 100L, "A", "T").build();
+    when(variantIndexService.getIndex(dataset1)).thenReturn(Optional.of(variantIndex));
+
+    BeaconAlleleRequest request = BeaconAlleleRequest.create("1", 100L, "A", "T");
+
+    BeaconAlleleResponse actualResponse = beaconQueryService.query(BEACON_ID, request);
+    BeaconAlleleResponse expectedResponse =
+        BeaconAlleleResponse.create(BEACON_ID, true, null, request);
+
+    assertEquals(actualResponse, expectedResponse);
+    verify(dataService, never()).count(any(), any());
+  }
+
+  @Test
+  public void queryNotExistsIndexTest() {
+    Beacon beacon = mock(Beacon.class);
+    when(beacon.getDataSets()).thenReturn(Lists.newArrayList(dataset1));
+
+    when(dataService.findOneById(BeaconMetadata.BEACON, BEACON_ID, Beacon.class))
+        .thenReturn(beacon);
+    when(userPermissionEvaluator.hasPermission(new EntityTypeIdentity("dataset1"), COUNT_DATA))
+        .thenReturn(true);
+    when(mutableAclClassService.hasAclClass("entity-dataset1")).thenReturn(false);
+    VariantIndex variantIndex = VariantIndex.builder().add("1", 100L, "A", "C").build();
+    when(variantIndexService.getIndex(dataset1)).thenReturn(Optional.of(variantIndex));
+
+    BeaconAlleleRequest request = BeaconAlleleRequest.create("1", 100L, "A", "T");
+
+    BeaconAlleleResponse actualResponse = beaconQueryService.query(BEACON_ID, request);
+    BeaconAlleleResponse expectedResponse =
+        BeaconAlleleResponse.create(BEACON_ID, false, null, request);
+
+    assertEquals(actualResponse, expectedResponse);
+    verify(dataService, never()).count(any(), any());
+  }
+
+  @Test
+  public void queryExistsRowLevelSecuredTest() {
+    Beacon beacon = mock(Beacon.class);
+    when(beacon.getDataSets()).thenReturn(Lists.newArrayList(dataset1));
+
+    when(dataService.findOneById(BeaconMetadata.BEACON, BEACON_ID, Beacon.class))
+        .thenReturn(beacon);
+    when(userPermissionEvaluator.hasPermission(new EntityTypeIdentity("dataset1"), COUNT_DATA))
+        .thenReturn(true);
+    when(mutableAclClassService.hasAclClass("entity-dataset1")).thenReturn(true);
+    doReturn(1L).when(dataService).count("dataset1", query1);
+
+    BeaconAlleleRequest request = BeaconAlleleRequest.create("1", 100L, "A", "T");
+
+    BeaconAlleleResponse actualResponse = beaconQueryService.query(BEACON_ID, request);
+    BeaconAlleleResponse expectedResponse =
+        BeaconAlleleResponse.create(BEACON_ID, true, null, request);
+
+    assertEquals(actualResponse, expectedResponse);
+    verify(variantIndexService, never()).getIndex(any());
+  }
+
+  @Test
+  public void queryExistsFirstDatasetTest() {
+    Beacon beacon = mock(Beacon.class);
+    when(beacon.getDataSets()).thenReturn(Lists.newArrayList(dataset1, dataset2));
+
+    when(dataService.findOneById(BeaconMetadata.BEACON, BEACON_ID, Beacon.class))
+        .thenReturn(beacon);
+
+    doReturn(1L).when(dataService).count("dataset1", query1);
+    doReturn(0L).when(dataService).count("dataset2", query2);
+
+    BeaconAlleleRequest request = BeaconAlleleRequest.create("1", 100L, "A", "T");
+
+    BeaconAlleleResponse actualResponse = beaconQueryService.query(BEACON_ID, request);
+    BeaconAlleleResponse expectedResponse =
+        BeaconAlleleResponse.create(BEACON_ID, true, null, request);
+
+    assertEquals(actualResponse, expectedResponse);
+  }
+
   @SuppressWarnings("deprecation")
   @Test
   public void queryErrorTest() {
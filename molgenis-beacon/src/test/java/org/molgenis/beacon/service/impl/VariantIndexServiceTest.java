@@ -0,0 +1,178 @@
+package org.molgenis.beacon.service.impl;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.molgenis.data.meta.AttributeType.INT;
+import static org.molgenis.data.meta.AttributeType.STRING;
+import static org.molgenis.data.meta.AttributeType.TEXT;
+import static org.molgenis.data.meta.model.AttributeMetadata.ATTRIBUTE_META_DATA;
+import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.mockito.Mock;
+import org.molgenis.beacon.config.BeaconDataset;
+import org.molgenis.data.DataService;
+import org.molgenis.data.Entity;
+import org.molgenis.data.EntityKey;
+import org.molgenis.data.Query;
+import org.molgenis.data.meta.AttributeType;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.transaction.TransactionInformation;
+import org.molgenis.data.transaction.TransactionManager;
+import org.molgenis.genomebrowser.meta.GenomeBrowserAttributes;
+import org.molgenis.test.AbstractMockitoTest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class VariantIndexServiceTest extends AbstractMockitoTest {
+  @Mock private DataService dataService;
+  @Mock private TransactionInformation transactionInformation;
+  @Mock private TransactionManager transactionManager;
+  @Mock private BeaconDataset beaconDataset;
+  @Mock private EntityType entityType;
+  @Mock private GenomeBrowserAttributes genomeBrowserAttributes;
+  @Mock private Entity entity;
+  private VariantIndexService variantIndexService;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    variantIndexService =
+        new VariantIndexService(dataService, transactionInformation, transactionManager, 10);
+  }
+
+  @Test
+  public void testVariantIndexService() {
+    verify(transactionManager).addTransactionListener(variantIndexService);
+  }
+
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  @Test
+  public void testGetIndex() {
+    setUpDataset();
+
+    Optional<VariantIndex> variantIndex = variantIndexService.getIndex(beaconDataset);
+    assertTrue(variantIndex.get().contains("1", 100L, "A", "T"));
+    assertFalse(variantIndex.get().contains("1", 100L, "A", "C"));
+  }
+
+  @Test
+  public void testGetIndexCached() {
+    setUpDataset();
+
+    Optional<VariantIndex> variantIndex = variantIndexService.getIndex(beaconDataset);
+    assertEquals(variantIndexService.getIndex(beaconDataset), variantIndex);
+    verify(dataService, times(1)).findAll(any(), any(Query.class));
+  }
+
+  @Test
+  public void testAfterCommitTransaction() {
+    setUpDataset();
+    variantIndexService.getIndex(beaconDataset);
+
+    when(transactionInformation.getDirtyRepositories()).thenReturn(singleton("dataset"));
+    variantIndexService.afterCommitTransaction("transactionId");
+
+    variantIndexService.getIndex(beaconDataset);
+    verify(dataService, times(2)).findAll(any(), any(Query.class));
+  }
+
+  @Test
+  public void testAfterCommitTransactionEntityTypeChanged() {
+    setUpDataset();
+    variantIndexService.getIndex(beaconDataset);
+
+    when(transactionInformation.getDirtyRepositories())
+        .thenReturn(singleton(ENTITY_TYPE_META_DATA));
+    when(transactionInformation.getEntirelyDirtyRepositories()).thenReturn(emptySet());
+    when(transactionInformation.getDirtyEntities())
+        .thenReturn(singleton(EntityKey.create(ENTITY_TYPE_META_DATA, "dataset")));
+    variantIndexService.afterCommitTransaction("transactionId");
+
+    variantIndexService.getIndex(beaconDataset);
+    verify(dataService, times(2)).findAll(any(), any(Query.class));
+  }
+
+  @Test
+  public void testAfterCommitTransactionAttributeChanged() {
+    setUpDataset();
+    variantIndexService.getIndex(beaconDataset);
+
+    when(transactionInformation.getDirtyRepositories()).thenReturn(singleton(ATTRIBUTE_META_DATA));
+    variantIndexService.afterCommitTransaction("transactionId");
+
+    variantIndexService.getIndex(beaconDataset);
+    verify(dataService, times(2)).findAll(any(), any(Query.class));
+  }
+
+  @Test
+  public void testGetIndexExceedsMaxVariants() {
+    variantIndexService =
+        new VariantIndexService(dataService, transactionInformation, transactionManager, 0);
+    setUpDataset();
+
+    variantIndexService.getIndex(beaconDataset);
+    variantIndexService.getIndex(beaconDataset);
+    verify(dataService, times(2)).findAll(any(), any(Query.class));
+  }
+
+  @Test
+  public void testGetIndexRepositoryDirty() {
+    when(beaconDataset.getDatasetEntityType()).thenReturn(entityType);
+    when(transactionInformation.isRepositoryCompletelyClean(entityType)).thenReturn(false);
+    assertEquals(variantIndexService.getIndex(beaconDataset), Optional.empty());
+  }
+
+  @Test
+  public void testGetIndexNotIndexable() {
+    when(beaconDataset.getDatasetEntityType()).thenReturn(entityType);
+    when(transactionInformation.isRepositoryCompletelyClean(entityType)).thenReturn(true);
+    when(beaconDataset.getGenomeBrowserAttributes()).thenReturn(genomeBrowserAttributes);
+    when(genomeBrowserAttributes.getChrom()).thenReturn("#CHROM");
+    when(genomeBrowserAttributes.getPos()).thenReturn("POS");
+    Attribute posAttribute = createAttribute(STRING);
+    when(entityType.getAttribute("POS")).thenReturn(posAttribute);
+
+    assertEquals(variantIndexService.getIndex(beaconDataset), Optional.empty());
+  }
+
+  private void setUpDataset() {
+    when(beaconDataset.getDatasetEntityType()).thenReturn(entityType);
+    when(transactionInformation.isRepositoryCompletelyClean(entityType)).thenReturn(true);
+    when(beaconDataset.getGenomeBrowserAttributes()).thenReturn(genomeBrowserAttributes);
+    when(genomeBrowserAttributes.getChrom()).thenReturn("#CHROM");
+    when(genomeBrowserAttributes.getPos()).thenReturn("POS");
+    when(genomeBrowserAttributes.getRef()).thenReturn(null);
+    when(genomeBrowserAttributes.getAlt()).thenReturn("ALT");
+    Attribute chromAttribute = createAttribute(STRING);
+    Attribute posAttribute = createAttribute(INT);
+    Attribute refAttribute = createAttribute(TEXT);
+    Attribute altAttribute = createAttribute(TEXT);
+    when(entityType.getAttribute("#CHROM")).thenReturn(chromAttribute);
+    when(entityType.getAttribute("POS")).thenReturn(posAttribute);
+    when(entityType.getAttribute("REF")).thenReturn(refAttribute);
+    when(entityType.getAttribute("ALT")).thenReturn(altAttribute);
+    when(entityType.getId()).thenReturn("dataset");
+
+    when(entity.getString("#CHROM")).thenReturn("1");
+    when(entity.get("POS")).thenReturn(100);
+    when(entity.getString("REF")).thenReturn("A");
+    when(entity.getString("ALT")).thenReturn("T");
+    when(dataService.findAll(any(), any(Query.class))).thenAnswer(invocation -> Stream.of(entity));
+  }
+
+  private Attribute createAttribute(AttributeType attributeType) {
+    Attribute attribute = mock(Attribute.class);
+    when(attribute.getDataType()).thenReturn(attributeType);
+    return attribute;
+  }
+}
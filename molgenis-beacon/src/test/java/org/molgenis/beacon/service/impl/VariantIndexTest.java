@@ -0,0 +1,63 @@
+package org.molgenis.beacon.service.impl;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class VariantIndexTest {
+  private VariantIndex variantIndex;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    variantIndex =
+        VariantIndex.builder()
+            .add("1", 300L, "G", "C")
+            .add("1", 100L, "A", "T")
+            .add("1", 200L, "C", "G")
+            .add("1", 100L, "A", "G")
+            .add("X", 100L, "T", null)
+            .build();
+  }
+
+  @Test
+  public void testContains() {
+    assertTrue(variantIndex.contains("1", 100L, "A", "T"));
+  }
+
+  @Test
+  public void testContainsMultipleVariantsAtPosition() {
+    assertTrue(variantIndex.contains("1", 100L, "A", "G"));
+  }
+
+  @Test
+  public void testContainsLastPosition() {
+    assertTrue(variantIndex.contains("1", 300L, "G", "C"));
+  }
+
+  @Test
+  public void testContainsNullAllele() {
+    assertTrue(variantIndex.contains("X", 100L, "T", null));
+  }
+
+  @Test
+  public void testContainsUnknownChromosome() {
+    assertFalse(variantIndex.contains("2", 100L, "A", "T"));
+  }
+
+  @Test
+  public void testContainsUnknownPosition() {
+    assertFalse(variantIndex.contains("1", 150L, "A", "T"));
+  }
+
+  @Test
+  public void testContainsPositionAfterLastPosition() {
+    assertFalse(variantIndex.contains("1", 400L, "G", "C"));
+  }
+
+  @Test
+  public void testContainsUnknownAlleles() {
+    assertFalse(variantIndex.contains("1", 100L, "A", "C"));
+  }
+}
@@ -1,23 +1,32 @@
 package org.molgenis.core.ui.jobs;
 
 import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.requireNonNull;
 import static org.molgenis.core.ui.jobs.JobsController.URI;
 import static org.molgenis.data.security.EntityTypePermission.READ_DATA;
 import static org.molgenis.jobs.model.JobExecutionMetaData.SUBMISSION_DATE;
 import static org.molgenis.jobs.model.JobExecutionMetaData.USER;
 import static org.springframework.http.HttpStatus.NO_CONTENT;
+import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
+import javax.servlet.http.HttpServletResponse;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Query;
+import org.molgenis.data.UnknownEntityException;
+import org.molgenis.data.UnknownEntityTypeException;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.security.EntityTypeIdentity;
 import org.molgenis.data.security.auth.User;
+import org.molgenis.jobs.JobExecutionLogStore;
+import org.molgenis.jobs.model.JobExecution;
 import org.molgenis.jobs.model.JobExecutionMetaData;
 import org.molgenis.jobs.schedule.JobScheduler;
 import org.molgenis.security.core.UserPermissionEvaluator;
@@ -48,6 +57,7 @@ public class JobsController extends PluginController {
   private final JobScheduler jobScheduler;
   private final MenuReaderService menuReaderService;
   private final UserPermissionEvaluator userPermissionEvaluator;
+  private final JobExecutionLogStore jobExecutionLogStore;
 
   JobsController(
       UserAccountService userAccountService,
@@ -55,7 +65,8 @@ public class JobsController extends PluginController {
       JobExecutionMetaData jobMetaDataMetaData,
       JobScheduler jobScheduler,
       MenuReaderService menuReaderService,
-      UserPermissionEvaluator userPermissionEvaluator) {
+      UserPermissionEvaluator userPermissionEvaluator,
+      JobExecutionLogStore jobExecutionLogStore) {
     super(URI);
     this.userAccountService = requireNonNull(userAccountService);
     this.dataService = requireNonNull(dataService);
@@ -63,6 +74,7 @@ public class JobsController extends PluginController {
     this.jobScheduler = requireNonNull(jobScheduler);
     this.menuReaderService = requireNonNull(menuReaderService);
     this.userPermissionEvaluator = requireNonNull(userPermissionEvaluator);
+    this.jobExecutionLogStore = requireNonNull(jobExecutionLogStore);
   }
 
   @GetMapping
@@ -120,6 +132,39 @@ public class JobsController extends PluginController {
     jobScheduler.runNow(scheduledJobId);
   }
 
+  /**
+   * Streams the complete log of a job execution. The log attribute of a job execution only contains
+   * the tail of the log.
+   */
+  @GetMapping(value = "/{entityTypeId}/{jobExecutionId}/log", produces = TEXT_PLAIN_VALUE)
+  public void getLog(
+      @PathVariable("entityTypeId") String entityTypeId,
+      @PathVariable("jobExecutionId") String jobExecutionId,
+      HttpServletResponse response)
+      throws IOException {
+    EntityType entityType = dataService.getEntityType(entityTypeId);
+    if (!isJobExecutionEntityType(entityType)) {
+      throw new UnknownEntityTypeException(entityTypeId);
+    }
+    JobExecution jobExecution =
+        dataService.findOneById(entityTypeId, jobExecutionId, JobExecution.class);
+    if (jobExecution == null) {
+      throw new UnknownEntityException(entityType, jobExecutionId);
+    }
+
+    response.setContentType(TEXT_PLAIN_VALUE);
+    response.setCharacterEncoding(UTF_8.name());
+    OutputStream outputStream = response.getOutputStream();
+    if (!jobExecutionLogStore.writeLog(jobExecution.getIdentifier(), outputStream)) {
+      // job executions that did not log any messages or that were executed before the log store
+      // was introduced
+      String log = jobExecution.getLog();
+      if (log != null) {
+        outputStream.write(log.getBytes(UTF_8));
+      }
+    }
+  }
+
   public String createJobExecutionViewHref(String jobHref, int refreshTimeoutMillis) {
     String jobControllerURL = menuReaderService.findMenuItemPath(ID);
     return format(
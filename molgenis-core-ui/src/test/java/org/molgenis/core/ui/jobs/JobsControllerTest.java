@@ -1,5 +1,8 @@
 package org.molgenis.core.ui.jobs;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.molgenis.data.security.EntityTypePermission.READ_DATA;
@@ -7,10 +10,15 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import org.mockito.Mock;
 import org.molgenis.data.DataService;
+import org.molgenis.data.UnknownEntityException;
+import org.molgenis.data.UnknownEntityTypeException;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.security.EntityTypeIdentity;
+import org.molgenis.jobs.JobExecutionLogStore;
 import org.molgenis.jobs.model.JobExecution;
 import org.molgenis.jobs.model.JobExecutionMetaData;
 import org.molgenis.jobs.schedule.JobScheduler;
@@ -19,6 +27,7 @@ import org.molgenis.security.user.UserAccountService;
 import org.molgenis.test.AbstractMockitoTest;
 import org.molgenis.web.menu.MenuReaderService;
 import org.molgenis.web.menu.model.Menu;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -32,6 +41,7 @@ public class JobsControllerTest extends AbstractMockitoTest {
   @Mock private JobExecution jobExecution;
   @Mock private EntityType jobExecutionEntityType;
   @Mock private UserPermissionEvaluator userPermissionEvaluator;
+  @Mock private JobExecutionLogStore jobExecutionLogStore;
 
   private JobsController jobsController;
 
@@ -44,7 +54,8 @@ public class JobsControllerTest extends AbstractMockitoTest {
             jobMetaDataMetaData,
             jobScheduler,
             menuReaderService,
-            userPermissionEvaluator);
+            userPermissionEvaluator,
+            jobExecutionLogStore);
   }
 
   @Test
@@ -93,4 +104,63 @@ public class JobsControllerTest extends AbstractMockitoTest {
         .thenReturn(true);
     assertTrue(jobsController.isAllowedJobExecutionEntityType(entityType));
   }
+
+  @Test
+  public void testGetLog() throws IOException {
+    when(jobMetaDataMetaData.getId()).thenReturn("sys_job_JobExecution");
+    EntityType extendsEntityType =
+        when(mock(EntityType.class).getId()).thenReturn("sys_job_JobExecution").getMock();
+    when(jobExecutionEntityType.getExtends()).thenReturn(extendsEntityType);
+    when(dataService.getEntityType("MyJobExecution")).thenReturn(jobExecutionEntityType);
+    when(dataService.findOneById("MyJobExecution", "abcde", JobExecution.class))
+        .thenReturn(jobExecution);
+    when(jobExecution.getIdentifier()).thenReturn("abcde");
+    doAnswer(
+            invocation -> {
+              invocation.<OutputStream>getArgument(1).write("log".getBytes());
+              return true;
+            })
+        .when(jobExecutionLogStore)
+        .writeLog(eq("abcde"), any(OutputStream.class));
+
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    jobsController.getLog("MyJobExecution", "abcde", response);
+    assertEquals(response.getContentAsString(), "log");
+  }
+
+  @Test
+  public void testGetLogFromJobExecution() throws IOException {
+    when(jobMetaDataMetaData.getId()).thenReturn("sys_job_JobExecution");
+    EntityType extendsEntityType =
+        when(mock(EntityType.class).getId()).thenReturn("sys_job_JobExecution").getMock();
+    when(jobExecutionEntityType.getExtends()).thenReturn(extendsEntityType);
+    when(dataService.getEntityType("MyJobExecution")).thenReturn(jobExecutionEntityType);
+    when(dataService.findOneById("MyJobExecution", "abcde", JobExecution.class))
+        .thenReturn(jobExecution);
+    when(jobExecution.getIdentifier()).thenReturn("abcde");
+    when(jobExecution.getLog()).thenReturn("log tail");
+
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    jobsController.getLog("MyJobExecution", "abcde", response);
+    assertEquals(response.getContentAsString(), "log tail");
+  }
+
+  @Test(expectedExceptions = UnknownEntityException.class)
+  public void testGetLogUnknownJobExecution() throws IOException {
+    when(jobMetaDataMetaData.getId()).thenReturn("sys_job_JobExecution");
+    EntityType extendsEntityType =
+        when(mock(EntityType.class).getId()).thenReturn("sys_job_JobExecution").getMock();
+    when(jobExecutionEntityType.getExtends()).thenReturn(extendsEntityType);
+    when(dataService.getEntityType("MyJobExecution")).thenReturn(jobExecutionEntityType);
+
+    jobsController.getLog("MyJobExecution", "abcde", new MockHttpServletResponse());
+  }
+
+  @Test(expectedExceptions = UnknownEntityTypeException.class)
+  public void testGetLogNotAJobExecution() throws IOException {
+    EntityType entityType = mock(EntityType.class);
+    when(dataService.getEntityType("MyEntityType")).thenReturn(entityType);
+
+    jobsController.getLog("MyEntityType", "abcde", new MockHttpServletResponse());
+  }
 }
@@ -140,6 +140,15 @@ public class L1CacheRepositoryDecorator extends AbstractRepositoryDecorator<Enti
     delegate().update(entities);
   }
 
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    evictBiDiReferencedEntityTypes();
+    if (cacheable) {
+      entities.forEach(entity -> l1Cache.put(getEntityType().getId(), entity));
+    }
+    delegate().upsertBatch(entities);
+  }
+
   @Override
   public void delete(Entity entity) {
     evictBiDiReferencedEntities(entity);
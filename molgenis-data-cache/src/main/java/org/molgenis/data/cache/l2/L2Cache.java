@@ -1,80 +1,138 @@
 package org.molgenis.data.cache.l2;
 
-import static com.google.common.collect.Maps.newConcurrentMap;
 import static com.google.common.collect.Streams.stream;
+import static java.util.Collections.emptyMap;
 import static java.util.Objects.requireNonNull;
 import static java.util.Optional.empty;
 import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 
+import com.github.benmanes.caffeine.cache.CacheWriter;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import com.github.benmanes.caffeine.guava.CaffeinatedGuava;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Cache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityKey;
-import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Repository;
+import org.molgenis.data.cache.utils.DehydratedEntity;
 import org.molgenis.data.cache.utils.EntityHydration;
-import org.molgenis.data.meta.MetaDataService;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.transaction.DefaultMolgenisTransactionListener;
 import org.molgenis.data.transaction.TransactionInformation;
 import org.molgenis.data.transaction.TransactionManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-/** In-memory cache of entities read from cacheable repositories. */
+/**
+ * In-memory cache of entities read from cacheable repositories, shared by all transactions.
+ *
+ * <p>Entities are cached in one of two caches depending on the {@link L2CachePolicy} of their
+ * entity type. Both caches are bounded by a memory budget in bytes, entries are weighted by the
+ * estimated size of the dehydrated entity. The caches only admit a new entry at the expense of an
+ * existing entry if the new entry is requested more frequently, so that frequently read entities
+ * are not evicted by large scans.
+ */
 @Service
 public class L2Cache extends DefaultMolgenisTransactionListener {
   private static final Logger LOG = LoggerFactory.getLogger(L2Cache.class);
-  private static final int MAX_CACHE_SIZE_PER_ENTITY = 1000;
-  /** maps entity id to the loading cache with Object key and Optional dehydrated entity value */
-  private final ConcurrentMap<String, LoadingCache<Object, Optional<Map<String, Object>>>> caches;
+
+  /** maps entity key to Optional dehydrated entity value */
+  private final Cache<EntityKey, Optional<DehydratedEntity>> sharedCache;
+
+  private final Cache<EntityKey, Optional<DehydratedEntity>> pinnedCache;
+
+  /** entity type id --> keys of the cached entities, allows eviction per entity type */
+  private final ConcurrentMap<String, Set<EntityKey>> sharedCacheKeys = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<String, Set<EntityKey>> pinnedCacheKeys = new ConcurrentHashMap<>();
 
   private final EntityHydration entityHydration;
   private final TransactionInformation transactionInformation;
-  private final MeterRegistry meterRegistry;
 
   public L2Cache(
       TransactionManager transactionManager,
       EntityHydration entityHydration,
       TransactionInformation transactionInformation,
-      MeterRegistry meterRegistry) {
+      MeterRegistry meterRegistry,
+      @Value("${l2.cache.shared.max_bytes:134217728}") long sharedCacheMaxBytes,
+      @Value("${l2.cache.pinned.max_bytes:67108864}") long pinnedCacheMaxBytes) {
     this.entityHydration = requireNonNull(entityHydration);
     this.transactionInformation = requireNonNull(transactionInformation);
-    this.meterRegistry = requireNonNull(meterRegistry);
-    caches = newConcurrentMap();
+    sharedCache =
+        CaffeinatedGuava.build(
+            createCacheBuilder(sharedCacheMaxBytes, sharedCacheKeys)
+                .expireAfterAccess(10, MINUTES));
+    pinnedCache =
+        CaffeinatedGuava.build(createCacheBuilder(pinnedCacheMaxBytes, pinnedCacheKeys));
+    GuavaCacheMetrics.monitor(meterRegistry, sharedCache, "l2.shared");
+    GuavaCacheMetrics.monitor(meterRegistry, pinnedCache, "l2.pinned");
     requireNonNull(transactionManager).addTransactionListener(this);
   }
 
+  private static Caffeine<EntityKey, Optional<DehydratedEntity>> createCacheBuilder(
+      long maxBytes, ConcurrentMap<String, Set<EntityKey>> cacheKeys) {
+    return Caffeine.newBuilder()
+        .recordStats()
+        .maximumWeight(maxBytes)
+        .weigher(L2Cache::estimateSize)
+        .writer(new CacheKeysWriter(cacheKeys));
+  }
+
   @Override
   public void afterCommitTransaction(String transactionId) {
-    // TODO: trace logging
-    transactionInformation.getEntirelyDirtyRepositories().forEach(caches::remove);
+    transactionInformation.getEntirelyDirtyRepositories().forEach(this::evictAll);
     transactionInformation.getDirtyEntities().forEach(this::evict);
   }
 
-  private void evict(EntityKey entityKey) {
-    LoadingCache<Object, Optional<Map<String, Object>>> cache =
-        caches.get(entityKey.getEntityTypeId());
-    if (cache != null) {
-      cache.invalidate(entityKey.getId());
+  private void evictAll(String entityTypeId) {
+    evictAll(sharedCache, sharedCacheKeys, entityTypeId);
+    evictAll(pinnedCache, pinnedCacheKeys, entityTypeId);
+  }
+
+  private static void evictAll(
+      Cache<EntityKey, Optional<DehydratedEntity>> cache,
+      ConcurrentMap<String, Set<EntityKey>> cacheKeys,
+      String entityTypeId) {
+    Set<EntityKey> entityKeys = cacheKeys.get(entityTypeId);
+    if (entityKeys != null) {
+      // copy, invalidation removes the keys from the set
+      cache.invalidateAll(ImmutableList.copyOf(entityKeys));
     }
   }
 
+  private static void addCacheKey(
+      ConcurrentMap<String, Set<EntityKey>> cacheKeys, EntityKey entityKey) {
+    cacheKeys
+        .computeIfAbsent(entityKey.getEntityTypeId(), id -> ConcurrentHashMap.newKeySet())
+        .add(entityKey);
+  }
+
+  private void evict(EntityKey entityKey) {
+    sharedCache.invalidate(entityKey);
+    pinnedCache.invalidate(entityKey);
+  }
+
   /**
    * Retrieves an entity from the cache or the underlying repository.
    *
@@ -85,131 +143,183 @@ public class L2Cache extends DefaultMolgenisTransactionListener {
    *     an error when loading the entity
    */
   public Entity get(Repository<Entity> repository, Object id) {
-    LoadingCache<Object, Optional<Map<String, Object>>> cache = getEntityCache(repository);
     EntityType entityType = repository.getEntityType();
-    return cache.getUnchecked(id).map(e -> entityHydration.hydrate(e, entityType)).orElse(null);
+    EntityKey entityKey = EntityKey.create(entityType, id);
+    Optional<DehydratedEntity> dehydratedEntity;
+    try {
+      dehydratedEntity =
+          getCache(entityType)
+              .get(
+                  entityKey,
+                  () -> {
+                    Optional<DehydratedEntity> loadedEntity =
+                        Optional.ofNullable(repository.findOneById(id)).map(this::dehydrate);
+                    // the cache writer is not informed about loaded entries
+                    addCacheKey(getCacheKeys(entityType), entityKey);
+                    return loadedEntity;
+                  });
+    } catch (ExecutionException e) {
+      throw new UncheckedExecutionException(e.getCause());
+    }
+    return dehydratedEntity.map(e -> entityHydration.hydrate(e, entityType)).orElse(null);
   }
 
   /**
-   * Retrieves a list of entities from the cache. If the cache doesn't yet exist, will create the
-   * cache.
+   * Retrieves a list of entities from the cache. Entities that are not cached are retrieved from
+   * the underlying repository in one call and added to the cache.
    *
-   * @param repository the underlying repository, used to create the cache loader or to retrieve the
-   *     existing cache
+   * @param repository the underlying repository
    * @param ids {@link Iterable} of the ids of the entities to retrieve
    * @return List containing the retrieved entities, missing values are excluded
-   * @throws RuntimeException if the cache failed to load the entities
+   * @throws com.google.common.util.concurrent.UncheckedExecutionException if the repository throws
+   *     an error when loading the entities
    */
   public List<Entity> getBatch(Repository<Entity> repository, Iterable<Object> ids) {
+    EntityType entityType = repository.getEntityType();
+    Cache<EntityKey, Optional<DehydratedEntity>> cache = getCache(entityType);
+
+    Map<Object, EntityKey> entityKeys = new LinkedHashMap<>();
+    ids.forEach(id -> entityKeys.put(id, EntityKey.create(entityType, id)));
+    Map<EntityKey, Optional<DehydratedEntity>> cachedEntities =
+        cache.getAllPresent(entityKeys.values());
+
+    List<Object> missingIds =
+        entityKeys
+            .entrySet()
+            .stream()
+            .filter(entry -> !cachedEntities.containsKey(entry.getValue()))
+            .map(Map.Entry::getKey)
+            .collect(toList());
+    Map<Object, Optional<DehydratedEntity>> loadedEntities =
+        missingIds.isEmpty() ? emptyMap() : load(repository, missingIds);
+    loadedEntities.forEach((id, entity) -> cache.put(entityKeys.get(id), entity));
+
+    return entityKeys
+        .entrySet()
+        .stream()
+        .map(
+            entry -> {
+              Optional<DehydratedEntity> entity = cachedEntities.get(entry.getValue());
+              return entity != null ? entity : loadedEntities.get(entry.getKey());
+            })
+        .filter(entity -> entity != null && entity.isPresent())
+        .map(entity -> entityHydration.hydrate(entity.get(), entityType))
+        .collect(toList());
+  }
+
+  /**
+   * Loads multiple entities from the repository.
+   *
+   * @return Map mapping id to dehydrated entity, or to empty optional if the entity was not present
+   *     in the repository
+   */
+  private Map<Object, Optional<DehydratedEntity>> load(
+      Repository<Entity> repository, Collection<Object> ids) {
+    Map<Object, Optional<DehydratedEntity>> result;
     try {
-      return getEntityCache(repository)
-          .getAll(ids)
-          .values()
-          .stream()
-          .filter(Optional::isPresent)
-          .map(Optional::get)
-          .map(e -> entityHydration.hydrate(e, repository.getEntityType()))
-          .collect(Collectors.toList());
-    } catch (ExecutionException exception) {
-      // rethrow unchecked
-      if (exception.getCause() != null && exception.getCause() instanceof RuntimeException) {
-        throw (RuntimeException) exception.getCause();
-      }
-      throw new MolgenisDataException(exception);
+      result =
+          repository
+              .findAll(stream(ids))
+              .collect(toMap(Entity::getIdValue, entity -> Optional.of(dehydrate(entity))));
+    } catch (RuntimeException e) {
+      throw new UncheckedExecutionException(e);
     }
+    for (Object id : ids) {
+      // cache the absence of these entities in the backend as empty values
+      result.putIfAbsent(id, empty());
+    }
+    return result;
+  }
+
+  private DehydratedEntity dehydrate(Entity entity) {
+    return entityHydration.dehydrate(entity);
+  }
+
+  private Cache<EntityKey, Optional<DehydratedEntity>> getCache(EntityType entityType) {
+    return L2CachePolicy.of(entityType) == L2CachePolicy.PINNED ? pinnedCache : sharedCache;
   }
 
-  /** Logs cumulative cache statistics for all known caches. */
+  private ConcurrentMap<String, Set<EntityKey>> getCacheKeys(EntityType entityType) {
+    return L2CachePolicy.of(entityType) == L2CachePolicy.PINNED ? pinnedCacheKeys : sharedCacheKeys;
+  }
+
+  /** Logs cumulative cache statistics. */
   @Scheduled(fixedRate = 60000)
   public void logStatistics() {
-    // TODO: do we want to log diff with last log instead?
     if (LOG.isDebugEnabled()) {
       LOG.debug("Cache stats:");
-      for (Map.Entry<String, LoadingCache<Object, Optional<Map<String, Object>>>> cacheEntry :
-          caches.entrySet()) {
-        LOG.debug("{}:{}", cacheEntry.getKey(), cacheEntry.getValue().stats());
-      }
+      LOG.debug("shared:{}", sharedCache.stats());
+      LOG.debug("pinned:{}", pinnedCache.stats());
     }
   }
 
   /**
-   * Gets the existing entity cache for a {@link Repository} or creates a new one if no cache exists
-   * yet.
-   *
-   * @param repository the Repository used to create a new cache if none found, otherwise only the
-   *     id of the repository is used to look up the existing cache
-   * @return the LoadingCache for the repository
+   * Keeps track of the keys per entity type of the entries written to a cache. The writer is
+   * invoked atomically with the cache operation on the key, so the keys stay consistent with the
+   * cache entries.
    */
-  private LoadingCache<Object, Optional<Map<String, Object>>> getEntityCache(
-      Repository<Entity> repository) {
-    String id = repository.getEntityType().getId();
-    if (!caches.containsKey(id)) {
-      caches.putIfAbsent(id, createEntityCache(repository));
+  private static class CacheKeysWriter
+      implements CacheWriter<EntityKey, Optional<DehydratedEntity>> {
+    private final ConcurrentMap<String, Set<EntityKey>> cacheKeys;
+
+    CacheKeysWriter(ConcurrentMap<String, Set<EntityKey>> cacheKeys) {
+      this.cacheKeys = requireNonNull(cacheKeys);
     }
-    return caches.get(id);
-  }
 
-  /**
-   * Creates a new Entity cache
-   *
-   * @param repository the {@link Repository} to load the entities from
-   * @return newly created LoadingCache
-   */
-  private LoadingCache<Object, Optional<Map<String, Object>>> createEntityCache(
-      Repository<Entity> repository) {
-    Caffeine<Object, Object> cacheBuilder =
-        Caffeine.newBuilder().recordStats().expireAfterAccess(10, MINUTES);
-    if (!MetaDataService.isMetaEntityType(repository.getEntityType())) {
-      cacheBuilder.maximumSize(MAX_CACHE_SIZE_PER_ENTITY);
+    @Override
+    public void write(EntityKey entityKey, Optional<DehydratedEntity> dehydratedEntity) {
+      addCacheKey(cacheKeys, entityKey);
+    }
+
+    @Override
+    public void delete(
+        EntityKey entityKey,
+        @Nullable Optional<DehydratedEntity> dehydratedEntity,
+        RemovalCause cause) {
+      Set<EntityKey> entityKeys = cacheKeys.get(entityKey.getEntityTypeId());
+      if (entityKeys != null) {
+        entityKeys.remove(entityKey);
+      }
     }
-    LoadingCache<Object, Optional<Map<String, Object>>> cache =
-        CaffeinatedGuava.build(cacheBuilder, createCacheLoader(repository));
-    GuavaCacheMetrics.monitor(meterRegistry, cache, "l2." + repository.getEntityType().getId());
-    return cache;
   }
 
   /**
-   * Creates a CacheLoader that loads entities from the repository and dehydrates them.
-   *
-   * @param repository the Repository to load the entities from
-   * @return the {@link CacheLoader}
+   * Estimates the number of bytes retained by a cache entry. The estimate assumes a 64-bit JVM with
+   * compressed object pointers, the schema of the dehydrated entity is not counted because it is
+   * shared by all entities of the entity type.
    */
-  private CacheLoader<Object, Optional<Map<String, Object>>> createCacheLoader(
-      final Repository<Entity> repository) {
-    return new CacheLoader<Object, Optional<Map<String, Object>>>() {
-      /**
-       * Loads a single entity from the repository.
-       *
-       * @param id ID value of the entity to retrieve
-       * @return dehydrated entity or empty if the entity was not present in the repository
-       */
-      @Override
-      public Optional<Map<String, Object>> load(@Nonnull Object id) {
-        return Optional.ofNullable(repository.findOneById(id)).map(entityHydration::dehydrate);
-      }
-
-      /**
-       * Loads multiple entities from the repository.
-       *
-       * @param ids Iterable of String representations of the ID values
-       * @return Map mapping id to loaded entity, or to empty optional if the entity was not present
-       *     in the repository
-       */
-      @Override
-      public Map<Object, Optional<Map<String, Object>>> loadAll(Iterable<?> ids) {
-        Stream<Object> typedIds = stream(ids).map(id -> id);
-        Map<Object, Optional<Map<String, Object>>> result =
-            repository.findAll(typedIds).collect(toMap(Entity::getIdValue, this::dehydrateEntity));
-        for (Object key : ids) {
-          // cache the absence of these entities in the backend as empty values
-          result.putIfAbsent(key, empty());
-        }
-        return result;
+  static int estimateSize(EntityKey entityKey, Optional<DehydratedEntity> dehydratedEntity) {
+    long size = 64 + estimateValueSize(entityKey.getId());
+    if (dehydratedEntity.isPresent()) {
+      List<Object> values = dehydratedEntity.get().getValues();
+      // dehydrated entity object and value array
+      size += 32 + 16 + 4L * values.size();
+      for (Object value : values) {
+        size += estimateValueSize(value);
       }
+    }
+    return (int) Math.min(size, Integer.MAX_VALUE);
+  }
 
-      private Optional<Map<String, Object>> dehydrateEntity(Entity entity) {
-        return Optional.of(entityHydration.dehydrate(entity));
+  private static long estimateValueSize(Object value) {
+    if (value == null || value instanceof Boolean) {
+      return 0;
+    } else if (value instanceof String) {
+      return 40 + 2L * ((String) value).length();
+    } else if (value instanceof Integer) {
+      return 16;
+    } else if (value instanceof Number || value instanceof LocalDate) {
+      return 24;
+    } else if (value instanceof Instant) {
+      return 24;
+    } else if (value instanceof Collection) {
+      long size = 40;
+      for (Object element : (Collection<?>) value) {
+        size += 8 + estimateValueSize(element);
       }
-    };
+      return size;
+    } else {
+      return 64;
+    }
   }
 }
@@ -0,0 +1,45 @@
+package org.molgenis.data.cache.l2;
+
+import static org.molgenis.data.semantic.Relation.hasCachePolicy;
+
+import org.molgenis.data.meta.MetaDataService;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.meta.model.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Determines how the {@link L2Cache} caches the entities of an entity type. The policy of an entity
+ * type can be overridden with a tag with relation {@link
+ * org.molgenis.data.semantic.Relation#hasCachePolicy} and the policy name as label.
+ */
+public enum L2CachePolicy {
+  /**
+   * Entities share the memory budget of the cache with the entities of all other entity types, the
+   * least frequently used entities are evicted first.
+   */
+  SHARED,
+  /**
+   * Entities are kept in a separate memory budget for entity types that should be cached
+   * completely, e.g. metadata or small lookup tables.
+   */
+  PINNED,
+  /** Entities are not cached. */
+  NONE;
+
+  private static final Logger LOG = LoggerFactory.getLogger(L2CachePolicy.class);
+
+  static L2CachePolicy of(EntityType entityType) {
+    for (Tag tag : entityType.getTags()) {
+      if (hasCachePolicy.getIRI().equals(tag.getRelationIri())) {
+        try {
+          return valueOf(tag.getLabel().toUpperCase());
+        } catch (IllegalArgumentException e) {
+          LOG.warn(
+              "Entity type '{}' has unknown cache policy '{}'", entityType.getId(), tag.getLabel());
+        }
+      }
+    }
+    return MetaDataService.isMetaEntityType(entityType) ? PINNED : SHARED;
+  }
+}
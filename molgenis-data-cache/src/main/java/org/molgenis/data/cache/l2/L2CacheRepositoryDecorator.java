@@ -51,7 +51,9 @@ public class L2CacheRepositoryDecorator extends AbstractRepositoryDecorator<Enti
       TransactionInformation transactionInformation) {
     super(delegateRepository);
     this.l2Cache = requireNonNull(l2Cache);
-    this.cacheable = delegateRepository.getCapabilities().containsAll(newArrayList(CACHEABLE));
+    this.cacheable =
+        delegateRepository.getCapabilities().containsAll(newArrayList(CACHEABLE))
+            && L2CachePolicy.of(delegateRepository.getEntityType()) != L2CachePolicy.NONE;
     this.transactionInformation = transactionInformation;
   }
 
@@ -103,6 +105,11 @@ public class L2CacheRepositoryDecorator extends AbstractRepositoryDecorator<Enti
     return findOneById(id);
   }
 
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    delegate().upsertBatch(entities);
+  }
+
   /**
    * Retrieves a batch of Entity IDs.
    *
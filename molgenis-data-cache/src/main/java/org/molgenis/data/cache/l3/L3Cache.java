@@ -4,6 +4,7 @@ import static com.google.common.collect.Maps.newConcurrentMap;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.stream.Collectors.toList;
+import static org.molgenis.data.QueryRule.Operator.SEARCH;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
@@ -12,14 +13,24 @@ import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Fetch;
 import org.molgenis.data.Query;
+import org.molgenis.data.QueryRule;
 import org.molgenis.data.Repository;
+import org.molgenis.data.Sort;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.support.QueryImpl;
 import org.molgenis.data.transaction.DefaultMolgenisTransactionListener;
 import org.molgenis.data.transaction.TransactionInformation;
@@ -35,8 +46,7 @@ public class L3Cache extends DefaultMolgenisTransactionListener {
   private static final int MAX_CACHE_SIZE_PER_QUERY = 1000;
 
   /** maps entity name to the loading cache with Query key and List of Identifiers */
-  private final ConcurrentMap<String, LoadingCache<Query<Entity>, List<Object>>> caches =
-      newConcurrentMap();
+  private final ConcurrentMap<String, QueryCache> caches = newConcurrentMap();
 
   private final TransactionInformation transactionInformation;
 
@@ -51,20 +61,40 @@ public class L3Cache extends DefaultMolgenisTransactionListener {
     requireNonNull(transactionManager).addTransactionListener(this);
   }
 
+  /**
+   * Evicts the cached queries of dirty repositories. If a repository was only changed by updates
+   * of which the changed attributes are known, only the queries that filter or sort on one of these
+   * attributes are evicted. Updates don't change entity ids, so other query results remain valid.
+   *
+   * <p>Query results that were being loaded while the transaction committed may have been loaded
+   * from the data before the commit. These results are stored after the eviction, so they are
+   * discarded when they are read, see {@link QueryCache}.
+   */
   @Override
   public void afterCommitTransaction(String transactionId) {
-    transactionInformation.getDirtyRepositories().forEach(caches::remove);
+    for (String entityTypeId : transactionInformation.getDirtyRepositories()) {
+      Optional<Set<String>> changedAttributes =
+          transactionInformation.getChangedAttributes(entityTypeId);
+      if (changedAttributes.isPresent()) {
+        QueryCache queryCache = caches.get(entityTypeId);
+        if (queryCache != null) {
+          queryCache.evict(changedAttributes.get());
+        }
+      } else {
+        caches.remove(entityTypeId);
+      }
+    }
   }
 
   public List<Object> get(Repository<Entity> repository, Query<Entity> query) {
     // Set fetch to null because we are only caching identifiers
-    LoadingCache<Query<Entity>, List<Object>> cache = getQueryCache(repository);
+    QueryCache queryCache = getQueryCache(repository);
     Query<Entity> fetchlessQuery = new QueryImpl<>(query);
     fetchlessQuery.setFetch(null);
-    return cache.getUnchecked(fetchlessQuery);
+    return queryCache.get(fetchlessQuery).getIds();
   }
 
-  private LoadingCache<Query<Entity>, List<Object>> getQueryCache(Repository<Entity> repository) {
+  private QueryCache getQueryCache(Repository<Entity> repository) {
     String id = repository.getEntityType().getId();
     if (!caches.containsKey(id)) {
       caches.putIfAbsent(id, createQueryCache(repository));
@@ -72,18 +102,18 @@ public class L3Cache extends DefaultMolgenisTransactionListener {
     return caches.get(id);
   }
 
-  private LoadingCache<Query<Entity>, List<Object>> createQueryCache(
-      Repository<Entity> repository) {
+  private QueryCache createQueryCache(Repository<Entity> repository) {
     LOG.trace("Creating Query cache for repository {}", repository.getName());
-    LoadingCache<Query<Entity>, List<Object>> cache =
+    AtomicLong generation = new AtomicLong();
+    LoadingCache<Query<Entity>, QueryResult> cache =
         CaffeinatedGuava.build(
             Caffeine.newBuilder()
                 .recordStats()
                 .maximumSize(MAX_CACHE_SIZE_PER_QUERY)
                 .expireAfterAccess(10, MINUTES),
-            createCacheLoader(repository));
+            createCacheLoader(repository, generation));
     GuavaCacheMetrics.monitor(meterRegistry, cache, "l3." + repository.getEntityType().getId());
-    return cache;
+    return new QueryCache(cache, generation);
   }
 
   /**
@@ -92,39 +122,167 @@ public class L3Cache extends DefaultMolgenisTransactionListener {
    *
    * @return the {@link CacheLoader}
    */
-  private CacheLoader<Query<Entity>, List<Object>> createCacheLoader(
-      final Repository<Entity> repository) {
+  private CacheLoader<Query<Entity>, QueryResult> createCacheLoader(
+      final Repository<Entity> repository, AtomicLong generation) {
     String repositoryName = repository.getName();
-    Fetch idAttributeFetch =
-        new Fetch().field(repository.getEntityType().getIdAttribute().getName());
-    return new CacheLoader<Query<Entity>, List<Object>>() {
+    EntityType entityType = repository.getEntityType();
+    Fetch idAttributeFetch = new Fetch().field(entityType.getIdAttribute().getName());
+    return new CacheLoader<Query<Entity>, QueryResult>() {
       /**
        * Loads {@link Entity} identifiers for a {@link Query}
        *
        * @param query the cache key to load
-       * @return {@link List} of identifier {@link Object}s
+       * @return {@link QueryResult} with the identifier {@link Object}s
        */
       @Override
-      public List<Object> load(@Nonnull Query<Entity> query) {
+      public QueryResult load(@Nonnull Query<Entity> query) {
         LOG.trace("Loading identifiers from repository {} for query {}", repositoryName, query);
-        return repository
-            .findAll(new QueryImpl<>(query).fetch(idAttributeFetch))
-            .map(Entity::getIdValue)
-            .collect(toList());
+        long loadGeneration = generation.get();
+        List<Object> ids =
+            repository
+                .findAll(new QueryImpl<>(query).fetch(idAttributeFetch))
+                .map(Entity::getIdValue)
+                .collect(toList());
+        return new QueryResult(ids, getAttributeNames(entityType, query), loadGeneration);
       }
     };
   }
 
+  /**
+   * Returns the names of the attributes that the query filters or sorts on.
+   *
+   * @return attribute names or <code>null</code> if the query result can depend on any attribute
+   */
+  @Nullable
+  @CheckForNull
+  static Set<String> getAttributeNames(EntityType entityType, Query<Entity> query) {
+    Set<String> attributeNames = new HashSet<>();
+    if (!addAttributeNames(entityType, query.getRules(), attributeNames)) {
+      return null;
+    }
+    Sort sort = query.getSort();
+    if (sort != null) {
+      for (Sort.Order order : sort) {
+        if (!addAttributeName(entityType, order.getAttr(), attributeNames)) {
+          return null;
+        }
+      }
+    }
+    return attributeNames;
+  }
+
+  private static boolean addAttributeNames(
+      EntityType entityType, List<QueryRule> rules, Set<String> attributeNames) {
+    for (QueryRule rule : rules) {
+      String field = rule.getField();
+      if (field != null) {
+        if (!addAttributeName(entityType, field, attributeNames)) {
+          return false;
+        }
+      } else if (rule.getOperator() == SEARCH) {
+        // search in all attributes
+        return false;
+      }
+      if (!addAttributeNames(entityType, rule.getNestedRules(), attributeNames)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean addAttributeName(
+      EntityType entityType, String field, Set<String> attributeNames) {
+    // queries on reference entity attributes ('ref.attr') depend on the reference attribute
+    int separatorIndex = field.indexOf('.');
+    String attributeName = separatorIndex != -1 ? field.substring(0, separatorIndex) : field;
+    Attribute attribute = entityType.getAttribute(attributeName);
+    if (attribute == null || attribute.hasExpression()) {
+      // the value of a computed attribute can depend on any attribute
+      return false;
+    }
+    attributeNames.add(attributeName);
+    return true;
+  }
+
   /** Logs cumulative cache statistics for all known caches. */
   @Scheduled(fixedRate = 60000)
   public void logStatistics() {
     // TODO: do we want to log diff with last log instead?
     if (LOG.isDebugEnabled()) {
       LOG.debug("Cache stats:");
-      for (Map.Entry<String, LoadingCache<Query<Entity>, List<Object>>> cacheEntry :
-          caches.entrySet()) {
-        LOG.debug("{}:{}", cacheEntry.getKey(), cacheEntry.getValue().stats());
+      for (Map.Entry<String, QueryCache> cacheEntry : caches.entrySet()) {
+        LOG.debug("{}:{}", cacheEntry.getKey(), cacheEntry.getValue().cache.stats());
+      }
+    }
+  }
+
+  /**
+   * Query cache of a single repository. The generation is incremented for every eviction. A query
+   * result is only valid if it was loaded in the current generation or if it survived the
+   * evictions since it was loaded. Results that were being loaded during an eviction are stored
+   * with an outdated generation and are reloaded when they are read.
+   */
+  private static class QueryCache {
+    private final LoadingCache<Query<Entity>, QueryResult> cache;
+    private final AtomicLong generation;
+
+    QueryCache(LoadingCache<Query<Entity>, QueryResult> cache, AtomicLong generation) {
+      this.cache = requireNonNull(cache);
+      this.generation = requireNonNull(generation);
+    }
+
+    QueryResult get(Query<Entity> query) {
+      QueryResult queryResult = cache.getUnchecked(query);
+      if (queryResult.getGeneration() != generation.get()) {
+        cache.asMap().remove(query, queryResult);
+        queryResult = cache.getUnchecked(query);
       }
+      return queryResult;
+    }
+
+    void evict(Set<String> changedAttributeNames) {
+      long newGeneration = generation.incrementAndGet();
+      cache
+          .asMap()
+          .values()
+          .removeIf(
+              queryResult -> {
+                if (queryResult.dependsOn(changedAttributeNames)) {
+                  return true;
+                }
+                queryResult.setGeneration(newGeneration);
+                return false;
+              });
+    }
+  }
+
+  /** Identifiers resulting from a query together with the attributes that the query depends on */
+  static class QueryResult {
+    private final List<Object> ids;
+    private final Set<String> attributeNames;
+    private volatile long generation;
+
+    QueryResult(List<Object> ids, @Nullable Set<String> attributeNames, long generation) {
+      this.ids = requireNonNull(ids);
+      this.attributeNames = attributeNames;
+      this.generation = generation;
+    }
+
+    long getGeneration() {
+      return generation;
+    }
+
+    void setGeneration(long generation) {
+      this.generation = generation;
+    }
+
+    List<Object> getIds() {
+      return ids;
+    }
+
+    boolean dependsOn(Set<String> changedAttributeNames) {
+      return attributeNames == null
+          || changedAttributeNames.stream().anyMatch(attributeNames::contains);
     }
   }
 }
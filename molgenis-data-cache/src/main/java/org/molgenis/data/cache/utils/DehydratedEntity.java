@@ -0,0 +1,73 @@
+package org.molgenis.data.cache.utils;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact representation of an entity in a cache. Values are stored in an array laid out by a
+ * {@link DehydratedEntitySchema} that is shared by all dehydrated entities of the same entity type.
+ * For references to other entities only the ids are stored.
+ */
+public class DehydratedEntity {
+  private final DehydratedEntitySchema schema;
+  private final Object[] values;
+
+  DehydratedEntity(DehydratedEntitySchema schema, Object[] values) {
+    this.schema = requireNonNull(schema);
+    if (values.length != schema.size()) {
+      throw new IllegalArgumentException(
+          "Expected " + schema.size() + " values but got " + values.length);
+    }
+    this.values = values;
+  }
+
+  public DehydratedEntitySchema getSchema() {
+    return schema;
+  }
+
+  /** Returns an unmodifiable view of the values in schema order. */
+  public List<Object> getValues() {
+    return Collections.unmodifiableList(Arrays.asList(values));
+  }
+
+  Object getValue(int index) {
+    return values[index];
+  }
+
+  /** Returns a map with attribute name keys and dehydrated attribute values. */
+  public Map<String, Object> toMap() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    for (int i = 0; i < values.length; i++) {
+      map.put(schema.getName(i), values[i]);
+    }
+    return map;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof DehydratedEntity)) {
+      return false;
+    }
+    DehydratedEntity that = (DehydratedEntity) o;
+    return schema.getEntityTypeId().equals(that.schema.getEntityTypeId())
+        && toMap().equals(that.toMap());
+  }
+
+  @Override
+  public int hashCode() {
+    return toMap().hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "DehydratedEntity{entityTypeId='" + schema.getEntityTypeId() + "', " + toMap() + '}';
+  }
+}
@@ -0,0 +1,118 @@
+package org.molgenis.data.cache.utils;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.molgenis.data.meta.AttributeType;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.meta.model.EntityTypeSchema;
+
+/**
+ * Layout of the values of a {@link DehydratedEntity}: the names and types of the non-computed
+ * atomic attributes of an entity type in attribute order. A schema is shared by all dehydrated
+ * entities of an entity type, so that attribute names are stored once instead of once per entity.
+ */
+public class DehydratedEntitySchema {
+  private final String entityTypeId;
+  private final EntityTypeSchema entityTypeSchema;
+  private final String[] names;
+  private final AttributeType[] types;
+  private final Map<String, Integer> indexes;
+
+  private DehydratedEntitySchema(
+      String entityTypeId,
+      EntityTypeSchema entityTypeSchema,
+      String[] names,
+      AttributeType[] types) {
+    this.entityTypeId = requireNonNull(entityTypeId);
+    this.entityTypeSchema = requireNonNull(entityTypeSchema);
+    this.names = names;
+    this.types = types;
+    this.indexes = new HashMap<>();
+    for (int i = 0; i < names.length; i++) {
+      indexes.put(names[i], i);
+    }
+  }
+
+  static DehydratedEntitySchema create(EntityType entityType) {
+    EntityTypeSchema entityTypeSchema = entityType.getSchema();
+    List<String> names = new ArrayList<>();
+    List<AttributeType> types = new ArrayList<>();
+    for (int i = 0; i < entityTypeSchema.size(); i++) {
+      // Only dehydrate if the attribute is NOT computed
+      if (!entityTypeSchema.isComputed(i)) {
+        names.add(entityTypeSchema.getName(i));
+        types.add(entityTypeSchema.getDataType(i));
+      }
+    }
+    return new DehydratedEntitySchema(
+        entityType.getId(),
+        entityTypeSchema,
+        names.toArray(new String[0]),
+        types.toArray(new AttributeType[0]));
+  }
+
+  /**
+   * Returns whether this schema describes the current non-computed atomic attributes of the entity
+   * type. A schema no longer matches if attributes were added, removed, renamed or changed type.
+   */
+  boolean matches(EntityType entityType) {
+    if (!entityTypeId.equals(entityType.getId())) {
+      return false;
+    }
+    EntityTypeSchema currentSchema = entityType.getSchema();
+    if (currentSchema == entityTypeSchema) {
+      return true;
+    }
+    int index = 0;
+    for (int i = 0; i < currentSchema.size(); i++) {
+      if (!currentSchema.isComputed(i)) {
+        if (index == names.length
+            || !names[index].equals(currentSchema.getName(i))
+            || types[index] != currentSchema.getDataType(i)) {
+          return false;
+        }
+        index++;
+      }
+    }
+    return index == names.length;
+  }
+
+  public String getEntityTypeId() {
+    return entityTypeId;
+  }
+
+  public int size() {
+    return names.length;
+  }
+
+  public String getName(int index) {
+    return names[index];
+  }
+
+  public AttributeType getType(int index) {
+    return types[index];
+  }
+
+  /**
+   * Returns the index of the attribute with the given name, checking the expected index before
+   * looking up the name.
+   *
+   * @return attribute index or -1 if this schema doesn't contain the attribute
+   */
+  int getIndex(String name, int expectedIndex) {
+    if (expectedIndex < names.length && names[expectedIndex].equals(name)) {
+      return expectedIndex;
+    }
+    Integer index = indexes.get(name);
+    return index != null ? index : -1;
+  }
+
+  @Override
+  public String toString() {
+    return "DehydratedEntitySchema{entityTypeId='" + entityTypeId + "', size=" + names.length + '}';
+  }
+}
@@ -1,20 +1,19 @@
 package org.molgenis.data.cache.utils;
 
 import static com.google.common.collect.Lists.newArrayList;
-import static com.google.common.collect.Maps.newHashMap;
 import static java.util.Objects.requireNonNull;
 import static org.molgenis.data.EntityManager.CreationMode.NO_POPULATE;
 import static org.molgenis.data.util.EntityTypeUtils.isMultipleReferenceType;
-import static org.molgenis.data.util.EntityTypeUtils.isSingleReferenceType;
 
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityManager;
 import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.IllegalAttributeTypeException;
-import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.meta.model.EntityTypeSchema;
 import org.molgenis.data.support.EntityWithComputedAttributes;
 import org.molgenis.util.UnexpectedEnumException;
 import org.slf4j.Logger;
@@ -26,9 +25,12 @@ import org.springframework.stereotype.Component;
 public class EntityHydration {
   private static final Logger LOG = LoggerFactory.getLogger(EntityHydration.class);
   private final EntityManager entityManager;
+  /** maps entity type id to the schema of its dehydrated entities */
+  private final ConcurrentMap<String, DehydratedEntitySchema> schemas;
 
   public EntityHydration(EntityManager entityManager) {
     this.entityManager = requireNonNull(entityManager);
+    this.schemas = new ConcurrentHashMap<>();
   }
 
   /**
@@ -36,28 +38,37 @@ public class EntityHydration {
    * attributes present with an expression
    *
    * @param entityType metadata of the entity to rehydrate
-   * @param dehydratedEntity map with key value pairs representing this entity
+   * @param dehydratedEntity dehydrated representation of this entity
    * @return hydrated entity
    */
   @SuppressWarnings("unchecked")
-  public Entity hydrate(Map<String, Object> dehydratedEntity, EntityType entityType) {
+  public Entity hydrate(DehydratedEntity dehydratedEntity, EntityType entityType) {
     LOG.trace("Hydrating entity: {} for entity {}", dehydratedEntity, entityType.getId());
 
     Entity hydratedEntity = entityManager.create(entityType, NO_POPULATE);
+    DehydratedEntitySchema schema = dehydratedEntity.getSchema();
 
-    for (Attribute attribute : entityType.getAtomicAttributes()) {
+    EntityTypeSchema entityTypeSchema = entityType.getSchema();
+    int expectedIndex = 0;
+    for (int i = 0; i < entityTypeSchema.size(); i++) {
       // Only hydrate the attribute if it is NOT computed.
       // Computed attributes will be calculated based on the metadata
-      if (attribute.getExpression() == null) {
-        String name = attribute.getName();
-        Object value = dehydratedEntity.get(name);
-        if (value != null) {
-          if (isMultipleReferenceType(attribute)) {
+      if (!entityTypeSchema.isComputed(i)) {
+        String name = entityTypeSchema.getName(i);
+        int index = schema.getIndex(name, expectedIndex);
+        Object value = null;
+        if (index != -1) {
+          value = dehydratedEntity.getValue(index);
+          expectedIndex = index + 1;
+        }
+        if (value != null && entityTypeSchema.isReferenceType(i)) {
+          EntityType refEntityType = entityTypeSchema.getRefEntityType(i);
+          if (isMultipleReferenceType(entityTypeSchema.getDataType(i))) {
             // We can do this cast because during dehydration, mrefs and categorical mrefs are
             // stored as a List of Object
-            value = entityManager.getReferences(attribute.getRefEntity(), (List<Object>) value);
-          } else if (isSingleReferenceType(attribute)) {
-            value = entityManager.getReference(attribute.getRefEntity(), value);
+            value = entityManager.getReferences(refEntityType, (List<Object>) value);
+          } else {
+            value = entityManager.getReference(refEntityType, value);
           }
         }
         hydratedEntity.set(name, value);
@@ -68,31 +79,35 @@ public class EntityHydration {
   }
 
   /**
-   * Creates a Map containing the values required to rebuild this entity. For references to other
-   * entities only stores the ids.
+   * Creates a {@link DehydratedEntity} containing the values required to rebuild this entity. For
+   * references to other entities only stores the ids.
    *
    * @param entity the {@link Entity} to dehydrate
-   * @return Map representation of the entity
+   * @return dehydrated representation of the entity
    */
-  public Map<String, Object> dehydrate(Entity entity) {
+  public DehydratedEntity dehydrate(Entity entity) {
     LOG.trace("Dehydrating entity {}", entity);
-    Map<String, Object> dehydratedEntity = newHashMap();
-    EntityType entityType = entity.getEntityType();
-
-    entityType
-        .getAtomicAttributes()
-        .forEach(
-            attribute -> {
-              // Only dehydrate if the attribute is NOT computed
-              if (!attribute.hasExpression()) {
-                String name = attribute.getName();
-                AttributeType type = attribute.getDataType();
+    DehydratedEntitySchema schema = getSchema(entity.getEntityType());
 
-                dehydratedEntity.put(name, getValueBasedOnType(entity, name, type));
-              }
-            });
+    Object[] values = new Object[schema.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = getValueBasedOnType(entity, schema.getName(i), schema.getType(i));
+    }
+    return new DehydratedEntity(schema, values);
+  }
 
-    return dehydratedEntity;
+  /**
+   * Returns the schema for the current attributes of the entity type. The schema is rebuilt if the
+   * attributes of the entity type changed since the schema was created.
+   */
+  private DehydratedEntitySchema getSchema(EntityType entityType) {
+    DehydratedEntitySchema schema = schemas.get(entityType.getId());
+    if (schema == null || !schema.matches(entityType)) {
+      LOG.trace("Creating dehydrated entity schema for entity type {}", entityType.getId());
+      schema = DehydratedEntitySchema.create(entityType);
+      schemas.put(entityType.getId(), schema);
+    }
+    return schema;
   }
 
   private static Object getValueBasedOnType(Entity entity, String name, AttributeType type) {
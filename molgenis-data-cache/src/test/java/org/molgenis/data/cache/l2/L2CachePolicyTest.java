@@ -0,0 +1,65 @@
+package org.molgenis.data.cache.l2;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
+import static org.molgenis.data.semantic.Relation.hasCachePolicy;
+import static org.molgenis.data.semantic.Relation.isAssociatedWith;
+import static org.testng.Assert.assertEquals;
+
+import org.mockito.Mock;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.meta.model.Tag;
+import org.molgenis.test.AbstractMockitoTest;
+import org.testng.annotations.Test;
+
+public class L2CachePolicyTest extends AbstractMockitoTest {
+  @Mock private EntityType entityType;
+
+  @Test
+  public void testOfDefault() {
+    when(entityType.getTags()).thenReturn(emptyList());
+    when(entityType.getId()).thenReturn("MyEntityType");
+    assertEquals(L2CachePolicy.of(entityType), L2CachePolicy.SHARED);
+  }
+
+  @Test
+  public void testOfMetaEntityType() {
+    when(entityType.getTags()).thenReturn(emptyList());
+    when(entityType.getId()).thenReturn(ENTITY_TYPE_META_DATA);
+    assertEquals(L2CachePolicy.of(entityType), L2CachePolicy.PINNED);
+  }
+
+  @Test
+  public void testOfTag() {
+    Tag tag = createTag(hasCachePolicy.getIRI(), "none");
+    when(entityType.getTags()).thenReturn(singletonList(tag));
+    assertEquals(L2CachePolicy.of(entityType), L2CachePolicy.NONE);
+  }
+
+  @Test
+  public void testOfOtherTag() {
+    Tag tag = mock(Tag.class);
+    when(tag.getRelationIri()).thenReturn(isAssociatedWith.getIRI());
+    when(entityType.getTags()).thenReturn(singletonList(tag));
+    when(entityType.getId()).thenReturn("MyEntityType");
+    assertEquals(L2CachePolicy.of(entityType), L2CachePolicy.SHARED);
+  }
+
+  @Test
+  public void testOfUnknownTagLabel() {
+    Tag tag = createTag(hasCachePolicy.getIRI(), "unknown");
+    when(entityType.getTags()).thenReturn(singletonList(tag));
+    when(entityType.getId()).thenReturn("MyEntityType");
+    assertEquals(L2CachePolicy.of(entityType), L2CachePolicy.SHARED);
+  }
+
+  private static Tag createTag(String relationIri, String label) {
+    Tag tag = mock(Tag.class);
+    when(tag.getRelationIri()).thenReturn(relationIri);
+    when(tag.getLabel()).thenReturn(label);
+    return tag;
+  }
+}
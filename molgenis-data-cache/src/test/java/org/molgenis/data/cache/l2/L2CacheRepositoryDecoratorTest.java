@@ -63,9 +63,9 @@ public class L2CacheRepositoryDecoratorTest extends AbstractMolgenisSpringTest {
   @BeforeMethod
   public void beforeMethod() {
     when(delegateRepository.getCapabilities()).thenReturn(Sets.newHashSet(CACHEABLE, WRITABLE));
+    when(delegateRepository.getEntityType()).thenReturn(emd);
     l2CacheRepositoryDecorator =
         new L2CacheRepositoryDecorator(delegateRepository, l2Cache, transactionInformation);
-    when(delegateRepository.getEntityType()).thenReturn(emd);
     when(delegateRepository.getName()).thenReturn(emd.getId());
   }
 
@@ -12,14 +12,17 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.molgenis.data.EntityManager.CreationMode.NO_POPULATE;
+import static org.molgenis.data.EntityTestHarness.ATTR_STRING;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
+import com.google.common.base.Strings;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.mockito.ArgumentCaptor;
@@ -34,6 +37,7 @@ import org.molgenis.data.EntityTestHarness;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Repository;
 import org.molgenis.data.TestHarnessConfig;
+import org.molgenis.data.cache.utils.DehydratedEntity;
 import org.molgenis.data.cache.utils.EntityHydration;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.support.DynamicEntity;
@@ -96,7 +100,13 @@ public class L2CacheTest extends AbstractMolgenisSpringTest {
     when(repository.getName()).thenReturn(emd.getId());
 
     l2Cache =
-        new L2Cache(transactionManager, entityHydration, transactionInformation, meterRegistry);
+        new L2Cache(
+            transactionManager,
+            entityHydration,
+            transactionInformation,
+            meterRegistry,
+            1024 * 1024,
+            1024 * 1024);
   }
 
   @Test
@@ -209,6 +219,60 @@ public class L2CacheTest extends AbstractMolgenisSpringTest {
         idStreamCaptor.getValue().collect(Collectors.toList()), newArrayList("0", "1", "2", "3"));
   }
 
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testGetBatchCachesAbsentEntities() {
+    when(repository.findAll(any(Stream.class)))
+        .thenReturn(Stream.of(testEntities.get(0)), Stream.empty());
+    assertEquals(l2Cache.getBatch(repository, newArrayList("0", "9")).size(), 1);
+    assertEquals(l2Cache.getBatch(repository, newArrayList("0", "9")).size(), 1);
+    verify(repository, times(1)).findAll(any(Stream.class));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testAfterCommitTransactionRemovesBatchForDirtyRepository() {
+    when(repository.findAll(any(Stream.class)))
+        .thenReturn(Stream.of(testEntities.get(0)), Stream.of(testEntities.get(0)));
+    l2Cache.getBatch(repository, newArrayList("0", "9"));
+
+    when(transactionInformation.getEntirelyDirtyRepositories()).thenReturn(singleton(emd.getId()));
+    l2Cache.afterCommitTransaction("transactionID");
+
+    assertEquals(l2Cache.getBatch(repository, newArrayList("0", "9")).size(), 1);
+    verify(repository, times(2)).findAll(any(Stream.class));
+  }
+
+  @Test
+  public void testAfterCommitTransactionEvictsDirtyEntity() {
+    Entity entity2 = testEntities.get(2);
+    when(repository.findOneById("2")).thenReturn(entity2);
+    l2Cache.get(repository, "2");
+
+    when(transactionInformation.getDirtyEntities())
+        .thenReturn(singleton(EntityKey.create(emd, "2")));
+    l2Cache.afterCommitTransaction("transactionID");
+
+    l2Cache.get(repository, "2");
+    verify(repository, times(2)).findOneById("2");
+  }
+
+  @Test
+  public void testEstimateSize() {
+    EntityKey entityKey = EntityKey.create(emd, "0");
+    Entity entity = testEntities.get(0);
+    DehydratedEntity dehydratedEntity = entityHydration.dehydrate(entity);
+    Entity largerEntity = new DynamicEntity(emd);
+    largerEntity.set(entity);
+    largerEntity.set(ATTR_STRING, Strings.repeat("x", 1000));
+
+    int size = L2Cache.estimateSize(entityKey, Optional.of(dehydratedEntity));
+    assertTrue(size > L2Cache.estimateSize(entityKey, Optional.empty()));
+    assertTrue(
+        L2Cache.estimateSize(entityKey, Optional.of(entityHydration.dehydrate(largerEntity)))
+            >= size + 1900);
+  }
+
   @Configuration
   @Import({EntityHydration.class, TestHarnessConfig.class})
   public static class Config {
@@ -12,6 +12,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static org.molgenis.data.EntityManager.CreationMode.NO_POPULATE;
+import static org.molgenis.data.QueryRule.Operator.PERMITTED;
 import static org.molgenis.data.RepositoryCapability.CACHEABLE;
 import static org.molgenis.data.meta.AttributeType.INT;
 import static org.molgenis.data.meta.model.EntityType.AttributeRole.ROLE_ID;
@@ -28,7 +29,9 @@ import org.molgenis.data.AbstractMolgenisSpringTest;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityManager;
 import org.molgenis.data.Fetch;
+import org.molgenis.data.PermissionFilter;
 import org.molgenis.data.Query;
+import org.molgenis.data.QueryRule;
 import org.molgenis.data.Repository;
 import org.molgenis.data.Sort;
 import org.molgenis.data.meta.model.AttributeFactory;
@@ -180,6 +183,24 @@ public class L3CacheRepositoryDecoratorTest extends AbstractMolgenisSpringTest {
     verifyNoMoreInteractions(l3Cache);
   }
 
+  @Test
+  public void testFindAllPermitted() {
+    when(transactionInformation.isRepositoryCompletelyClean(entityType)).thenReturn(true);
+    QueryImpl<Entity> permittedQuery = new QueryImpl<>(query);
+    permittedQuery.and();
+    permittedQuery.addRule(new QueryRule(PERMITTED, mock(PermissionFilter.class)));
+
+    List<Entity> expectedEntities = newArrayList(entity1, entity2);
+
+    when(delegateRepository.findAll(permittedQuery)).thenReturn(expectedEntities.stream());
+
+    List<Entity> actualEntities =
+        l3CacheRepositoryDecorator.findAll(permittedQuery).collect(toList());
+
+    assertEquals(actualEntities, expectedEntities);
+    verifyNoMoreInteractions(l3Cache);
+  }
+
   @Test
   public void testFindAllRepositoryDirty() {
     when(transactionInformation.isRepositoryCompletelyClean(entityType)).thenReturn(false);
@@ -11,6 +11,7 @@ import static org.molgenis.data.RepositoryCapability.CACHEABLE;
 import static org.molgenis.data.meta.AttributeType.INT;
 import static org.molgenis.data.meta.model.EntityType.AttributeRole.ROLE_ID;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.fail;
 
 import com.google.common.collect.Sets;
@@ -19,6 +20,7 @@ import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Optional;
 import java.util.stream.Stream;
 import org.mockito.Mock;
 import org.mockito.quality.Strictness;
@@ -28,6 +30,7 @@ import org.molgenis.data.Fetch;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Query;
 import org.molgenis.data.Repository;
+import org.molgenis.data.Sort;
 import org.molgenis.data.meta.model.AttributeFactory;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.meta.model.EntityTypeFactory;
@@ -196,4 +199,85 @@ public class L3CacheTest extends AbstractMolgenisSpringTest {
     verify(decoratedRepository, atLeast(0)).getEntityType();
     verifyNoMoreInteractions(decoratedRepository);
   }
+
+  @Test
+  public void testAfterCommitTransactionUpdatedQueriedAttribute() {
+    Fetch idAttributeFetch = new Fetch().field(entityType.getIdAttribute().getName());
+    Query<Entity> fetchLessQuery = new QueryImpl<>().eq(COUNTRY, "NL").fetch(idAttributeFetch);
+
+    when(decoratedRepository.findAll(fetchLessQuery)).thenReturn(Stream.of(entity1, entity2));
+
+    Query<Entity> query = new QueryImpl<>().eq(COUNTRY, "NL");
+    assertEquals(l3Cache.get(decoratedRepository, query), Arrays.asList(1, 2));
+
+    when(transactionInformation.getDirtyRepositories())
+        .thenReturn(Collections.singleton(repositoryName));
+    when(transactionInformation.getChangedAttributes(repositoryName))
+        .thenReturn(Optional.of(Collections.singleton(COUNTRY)));
+    l3Cache.afterCommitTransaction("ABCDE");
+
+    when(decoratedRepository.findAll(fetchLessQuery)).thenReturn(Stream.of(entity2));
+    assertEquals(l3Cache.get(decoratedRepository, query), Collections.singletonList(2));
+
+    verify(decoratedRepository, times(2)).findAll(fetchLessQuery);
+  }
+
+  @Test
+  public void testAfterCommitTransactionUpdatedOtherAttribute() {
+    Fetch idAttributeFetch = new Fetch().field(entityType.getIdAttribute().getName());
+    Query<Entity> fetchLessQuery = new QueryImpl<>().eq(COUNTRY, "NL").fetch(idAttributeFetch);
+
+    when(decoratedRepository.findAll(fetchLessQuery)).thenReturn(Stream.of(entity1, entity2));
+
+    Query<Entity> query = new QueryImpl<>().eq(COUNTRY, "NL");
+    assertEquals(l3Cache.get(decoratedRepository, query), Arrays.asList(1, 2));
+
+    when(transactionInformation.getDirtyRepositories())
+        .thenReturn(Collections.singleton(repositoryName));
+    when(transactionInformation.getChangedAttributes(repositoryName))
+        .thenReturn(Optional.of(Collections.singleton("otherAttribute")));
+    l3Cache.afterCommitTransaction("ABCDE");
+
+    assertEquals(l3Cache.get(decoratedRepository, query), Arrays.asList(1, 2));
+
+    verify(decoratedRepository, times(1)).findAll(fetchLessQuery);
+  }
+
+  @Test
+  public void testAfterCommitTransactionDuringLoad() {
+    Fetch idAttributeFetch = new Fetch().field(entityType.getIdAttribute().getName());
+    Query<Entity> fetchLessQuery = new QueryImpl<>().eq(COUNTRY, "NL").fetch(idAttributeFetch);
+
+    when(transactionInformation.getDirtyRepositories())
+        .thenReturn(Collections.singleton(repositoryName));
+    when(transactionInformation.getChangedAttributes(repositoryName))
+        .thenReturn(Optional.of(Collections.singleton(COUNTRY)));
+    when(decoratedRepository.findAll(fetchLessQuery))
+        .thenAnswer(
+            invocation -> {
+              // transaction commits after the loader read the data
+              Stream<Entity> entities = Stream.of(entity1, entity2);
+              l3Cache.afterCommitTransaction("ABCDE");
+              return entities;
+            })
+        .thenReturn(Stream.of(entity2));
+
+    Query<Entity> query = new QueryImpl<>().eq(COUNTRY, "NL");
+    assertEquals(l3Cache.get(decoratedRepository, query), Collections.singletonList(2));
+    assertEquals(l3Cache.get(decoratedRepository, query), Collections.singletonList(2));
+
+    verify(decoratedRepository, times(2)).findAll(fetchLessQuery);
+  }
+
+  @Test
+  public void testGetAttributeNames() {
+    Query<Entity> query =
+        new QueryImpl<>().eq(COUNTRY, "NL").and().nest().eq(ID, 1).unnest().sort(new Sort(ID));
+    assertEquals(L3Cache.getAttributeNames(entityType, query), Sets.newHashSet(COUNTRY, ID));
+  }
+
+  @Test
+  public void testGetAttributeNamesSearchAllAttributes() {
+    assertNull(L3Cache.getAttributeNames(entityType, new QueryImpl<>().search("NL")));
+  }
 }
@@ -2,6 +2,7 @@ package org.molgenis.data.cache.utils;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.newHashMap;
+import static java.util.Arrays.asList;
 import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
 import static java.util.Collections.singletonMap;
@@ -27,9 +28,14 @@ import static org.molgenis.data.EntityTestHarness.ATTR_MREF;
 import static org.molgenis.data.EntityTestHarness.ATTR_SCRIPT;
 import static org.molgenis.data.EntityTestHarness.ATTR_STRING;
 import static org.molgenis.data.EntityTestHarness.ATTR_XREF;
+import static org.molgenis.data.meta.AttributeType.INT;
 import static org.molgenis.data.meta.AttributeType.ONE_TO_MANY;
+import static org.molgenis.data.meta.AttributeType.STRING;
 import static org.molgenis.data.meta.AttributeType.XREF;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 import java.text.ParseException;
@@ -45,6 +51,7 @@ import org.molgenis.data.Entity;
 import org.molgenis.data.EntityManager;
 import org.molgenis.data.EntityTestHarness;
 import org.molgenis.data.TestHarnessConfig;
+import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.support.DynamicEntity;
@@ -125,7 +132,8 @@ public class EntityHydrationTest extends AbstractMolgenisSpringTest {
 
   @Test
   public void hydrateTest() {
-    Entity actualHydratedEntity = entityHydration.hydrate(dehydratedEntity, entityType);
+    Entity actualHydratedEntity =
+        entityHydration.hydrate(createDehydratedEntity(entityType, dehydratedEntity), entityType);
     assertTrue(EntityUtils.equals(actualHydratedEntity, hydratedEntity));
     // check that it has retrieved references of type TypeTestRef
     assertTrue(
@@ -137,7 +145,7 @@ public class EntityHydrationTest extends AbstractMolgenisSpringTest {
 
   @Test
   public void dehydrateTest() {
-    Map<String, Object> actualDehydratedEntity = entityHydration.dehydrate(hydratedEntity);
+    Map<String, Object> actualDehydratedEntity = entityHydration.dehydrate(hydratedEntity).toMap();
     assertEquals(actualDehydratedEntity, dehydratedEntity);
   }
 
@@ -156,10 +164,11 @@ public class EntityHydrationTest extends AbstractMolgenisSpringTest {
     Attribute oneToManyAttr = mock(Attribute.class);
     when(oneToManyAttr.getName()).thenReturn(attrName);
     when(oneToManyAttr.getDataType()).thenReturn(ONE_TO_MANY);
+    when(entityType.getId()).thenReturn("MyEntityType");
     when(entityType.getAtomicAttributes()).thenReturn(singleton(oneToManyAttr));
     when(entity.getEntityType()).thenReturn(entityType);
     assertEquals(
-        entityHydration.dehydrate(entity),
+        entityHydration.dehydrate(entity).toMap(),
         singletonMap(attrName, newArrayList(oneToManyEntity0IdValue, oneToManyEntity1IdValue)));
   }
 
@@ -175,8 +184,78 @@ public class EntityHydrationTest extends AbstractMolgenisSpringTest {
     Attribute xrefAttr = mock(Attribute.class);
     when(xrefAttr.getName()).thenReturn(attrName);
     when(xrefAttr.getDataType()).thenReturn(XREF);
+    when(entityType.getId()).thenReturn("MyEntityType");
     when(entityType.getAtomicAttributes()).thenReturn(singleton(xrefAttr));
     when(entity.getEntityType()).thenReturn(entityType);
-    assertEquals(entityHydration.dehydrate(entity), singletonMap(attrName, manyToOneEntityIdValue));
+    assertEquals(
+        entityHydration.dehydrate(entity).toMap(), singletonMap(attrName, manyToOneEntityIdValue));
+  }
+
+  @Test
+  public void dehydrateSchemaChanged() {
+    Attribute stringAttr = createAttribute("string", STRING);
+    Attribute intAttr = createAttribute("int", INT);
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getId()).thenReturn("MyEntityType");
+    when(entityType.getAtomicAttributes())
+        .thenReturn(singletonList(stringAttr), asList(stringAttr, intAttr));
+    Entity entity = mock(Entity.class);
+    when(entity.getEntityType()).thenReturn(entityType);
+    when(entity.get("string")).thenReturn("str");
+    when(entity.get("int")).thenReturn(1);
+
+    DehydratedEntity dehydratedEntity = entityHydration.dehydrate(entity);
+    assertEquals(dehydratedEntity.toMap(), singletonMap("string", "str"));
+    DehydratedEntity updatedDehydratedEntity = entityHydration.dehydrate(entity);
+    assertEquals(updatedDehydratedEntity.getValues(), asList("str", 1));
+    assertNotSame(updatedDehydratedEntity.getSchema(), dehydratedEntity.getSchema());
+  }
+
+  @Test
+  public void dehydrateSchemaShared() {
+    Entity otherHydratedEntity = new DynamicEntity(entityType);
+    otherHydratedEntity.set(ATTR_ID, "1");
+    assertSame(
+        entityHydration.dehydrate(otherHydratedEntity).getSchema(),
+        entityHydration.dehydrate(hydratedEntity).getSchema());
+  }
+
+  @Test
+  public void hydrateDifferentSchema() {
+    // schema of an older version of the entity type with attributes in a different order
+    List<Attribute> oldAttributes =
+        asList(
+            createAttribute(ATTR_STRING, STRING),
+            createAttribute("removed", STRING),
+            createAttribute(ATTR_ID, STRING));
+    EntityType oldEntityType = mock(EntityType.class);
+    when(oldEntityType.getId()).thenReturn(entityType.getId());
+    when(oldEntityType.getAtomicAttributes()).thenReturn(oldAttributes);
+    DehydratedEntity dehydratedEntity =
+        new DehydratedEntity(
+            DehydratedEntitySchema.create(oldEntityType),
+            new Object[] {"string1", "removedValue", "0"});
+
+    Entity actualHydratedEntity = entityHydration.hydrate(dehydratedEntity, entityType);
+    assertEquals(actualHydratedEntity.getIdValue(), "0");
+    assertEquals(actualHydratedEntity.getString(ATTR_STRING), "string1");
+    assertNull(actualHydratedEntity.get(ATTR_EMAIL));
+  }
+
+  private static Attribute createAttribute(String name, AttributeType type) {
+    Attribute attribute = mock(Attribute.class);
+    when(attribute.getName()).thenReturn(name);
+    when(attribute.getDataType()).thenReturn(type);
+    return attribute;
+  }
+
+  private static DehydratedEntity createDehydratedEntity(
+      EntityType entityType, Map<String, Object> valueMap) {
+    DehydratedEntitySchema schema = DehydratedEntitySchema.create(entityType);
+    Object[] values = new Object[schema.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = valueMap.get(schema.getName(i));
+    }
+    return new DehydratedEntity(schema, values);
   }
 }
@@ -1,11 +1,13 @@
 package org.molgenis.data.csv;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.testng.Assert.assertEquals;
 
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Sets;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Arrays;
 import org.molgenis.data.AbstractMolgenisSpringTest;
 import org.molgenis.data.Entity;
@@ -76,6 +78,20 @@ public class CsvIteratorTest extends AbstractMolgenisSpringTest {
     new CsvIterator(csvFile, "testdatamissingvalue", null, ',', entityType).next();
   }
 
+  @Test(
+      expectedExceptions = MolgenisDataException.class,
+      expectedExceptionsMessageRegExp =
+          "Number of values \\(1\\) doesn't match the number of headers \\(2\\): \\[val3\\]")
+  public void testIteratorValueHeaderMismatchAfterValidRows() throws IOException {
+    File csvFile = File.createTempFile("testdata", ".csv");
+    csvFile.deleteOnExit();
+    Files.write(csvFile.toPath(), "col1,col2\nval1,val2\nval3\n".getBytes(UTF_8));
+
+    CsvIterator it = new CsvIterator(csvFile, "testdata", null, null, entityType);
+    assertEquals(it.next().get("col1"), "val1");
+    it.next();
+  }
+
   @Test
   public void testIteratorFromZipFile() throws IOException {
     File zipFile = new ClassPathResource("zipFile.zip").getFile();
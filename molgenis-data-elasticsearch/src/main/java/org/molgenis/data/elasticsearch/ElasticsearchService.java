@@ -2,18 +2,25 @@ package org.molgenis.data.elasticsearch;
 
 import static java.util.Objects.requireNonNull;
 import static org.molgenis.data.util.EntityTypeUtils.createFetchForReindexing;
+import static org.molgenis.data.util.EntityTypeUtils.isMultipleReferenceType;
+import static org.molgenis.data.util.EntityTypeUtils.isSingleReferenceType;
 
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Streams;
 import java.util.List;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 import org.apache.lucene.search.Explanation;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.search.aggregations.AggregationBuilder;
 import org.elasticsearch.search.aggregations.Aggregations;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
+import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Query;
 import org.molgenis.data.Repository;
 import org.molgenis.data.aggregation.AggregateQuery;
@@ -32,7 +39,11 @@ import org.molgenis.data.index.IndexService;
 import org.molgenis.data.index.SearchService;
 import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.IllegalAttributeTypeException;
+import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
@@ -40,18 +51,35 @@ import org.springframework.stereotype.Component;
  */
 @Component
 public class ElasticsearchService implements SearchService, IndexService {
+  private static final Logger LOG = LoggerFactory.getLogger(ElasticsearchService.class);
+
   private static final int BATCH_SIZE = 1000;
   public static final int MAX_BATCH_SIZE = 10000;
+  /** Refresh interval that disables index refreshes while an index is rebuilt */
+  private static final String REFRESH_INTERVAL_DISABLED = "-1";
+  /** Time that a scrolling search is kept alive between the retrieval of two batches */
+  private static final TimeValue SCROLL_KEEP_ALIVE = TimeValue.timeValueMinutes(5);
 
   private final ClientFacade clientFacade;
   private final ContentGenerators contentGenerators;
   private final DataService dataService;
+  private final ReindexExecutor reindexExecutor;
+  private final int reindexConcurrentRequests;
 
   public ElasticsearchService(
-      ClientFacade clientFacade, ContentGenerators contentGenerators, DataService dataService) {
+      ClientFacade clientFacade,
+      ContentGenerators contentGenerators,
+      DataService dataService,
+      ReindexExecutor reindexExecutor,
+      @Value("${elasticsearch.reindex.concurrent_requests:2}") int reindexConcurrentRequests) {
     this.clientFacade = requireNonNull(clientFacade);
     this.contentGenerators = requireNonNull(contentGenerators);
     this.dataService = requireNonNull(dataService);
+    this.reindexExecutor = requireNonNull(reindexExecutor);
+    if (reindexConcurrentRequests < 1) {
+      throw new IllegalArgumentException("reindex concurrent requests must be greater than zero");
+    }
+    this.reindexConcurrentRequests = reindexConcurrentRequests;
   }
 
   @Override
@@ -82,11 +110,133 @@ public class ElasticsearchService implements SearchService, IndexService {
       deleteIndex(entityType);
     }
 
-    createIndex(entityType);
-    repository.forEachBatched(
-        createFetchForReindexing(entityType),
-        entities -> index(entityType, entities.stream()),
-        BATCH_SIZE);
+    // refreshes are expensive and the index is not searched while it is being rebuilt
+    Index index = contentGenerators.createIndex(entityType);
+    IndexSettings indexSettings = IndexSettings.create();
+    IndexSettings rebuildIndexSettings =
+        IndexSettings.builder()
+            .setNumberOfShards(indexSettings.getNumberOfShards())
+            .setNumberOfReplicas(0)
+            .setRefreshInterval(REFRESH_INTERVAL_DISABLED)
+            .build();
+    Mapping mapping = contentGenerators.createMapping(entityType);
+    clientFacade.createIndex(index, rebuildIndexSettings, Stream.of(mapping));
+    try {
+      clientFacade.processDocumentActions(
+          documentActionConsumer ->
+              produceDocumentActions(repository, index, documentActionConsumer),
+          reindexConcurrentRequests);
+    } finally {
+      clientFacade.updateIndexSettings(index, indexSettings);
+    }
+  }
+
+  /**
+   * Reads the repository in batches on the calling thread and converts the batches to document
+   * actions on the threads of the reindex executor. The number of batches waiting to be converted
+   * is bounded so that reading is slowed down when converting or bulk indexing can't keep up.
+   *
+   * <p>Referenced entities are resolved on the calling thread, within its transaction, so that the
+   * executor threads only convert entities that are already in memory.
+   */
+  private void produceDocumentActions(
+      Repository<? extends Entity> repository,
+      Index index,
+      Consumer<DocumentAction> documentActionConsumer) {
+    EntityType entityType = repository.getEntityType();
+    int indexingDepth = entityType.getIndexingDepth();
+    int maxPendingBatches = 2 * reindexExecutor.getNrThreads();
+    Semaphore pendingBatches = new Semaphore(maxPendingBatches);
+    AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    try {
+      repository.forEachBatched(
+          createFetchForReindexing(entityType),
+          entities -> {
+            entities.forEach(entity -> resolveReferences(entity, 0, indexingDepth));
+            throwIfFailed(failure);
+            acquire(pendingBatches, 1);
+            try {
+              reindexExecutor.execute(
+                  () ->
+                      convertBatch(
+                          entities, index, documentActionConsumer, pendingBatches, failure));
+            } catch (RuntimeException e) {
+              pendingBatches.release();
+              throw e;
+            }
+          },
+          BATCH_SIZE);
+    } catch (RuntimeException e) {
+      // pending batches are skipped
+      failure.compareAndSet(null, e);
+      throw e;
+    } finally {
+      // the executor is shared, wait for the pending batches of this index instead of shutting down
+      acquire(pendingBatches, maxPendingBatches);
+    }
+    throwIfFailed(failure);
+    LOG.debug("Produced document actions for index '{}'", index.getName());
+  }
+
+  private void convertBatch(
+      List<? extends Entity> entities,
+      Index index,
+      Consumer<DocumentAction> documentActionConsumer,
+      Semaphore pendingBatches,
+      AtomicReference<RuntimeException> failure) {
+    try {
+      if (failure.get() == null) {
+        entities.forEach(entity -> documentActionConsumer.accept(toDocumentAction(index, entity)));
+      }
+    } catch (RuntimeException e) {
+      failure.compareAndSet(null, e);
+    } finally {
+      pendingBatches.release();
+    }
+  }
+
+  /**
+   * Resolves the entities that are written to the document of an entity: referenced entities up to
+   * the indexing depth and the label of the entities referenced at the indexing depth.
+   */
+  private static void resolveReferences(Entity entity, int depth, int indexingDepth) {
+    for (Attribute attribute : entity.getEntityType().getAtomicAttributes()) {
+      String attributeName = attribute.getName();
+      if (isSingleReferenceType(attribute)) {
+        Entity refEntity = entity.getEntity(attributeName);
+        if (refEntity != null) {
+          resolveReference(refEntity, depth, indexingDepth);
+        }
+      } else if (isMultipleReferenceType(attribute)) {
+        for (Entity refEntity : entity.getEntities(attributeName)) {
+          resolveReference(refEntity, depth, indexingDepth);
+        }
+      }
+    }
+  }
+
+  private static void resolveReference(Entity refEntity, int depth, int indexingDepth) {
+    if (depth < indexingDepth) {
+      resolveReferences(refEntity, depth + 1, indexingDepth);
+    } else {
+      refEntity.getLabelValue();
+    }
+  }
+
+  private static void acquire(Semaphore semaphore, int permits) {
+    try {
+      semaphore.acquire(permits);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MolgenisDataException("Interrupted while rebuilding index", e);
+    }
+  }
+
+  private static void throwIfFailed(AtomicReference<RuntimeException> failure) {
+    RuntimeException e = failure.get();
+    if (e != null) {
+      throw e;
+    }
   }
 
   @Override
@@ -118,28 +268,42 @@ public class ElasticsearchService implements SearchService, IndexService {
     QueryBuilder query = contentGenerators.createQuery(q, entityType);
     Sort sort = q.getSort() != null ? contentGenerators.createSorts(q.getSort(), entityType) : null;
     Index index = contentGenerators.createIndex(entityType);
-    Stream<SearchHit> searchHits = Stream.empty();
-
-    boolean done = false;
-    int currentOffset;
-    int i = 0;
-    while (!done) {
-      int batchSize = pageSize < MAX_BATCH_SIZE && pageSize != 0 ? pageSize : MAX_BATCH_SIZE;
-      currentOffset = offset + (i * MAX_BATCH_SIZE);
 
-      SearchHits currentSearchHits =
-          clientFacade.search(query, currentOffset, batchSize, sort, index);
-      searchHits = Streams.concat(searchHits, currentSearchHits.getHits().stream());
-
-      if (currentSearchHits.getHits().size() < MAX_BATCH_SIZE) {
-        done = true;
-      }
+    Stream<SearchHit> searchHits;
+    long maxHits = pageSize != 0 ? (long) offset + pageSize : Long.MAX_VALUE;
+    if (maxHits <= MAX_BATCH_SIZE) {
+      searchHits = clientFacade.search(query, offset, pageSize, sort, index).getHits().stream();
+    } else if (offset == 0) {
+      searchHits = searchAll(query, sort, index, maxHits);
+    } else {
+      SearchAfterIterator iterator =
+          new SearchAfterIterator(
+              clientFacade, query, sort, index, offset, maxHits - offset, MAX_BATCH_SIZE);
+      searchHits = Streams.stream(iterator);
+    }
+    return toEntityIds(entityType, searchHits.map(SearchHit::getId));
+  }
 
-      if (pageSize != 0) pageSize -= MAX_BATCH_SIZE;
-      i++;
+  /**
+   * Streams the first hits of a search. Most searches have few hits, so a single batch is searched
+   * first. Only if there are more hits, all hits are streamed with a scrolling search: unlike
+   * paging, all batches are retrieved from the same state of the index. Following batches are
+   * retrieved while the stream is consumed, the scroll is cleared when the stream is closed.
+   */
+  private Stream<SearchHit> searchAll(QueryBuilder query, Sort sort, Index index, long maxHits) {
+    SearchHits firstBatch = clientFacade.search(query, 0, MAX_BATCH_SIZE, sort, index);
+    if (firstBatch.getTotalHits() <= MAX_BATCH_SIZE) {
+      return firstBatch.getHits().stream();
     }
+    return scroll(query, sort, index, maxHits);
+  }
 
-    return toEntityIds(entityType, searchHits.map(SearchHit::getId));
+  private Stream<SearchHit> scroll(QueryBuilder query, Sort sort, Index index, long maxHits) {
+    SearchHits firstBatch =
+        clientFacade.searchScroll(query, MAX_BATCH_SIZE, sort, index, SCROLL_KEEP_ALIVE);
+    SearchHitScrollIterator iterator =
+        new SearchHitScrollIterator(clientFacade, firstBatch, maxHits, SCROLL_KEEP_ALIVE);
+    return Streams.stream(iterator).onClose(iterator::close);
   }
 
   private static Stream<Object> toEntityIds(
@@ -237,7 +401,15 @@ public class ElasticsearchService implements SearchService, IndexService {
 
   @Override
   public void deleteAll(EntityType entityType, Stream<Object> entityIds) {
-    entityIds.forEach(entityId -> deleteById(entityType, entityId));
+    Index index = contentGenerators.createIndex(entityType);
+    Stream<DocumentAction> documentActionStream =
+        entityIds.map(
+            entityId ->
+                DocumentAction.create(
+                    index,
+                    contentGenerators.createDocument(entityId),
+                    DocumentAction.Operation.DELETE));
+    clientFacade.processDocumentActions(documentActionStream);
   }
 
   @Override
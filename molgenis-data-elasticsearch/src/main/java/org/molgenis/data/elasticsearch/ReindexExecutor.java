@@ -0,0 +1,50 @@
+package org.molgenis.data.elasticsearch;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+import org.springframework.stereotype.Component;
+
+/**
+ * Converts entities to documents while indices are rebuilt, with the security context of the user
+ * that rebuilds the index. The thread pool is shared by all index rebuilds and is shut down with
+ * the application context.
+ */
+@Component
+public class ReindexExecutor implements Executor {
+  private final int nrThreads;
+  private final ExecutorService executorService;
+
+  public ReindexExecutor(@Value("${elasticsearch.reindex.threads:0}") int reindexThreads) {
+    this.nrThreads =
+        reindexThreads > 0 ? reindexThreads : Runtime.getRuntime().availableProcessors();
+    this.executorService =
+        new DelegatingSecurityContextExecutorService(
+            Executors.newFixedThreadPool(
+                nrThreads,
+                new ThreadFactoryBuilder()
+                    .setNameFormat("elasticsearch-reindex-%d")
+                    .setDaemon(true)
+                    .build()));
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    executorService.execute(command);
+  }
+
+  int getNrThreads() {
+    return nrThreads;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    // documents of indices that are being rebuilt are of no use once the application context is
+    // closed
+    executorService.shutdownNow();
+  }
+}
@@ -0,0 +1,104 @@
+package org.molgenis.data.elasticsearch;
+
+import static java.util.Collections.emptyIterator;
+import static java.util.Collections.emptyList;
+import static java.util.Objects.requireNonNull;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import javax.annotation.Nullable;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.molgenis.data.elasticsearch.client.ClientFacade;
+import org.molgenis.data.elasticsearch.client.model.SearchHit;
+import org.molgenis.data.elasticsearch.generator.model.Index;
+import org.molgenis.data.elasticsearch.generator.model.Sort;
+
+/**
+ * Iterator over a page of hits that retrieves the hits in batches, each batch continuing after the
+ * sort values of the last hit of the previous batch. The hits before the page offset are retrieved
+ * in batches as well, only to continue after. Pages beyond the result window of paging with from
+ * and size can be retrieved this way without keeping a search context alive.
+ */
+class SearchAfterIterator implements Iterator<SearchHit> {
+  private final ClientFacade clientFacade;
+  private final QueryBuilder query;
+  private final Sort sort;
+  private final Index index;
+  private final int batchSize;
+
+  private List<Object> searchAfter = emptyList();
+  private Iterator<SearchHit> batchIterator = emptyIterator();
+  private long nrHitsToSkip;
+  private long nrHitsRemaining;
+
+  /**
+   * @param offset number of hits to skip
+   * @param pageSize maximum number of hits to read after the offset
+   * @param batchSize number of hits to retrieve per request
+   */
+  SearchAfterIterator(
+      ClientFacade clientFacade,
+      QueryBuilder query,
+      @Nullable Sort sort,
+      Index index,
+      long offset,
+      long pageSize,
+      int batchSize) {
+    this.clientFacade = requireNonNull(clientFacade);
+    this.query = requireNonNull(query);
+    this.sort = sort;
+    this.index = requireNonNull(index);
+    this.nrHitsToSkip = offset;
+    this.nrHitsRemaining = pageSize;
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (nrHitsToSkip > 0) {
+      skip();
+    }
+    if (nrHitsRemaining <= 0) {
+      return false;
+    }
+    if (!batchIterator.hasNext()) {
+      int size = (int) Math.min(nrHitsRemaining, batchSize);
+      List<SearchHit> hits = retrieveBatch(size);
+      if (hits.size() < size) {
+        nrHitsRemaining = hits.size();
+      }
+      batchIterator = hits.iterator();
+    }
+    return batchIterator.hasNext();
+  }
+
+  @Override
+  public SearchHit next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    nrHitsRemaining--;
+    return batchIterator.next();
+  }
+
+  private void skip() {
+    while (nrHitsToSkip > 0) {
+      int size = (int) Math.min(nrHitsToSkip, batchSize);
+      List<SearchHit> hits = retrieveBatch(size);
+      if (hits.size() < size) {
+        nrHitsRemaining = 0;
+      }
+      nrHitsToSkip = hits.size() < size ? 0 : nrHitsToSkip - size;
+    }
+  }
+
+  private List<SearchHit> retrieveBatch(int size) {
+    List<SearchHit> hits =
+        clientFacade.searchAfter(query, size, sort, index, searchAfter).getHits();
+    if (!hits.isEmpty()) {
+      searchAfter = hits.get(hits.size() - 1).getSortValues();
+    }
+    return hits;
+  }
+}
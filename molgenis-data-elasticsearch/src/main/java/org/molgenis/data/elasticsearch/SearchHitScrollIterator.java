@@ -0,0 +1,80 @@
+package org.molgenis.data.elasticsearch;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import org.elasticsearch.common.unit.TimeValue;
+import org.molgenis.data.elasticsearch.client.ClientFacade;
+import org.molgenis.data.elasticsearch.client.model.SearchHit;
+import org.molgenis.data.elasticsearch.client.model.SearchHits;
+
+/**
+ * Iterator over the hits of a scrolling search that retrieves the next batch of hits when the
+ * current batch is exhausted, so that only one batch of hits is kept in memory.
+ *
+ * <p>The scroll is cleared when all hits have been read or when {@link #close()} is called. If
+ * neither happens, the search context is released when the scroll keep alive expires.
+ */
+class SearchHitScrollIterator implements Iterator<SearchHit>, AutoCloseable {
+  private final ClientFacade clientFacade;
+  private final TimeValue keepAlive;
+
+  private String scrollId;
+  private Iterator<SearchHit> batchIterator;
+  private long nrHitsRemaining;
+
+  /**
+   * @param firstBatch first batch of hits of a scrolling search
+   * @param maxHits maximum number of hits to read
+   */
+  SearchHitScrollIterator(
+      ClientFacade clientFacade, SearchHits firstBatch, long maxHits, TimeValue keepAlive) {
+    this.clientFacade = requireNonNull(clientFacade);
+    this.keepAlive = requireNonNull(keepAlive);
+    this.scrollId = firstBatch.getScrollId();
+    this.batchIterator = firstBatch.getHits().iterator();
+    this.nrHitsRemaining = Math.min(firstBatch.getTotalHits(), maxHits);
+    if (nrHitsRemaining == 0) {
+      close();
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (nrHitsRemaining <= 0) {
+      return false;
+    }
+    if (!batchIterator.hasNext()) {
+      SearchHits batch = clientFacade.searchScroll(scrollId, keepAlive);
+      scrollId = batch.getScrollId();
+      batchIterator = batch.getHits().iterator();
+      if (!batchIterator.hasNext()) {
+        close();
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public SearchHit next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    SearchHit searchHit = batchIterator.next();
+    if (--nrHitsRemaining == 0) {
+      close();
+    }
+    return searchHit;
+  }
+
+  @Override
+  public void close() {
+    nrHitsRemaining = 0;
+    if (scrollId != null) {
+      clientFacade.clearScroll(scrollId);
+      scrollId = null;
+    }
+  }
+}
@@ -12,6 +12,14 @@ class BulkProcessorFactory {
   private static final Logger LOG = LoggerFactory.getLogger(BulkProcessorFactory.class);
 
   BulkProcessor create(Client client) {
+    return create(client, 1);
+  }
+
+  /**
+   * @param concurrentRequests number of bulk requests that can be executed while new documents are
+   *     accumulated, adding documents blocks while this number of requests is in progress
+   */
+  BulkProcessor create(Client client, int concurrentRequests) {
     return BulkProcessor.builder(
             client,
             new BulkProcessor.Listener() {
@@ -34,6 +42,7 @@ class BulkProcessorFactory {
                 LOG.warn("Error executing bulk", failure);
               }
             })
+        .setConcurrentRequests(concurrentRequests)
         .build();
   }
 }
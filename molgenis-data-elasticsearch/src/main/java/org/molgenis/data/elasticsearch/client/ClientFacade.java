@@ -1,6 +1,7 @@
 package org.molgenis.data.elasticsearch.client;
 
 import static java.lang.String.format;
+import static java.util.Arrays.asList;
 import static java.util.Arrays.stream;
 import static java.util.Collections.singletonList;
 import static java.util.Objects.requireNonNull;
@@ -16,7 +17,9 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
+import javax.annotation.Nullable;
 import org.apache.lucene.search.Explanation;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ResourceAlreadyExistsException;
@@ -31,6 +34,8 @@ import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsReques
 import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsResponse;
 import org.elasticsearch.action.admin.indices.refresh.RefreshRequestBuilder;
 import org.elasticsearch.action.admin.indices.refresh.RefreshResponse;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequestBuilder;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsResponse;
 import org.elasticsearch.action.bulk.BulkProcessor;
 import org.elasticsearch.action.delete.DeleteRequestBuilder;
 import org.elasticsearch.action.delete.DeleteResponse;
@@ -44,11 +49,15 @@ import org.elasticsearch.action.search.ShardSearchFailure;
 import org.elasticsearch.action.support.replication.ReplicationResponse;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.Requests;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.search.aggregations.AggregationBuilder;
 import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.sort.FieldSortBuilder;
 import org.elasticsearch.search.sort.SortBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.MolgenisQueryException;
 import org.molgenis.data.elasticsearch.client.model.SearchHit;
@@ -73,6 +82,8 @@ import org.slf4j.LoggerFactory;
  */
 public class ClientFacade implements Closeable {
   private static final Logger LOG = LoggerFactory.getLogger(ClientFacade.class);
+  /** Field that contains the type and id of a document, unique within an index */
+  private static final String UID_FIELD_NAME = "_uid";
 
   private final Client client;
   private final SettingsContentBuilder settingsBuilder;
@@ -197,6 +208,45 @@ public class ClientFacade implements Closeable {
     }
   }
 
+  /**
+   * Updates the dynamic settings (number of replicas and refresh interval) of an existing index. A
+   * refresh interval that is not specified resets the refresh interval to its default.
+   */
+  public void updateIndexSettings(Index index, IndexSettings indexSettings) {
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("Updating index '{}' settings ...", index.getName());
+    }
+
+    Settings.Builder settings =
+        Settings.builder().put("index.number_of_replicas", indexSettings.getNumberOfReplicas());
+    String refreshInterval = indexSettings.getRefreshInterval();
+    if (refreshInterval != null) {
+      settings.put("index.refresh_interval", refreshInterval);
+    } else {
+      settings.putNull("index.refresh_interval");
+    }
+    UpdateSettingsRequestBuilder updateSettingsRequest =
+        client.admin().indices().prepareUpdateSettings(index.getName()).setSettings(settings);
+
+    UpdateSettingsResponse updateSettingsResponse;
+    try {
+      updateSettingsResponse = updateSettingsRequest.get();
+    } catch (ResourceNotFoundException e) {
+      LOG.debug("", e);
+      throw new UnknownIndexException(index.getName());
+    } catch (ElasticsearchException e) {
+      LOG.error("", e);
+      throw new IndexException(format("Error updating index '%s' settings.", index.getName()));
+    }
+
+    if (!updateSettingsResponse.isAcknowledged()) {
+      LOG.warn("Index '{}' settings update possibly failed (acknowledged=false)", index.getName());
+    }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Updated index '{}' settings.", index.getName());
+    }
+  }
+
   public void refreshIndexes() {
     refreshIndexes(singletonList(Index.create("_all")));
   }
@@ -387,6 +437,180 @@ public class ClientFacade implements Closeable {
     return createSearchResponse(searchResponse);
   }
 
+  /**
+   * Starts a scrolling search. The returned hits contain the first batch of hits and the scroll id
+   * to retrieve the next batch with using {@link #searchScroll(String, TimeValue)}. All batches are
+   * retrieved from the state of the index at the time that the scrolling search started. Hits are
+   * sorted by the given sort followed by index order.
+   *
+   * @param keepAlive how long the search context is kept alive between batch retrievals
+   */
+  public SearchHits searchScroll(
+      QueryBuilder query, int size, @Nullable Sort sort, Index index, TimeValue keepAlive) {
+    if (size > MAX_BATCH_SIZE) {
+      throw new MolgenisQueryException(
+          String.format(
+              "Batch size of %s exceeds the maximum batch size of %s for search queries",
+              size, MAX_BATCH_SIZE));
+    }
+
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+          "Scrolling docs in batches of {} in index '{}' with query '{}' sorted by '{}' ...",
+          size,
+          index.getName(),
+          query,
+          sort);
+    }
+
+    SearchRequestBuilder searchRequest =
+        createSearchRequest(query, null, size, sort, null, singletonList(index));
+    searchRequest.addSort(SortBuilders.fieldSort(FieldSortBuilder.DOC_FIELD_NAME));
+    searchRequest.setScroll(keepAlive);
+
+    SearchResponse searchResponse;
+    try {
+      searchResponse = searchRequest.get();
+    } catch (ResourceNotFoundException e) {
+      LOG.error("", e);
+      throw new UnknownIndexException(index.getName());
+    } catch (ElasticsearchException e) {
+      LOG.error("", e);
+      throw new IndexException(
+          format("Error scrolling docs in index '%s' with query '%s'.", index.getName(), query));
+    }
+    validateScrollResponse(searchResponse);
+
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(
+          "Started scrolling {} docs in index '{}' with query '{}' in {}ms.",
+          searchResponse.getHits().getTotalHits(),
+          index.getName(),
+          query,
+          searchResponse.getTookInMillis());
+    }
+    return createSearchResponse(searchResponse);
+  }
+
+  /**
+   * Searches the batch of hits that follows the hit with the given sort values. Hits are sorted by
+   * the given sort followed by document uid, so that the sort values of each hit are unique and a
+   * search can continue after any hit. Unlike paging with from and size, the cost of retrieving a
+   * batch does not depend on its depth and no search context is kept alive between batches.
+   *
+   * @param searchAfter sort values of the last hit of the previous batch, or empty for the first
+   *     batch
+   */
+  public SearchHits searchAfter(
+      QueryBuilder query, int size, @Nullable Sort sort, Index index, List<Object> searchAfter) {
+    if (size > MAX_BATCH_SIZE) {
+      throw new MolgenisQueryException(
+          String.format(
+              "Batch size of %s exceeds the maximum batch size of %s for search queries",
+              size, MAX_BATCH_SIZE));
+    }
+
+    if (LOG.isTraceEnabled()) {
+      LOG.trace(
+          "Searching {} docs after {} in index '{}' with query '{}' sorted by '{}' ...",
+          size,
+          searchAfter,
+          index.getName(),
+          query,
+          sort);
+    }
+
+    SearchRequestBuilder searchRequest =
+        createSearchRequest(query, null, size, sort, null, singletonList(index));
+    if (sort == null) {
+      searchRequest.addSort(SortBuilders.scoreSort());
+    }
+    searchRequest.addSort(SortBuilders.fieldSort(UID_FIELD_NAME));
+    if (!searchAfter.isEmpty()) {
+      searchRequest.searchAfter(searchAfter.toArray());
+    }
+
+    SearchResponse searchResponse;
+    try {
+      searchResponse = searchRequest.get();
+    } catch (ResourceNotFoundException e) {
+      LOG.error("", e);
+      throw new UnknownIndexException(index.getName());
+    } catch (ElasticsearchException e) {
+      LOG.error("", e);
+      throw new IndexException(
+          format("Error searching docs in index '%s' with query '%s'.", index.getName(), query));
+    }
+    if (searchResponse.getFailedShards() > 0) {
+      LOG.error(
+          stream(searchResponse.getShardFailures())
+              .map(ShardSearchFailure::toString)
+              .collect(joining("\n")));
+      throw new IndexException(
+          format("Error searching docs in index '%s' with query '%s'.", index.getName(), query));
+    }
+    if (searchResponse.isTimedOut()) {
+      throw new IndexException(
+          format("Timeout searching docs in index '%s' with query '%s'.", index.getName(), query));
+    }
+
+    LOG.debug(
+        "Searched {} docs after {} in index '{}' with query '{}' in {}ms.",
+        searchResponse.getHits().getHits().length,
+        searchAfter,
+        index.getName(),
+        query,
+        searchResponse.getTookInMillis());
+    return createSearchResponse(searchResponse);
+  }
+
+  /** Retrieves the next batch of hits of a scrolling search. */
+  public SearchHits searchScroll(String scrollId, TimeValue keepAlive) {
+    LOG.trace("Retrieving next batch of scroll '{}' ...", scrollId);
+
+    SearchResponse searchResponse;
+    try {
+      searchResponse = client.prepareSearchScroll(scrollId).setScroll(keepAlive).get();
+    } catch (ElasticsearchException e) {
+      LOG.error("", e);
+      throw new IndexException(format("Error scrolling docs of scroll '%s'.", scrollId));
+    }
+    validateScrollResponse(searchResponse);
+
+    LOG.debug(
+        "Retrieved {} docs of scroll '{}' in {}ms.",
+        searchResponse.getHits().getHits().length,
+        scrollId,
+        searchResponse.getTookInMillis());
+    return createSearchResponse(searchResponse);
+  }
+
+  /** Releases the search context of a scrolling search. */
+  public void clearScroll(String scrollId) {
+    LOG.trace("Clearing scroll '{}' ...", scrollId);
+    try {
+      client.prepareClearScroll().addScrollId(scrollId).get();
+    } catch (ElasticsearchException e) {
+      // the search context is released anyway when the scroll keep alive expires
+      LOG.warn(format("Error clearing scroll '%s'.", scrollId), e);
+      return;
+    }
+    LOG.debug("Cleared scroll '{}'.", scrollId);
+  }
+
+  private static void validateScrollResponse(SearchResponse searchResponse) {
+    if (searchResponse.getFailedShards() > 0) {
+      LOG.error(
+          stream(searchResponse.getShardFailures())
+              .map(ShardSearchFailure::toString)
+              .collect(joining("\n")));
+      throw new IndexException("Error scrolling docs.");
+    }
+    if (searchResponse.isTimedOut()) {
+      throw new IndexException("Timeout scrolling docs.");
+    }
+  }
+
   private SearchRequestBuilder createSearchRequest(
       QueryBuilder query,
       Integer from,
@@ -419,9 +643,10 @@ public class ClientFacade implements Closeable {
     org.elasticsearch.search.SearchHits searchHits = searchResponse.getHits();
     List<SearchHit> searchHitList =
         stream(searchHits.getHits())
-            .map(hit -> SearchHit.create(hit.getId(), hit.getIndex()))
+            .map(hit -> SearchHit.create(hit.getId(), hit.getIndex(), asList(hit.getSortValues())))
             .collect(toList());
-    return SearchHits.create(searchHits.getTotalHits(), searchHitList);
+    return SearchHits.create(
+        searchHits.getTotalHits(), searchHitList, searchResponse.getScrollId());
   }
 
   public Aggregations aggregate(
@@ -618,6 +843,28 @@ public class ClientFacade implements Closeable {
     }
   }
 
+  /**
+   * Processes the document actions that the producer passes to its consumer in bulk requests. The
+   * consumer can be called from multiple threads. Calling the consumer blocks while the given
+   * number of concurrent bulk requests is in progress.
+   *
+   * @param documentActionProducer produces document actions, returns when all document actions were
+   *     passed to the consumer
+   * @param concurrentRequests number of bulk requests that can be in progress at the same time
+   */
+  public void processDocumentActions(
+      Consumer<Consumer<DocumentAction>> documentActionProducer, int concurrentRequests) {
+    LOG.trace("Processing document actions ...");
+    BulkProcessor bulkProcessor = bulkProcessorFactory.create(client, concurrentRequests);
+    try {
+      documentActionProducer.accept(
+          documentAction -> bulkProcessor.add(toDocWriteRequest(documentAction)));
+    } finally {
+      waitForCompletion(bulkProcessor);
+      LOG.debug("Processed document actions.");
+    }
+  }
+
   private DocWriteRequest toDocWriteRequest(DocumentAction documentAction) {
     String indexName = documentAction.getIndex().getName();
     String documentId = documentAction.getDocument().getId();
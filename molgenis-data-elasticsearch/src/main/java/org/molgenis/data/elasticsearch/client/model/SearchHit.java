@@ -1,6 +1,9 @@
 package org.molgenis.data.elasticsearch.client.model;
 
+import static java.util.Collections.emptyList;
+
 import com.google.auto.value.AutoValue;
+import java.util.List;
 
 @AutoValue
 @SuppressWarnings(
@@ -10,8 +13,15 @@ public abstract class SearchHit {
 
   public abstract String getIndex();
 
+  /** Returns the sort values of this hit to continue a search after this hit with. */
+  public abstract List<Object> getSortValues();
+
   public static SearchHit create(String newId, String newIndex) {
-    return builder().setId(newId).setIndex(newIndex).build();
+    return create(newId, newIndex, emptyList());
+  }
+
+  public static SearchHit create(String newId, String newIndex, List<Object> newSortValues) {
+    return builder().setId(newId).setIndex(newIndex).setSortValues(newSortValues).build();
   }
 
   public static Builder builder() {
@@ -24,6 +34,8 @@ public abstract class SearchHit {
 
     public abstract Builder setIndex(String newIndex);
 
+    public abstract Builder setSortValues(List<Object> newSortValues);
+
     public abstract SearchHit build();
   }
 }
@@ -2,6 +2,7 @@ package org.molgenis.data.elasticsearch.client.model;
 
 import com.google.auto.value.AutoValue;
 import java.util.List;
+import javax.annotation.Nullable;
 
 @AutoValue
 @SuppressWarnings(
@@ -11,10 +12,19 @@ public abstract class SearchHits {
 
   public abstract List<SearchHit> getHits();
 
+  /** Returns the id to retrieve the next batch of hits of a scrolling search with. */
+  @Nullable
+  public abstract String getScrollId();
+
   public static SearchHits create(long newTotalHits, List<SearchHit> newHits) {
     return builder().setTotalHits(newTotalHits).setHits(newHits).build();
   }
 
+  public static SearchHits create(
+      long newTotalHits, List<SearchHit> newHits, @Nullable String newScrollId) {
+    return builder().setTotalHits(newTotalHits).setHits(newHits).setScrollId(newScrollId).build();
+  }
+
   public static Builder builder() {
     return new AutoValue_SearchHits.Builder();
   }
@@ -25,6 +35,8 @@ public abstract class SearchHits {
 
     public abstract Builder setHits(List<SearchHit> newHits);
 
+    public abstract Builder setScrollId(@Nullable String newScrollId);
+
     public abstract SearchHits build();
   }
 }
@@ -15,6 +15,7 @@ import org.molgenis.data.elasticsearch.generator.model.Document;
 import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.IllegalAttributeTypeException;
 import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityTypeSchema;
 import org.molgenis.util.UnexpectedEnumException;
 import org.springframework.stereotype.Component;
 
@@ -56,18 +57,27 @@ class DocumentContentBuilder {
 
   private void createRec(Entity entity, XContentGenerator generator, int depth, int maxDepth)
       throws IOException {
-    for (Attribute attr : entity.getEntityType().getAtomicAttributes()) {
-      generator.writeFieldName(documentIdGenerator.generateId(attr));
-      createRec(entity, attr, generator, depth, maxDepth);
+    EntityTypeSchema entityTypeSchema = entity.getEntityType().getSchema();
+    for (int i = 0; i < entityTypeSchema.size(); i++) {
+      generator.writeFieldName(documentIdGenerator.generateId(entityTypeSchema.getAttribute(i)));
+      createRec(
+          entity,
+          entityTypeSchema.getName(i),
+          entityTypeSchema.getDataType(i),
+          generator,
+          depth,
+          maxDepth);
     }
   }
 
   private void createRec(
-      Entity entity, Attribute attr, XContentGenerator generator, int depth, int maxDepth)
+      Entity entity,
+      String attrName,
+      AttributeType attrType,
+      XContentGenerator generator,
+      int depth,
+      int maxDepth)
       throws IOException {
-    String attrName = attr.getName();
-    AttributeType attrType = attr.getDataType();
-
     switch (attrType) {
       case BOOL:
         Boolean boolValue = entity.getBoolean(attrName);
@@ -210,7 +220,13 @@ class DocumentContentBuilder {
       generator.writeEndObject();
     } else {
       Attribute xrefIdAttr = xrefEntity.getEntityType().getLabelAttribute();
-      createRec(xrefEntity, xrefIdAttr, generator, depth + 1, maxDepth);
+      createRec(
+          xrefEntity,
+          xrefIdAttr.getName(),
+          xrefIdAttr.getDataType(),
+          generator,
+          depth + 1,
+          maxDepth);
     }
   }
 
@@ -156,6 +156,9 @@ public class QueryGenerator {
       case NOT:
         throw new MolgenisQueryException(
             format("Unexpected query operator [%s]", queryOperator.toString()));
+      case PERMITTED:
+        throw new MolgenisQueryException(
+            format("Unsupported query operator [%s]", queryOperator.toString()));
       default:
         throw new UnexpectedEnumException(queryOperator);
     }
@@ -580,6 +583,7 @@ public class QueryGenerator {
       case NESTED:
       case NOT:
       case OR:
+      case PERMITTED:
       case RANGE:
       case SEARCH:
       case SHOULD:
@@ -1,6 +1,8 @@
 package org.molgenis.data.elasticsearch.generator.model;
 
 import com.google.auto.value.AutoValue;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 
 @AutoValue
 @SuppressWarnings(
@@ -15,6 +17,14 @@ public abstract class IndexSettings {
   /** The number of replica shards. */
   public abstract int getNumberOfReplicas();
 
+  /**
+   * How often to perform a refresh operation which makes recent changes visible to search, e.g.
+   * '1s' or '-1' to disable refreshes. Defaults to the Elasticsearch default if not specified.
+   */
+  @Nullable
+  @CheckForNull
+  public abstract String getRefreshInterval();
+
   public static IndexSettings create() {
     return builder().build();
   }
@@ -38,6 +48,8 @@ public abstract class IndexSettings {
 
     public abstract Builder setNumberOfReplicas(int newNumberOfReplicas);
 
+    public abstract Builder setRefreshInterval(String newRefreshInterval);
+
     public abstract IndexSettings build();
   }
 }
@@ -1,27 +1,54 @@
 package org.molgenis.data.elasticsearch;
 
+import static com.google.common.collect.Sets.newHashSet;
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static org.molgenis.data.elasticsearch.ElasticsearchService.MAX_BATCH_SIZE;
+import static org.molgenis.data.elasticsearch.generator.model.DocumentAction.Operation.INDEX;
+import static org.testng.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import org.mockito.Mock;
 import org.mockito.quality.Strictness;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
+import org.molgenis.data.Repository;
 import org.molgenis.data.elasticsearch.client.ClientFacade;
 import org.molgenis.data.elasticsearch.client.model.SearchHit;
 import org.molgenis.data.elasticsearch.client.model.SearchHits;
 import org.molgenis.data.elasticsearch.generator.ContentGenerators;
+import org.molgenis.data.elasticsearch.generator.model.Document;
+import org.molgenis.data.elasticsearch.generator.model.DocumentAction;
+import org.molgenis.data.elasticsearch.generator.model.Index;
+import org.molgenis.data.elasticsearch.generator.model.IndexSettings;
+import org.molgenis.data.elasticsearch.generator.model.Mapping;
+import org.molgenis.data.meta.AttributeType;
+import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.support.QueryImpl;
 import org.molgenis.test.AbstractMockitoTest;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -40,9 +67,22 @@ public class ElasticsearchServiceTest extends AbstractMockitoTest {
     super(Strictness.WARN);
   }
 
+  private ReindexExecutor reindexExecutor;
+
+  @BeforeClass
+  public void setUpBeforeClass() {
+    reindexExecutor = new ReindexExecutor(2);
+  }
+
+  @AfterClass
+  public void tearDownAfterClass() {
+    reindexExecutor.shutdown();
+  }
+
   @BeforeMethod
   public void setUpBeforeMethod() {
-    elasticsearchService = new ElasticsearchService(clientFacade, contentGenerators, dataService);
+    elasticsearchService =
+        new ElasticsearchService(clientFacade, contentGenerators, dataService, reindexExecutor, 1);
   }
 
   @Test
@@ -51,24 +91,42 @@ public class ElasticsearchServiceTest extends AbstractMockitoTest {
     QueryImpl<Entity> query = mock(QueryImpl.class);
     when(query.getPageSize()).thenReturn(0);
     when(query.getOffset()).thenReturn(0);
+    mockStringIdAttribute();
 
-    SearchHits searchHitsBatch = mock(SearchHits.class);
-    when(searchHitsBatch.getHits()).thenReturn(asList(new SearchHit[10000]));
+    when(clientFacade.search(any(), eq(0), eq(MAX_BATCH_SIZE), any(), any()))
+        .thenReturn(SearchHits.create(25000, createSearchHits(0, 10000)));
+    when(clientFacade.searchScroll(any(), eq(MAX_BATCH_SIZE), any(), any(), any()))
+        .thenReturn(SearchHits.create(25000, createSearchHits(0, 10000), "scroll0"));
+    when(clientFacade.searchScroll(eq("scroll0"), any()))
+        .thenReturn(SearchHits.create(25000, createSearchHits(10000, 10000), "scroll1"));
+    when(clientFacade.searchScroll(eq("scroll1"), any()))
+        .thenReturn(SearchHits.create(25000, createSearchHits(20000, 5000), "scroll2"));
 
-    SearchHits finalSearchHitsBatch = mock(SearchHits.class);
-    when(finalSearchHitsBatch.getHits()).thenReturn(asList(new SearchHit[5000]));
+    List<Object> ids;
+    try (Stream<Object> idStream = elasticsearchService.search(entityType, query)) {
+      ids = idStream.collect(toList());
+    }
 
-    when(clientFacade.search(any(), eq(0), eq(10000), any(), any())).thenReturn(searchHitsBatch);
-    when(clientFacade.search(any(), eq(10000), anyInt(), any(), any())).thenReturn(searchHitsBatch);
-    when(clientFacade.search(any(), eq(20000), anyInt(), any(), any()))
-        .thenReturn(finalSearchHitsBatch);
+    assertEquals(ids.size(), 25000);
+    assertEquals(ids.get(24999), "id24999");
+    verify(clientFacade).clearScroll("scroll2");
+  }
 
-    elasticsearchService.search(entityType, query);
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testSingleBatchSearchPageSizeZero() {
+    QueryImpl<Entity> query = mock(QueryImpl.class);
+    when(query.getPageSize()).thenReturn(0);
+    when(query.getOffset()).thenReturn(0);
+    mockStringIdAttribute();
 
-    verify(clientFacade, times(1)).search(any(), eq(0), eq(MAX_BATCH_SIZE), any(), any());
-    verify(clientFacade, times(1)).search(any(), eq(10000), eq(MAX_BATCH_SIZE), any(), any());
-    verify(clientFacade, times(1)).search(any(), eq(20000), eq(MAX_BATCH_SIZE), any(), any());
-    verifyNoMoreInteractions(clientFacade);
+    when(clientFacade.search(any(), eq(0), eq(MAX_BATCH_SIZE), any(), any()))
+        .thenReturn(SearchHits.create(5, createSearchHits(0, 5)));
+
+    List<Object> ids = elasticsearchService.search(entityType, query).collect(toList());
+
+    assertEquals(ids, asList("id0", "id1", "id2", "id3", "id4"));
+    verify(clientFacade, never()).searchScroll(any(), anyInt(), any(), any(), any());
   }
 
   @Test
@@ -95,22 +153,192 @@ public class ElasticsearchServiceTest extends AbstractMockitoTest {
     QueryImpl<Entity> query = mock(QueryImpl.class);
     when(query.getPageSize()).thenReturn(10001);
     when(query.getOffset()).thenReturn(5000);
+    mockStringIdAttribute();
 
-    SearchHits searchHitsBatch = mock(SearchHits.class);
-    when(searchHitsBatch.getHits()).thenReturn(asList(new SearchHit[10000]));
+    when(clientFacade.searchAfter(any(), eq(5000), any(), any(), eq(emptyList())))
+        .thenReturn(SearchHits.create(30000, createSearchHits(0, 5000)));
+    when(clientFacade.searchAfter(any(), eq(10000), any(), any(), eq(singletonList("id4999"))))
+        .thenReturn(SearchHits.create(30000, createSearchHits(5000, 10000)));
+    when(clientFacade.searchAfter(any(), eq(1), any(), any(), eq(singletonList("id14999"))))
+        .thenReturn(SearchHits.create(30000, createSearchHits(15000, 1)));
 
-    SearchHits finalSearchHitsBatch = mock(SearchHits.class);
-    when(finalSearchHitsBatch.getHits()).thenReturn(asList(new SearchHit[1]));
+    List<Object> ids = elasticsearchService.search(entityType, query).collect(toList());
 
-    when(clientFacade.search(any(), eq(5000), eq(MAX_BATCH_SIZE), any(), any()))
-        .thenReturn(searchHitsBatch);
-    when(clientFacade.search(any(), eq(15000), eq(1), any(), any()))
-        .thenReturn(finalSearchHitsBatch);
+    assertEquals(ids.size(), 10001);
+    assertEquals(ids.get(0), "id5000");
+    assertEquals(ids.get(10000), "id15000");
+    verify(clientFacade, never()).searchScroll(any(), anyInt(), any(), any(), any());
+  }
 
-    elasticsearchService.search(entityType, query);
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testBatchingSearchOffsetBeyondLastPage() {
+    QueryImpl<Entity> query = mock(QueryImpl.class);
+    when(query.getPageSize()).thenReturn(100);
+    when(query.getOffset()).thenReturn(15000);
+    mockStringIdAttribute();
 
-    verify(clientFacade, times(1)).search(any(), eq(5000), eq(MAX_BATCH_SIZE), any(), any());
-    verify(clientFacade, times(1)).search(any(), eq(15000), eq(1), any(), any());
-    verifyNoMoreInteractions(clientFacade);
+    when(clientFacade.searchAfter(any(), eq(10000), any(), any(), eq(emptyList())))
+        .thenReturn(SearchHits.create(15050, createSearchHits(0, 10000)));
+    when(clientFacade.searchAfter(any(), eq(5000), any(), any(), eq(singletonList("id9999"))))
+        .thenReturn(SearchHits.create(15050, createSearchHits(10000, 5000)));
+    when(clientFacade.searchAfter(any(), eq(100), any(), any(), eq(singletonList("id14999"))))
+        .thenReturn(SearchHits.create(15050, createSearchHits(15000, 50)));
+
+    List<Object> ids = elasticsearchService.search(entityType, query).collect(toList());
+
+    assertEquals(ids.size(), 50);
+    assertEquals(ids.get(49), "id15049");
+    verify(clientFacade, times(3)).searchAfter(any(), anyInt(), any(), any(), any());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testBatchingSearchCloseStream() {
+    QueryImpl<Entity> query = mock(QueryImpl.class);
+    when(query.getPageSize()).thenReturn(0);
+    when(query.getOffset()).thenReturn(0);
+    mockStringIdAttribute();
+
+    when(clientFacade.search(any(), eq(0), eq(MAX_BATCH_SIZE), any(), any()))
+        .thenReturn(SearchHits.create(25000, createSearchHits(0, 10000)));
+    when(clientFacade.searchScroll(any(), eq(MAX_BATCH_SIZE), any(), any(), any()))
+        .thenReturn(SearchHits.create(25000, createSearchHits(0, 10000), "scroll0"));
+
+    try (Stream<Object> ids = elasticsearchService.search(entityType, query)) {
+      assertEquals(ids.findFirst(), Optional.of("id0"));
+    }
+
+    verify(clientFacade).clearScroll("scroll0");
+    verify(clientFacade, never()).searchScroll(any(String.class), any());
+  }
+
+  private void mockStringIdAttribute() {
+    Attribute idAttribute = mock(Attribute.class);
+    when(idAttribute.getDataType()).thenReturn(AttributeType.STRING);
+    when(entityType.getIdAttribute()).thenReturn(idAttribute);
+  }
+
+  private static List<SearchHit> createSearchHits(int start, int nrHits) {
+    return IntStream.range(start, start + nrHits)
+        .mapToObj(i -> SearchHit.create("id" + i, "index", singletonList("id" + i)))
+        .collect(toList());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testRebuildIndex() {
+    Repository<Entity> repository = mock(Repository.class);
+    when(repository.getEntityType()).thenReturn(entityType);
+    when(entityType.getAtomicAttributes()).thenReturn(emptyList());
+
+    Index index = Index.create("index");
+    when(contentGenerators.createIndex(entityType)).thenReturn(index);
+    Mapping mapping = mock(Mapping.class);
+    when(contentGenerators.createMapping(entityType)).thenReturn(mapping);
+
+    List<Entity> entities = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      Entity entity = mock(Entity.class);
+      when(entity.getEntityType()).thenReturn(entityType);
+      when(contentGenerators.createDocument(entity))
+          .thenReturn(Document.builder().setId("id" + i).build());
+      entities.add(entity);
+    }
+    doAnswer(
+            invocation -> {
+              Consumer<List<Entity>> consumer = invocation.getArgument(1);
+              consumer.accept(entities.subList(0, 3));
+              consumer.accept(entities.subList(3, 5));
+              return null;
+            })
+        .when(repository)
+        .forEachBatched(any(Fetch.class), any(Consumer.class), eq(1000));
+
+    Set<String> documentIds = ConcurrentHashMap.newKeySet();
+    doAnswer(
+            invocation -> {
+              Consumer<Consumer<DocumentAction>> producer = invocation.getArgument(0);
+              producer.accept(
+                  documentAction -> {
+                    assertEquals(documentAction.getIndex(), index);
+                    assertEquals(documentAction.getOperation(), INDEX);
+                    documentIds.add(documentAction.getDocument().getId());
+                  });
+              return null;
+            })
+        .when(clientFacade)
+        .processDocumentActions(any(Consumer.class), eq(1));
+
+    elasticsearchService.rebuildIndex(repository);
+
+    assertEquals(documentIds, newHashSet("id0", "id1", "id2", "id3", "id4"));
+    verify(clientFacade)
+        .createIndex(
+            eq(index),
+            eq(IndexSettings.builder().setRefreshInterval("-1").build()),
+            any(Stream.class));
+    verify(clientFacade).updateIndexSettings(index, IndexSettings.create());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testRebuildIndexResolvesReferencesOnCallingThread() {
+    Repository<Entity> repository = mock(Repository.class);
+    when(repository.getEntityType()).thenReturn(entityType);
+    when(entityType.getIndexingDepth()).thenReturn(1);
+    Attribute refAttribute = mock(Attribute.class);
+    when(refAttribute.getName()).thenReturn("ref");
+    when(refAttribute.getDataType()).thenReturn(AttributeType.XREF);
+    when(entityType.getAtomicAttributes()).thenReturn(singletonList(refAttribute));
+
+    EntityType refEntityType = mock(EntityType.class);
+    Attribute refRefAttribute = mock(Attribute.class);
+    when(refRefAttribute.getName()).thenReturn("refRef");
+    when(refRefAttribute.getDataType()).thenReturn(AttributeType.MREF);
+    when(refEntityType.getAtomicAttributes()).thenReturn(singletonList(refRefAttribute));
+
+    Thread callingThread = Thread.currentThread();
+    Entity refRefEntity = mock(Entity.class);
+    doAnswer(
+            invocation -> {
+              assertEquals(Thread.currentThread(), callingThread);
+              return "label";
+            })
+        .when(refRefEntity)
+        .getLabelValue();
+    Entity refEntity = mock(Entity.class);
+    when(refEntity.getEntityType()).thenReturn(refEntityType);
+    when(refEntity.getEntities("refRef")).thenReturn(singletonList(refRefEntity));
+    Entity entity = mock(Entity.class);
+    when(entity.getEntityType()).thenReturn(entityType);
+    when(entity.getEntity("ref")).thenReturn(refEntity);
+
+    Index index = Index.create("index");
+    when(contentGenerators.createIndex(entityType)).thenReturn(index);
+    when(contentGenerators.createMapping(entityType)).thenReturn(mock(Mapping.class));
+    when(contentGenerators.createDocument(entity))
+        .thenReturn(Document.builder().setId("id").build());
+    doAnswer(
+            invocation -> {
+              Consumer<List<Entity>> consumer = invocation.getArgument(1);
+              consumer.accept(singletonList(entity));
+              return null;
+            })
+        .when(repository)
+        .forEachBatched(any(Fetch.class), any(Consumer.class), eq(1000));
+    doAnswer(
+            invocation -> {
+              Consumer<Consumer<DocumentAction>> producer = invocation.getArgument(0);
+              producer.accept(documentAction -> {});
+              return null;
+            })
+        .when(clientFacade)
+        .processDocumentActions(any(Consumer.class), eq(1));
+
+    elasticsearchService.rebuildIndex(repository);
+
+    verify(refRefEntity).getLabelValue();
+    verify(contentGenerators).createDocument(entity);
   }
 }
@@ -5,14 +5,17 @@ import static ch.qos.logback.classic.Level.ERROR;
 import static ch.qos.logback.classic.Level.TRACE;
 import static ch.qos.logback.classic.Level.WARN;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.argThat;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
+import static org.testng.Assert.assertEquals;
 
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.spi.ILoggingEvent;
@@ -29,14 +32,18 @@ import org.elasticsearch.action.admin.indices.delete.DeleteIndexResponse;
 import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsRequestBuilder;
 import org.elasticsearch.action.admin.indices.refresh.RefreshRequestBuilder;
 import org.elasticsearch.action.admin.indices.refresh.RefreshResponse;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequestBuilder;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsResponse;
 import org.elasticsearch.action.delete.DeleteRequestBuilder;
 import org.elasticsearch.action.delete.DeleteResponse;
 import org.elasticsearch.action.explain.ExplainRequestBuilder;
 import org.elasticsearch.action.explain.ExplainResponse;
 import org.elasticsearch.action.index.IndexRequestBuilder;
 import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.ClearScrollRequestBuilder;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequestBuilder;
 import org.elasticsearch.action.search.ShardSearchFailure;
 import org.elasticsearch.action.support.DefaultShardOperationFailedException;
 import org.elasticsearch.action.support.replication.ReplicationResponse.ShardInfo;
@@ -44,14 +51,18 @@ import org.elasticsearch.client.AdminClient;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.IndicesAdminClient;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
 import org.mockito.Mock;
 import org.molgenis.data.elasticsearch.client.model.SearchHit;
+import org.molgenis.data.elasticsearch.client.model.SearchHits;
 import org.molgenis.data.elasticsearch.generator.model.Document;
 import org.molgenis.data.elasticsearch.generator.model.FieldMapping;
 import org.molgenis.data.elasticsearch.generator.model.Index;
@@ -89,6 +100,10 @@ public class ClientFacadeTest {
 
   @Mock private DeleteIndexResponse deleteIndexResponse;
 
+  @Mock private UpdateSettingsRequestBuilder updateSettingsRequestBuilder;
+
+  @Mock private UpdateSettingsResponse updateSettingsResponse;
+
   @Mock private RefreshRequestBuilder refreshRequestBuilder;
 
   @Mock private RefreshResponse refreshResponse;
@@ -306,6 +321,43 @@ public class ClientFacadeTest {
     clientFacade.deleteIndex(index);
   }
 
+  @Test
+  public void testUpdateIndexSettings() {
+    Index index = Index.create("indexname");
+    IndexSettings indexSettings = IndexSettings.builder().setRefreshInterval("-1").build();
+
+    when(indicesAdminClient.prepareUpdateSettings("indexname"))
+        .thenReturn(updateSettingsRequestBuilder);
+    when(updateSettingsRequestBuilder.setSettings(any(Settings.Builder.class)))
+        .thenReturn(updateSettingsRequestBuilder);
+    when(updateSettingsRequestBuilder.get()).thenReturn(updateSettingsResponse);
+    when(updateSettingsResponse.isAcknowledged()).thenReturn(true);
+
+    clientFacade.updateIndexSettings(index, indexSettings);
+
+    verify(updateSettingsRequestBuilder)
+        .setSettings(
+            argThat(
+                (Settings.Builder settings) ->
+                    "-1".equals(settings.get("index.refresh_interval"))
+                        && "0".equals(settings.get("index.number_of_replicas"))));
+  }
+
+  @Test(
+      expectedExceptions = IndexException.class,
+      expectedExceptionsMessageRegExp = "Error updating index 'indexname' settings\\.")
+  public void testUpdateIndexSettingsThrowsException() {
+    Index index = Index.create("indexname");
+
+    when(indicesAdminClient.prepareUpdateSettings("indexname"))
+        .thenReturn(updateSettingsRequestBuilder);
+    when(updateSettingsRequestBuilder.setSettings(any(Settings.Builder.class)))
+        .thenReturn(updateSettingsRequestBuilder);
+    when(updateSettingsRequestBuilder.get()).thenThrow(new ElasticsearchException("exception"));
+
+    clientFacade.updateIndexSettings(index, IndexSettings.create());
+  }
+
   @Test(
       expectedExceptions = IndexException.class,
       expectedExceptionsMessageRegExp = "Error refreshing index\\(es\\) '_all'\\.")
@@ -449,6 +501,84 @@ public class ClientFacadeTest {
     clientFacade.search(queryBuilder, 0, 100, ImmutableList.of(index));
   }
 
+  @Test
+  public void testSearchScroll() {
+    Index index = Index.create("index");
+    TimeValue keepAlive = TimeValue.timeValueMinutes(1);
+
+    when(client.prepareSearch("index")).thenReturn(searchRequestBuilder);
+    when(searchRequestBuilder.get()).thenReturn(searchResponse);
+    org.elasticsearch.search.SearchHits searchHits =
+        mock(org.elasticsearch.search.SearchHits.class);
+    when(searchHits.getTotalHits()).thenReturn(1L);
+    org.elasticsearch.search.SearchHit searchHit = mock(org.elasticsearch.search.SearchHit.class);
+    when(searchHit.getId()).thenReturn("id");
+    when(searchHit.getIndex()).thenReturn("index");
+    when(searchHit.getSortValues()).thenReturn(new Object[0]);
+    when(searchHits.getHits()).thenReturn(new org.elasticsearch.search.SearchHit[] {searchHit});
+    when(searchResponse.getHits()).thenReturn(searchHits);
+    when(searchResponse.getScrollId()).thenReturn("scrollId");
+
+    SearchHits expectedSearchHits =
+        SearchHits.create(1L, singletonList(SearchHit.create("id", "index")), "scrollId");
+    assertEquals(
+        clientFacade.searchScroll(queryBuilder, 100, null, index, keepAlive), expectedSearchHits);
+    verify(searchRequestBuilder).setScroll(keepAlive);
+    verify(searchRequestBuilder).addSort(SortBuilders.fieldSort(FieldSortBuilder.DOC_FIELD_NAME));
+  }
+
+  @Test
+  public void testSearchAfter() {
+    Index index = Index.create("index");
+
+    when(client.prepareSearch("index")).thenReturn(searchRequestBuilder);
+    when(searchRequestBuilder.get()).thenReturn(searchResponse);
+    org.elasticsearch.search.SearchHits searchHits =
+        mock(org.elasticsearch.search.SearchHits.class);
+    when(searchHits.getTotalHits()).thenReturn(2L);
+    org.elasticsearch.search.SearchHit searchHit = mock(org.elasticsearch.search.SearchHit.class);
+    when(searchHit.getId()).thenReturn("id1");
+    when(searchHit.getIndex()).thenReturn("index");
+    when(searchHit.getSortValues()).thenReturn(new Object[] {"type#id1"});
+    when(searchHits.getHits()).thenReturn(new org.elasticsearch.search.SearchHit[] {searchHit});
+    when(searchResponse.getHits()).thenReturn(searchHits);
+
+    SearchHits expectedSearchHits =
+        SearchHits.create(
+            2L, singletonList(SearchHit.create("id1", "index", singletonList("type#id1"))), null);
+    assertEquals(
+        clientFacade.searchAfter(queryBuilder, 100, null, index, singletonList("type#id0")),
+        expectedSearchHits);
+    verify(searchRequestBuilder).addSort(SortBuilders.scoreSort());
+    verify(searchRequestBuilder).addSort(SortBuilders.fieldSort("_uid"));
+    verify(searchRequestBuilder).searchAfter(new Object[] {"type#id0"});
+  }
+
+  @Test(
+      expectedExceptions = IndexException.class,
+      expectedExceptionsMessageRegExp = "Error scrolling docs of scroll 'scrollId'\\.")
+  public void testSearchScrollThrowsException() {
+    TimeValue keepAlive = TimeValue.timeValueMinutes(1);
+    SearchScrollRequestBuilder searchScrollRequestBuilder = mock(SearchScrollRequestBuilder.class);
+    when(client.prepareSearchScroll("scrollId")).thenReturn(searchScrollRequestBuilder);
+    when(searchScrollRequestBuilder.setScroll(keepAlive)).thenReturn(searchScrollRequestBuilder);
+    when(searchScrollRequestBuilder.get()).thenThrow(new ElasticsearchException("exception"));
+
+    clientFacade.searchScroll("scrollId", keepAlive);
+  }
+
+  @Test
+  public void testClearScrollThrowsException() {
+    ClearScrollRequestBuilder clearScrollRequestBuilder = mock(ClearScrollRequestBuilder.class);
+    when(client.prepareClearScroll()).thenReturn(clearScrollRequestBuilder);
+    when(clearScrollRequestBuilder.addScrollId("scrollId")).thenReturn(clearScrollRequestBuilder);
+    when(clearScrollRequestBuilder.get()).thenThrow(new ElasticsearchException("exception"));
+
+    clientFacade.clearScroll("scrollId");
+
+    verify(mockAppender).doAppend(matcher(WARN, "Error clearing scroll 'scrollId'."));
+  }
+
   @Test(
       expectedExceptions = IndexException.class,
       expectedExceptionsMessageRegExp = "Error aggregating docs in index\\(es\\) 'index'\\.")
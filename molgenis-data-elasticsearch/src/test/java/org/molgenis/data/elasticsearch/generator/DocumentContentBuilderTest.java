@@ -298,6 +298,7 @@ public class DocumentContentBuilderTest extends AbstractMockitoTest {
     EntityType entityType = mock(EntityType.class);
     when(entityType.getId()).thenReturn("id");
     when(entityType.getAtomicAttributes()).thenReturn(singletonList(attribute));
+    when(entityType.getSchema()).thenCallRealMethod();
     when(entityType.getLabelAttribute()).thenReturn(attribute);
     when(entityType.getIndexingDepth()).thenReturn(indexingDepth);
 
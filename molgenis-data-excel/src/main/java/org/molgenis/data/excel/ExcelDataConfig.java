@@ -1,5 +1,6 @@
 package org.molgenis.data.excel;
 
+import com.google.common.collect.ImmutableSet;
 import javax.annotation.PostConstruct;
 import org.molgenis.data.file.FileRepositoryCollectionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,10 +13,14 @@ public class ExcelDataConfig {
   /**
    * Registers the ExcelRepositorySource factory so it can be used by
    * DataService.createFileRepositorySource(File file);
+   *
+   * <p>XLSX files are read with the streaming {@link XlsxRepositoryCollection}.
    */
   @PostConstruct
   public void registerExcelRepositorySource() {
     fileRepositoryCollectionFactory.addFileRepositoryCollectionClass(
-        ExcelRepositoryCollection.class, ExcelFileExtensions.getExcel());
+        ExcelRepositoryCollection.class, ImmutableSet.of(ExcelFileExtensions.XLS.toString()));
+    fileRepositoryCollectionFactory.addFileRepositoryCollectionClass(
+        XlsxRepositoryCollection.class, ImmutableSet.of(ExcelFileExtensions.XLSX.toString()));
   }
 }
@@ -28,7 +28,8 @@ public class ExcelEntity extends DynamicEntity {
       Map<String, Integer> colNamesMap,
       List<CellProcessor> cellProcessors,
       EntityType entityType) {
-    super(entityType);
+    // values are read from the row, not stored in schema slots
+    super(entityType, false);
 
     if (row == null) throw new IllegalArgumentException("row is null");
     if (colNamesMap == null) throw new IllegalArgumentException("column names map is null");
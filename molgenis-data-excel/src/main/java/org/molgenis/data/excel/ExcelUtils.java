@@ -123,6 +123,37 @@ public class ExcelUtils {
     return AbstractCellProcessor.processCell(value, false, cellProcessors);
   }
 
+  /**
+   * Gets a numeric value as String the same way as {@link #toValue(Cell, List)}, for readers that
+   * do not use the POI user model.
+   *
+   * @param x numeric value
+   * @param dateFormatted whether the value is formatted as date
+   */
+  static String toValue(double x, boolean dateFormatted) {
+    String value;
+    if (dateFormatted) {
+      try {
+        // Excel dates are LocalDateTime, stored without timezone.
+        // Interpret them as UTC to prevent ambiguous DST overlaps which happen in other
+        // timezones.
+        LocaleUtil.setUserTimeZone(LocaleUtil.TIMEZONE_UTC);
+        Date javaDate = DateUtil.getJavaDate(x, false);
+        value = formatUTCDateAsLocalDateTime(javaDate);
+      } finally {
+        LocaleUtil.resetUserTimeZone();
+      }
+    } else {
+      // excel stores integer values as double values
+      // read an integer if the double value equals the
+      // integer value
+      if (x == Math.rint(x) && !Double.isNaN(x) && !Double.isInfinite(x))
+        value = String.valueOf((long) x);
+      else value = String.valueOf(x);
+    }
+    return value;
+  }
+
   public static void renameSheet(String newSheetname, File file, int index) {
     try (FileInputStream fis = new FileInputStream(file);
         Workbook workbook = WorkbookFactory.create(fis)) {
@@ -0,0 +1,399 @@
+package org.molgenis.data.excel;
+
+import static java.lang.String.format;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.molgenis.data.Entity;
+import org.molgenis.data.MolgenisDataException;
+import org.molgenis.data.UnknownEntityTypeException;
+import org.molgenis.data.file.processor.AbstractCellProcessor;
+import org.molgenis.data.file.processor.CellProcessor;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.support.DynamicEntity;
+import org.molgenis.util.CloseableIterator;
+import org.xml.sax.SAXException;
+
+/**
+ * Iterates over the rows of a XLSX sheet without loading the sheet in memory.
+ *
+ * <p>The sheet XML is read with a pull parser, only the shared strings table and the cell styles
+ * of the workbook are kept in memory. Cell values are converted to String in the same way as
+ * {@link ExcelRepository} does. Formulas are not evaluated, the value cached in the file is used
+ * instead.
+ */
+class XlsxIterator implements CloseableIterator<Entity> {
+  private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+  private final String sheetName;
+  private final List<CellProcessor> cellProcessors;
+  private final EntityType entityType;
+  private OPCPackage opcPackage;
+  private InputStream sheetInputStream;
+  private XMLStreamReader xmlStreamReader;
+  private ReadOnlySharedStringsTable sharedStringsTable;
+  private StylesTable stylesTable;
+  private final Map<String, Integer> colNamesMap; // column names index
+  private Entity next;
+  private boolean getNext = true;
+
+  /**
+   * Creates an iterator that reads the header row of the sheet. The sheet is validated before the
+   * header is read, see {@link #getColNamesMap()}.
+   */
+  XlsxIterator(File file, String sheetName, List<CellProcessor> cellProcessors) {
+    this(file, sheetName, cellProcessors, null, null);
+  }
+
+  /**
+   * Creates an iterator over the data rows of a sheet of which the header was read before with
+   * {@link #XlsxIterator(File, String, List)}. The header row is skipped and the sheet is not
+   * validated again.
+   */
+  XlsxIterator(
+      File file,
+      String sheetName,
+      List<CellProcessor> cellProcessors,
+      EntityType entityType,
+      Map<String, Integer> colNamesMap) {
+    this.sheetName = sheetName;
+    this.cellProcessors = cellProcessors;
+    this.entityType = entityType;
+
+    try {
+      PackagePart sheetPart = null;
+      opcPackage = OPCPackage.open(file, PackageAccess.READ);
+      XSSFReader xssfReader = new XSSFReader(opcPackage);
+      XSSFReader.SheetIterator sheetIterator =
+          (XSSFReader.SheetIterator) xssfReader.getSheetsData();
+      while (sheetIterator.hasNext()) {
+        InputStream inputStream = sheetIterator.next();
+        if (sheetIterator.getSheetName().equals(sheetName)) {
+          sheetInputStream = inputStream;
+          sheetPart = sheetIterator.getSheetPart();
+          break;
+        }
+        inputStream.close();
+      }
+
+      if (sheetInputStream == null) {
+        throw new UnknownEntityTypeException(sheetName);
+      }
+
+      if (colNamesMap == null) {
+        validateNoMergedRegions(sheetPart);
+      }
+
+      sharedStringsTable = new ReadOnlySharedStringsTable(opcPackage);
+      stylesTable = xssfReader.getStylesTable();
+      xmlStreamReader = XML_INPUT_FACTORY.createXMLStreamReader(sheetInputStream);
+
+      if (colNamesMap == null) {
+        this.colNamesMap = toColNamesMap(readRow());
+      } else {
+        skipRow();
+        this.colNamesMap = colNamesMap;
+      }
+    } catch (IOException | OpenXML4JException | SAXException | XMLStreamException e) {
+      close();
+      throw new MolgenisDataException(format("Exception reading [%s]", file.getAbsolutePath()), e);
+    } catch (RuntimeException e) {
+      close();
+      throw e;
+    }
+  }
+
+  Map<String, Integer> getColNamesMap() {
+    return colNamesMap;
+  }
+
+  @Override
+  public boolean hasNext() {
+    boolean hasNext = get() != null;
+    if (!hasNext) {
+      close();
+    }
+
+    return hasNext;
+  }
+
+  @Override
+  public Entity next() {
+    Entity entity = get();
+    if (entity == null) {
+      throw new NoSuchElementException();
+    }
+    getNext = true;
+    return entity;
+  }
+
+  private Entity get() {
+    if (getNext) {
+      try {
+        // iterator skips empty lines
+        next = null;
+        List<String> values;
+        while (next == null && (values = readRow()) != null) {
+          next = toEntity(values);
+        }
+        getNext = false;
+      } catch (XMLStreamException e) {
+        close();
+        throw new MolgenisDataException(
+            format("Exception reading row of sheet [%s]", sheetName), e);
+      }
+    }
+
+    return next;
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void close() {
+    if (xmlStreamReader != null) {
+      try {
+        xmlStreamReader.close();
+      } catch (XMLStreamException e) {
+        // ignore
+      }
+      xmlStreamReader = null;
+    }
+
+    if (sheetInputStream != null) {
+      try {
+        sheetInputStream.close();
+      } catch (IOException e) {
+        // ignore
+      }
+      sheetInputStream = null;
+    }
+
+    if (opcPackage != null) {
+      // read-only packages are closed without saving
+      opcPackage.revert();
+      opcPackage = null;
+    }
+  }
+
+  /** Returns an entity for the given row values or <code>null</code> if the row is empty */
+  private Entity toEntity(List<String> values) {
+    DynamicEntity entity = new DynamicEntity(entityType);
+    boolean isEmpty = true;
+    for (Map.Entry<String, Integer> entry : colNamesMap.entrySet()) {
+      int col = entry.getValue();
+      String value =
+          AbstractCellProcessor.processCell(
+              col < values.size() ? values.get(col) : null, false, cellProcessors);
+      if (StringUtils.isNotEmpty(value)) {
+        isEmpty = false;
+      }
+      entity.set(entry.getKey(), value);
+    }
+    return isEmpty ? null : entity;
+  }
+
+  private Map<String, Integer> toColNamesMap(List<String> headers) {
+    if (headers == null) {
+      return Collections.emptyMap();
+    }
+
+    Map<String, Integer> columnIdx = new LinkedHashMap<>();
+    for (int i = 0; i < headers.size(); ++i) {
+      String header = AbstractCellProcessor.processCell(headers.get(i), true, cellProcessors);
+      if (header != null) {
+        if (columnIdx.containsKey(header)) {
+          throw new MolgenisDataException(
+              format(
+                  "Duplicate column header '%s' in sheet '%s' not allowed", header, sheetName));
+        }
+        columnIdx.put(header, i);
+      }
+    }
+    return columnIdx;
+  }
+
+  /**
+   * Reads the next row of the sheet
+   *
+   * @return cell values by column index or <code>null</code> if there are no more rows
+   */
+  private List<String> readRow() throws XMLStreamException {
+    while (xmlStreamReader.hasNext()) {
+      if (xmlStreamReader.next() == START_ELEMENT
+          && xmlStreamReader.getLocalName().equals("row")) {
+        return readCells();
+      }
+    }
+    return null;
+  }
+
+  private void skipRow() throws XMLStreamException {
+    while (xmlStreamReader.hasNext()) {
+      if (xmlStreamReader.next() == START_ELEMENT
+          && xmlStreamReader.getLocalName().equals("row")) {
+        skipElement();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Merged regions are listed after the sheet data, so the sheet is scanned for merged regions
+   * before the first row is read.
+   */
+  private void validateNoMergedRegions(PackagePart sheetPart)
+      throws IOException, XMLStreamException {
+    try (InputStream inputStream = sheetPart.getInputStream()) {
+      XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+      try {
+        while (reader.hasNext()) {
+          if (reader.next() == START_ELEMENT && reader.getLocalName().equals("mergeCell")) {
+            throw new MolgenisDataException(
+                format("Sheet [%s] contains merged regions which is not supported", sheetName));
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    }
+  }
+
+  private List<String> readCells() throws XMLStreamException {
+    List<String> values = new ArrayList<>();
+    while (xmlStreamReader.hasNext()) {
+      int event = xmlStreamReader.next();
+      if (event == START_ELEMENT && xmlStreamReader.getLocalName().equals("c")) {
+        String cellReference = xmlStreamReader.getAttributeValue(null, "r");
+        int col =
+            cellReference != null ? new CellReference(cellReference).getCol() : values.size();
+        String value = readCell();
+        while (values.size() <= col) {
+          values.add(null);
+        }
+        values.set(col, value);
+      } else if (event == END_ELEMENT && xmlStreamReader.getLocalName().equals("row")) {
+        break;
+      }
+    }
+    return values;
+  }
+
+  private String readCell() throws XMLStreamException {
+    String type = xmlStreamReader.getAttributeValue(null, "t");
+    String style = xmlStreamReader.getAttributeValue(null, "s");
+
+    String rawValue = null;
+    StringBuilder inlineString = null;
+    while (xmlStreamReader.hasNext()) {
+      int event = xmlStreamReader.next();
+      if (event == START_ELEMENT) {
+        switch (xmlStreamReader.getLocalName()) {
+          case "v":
+            rawValue = xmlStreamReader.getElementText();
+            break;
+          case "t":
+            if (inlineString == null) {
+              inlineString = new StringBuilder();
+            }
+            inlineString.append(xmlStreamReader.getElementText());
+            break;
+          case "rPh":
+            // phonetic runs are not part of the cell value
+            skipElement();
+            break;
+          default:
+            break;
+        }
+      } else if (event == END_ELEMENT && xmlStreamReader.getLocalName().equals("c")) {
+        break;
+      }
+    }
+
+    if (type == null || type.equals("n")) {
+      return rawValue != null && !rawValue.isEmpty()
+          ? ExcelUtils.toValue(Double.parseDouble(rawValue), isDateFormatted(style, rawValue))
+          : null;
+    }
+
+    switch (type) {
+      case "s":
+        return rawValue != null
+            ? sharedStringsTable.getItemAt(Integer.parseInt(rawValue)).getString()
+            : null;
+      case "inlineStr":
+        return inlineString != null ? inlineString.toString() : null;
+      case "str":
+        return rawValue;
+      case "b":
+        return rawValue != null ? String.valueOf(rawValue.equals("1")) : null;
+      case "e":
+        throw new MolgenisDataException("unsupported cell type: ERROR");
+      default:
+        throw new MolgenisDataException("unsupported cell type: " + type);
+    }
+  }
+
+  private boolean isDateFormatted(String style, String rawValue) {
+    if (stylesTable == null) {
+      return false;
+    }
+
+    XSSFCellStyle cellStyle;
+    if (style != null) {
+      cellStyle = stylesTable.getStyleAt(Integer.parseInt(style));
+    } else if (stylesTable.getNumCellStyles() > 0) {
+      cellStyle = stylesTable.getStyleAt(0);
+    } else {
+      cellStyle = null;
+    }
+    return cellStyle != null
+        && DateUtil.isValidExcelDate(Double.parseDouble(rawValue))
+        && DateUtil.isADateFormat(cellStyle.getDataFormat(), cellStyle.getDataFormatString());
+  }
+
+  private void skipElement() throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0 && xmlStreamReader.hasNext()) {
+      int event = xmlStreamReader.next();
+      if (event == START_ELEMENT) {
+        ++depth;
+      } else if (event == END_ELEMENT) {
+        --depth;
+      }
+    }
+  }
+
+  private static XMLInputFactory createXmlInputFactory() {
+    XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+    xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return xmlInputFactory;
+  }
+}
@@ -0,0 +1,122 @@
+package org.molgenis.data.excel;
+
+import static java.util.Objects.requireNonNull;
+import static org.molgenis.data.meta.AttributeType.STRING;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
+import org.molgenis.data.RepositoryCapability;
+import org.molgenis.data.file.processor.CellProcessor;
+import org.molgenis.data.meta.model.AttributeFactory;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.meta.model.EntityTypeFactory;
+import org.molgenis.data.support.AbstractRepository;
+
+/**
+ * Forward-only {@link org.molgenis.data.Repository} implementation for a XLSX sheet that streams
+ * the sheet rows instead of loading the workbook in memory.
+ *
+ * <p>It is assumed that the first row of the sheet is the header row.
+ *
+ * <p>All attributes will be of the string type. The cell values are converted to string.
+ */
+public class XlsxRepository extends AbstractRepository {
+  private final File file;
+  private final String sheetName;
+  private final EntityTypeFactory entityTypeFactory;
+  private final AttributeFactory attrMetaFactory;
+
+  /** process cells after reading */
+  private List<CellProcessor> cellProcessors;
+
+  private EntityType entityType;
+  private Map<String, Integer> colNamesMap;
+
+  public XlsxRepository(
+      File file,
+      String sheetName,
+      EntityTypeFactory entityTypeFactory,
+      AttributeFactory attrMetaFactory,
+      List<CellProcessor> cellProcessors) {
+    this.file = requireNonNull(file);
+    this.sheetName = requireNonNull(sheetName);
+    this.entityTypeFactory = requireNonNull(entityTypeFactory);
+    this.attrMetaFactory = requireNonNull(attrMetaFactory);
+    this.cellProcessors = cellProcessors;
+  }
+
+  @Override
+  public Iterator<Entity> iterator() {
+    return createDataIterator();
+  }
+
+  /** Reads the sheet rows in batches, only one batch of entities is kept in memory at a time. */
+  @Override
+  public void forEachBatched(Fetch fetch, Consumer<List<Entity>> consumer, int batchSize) {
+    XlsxIterator it = createDataIterator();
+    try {
+      Iterators.partition(it, batchSize).forEachRemaining(consumer);
+    } finally {
+      it.close();
+    }
+  }
+
+  public void addCellProcessor(CellProcessor cellProcessor) {
+    if (cellProcessors == null) cellProcessors = new ArrayList<>();
+    cellProcessors.add(cellProcessor);
+
+    // the header is processed with the cell processors
+    entityType = null;
+    colNamesMap = null;
+  }
+
+  /**
+   * Returns the entity type derived from the header row. The header is read and the sheet is
+   * validated only once, data iterators reuse the column names.
+   */
+  public EntityType getEntityType() {
+    if (entityType == null) {
+      EntityType newEntityType = entityTypeFactory.create(sheetName).setLabel(sheetName);
+
+      Map<String, Integer> newColNamesMap;
+      XlsxIterator it = new XlsxIterator(file, sheetName, cellProcessors);
+      try {
+        newColNamesMap = it.getColNamesMap();
+      } finally {
+        it.close();
+      }
+      for (String colName : newColNamesMap.keySet()) {
+        newEntityType.addAttribute(attrMetaFactory.create().setName(colName).setDataType(STRING));
+      }
+      this.colNamesMap = newColNamesMap;
+      this.entityType = newEntityType;
+    }
+
+    return entityType;
+  }
+
+  @Override
+  public Set<RepositoryCapability> getCapabilities() {
+    return Collections.emptySet();
+  }
+
+  @Override
+  public long count() {
+    return Iterables.size(this);
+  }
+
+  private XlsxIterator createDataIterator() {
+    EntityType dataEntityType = getEntityType();
+    return new XlsxIterator(file, sheetName, cellProcessors, dataEntityType, colNamesMap);
+  }
+}
@@ -0,0 +1,159 @@
+package org.molgenis.data.excel;
+
+import static java.lang.String.format;
+
+import com.google.common.collect.ImmutableSet;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.molgenis.data.Entity;
+import org.molgenis.data.MolgenisDataException;
+import org.molgenis.data.Repository;
+import org.molgenis.data.file.processor.CellProcessor;
+import org.molgenis.data.file.processor.TrimProcessor;
+import org.molgenis.data.file.support.FileRepositoryCollection;
+import org.molgenis.data.meta.model.AttributeFactory;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.meta.model.EntityTypeFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Reads a XLSX file without loading the workbook in memory.
+ *
+ * <p>A sheet is exposed as a forward-only {@link XlsxRepository} with the sheetname as the
+ * Repository name. Use {@link ExcelRepositoryCollection} to read XLS files or to write workbooks.
+ */
+public class XlsxRepositoryCollection extends FileRepositoryCollection {
+  private static final String REPOSITORY_COLLECTION_NAME = "EXCEL";
+
+  private final File file;
+  private final List<String> sheetNames;
+  private final Map<String, XlsxRepository> repositories = new HashMap<>();
+
+  private EntityTypeFactory entityTypeFactory;
+  private AttributeFactory attributeFactory;
+
+  public XlsxRepositoryCollection(File file) {
+    this(file, new TrimProcessor());
+  }
+
+  public XlsxRepositoryCollection(File file, CellProcessor... cellProcessors) {
+    super(ImmutableSet.of(ExcelFileExtensions.XLSX.toString()), cellProcessors);
+    this.file = file;
+    this.sheetNames = readSheetNames(file);
+  }
+
+  @Override
+  public void init() throws IOException {
+    // no operation
+  }
+
+  @Override
+  public Iterable<String> getEntityTypeIds() {
+    return sheetNames;
+  }
+
+  /**
+   * Returns the repository for the sheet with the given name, the name is case insensitive. The
+   * repository is created once per sheet so that its header is read only once.
+   */
+  @Override
+  public Repository<Entity> getRepository(String name) {
+    String sheetName = findSheetName(name);
+    if (sheetName == null) {
+      return null;
+    }
+
+    return repositories.computeIfAbsent(
+        sheetName,
+        key -> new XlsxRepository(file, key, entityTypeFactory, attributeFactory, cellProcessors));
+  }
+
+  public int getNumberOfSheets() {
+    return sheetNames.size();
+  }
+
+  public String getSheetName(int i) {
+    return sheetNames.get(i);
+  }
+
+  @Override
+  public String getName() {
+    return REPOSITORY_COLLECTION_NAME;
+  }
+
+  @Override
+  public Iterator<Repository<Entity>> iterator() {
+    return new Iterator<Repository<Entity>>() {
+      Iterator<String> it = getEntityTypeIds().iterator();
+
+      @Override
+      public boolean hasNext() {
+        return it.hasNext();
+      }
+
+      @Override
+      public Repository<Entity> next() {
+        return getRepository(it.next());
+      }
+    };
+  }
+
+  @Override
+  public boolean hasRepository(String name) {
+    return name != null && sheetNames.contains(name);
+  }
+
+  @Override
+  public boolean hasRepository(EntityType entityType) {
+    return hasRepository(entityType.getId());
+  }
+
+  @Autowired
+  public void setEntityTypeFactory(EntityTypeFactory entityTypeFactory) {
+    this.entityTypeFactory = entityTypeFactory;
+  }
+
+  @Autowired
+  public void setAttributeFactory(AttributeFactory attributeFactory) {
+    this.attributeFactory = attributeFactory;
+  }
+
+  private String findSheetName(String name) {
+    if (name == null) {
+      return null;
+    }
+    return sheetNames.stream().filter(name::equalsIgnoreCase).findFirst().orElse(null);
+  }
+
+  private static List<String> readSheetNames(File file) {
+    List<String> sheetNames = new ArrayList<>();
+    OPCPackage opcPackage = null;
+    try {
+      opcPackage = OPCPackage.open(file, PackageAccess.READ);
+      XSSFReader.SheetIterator sheetIterator =
+          (XSSFReader.SheetIterator) new XSSFReader(opcPackage).getSheetsData();
+      while (sheetIterator.hasNext()) {
+        try (InputStream inputStream = sheetIterator.next()) {
+          sheetNames.add(sheetIterator.getSheetName());
+        }
+      }
+    } catch (IOException | OpenXML4JException e) {
+      throw new MolgenisDataException(format("Exception reading [%s]", file.getAbsolutePath()), e);
+    } finally {
+      if (opcPackage != null) {
+        opcPackage.revert();
+      }
+    }
+    return sheetNames;
+  }
+}
@@ -55,6 +55,21 @@ public class ExcelUtilsTest {
     assertEquals(ExcelUtils.toValue(cell), "12342151234");
   }
 
+  @Test
+  public void testToValueDoubleLong() {
+    assertEquals(ExcelUtils.toValue(1.2342151234E10, false), "12342151234");
+  }
+
+  @Test
+  public void testToValueDouble() {
+    assertEquals(ExcelUtils.toValue(1.2, false), "1.2");
+  }
+
+  @Test
+  public void testToValueDoubleDate() {
+    assertEquals(ExcelUtils.toValue(43101.5, true), "2018-01-01T12:00");
+  }
+
   @Test
   public void renameSheetTest() throws IOException, InvalidFormatException {
     File file = ResourceUtils.getFile(getClass(), "/test.xls");
@@ -0,0 +1,81 @@
+package org.molgenis.data.excel;
+
+import static java.util.Collections.singletonList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import com.google.common.collect.Lists;
+import java.io.File;
+import org.molgenis.data.AbstractMolgenisSpringTest;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Repository;
+import org.molgenis.data.meta.model.AttributeFactory;
+import org.molgenis.data.meta.model.EntityTypeFactory;
+import org.molgenis.util.ResourceUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class XlsxRepositoryCollectionTest extends AbstractMolgenisSpringTest {
+  @Autowired private EntityTypeFactory entityTypeFactory;
+
+  @Autowired private AttributeFactory attrMetaFactory;
+
+  private XlsxRepositoryCollection xlsxRepositoryCollection;
+
+  @BeforeMethod
+  public void beforeMethod() {
+    File file = ResourceUtils.getFile(getClass(), "/test.xlsx");
+    xlsxRepositoryCollection = new XlsxRepositoryCollection(file);
+    xlsxRepositoryCollection.setEntityTypeFactory(entityTypeFactory);
+    xlsxRepositoryCollection.setAttributeFactory(attrMetaFactory);
+  }
+
+  @Test
+  public void getNumberOfSheets() {
+    assertEquals(xlsxRepositoryCollection.getNumberOfSheets(), 1);
+  }
+
+  @Test
+  public void getEntityTypeIds() {
+    assertEquals(
+        Lists.newArrayList(xlsxRepositoryCollection.getEntityTypeIds()),
+        singletonList("attributes"));
+  }
+
+  @Test
+  public void getRepository() {
+    Repository<Entity> repository = xlsxRepositoryCollection.getRepository("attributes");
+    assertNotNull(repository);
+    assertEquals(repository.getName(), "attributes");
+  }
+
+  @Test
+  public void getRepositoryCaseInsensitive() {
+    Repository<Entity> repository = xlsxRepositoryCollection.getRepository("ATTRIBUTES");
+    assertNotNull(repository);
+    assertEquals(repository.getName(), "attributes");
+  }
+
+  @Test
+  public void getRepositoryCached() {
+    assertSame(
+        xlsxRepositoryCollection.getRepository("attributes"),
+        xlsxRepositoryCollection.getRepository("ATTRIBUTES"));
+  }
+
+  @Test
+  public void getRepositoryUnknown() {
+    assertNull(xlsxRepositoryCollection.getRepository("unknown"));
+  }
+
+  @Test
+  public void hasRepository() {
+    assertTrue(xlsxRepositoryCollection.hasRepository("attributes"));
+    assertFalse(xlsxRepositoryCollection.hasRepository("unknown"));
+  }
+}
@@ -0,0 +1,177 @@
+package org.molgenis.data.excel;
+
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.mockito.quality.Strictness;
+import org.molgenis.data.AbstractMolgenisSpringTest;
+import org.molgenis.data.Entity;
+import org.molgenis.data.MolgenisDataException;
+import org.molgenis.data.file.processor.CellProcessor;
+import org.molgenis.data.meta.AttributeType;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.AttributeFactory;
+import org.molgenis.data.meta.model.EntityTypeFactory;
+import org.molgenis.util.ResourceUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class XlsxRepositoryTest extends AbstractMolgenisSpringTest {
+  @Autowired private EntityTypeFactory entityTypeFactory;
+
+  @Autowired private AttributeFactory attrMetaFactory;
+
+  private XlsxRepository xlsxRepository;
+
+  public XlsxRepositoryTest() {
+    super(Strictness.WARN);
+  }
+
+  @BeforeMethod
+  public void beforeMethod() {
+    xlsxRepository = createXlsxRepository("/test.xlsx", "attributes");
+  }
+
+  @Test
+  public void addCellProcessorHeader() {
+    CellProcessor processor = mock(CellProcessor.class);
+    when(processor.processHeader()).thenReturn(true);
+    when(processor.process("name")).thenReturn("name");
+    when(processor.process("entity")).thenReturn("entity");
+    when(processor.process("idAttribute")).thenReturn("idAttribute");
+
+    xlsxRepository.addCellProcessor(processor);
+    //noinspection StatementWithEmptyBody
+    for (@SuppressWarnings("unused") Entity entity : xlsxRepository) {}
+    verify(processor, atLeastOnce()).process("name");
+    verify(processor, atLeastOnce()).process("entity");
+    verify(processor, atLeastOnce()).process("idAttribute");
+  }
+
+  @Test
+  public void iteratorHeaderReadOnce() {
+    CellProcessor processor = mock(CellProcessor.class);
+    when(processor.processHeader()).thenReturn(true);
+    when(processor.process("idAttribute")).thenReturn("idAttribute");
+
+    xlsxRepository.addCellProcessor(processor);
+    xlsxRepository.iterator().next();
+    xlsxRepository.forEachBatched(batch -> {}, 1);
+    verify(processor, times(1)).process("idAttribute");
+  }
+
+  @Test
+  public void getAttributes() {
+    Iterator<Attribute> it = xlsxRepository.getEntityType().getAttributes().iterator();
+    assertTrue(it.hasNext());
+    Attribute attr = it.next();
+    assertEquals(attr.getName(), "name");
+    assertEquals(attr.getDataType(), AttributeType.STRING);
+    assertEquals(it.next().getName(), "entity");
+    assertEquals(it.next().getName(), "idAttribute");
+    assertFalse(it.hasNext());
+  }
+
+  @Test
+  public void getName() {
+    assertEquals(xlsxRepository.getName(), "attributes");
+  }
+
+  @Test
+  public void iterator() {
+    Iterator<Entity> it = xlsxRepository.iterator();
+    assertTrue(it.hasNext());
+
+    Entity row1 = it.next();
+    assertEquals(row1.get("name"), "id");
+    assertEquals(row1.get("entity"), "city");
+    assertEquals(row1.get("idAttribute"), "true");
+    assertTrue(it.hasNext());
+
+    Entity row2 = it.next();
+    assertEquals(row2.get("name"), "name");
+    assertEquals(row2.get("entity"), "city");
+    assertNull(row2.get("idAttribute"));
+    assertFalse(it.hasNext());
+  }
+
+  @Test(expectedExceptions = NoSuchElementException.class)
+  public void iteratorNextWhenNoNext() {
+    Iterator<Entity> it = xlsxRepository.iterator();
+    it.next(); // 1
+    it.next(); // 2
+    it.next(); // does not exist
+  }
+
+  @Test
+  public void forEachBatched() {
+    List<List<Entity>> batches = new ArrayList<>();
+    xlsxRepository.forEachBatched(batches::add, 1);
+    assertEquals(batches.size(), 2);
+    assertEquals(batches.get(0).get(0).get("name"), "id");
+    assertEquals(batches.get(1).get(0).get("name"), "name");
+  }
+
+  @Test
+  public void count() {
+    assertEquals(xlsxRepository.count(), 2L);
+  }
+
+  @Test(
+      expectedExceptions = MolgenisDataException.class,
+      expectedExceptionsMessageRegExp =
+          "Duplicate column header 'entity' in sheet 'attributes' not allowed")
+  public void iteratorDuplicateSheetHeader() {
+    createXlsxRepository("/duplicate-sheet-header.xlsx", "attributes").iterator();
+  }
+
+  @Test(
+      expectedExceptions = MolgenisDataException.class,
+      expectedExceptionsMessageRegExp =
+          "Sheet \\[merged\\] contains merged regions which is not supported")
+  public void iteratorMergedRegions() throws IOException {
+    File file = File.createTempFile("merged", ".xlsx");
+    file.deleteOnExit();
+    try (XSSFWorkbook workbook = new XSSFWorkbook();
+        OutputStream outputStream = new FileOutputStream(file)) {
+      Sheet sheet = workbook.createSheet("merged");
+      sheet.createRow(0).createCell(0).setCellValue("header");
+      sheet.createRow(1).createCell(0).setCellValue("value");
+      sheet.addMergedRegion(new CellRangeAddress(1, 1, 0, 1));
+      workbook.write(outputStream);
+    }
+    new XlsxRepository(file, "merged", entityTypeFactory, attrMetaFactory, null).iterator();
+  }
+
+  @Test
+  public void iteratorHeaderCaseSensitive() {
+    XlsxRepository repository = createXlsxRepository("/case-sensitivity.xlsx", "case-sensitivity");
+    Entity entity = repository.iterator().next();
+    assertEquals(entity.get("Header"), "Value #0");
+    assertNull(entity.get("hEADER"));
+  }
+
+  private XlsxRepository createXlsxRepository(String fileName, String sheetName) {
+    File file = ResourceUtils.getFile(getClass(), fileName);
+    return new XlsxRepository(file, sheetName, entityTypeFactory, attrMetaFactory, null);
+  }
+}
@@ -1,5 +1,6 @@
 package org.molgenis.data.index;
 
+import java.util.Set;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.security.core.runas.RunAsSystem;
 
@@ -22,6 +23,14 @@ public interface IndexActionRegisterService {
    */
   void register(EntityType entityType, Object entityId);
 
+  /**
+   * Log and create locks for an update operation on a single entity of a Repository
+   *
+   * @param entityId the ID of the updated entity
+   * @param changedAttributeNames names of the attributes whose value changed
+   */
+  void register(EntityType entityType, Object entityId, Set<String> changedAttributeNames);
+
   /**
    * Stores the index actions in the repository. Creates a ReindexActionJob to group them by.
    * storeIndexActions uses a set as optimization to remove the double index actions before the
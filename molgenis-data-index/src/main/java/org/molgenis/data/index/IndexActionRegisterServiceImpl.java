@@ -1,29 +1,27 @@
 package org.molgenis.data.index;
 
 import static com.google.common.collect.Lists.newArrayList;
-import static com.google.common.collect.Multimaps.synchronizedSetMultimap;
 import static com.google.common.collect.Streams.mapWithIndex;
-import static java.util.Collections.emptyList;
 import static java.util.Collections.emptySet;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toSet;
-import static org.molgenis.data.index.Impact.createSingleEntityImpact;
 import static org.molgenis.data.index.IndexDependencyModel.ENTITY_TYPE_FETCH;
 import static org.molgenis.data.index.meta.IndexActionGroupMetadata.INDEX_ACTION_GROUP;
 import static org.molgenis.data.index.meta.IndexActionMetadata.INDEX_ACTION;
 import static org.molgenis.data.index.meta.IndexActionMetadata.IndexStatus.PENDING;
 import static org.molgenis.data.meta.model.AttributeMetadata.ATTRIBUTE_META_DATA;
-import static org.molgenis.data.meta.model.AttributeMetadata.REF_ENTITY_TYPE;
+import static org.molgenis.data.meta.model.AttributeMetadata.ENTITY;
 import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
 import static org.molgenis.data.transaction.TransactionManager.TRANSACTION_ID_RESOURCE_NAME;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Stream;
 import org.molgenis.data.DataService;
 import org.molgenis.data.EntityKey;
@@ -32,12 +30,16 @@ import org.molgenis.data.index.meta.IndexAction;
 import org.molgenis.data.index.meta.IndexActionFactory;
 import org.molgenis.data.index.meta.IndexActionGroup;
 import org.molgenis.data.index.meta.IndexActionGroupFactory;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.AttributeMetadata;
 import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.meta.model.EntityTypeMetadata;
 import org.molgenis.data.support.QueryImpl;
 import org.molgenis.data.transaction.TransactionInformation;
 import org.molgenis.security.core.runas.RunAsSystem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
@@ -52,14 +54,33 @@ public class IndexActionRegisterServiceImpl
   private static final Logger LOG = LoggerFactory.getLogger(IndexActionRegisterServiceImpl.class);
   private static final int LOG_EVERY = 1000;
   private static final int ENTITY_FETCH_PAGE_SIZE = 1000;
+  private static final Fetch ATTRIBUTE_FETCH =
+      new Fetch()
+          .field(AttributeMetadata.ID)
+          .field(ENTITY, new Fetch().field(EntityTypeMetadata.ID));
 
-  private final SetMultimap<String, Impact> changesPerTransaction =
-      synchronizedSetMultimap(HashMultimap.create());
+  /** transaction id --> changes made in the transaction */
+  private final ConcurrentMap<String, TransactionImpacts> impactsPerTransaction =
+      new ConcurrentHashMap<>();
+
+  /**
+   * transaction id --> ids of the entity types with changed metadata or {@link Optional#empty()} if
+   * unknown
+   */
+  private final ConcurrentMap<String, Optional<Set<String>>> metadataChangesPerTransaction =
+      new ConcurrentHashMap<>();
+
+  /** dependency model of the committed entity types, null if not created yet */
+  private IndexDependencyModel committedDependencyModel; // guarded by this
+
+  /** ids of entity types that changed since the committed dependency model was created */
+  private final Set<String> staleEntityTypeIds = new HashSet<>(); // guarded by this
 
   private final DataService dataService;
   private final IndexActionFactory indexActionFactory;
   private final IndexActionGroupFactory indexActionGroupFactory;
   private final IndexingStrategy indexingStrategy;
+  private final int maxEntityImpactsPerEntityType;
 
   private final Set<String> excludedEntities = Sets.newConcurrentHashSet();
 
@@ -67,11 +88,13 @@ public class IndexActionRegisterServiceImpl
       DataService dataService,
       IndexActionFactory indexActionFactory,
       IndexActionGroupFactory indexActionGroupFactory,
-      IndexingStrategy indexingStrategy) {
+      IndexingStrategy indexingStrategy,
+      @Value("${index.transaction.max_entity_impacts:10000}") int maxEntityImpactsPerEntityType) {
     this.dataService = requireNonNull(dataService);
     this.indexActionFactory = requireNonNull(indexActionFactory);
     this.indexActionGroupFactory = requireNonNull(indexActionGroupFactory);
     this.indexingStrategy = requireNonNull(indexingStrategy);
+    this.maxEntityImpactsPerEntityType = maxEntityImpactsPerEntityType;
 
     addExcludedEntity(INDEX_ACTION_GROUP);
     addExcludedEntity(INDEX_ACTION);
@@ -84,28 +107,45 @@ public class IndexActionRegisterServiceImpl
 
   @Transactional
   @Override
-  public synchronized void register(EntityType entityType, Object entityId) {
-    String transactionId =
-        (String) TransactionSynchronizationManager.getResource(TRANSACTION_ID_RESOURCE_NAME);
+  public void register(EntityType entityType, Object entityId) {
+    TransactionImpacts transactionImpacts = registerImpact(entityType, entityId);
+    if (transactionImpacts != null) {
+      transactionImpacts.registerUntrackedChanges(entityType.getId());
+    }
+  }
+
+  @Transactional
+  @Override
+  public void register(EntityType entityType, Object entityId, Set<String> changedAttributeNames) {
+    TransactionImpacts transactionImpacts = registerImpact(entityType, entityId);
+    if (transactionImpacts != null) {
+      transactionImpacts.registerChangedAttributes(entityType.getId(), changedAttributeNames);
+    }
+  }
+
+  /** @return impacts of the current transaction or null if there is no current transaction */
+  private TransactionImpacts registerImpact(EntityType entityType, Object entityId) {
+    String transactionId = getCurrentTransactionId();
     if (transactionId != null) {
-      Impact impact = createSingleEntityImpact(entityType.getId(), entityId);
-      LOG.debug("register({})", impact);
-
-      final boolean newlyRegistered = changesPerTransaction.put(transactionId, impact);
-      if (newlyRegistered && LOG.isWarnEnabled()) {
-        final int size = changesPerTransaction.get(transactionId).size();
-        if (size >= LOG_EVERY && size % LOG_EVERY == 0) {
-          LOG.warn(
-              "Transaction {} has caused {} IndexActions to be created. Consider streaming your data manipulations.",
-              transactionId,
-              size);
-        }
+      LOG.debug("register({}, {})", entityType.getId(), entityId);
+
+      TransactionImpacts transactionImpacts =
+          impactsPerTransaction.computeIfAbsent(
+              transactionId, id -> new TransactionImpacts(maxEntityImpactsPerEntityType));
+      int size = transactionImpacts.register(entityType.getId(), entityId);
+      if (size >= LOG_EVERY && size % LOG_EVERY == 0 && LOG.isWarnEnabled()) {
+        LOG.warn(
+            "Transaction {} has caused {} IndexActions to be created. Consider streaming your data manipulations.",
+            transactionId,
+            size);
       }
+      return transactionImpacts;
     } else {
       LOG.error(
           "Transaction id is unknown, register of entityFullName [{}], entityId [{}]",
           entityType.getId(),
           entityId);
+      return null;
     }
   }
 
@@ -121,7 +161,7 @@ public class IndexActionRegisterServiceImpl
     }
 
     IndexActionGroup indexActionGroup = indexActionGroupFactory.create(transactionId);
-    IndexDependencyModel dependencyModel = createIndexDependencyModel(changes);
+    IndexDependencyModel dependencyModel = getIndexDependencyModel(transactionId, changes);
     Stream<Impact> impactStream =
         indexingStrategy
             .determineImpact(changes, dependencyModel)
@@ -142,17 +182,110 @@ public class IndexActionRegisterServiceImpl
     dataService.add(INDEX_ACTION, indexActions.stream());
   }
 
-  private IndexDependencyModel createIndexDependencyModel(Set<Impact> changes) {
-    Set<String> entityTypeIds = changes.stream().map(Impact::getEntityTypeId).collect(toSet());
-    boolean hasReferences =
-        dataService.query(ATTRIBUTE_META_DATA).in(REF_ENTITY_TYPE, entityTypeIds).count() > 0;
-    if (hasReferences) {
-      return new IndexDependencyModel(getEntityTypes());
+  /**
+   * Returns the dependency model for the given transaction. Transactions that don't change entity
+   * types or attributes share the dependency model of the committed entity types. Transactions
+   * that do change them get a dependency model that includes their own, uncommitted, changes.
+   */
+  private IndexDependencyModel getIndexDependencyModel(String transactionId, Set<Impact> changes) {
+    Optional<Set<String>> changedEntityTypeIds = getChangedEntityTypeIds(changes);
+    if (changedEntityTypeIds.isPresent() && changedEntityTypeIds.get().isEmpty()) {
+      return getCommittedIndexDependencyModel();
+    }
+
+    metadataChangesPerTransaction.put(transactionId, changedEntityTypeIds);
+    IndexDependencyModel committedDependencyModel = getCommittedIndexDependencyModelIfLoaded();
+    if (changedEntityTypeIds.isPresent() && committedDependencyModel != null) {
+      return updateIndexDependencyModel(committedDependencyModel, changedEntityTypeIds.get());
+    }
+    return new IndexDependencyModel(getEntityTypes());
+  }
+
+  /**
+   * Returns the ids of the entity types of which the entity type or attribute metadata was changed
+   *
+   * @return entity type ids or {@link Optional#empty()} if the changed entity types are unknown
+   */
+  private Optional<Set<String>> getChangedEntityTypeIds(Set<Impact> changes) {
+    Set<String> entityTypeIds = new HashSet<>();
+    List<Object> attributeIds = new ArrayList<>();
+    for (Impact impact : changes) {
+      String entityTypeId = impact.getEntityTypeId();
+      if (entityTypeId.equals(ENTITY_TYPE_META_DATA) || entityTypeId.equals(ATTRIBUTE_META_DATA)) {
+        if (impact.isWholeRepository()) {
+          return Optional.empty();
+        }
+        if (entityTypeId.equals(ENTITY_TYPE_META_DATA)) {
+          entityTypeIds.add(impact.getId().toString());
+        } else {
+          attributeIds.add(impact.getId());
+        }
+      }
+    }
+
+    if (!attributeIds.isEmpty()) {
+      List<Attribute> attributes =
+          dataService
+              .findAll(ATTRIBUTE_META_DATA, attributeIds.stream(), ATTRIBUTE_FETCH, Attribute.class)
+              .collect(toList());
+      if (attributes.size() < attributeIds.size()) {
+        // the entity types of deleted attributes are unknown
+        return Optional.empty();
+      }
+      attributes.forEach(attribute -> entityTypeIds.add(attribute.getEntity().getId()));
+    }
+    return Optional.of(entityTypeIds);
+  }
+
+  /**
+   * Returns the dependency model of the committed entity types, entity types that were changed
+   * since the model was created are retrieved again.
+   */
+  private synchronized IndexDependencyModel getCommittedIndexDependencyModel() {
+    if (committedDependencyModel == null) {
+      committedDependencyModel = new IndexDependencyModel(getEntityTypes());
+    } else if (!staleEntityTypeIds.isEmpty()) {
+      committedDependencyModel =
+          updateIndexDependencyModel(committedDependencyModel, staleEntityTypeIds);
+      staleEntityTypeIds.clear();
+    }
+    return committedDependencyModel;
+  }
+
+  /**
+   * Returns the dependency model of the committed entity types if it is up to date. Used in
+   * transactions that changed entity types, which must not initialize the committed model.
+   */
+  private synchronized IndexDependencyModel getCommittedIndexDependencyModelIfLoaded() {
+    return staleEntityTypeIds.isEmpty() ? committedDependencyModel : null;
+  }
+
+  /** Marks the entity types changed by a transaction as stale in the committed model */
+  private synchronized void invalidateCommittedIndexDependencyModel(
+      Optional<Set<String>> changedEntityTypeIds) {
+    if (changedEntityTypeIds.isPresent()) {
+      staleEntityTypeIds.addAll(changedEntityTypeIds.get());
     } else {
-      return new IndexDependencyModel(emptyList());
+      committedDependencyModel = null;
+      staleEntityTypeIds.clear();
     }
   }
 
+  private IndexDependencyModel updateIndexDependencyModel(
+      IndexDependencyModel dependencyModel, Set<String> entityTypeIds) {
+    List<EntityType> entityTypes =
+        dataService
+            .findAll(
+                ENTITY_TYPE_META_DATA,
+                entityTypeIds.stream().map(Object.class::cast),
+                ENTITY_TYPE_FETCH,
+                EntityType.class)
+            .collect(toList());
+    Set<String> deletedEntityTypeIds = new HashSet<>(entityTypeIds);
+    entityTypes.forEach(entityType -> deletedEntityTypeIds.remove(entityType.getId()));
+    return dependencyModel.withEntityTypes(entityTypes, deletedEntityTypeIds);
+  }
+
   private IndexAction createIndexAction(
       IndexActionGroup indexActionGroup, Impact key, int actionOrder) {
     IndexAction indexAction = indexActionFactory.create();
@@ -190,37 +323,41 @@ public class IndexActionRegisterServiceImpl
   @Override
   public boolean forgetIndexActions(String transactionId) {
     LOG.debug("Forget index actions for transaction {}", transactionId);
-    return !changesPerTransaction
-        .removeAll(transactionId)
-        .stream()
-        .map(Impact::getEntityTypeId)
-        .allMatch(excludedEntities::contains);
+    Optional<Set<String>> changedEntityTypeIds =
+        metadataChangesPerTransaction.remove(transactionId);
+    if (changedEntityTypeIds != null) {
+      invalidateCommittedIndexDependencyModel(changedEntityTypeIds);
+    }
+    TransactionImpacts transactionImpacts = impactsPerTransaction.remove(transactionId);
+    return transactionImpacts != null
+        && !excludedEntities.containsAll(transactionImpacts.getDirtyRepositories());
   }
 
   private Set<Impact> getChangesForCurrentTransaction() {
-    String transactionId =
-        (String) TransactionSynchronizationManager.getResource(TRANSACTION_ID_RESOURCE_NAME);
-    return Optional.of(changesPerTransaction.get(transactionId)).orElse(emptySet());
+    return getCurrentTransactionImpacts().map(TransactionImpacts::getImpacts).orElse(emptySet());
+  }
+
+  private Optional<TransactionImpacts> getCurrentTransactionImpacts() {
+    String transactionId = getCurrentTransactionId();
+    return transactionId != null
+        ? Optional.ofNullable(impactsPerTransaction.get(transactionId))
+        : Optional.empty();
   }
 
   /* TransactionInformation implementation */
 
   @Override
   public boolean isEntityDirty(EntityKey entityKey) {
-    return getChangesForCurrentTransaction()
-        .stream()
-        .filter(Impact::isSingleEntity)
-        .map(Impact::toEntityKey)
-        .anyMatch(entityKey::equals);
+    return getCurrentTransactionImpacts()
+        .map(impacts -> impacts.isEntityDirty(entityKey))
+        .orElse(false);
   }
 
   @Override
   public boolean isEntireRepositoryDirty(EntityType entityType) {
-    return getChangesForCurrentTransaction()
-        .stream()
-        .filter(Impact::isWholeRepository)
-        .map(Impact::getEntityTypeId)
-        .anyMatch(entityType.getId()::equals);
+    return getCurrentTransactionImpacts()
+        .map(impacts -> impacts.isEntireRepositoryDirty(entityType.getId()))
+        .orElse(false);
   }
 
   @Override
@@ -230,24 +367,33 @@ public class IndexActionRegisterServiceImpl
 
   @Override
   public Set<EntityKey> getDirtyEntities() {
-    return getChangesForCurrentTransaction()
-        .stream()
-        .filter(Impact::isSingleEntity)
-        .map(Impact::toEntityKey)
-        .collect(toSet());
+    return getCurrentTransactionImpacts()
+        .map(TransactionImpacts::getDirtyEntities)
+        .orElse(emptySet());
   }
 
   @Override
   public Set<String> getEntirelyDirtyRepositories() {
-    return getChangesForCurrentTransaction()
-        .stream()
-        .filter(Impact::isWholeRepository)
-        .map(Impact::getEntityTypeId)
-        .collect(toSet());
+    return getCurrentTransactionImpacts()
+        .map(TransactionImpacts::getEntirelyDirtyRepositories)
+        .orElse(emptySet());
   }
 
   @Override
   public Set<String> getDirtyRepositories() {
-    return getChangesForCurrentTransaction().stream().map(Impact::getEntityTypeId).collect(toSet());
+    return getCurrentTransactionImpacts()
+        .map(TransactionImpacts::getDirtyRepositories)
+        .orElse(emptySet());
+  }
+
+  @Override
+  public Optional<Set<String>> getChangedAttributes(String entityTypeId) {
+    return getCurrentTransactionImpacts()
+        .map(impacts -> impacts.getChangedAttributes(entityTypeId))
+        .orElse(Optional.of(emptySet()));
+  }
+
+  private static String getCurrentTransactionId() {
+    return (String) TransactionSynchronizationManager.getResource(TRANSACTION_ID_RESOURCE_NAME);
   }
 }
@@ -1,8 +1,11 @@
 package org.molgenis.data.index;
 
 import static java.util.Objects.requireNonNull;
+import static org.molgenis.data.RepositoryCapability.CACHEABLE;
 
 import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Stream;
 import org.molgenis.data.AbstractRepositoryDecorator;
@@ -10,6 +13,7 @@ import org.molgenis.data.Entity;
 import org.molgenis.data.Repository;
 import org.molgenis.data.RepositoryCapability;
 import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.util.EntityUtils;
 
 /**
  * {@link Repository} decorator that registers changes with a {@link
@@ -35,11 +39,31 @@ public class IndexActionRepositoryDecorator extends AbstractRepositoryDecorator<
 
   @Override
   public void update(Entity entity) {
+    Optional<Set<String>> changedAttributeNames = getChangedAttributeNames(entity);
     delegate().update(entity);
-    indexActionRegisterService.register(getEntityType(), entity.getIdValue());
+    if (changedAttributeNames.isPresent()) {
+      indexActionRegisterService.register(
+          getEntityType(), entity.getIdValue(), changedAttributeNames.get());
+    } else {
+      indexActionRegisterService.register(getEntityType(), entity.getIdValue());
+    }
     registerRefEntityIndexActions();
   }
 
+  /**
+   * Determines which attributes are changed by updating the given entity. Only determined for
+   * cacheable repositories, because cached query results are evicted based on changed attributes.
+   */
+  private Optional<Set<String>> getChangedAttributeNames(Entity entity) {
+    if (!delegate().getCapabilities().contains(CACHEABLE)) {
+      return Optional.empty();
+    }
+    Entity currentEntity = delegate().findOneById(entity.getIdValue());
+    return currentEntity != null
+        ? Optional.of(EntityUtils.getChangedAttributeNames(currentEntity, entity))
+        : Optional.empty();
+  }
+
   @Override
   public void delete(Entity entity) {
     indexActionRegisterService.register(getEntityType(), entity.getIdValue());
@@ -82,6 +106,13 @@ public class IndexActionRepositoryDecorator extends AbstractRepositoryDecorator<
     delegate().update(entities);
   }
 
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    indexActionRegisterService.register(getEntityType(), null);
+    registerRefEntityIndexActions();
+    delegate().upsertBatch(entities);
+  }
+
   @Override
   public void delete(Stream<Entity> entities) {
     indexActionRegisterService.register(getEntityType(), null);
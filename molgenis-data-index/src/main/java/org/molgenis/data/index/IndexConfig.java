@@ -24,6 +24,7 @@ import org.molgenis.jobs.JobExecutor;
 import org.molgenis.jobs.JobFactory;
 import org.molgenis.jobs.model.JobExecutionMetaData;
 import org.molgenis.jobs.model.JobPackage;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
@@ -51,6 +52,7 @@ public class IndexConfig {
   private final IndexJobExecutionFactory indexJobExecutionFactory;
   private final EntityTypeFactory entityTypeFactory;
   private final JobExecutor jobExecutor;
+  private final int nrIndexJobThreads;
 
   public IndexConfig(
       IndexActionRegisterService indexActionRegisterService,
@@ -59,7 +61,8 @@ public class IndexConfig {
       IndexService indexService,
       IndexJobExecutionFactory indexJobExecutionFactory,
       EntityTypeFactory entityTypeFactory,
-      JobExecutor jobExecutor) {
+      JobExecutor jobExecutor,
+      @Value("${index.job.threads:4}") int nrIndexJobThreads) {
     this.indexActionRegisterService = requireNonNull(indexActionRegisterService);
     this.transactionManager = requireNonNull(transactionManager);
     this.dataService = requireNonNull(dataService);
@@ -67,6 +70,7 @@ public class IndexConfig {
     this.indexJobExecutionFactory = requireNonNull(indexJobExecutionFactory);
     this.entityTypeFactory = requireNonNull(entityTypeFactory);
     this.jobExecutor = requireNonNull(jobExecutor);
+    this.nrIndexJobThreads = nrIndexJobThreads;
   }
 
   @PostConstruct
@@ -84,7 +88,8 @@ public class IndexConfig {
 
   @Bean
   public IndexJobScheduler indexJobScheduler() {
-    return new IndexJobSchedulerImpl(dataService, indexJobExecutionFactory, jobExecutor);
+    return new IndexJobSchedulerImpl(
+        dataService, indexJobExecutionFactory, jobExecutor, nrIndexJobThreads);
   }
 
   @Bean
@@ -1,8 +1,7 @@
 package org.molgenis.data.index;
 
-import static com.google.common.collect.Maps.uniqueIndex;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static com.google.common.collect.Streams.stream;
-import static java.util.Collections.emptySet;
 import static org.molgenis.data.meta.model.AttributeMetadata.REF_ENTITY_TYPE;
 import static org.molgenis.data.meta.model.EntityTypeMetadata.ATTRIBUTES;
 import static org.molgenis.data.meta.model.EntityTypeMetadata.EXTENDS;
@@ -10,10 +9,16 @@ import static org.molgenis.data.meta.model.EntityTypeMetadata.ID;
 import static org.molgenis.data.meta.model.EntityTypeMetadata.INDEXING_DEPTH;
 import static org.molgenis.data.meta.model.EntityTypeMetadata.IS_ABSTRACT;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Stream;
 import org.molgenis.data.Fetch;
 import org.molgenis.data.meta.model.Attribute;
@@ -23,9 +28,19 @@ import org.molgenis.data.util.GenericDependencyResolver;
 /**
  * Models the dependencies between {@link EntityType}s for the purpose of indexing. These
  * dependencies depend on the indexing depth of the entity types.
+ *
+ * <p>The model is immutable and only stores the entity type properties that determine the
+ * dependencies, so it can be kept for as long as the entity types don't change. Use {@link
+ * #withEntityTypes(Collection, Collection)} to derive a model for changed entity types. The entity
+ * types that depend on an entity type are determined once and then cached.
  */
 class IndexDependencyModel {
-  private final Map<String, EntityType> entityTypes;
+  private final ImmutableMap<String, Node> nodes;
+  /** referenced entity type id --> ids of the concrete entity types that reference it */
+  private final ImmutableSetMultimap<String, String> referencingEntityTypes;
+
+  private final ConcurrentMap<String, ImmutableSet<String>> dependentEntityTypes =
+      new ConcurrentHashMap<>();
   private final GenericDependencyResolver genericDependencyResolver =
       new GenericDependencyResolver();
 
@@ -44,69 +59,115 @@ class IndexDependencyModel {
    * @param entityTypes the EntityTypes for which the DependencyModel is created
    */
   IndexDependencyModel(List<EntityType> entityTypes) {
-    this.entityTypes = uniqueIndex(entityTypes, EntityType::getId);
+    this(toNodes(entityTypes));
   }
 
-  private Set<String> getReferencingEntities(String entityTypeId) {
-    ImmutableSet.Builder<String> result = ImmutableSet.builder();
-    EntityType entityType = entityTypes.get(entityTypeId);
-    if (entityType == null) {
-      return emptySet();
-    }
-    for (Map.Entry<String, EntityType> candidate : entityTypes.entrySet()) {
-      EntityType candidateEntityType = candidate.getValue();
-      if (hasAttributeThatReferences(candidateEntityType, entityTypeId)) {
-        if (candidateEntityType.isAbstract()) {
-          result.addAll(getDescendants(candidate.getKey()));
+  private IndexDependencyModel(Map<String, Node> nodes) {
+    this.nodes = ImmutableMap.copyOf(nodes);
+    this.referencingEntityTypes = createReferencingEntityTypes(this.nodes);
+  }
+
+  private static Map<String, Node> toNodes(Collection<EntityType> entityTypes) {
+    Map<String, Node> nodes = new LinkedHashMap<>();
+    entityTypes.forEach(entityType -> nodes.put(entityType.getId(), new Node(entityType)));
+    return nodes;
+  }
+
+  /**
+   * Creates a model in which the given entity types are added, replaced or removed.
+   *
+   * @param updatedEntityTypes entity types that were added or updated
+   * @param deletedEntityTypeIds ids of entity types that were deleted
+   * @return new IndexDependencyModel, this model is not modified
+   */
+  IndexDependencyModel withEntityTypes(
+      Collection<EntityType> updatedEntityTypes, Collection<String> deletedEntityTypeIds) {
+    Map<String, Node> updatedNodes = new LinkedHashMap<>(nodes);
+    deletedEntityTypeIds.forEach(updatedNodes::remove);
+    updatedNodes.putAll(toNodes(updatedEntityTypes));
+    return new IndexDependencyModel(updatedNodes);
+  }
+
+  /** Returns whether any entity type references one of the given entity types */
+  boolean hasReferencingEntityTypes(Collection<String> entityTypeIds) {
+    return entityTypeIds.stream().anyMatch(id -> !getReferencingEntities(id).isEmpty());
+  }
+
+  private static ImmutableSetMultimap<String, String> createReferencingEntityTypes(
+      Map<String, Node> nodes) {
+    ImmutableSetMultimap.Builder<String, String> childrenBuilder = ImmutableSetMultimap.builder();
+    nodes
+        .values()
+        .stream()
+        .filter(node -> node.extendsId != null)
+        .forEach(node -> childrenBuilder.put(node.extendsId, node.id));
+    ImmutableSetMultimap<String, String> children = childrenBuilder.build();
+
+    ImmutableSetMultimap.Builder<String, String> result = ImmutableSetMultimap.builder();
+    for (Node node : nodes.values()) {
+      for (String refEntityTypeId : node.refEntityTypeIds) {
+        if (node.isAbstract) {
+          result.putAll(refEntityTypeId, getDescendants(node.id, nodes, children));
         } else {
-          result.add(candidate.getKey());
+          result.put(refEntityTypeId, node.id);
         }
       }
     }
     return result.build();
   }
 
-  private Set<String> getDescendants(String entityTypeId) {
+  private static Set<String> getDescendants(
+      String entityTypeId, Map<String, Node> nodes, ImmutableSetMultimap<String, String> children) {
     ImmutableSet.Builder<String> result = ImmutableSet.builder();
-    for (Map.Entry<String, EntityType> candidate : entityTypes.entrySet()) {
-      EntityType candidateEntityType = candidate.getValue();
-      if (extendsFrom(candidateEntityType, entityTypeId)) {
-        if (candidateEntityType.isAbstract()) {
-          result.addAll(getDescendants(candidate.getKey()));
-        } else {
-          result.add(candidate.getKey());
-        }
+    for (String childId : children.get(entityTypeId)) {
+      if (nodes.get(childId).isAbstract) {
+        result.addAll(getDescendants(childId, nodes, children));
+      } else {
+        result.add(childId);
       }
     }
     return result.build();
   }
 
-  private boolean extendsFrom(EntityType candidateEntityType, String entityTypeId) {
-    return candidateEntityType.getExtends() != null
-        && entityTypeId.equals(candidateEntityType.getExtends().getId());
+  private Set<String> getReferencingEntities(String entityTypeId) {
+    if (!nodes.containsKey(entityTypeId)) {
+      return ImmutableSet.of();
+    }
+    return referencingEntityTypes.get(entityTypeId);
   }
 
-  /**
-   * Determines if an entityType has an attribute that references another entity
-   *
-   * @param candidate the EntityType that is examined
-   * @param entityTypeId the ID of the entity that may be referenced
-   * @return indication if candidate references entityTypeID
-   */
-  private boolean hasAttributeThatReferences(EntityType candidate, String entityTypeId) {
-    Iterable<Attribute> attributes = candidate.getOwnAtomicAttributes();
-    return stream(attributes)
-        .filter(Attribute::hasRefEntity)
-        .map(attribute -> attribute.getRefEntity().getId())
-        .anyMatch(entityTypeId::equals);
+  Stream<String> getEntityTypesDependentOn(String entityTypeId) {
+    return dependentEntityTypes.computeIfAbsent(entityTypeId, this::determineDependants).stream();
   }
 
-  Stream<String> getEntityTypesDependentOn(String entityTypeId) {
-    return genericDependencyResolver
-        .getAllDependants(
-            entityTypeId,
-            id -> entityTypes.get(id).getIndexingDepth(),
-            this::getReferencingEntities)
-        .stream();
+  private ImmutableSet<String> determineDependants(String entityTypeId) {
+    return ImmutableSet.copyOf(
+        genericDependencyResolver.getAllDependants(
+            entityTypeId, id -> nodes.get(id).indexingDepth, this::getReferencingEntities));
+  }
+
+  /** The properties of an {@link EntityType} that determine its dependencies */
+  private static class Node {
+    private final String id;
+    private final boolean isAbstract;
+    private final int indexingDepth;
+    private final String extendsId;
+    private final ImmutableSet<String> refEntityTypeIds;
+
+    Node(EntityType entityType) {
+      id = entityType.getId();
+      isAbstract = entityType.isAbstract();
+      indexingDepth = entityType.getIndexingDepth();
+      EntityType extendsEntityType = entityType.getExtends();
+      extendsId = extendsEntityType != null ? extendsEntityType.getId() : null;
+      refEntityTypeIds = getRefEntityTypeIds(entityType.getOwnAtomicAttributes());
+    }
+
+    private static ImmutableSet<String> getRefEntityTypeIds(Iterable<Attribute> attributes) {
+      return stream(attributes)
+          .filter(Attribute::hasRefEntity)
+          .map(attribute -> attribute.getRefEntity().getId())
+          .collect(toImmutableSet());
+    }
   }
 }
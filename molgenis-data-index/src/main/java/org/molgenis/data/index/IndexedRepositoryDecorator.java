@@ -1,24 +1,36 @@
 package org.molgenis.data.index;
 
+import static com.google.common.collect.Iterators.partition;
+import static com.google.common.collect.Streams.stream;
 import static java.lang.String.format;
 import static java.util.Collections.unmodifiableSet;
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.molgenis.data.QueryRule.Operator.AND;
+import static org.molgenis.data.QueryRule.Operator.PERMITTED;
 import static org.molgenis.data.QueryUtils.containsAnyOperator;
 import static org.molgenis.data.QueryUtils.containsComputedAttribute;
 import static org.molgenis.data.QueryUtils.containsNestedQueryRuleField;
+import static org.molgenis.data.QueryUtils.containsOperator;
 import static org.molgenis.data.RepositoryCapability.AGGREGATEABLE;
 import static org.molgenis.data.RepositoryCapability.QUERYABLE;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 import org.molgenis.data.AbstractRepositoryDecorator;
 import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Query;
+import org.molgenis.data.QueryRule;
 import org.molgenis.data.QueryRule.Operator;
 import org.molgenis.data.Repository;
 import org.molgenis.data.RepositoryCapability;
@@ -26,20 +38,40 @@ import org.molgenis.data.aggregation.AggregateQuery;
 import org.molgenis.data.aggregation.AggregateResult;
 import org.molgenis.data.index.exception.UnknownIndexException;
 import org.molgenis.data.index.job.IndexJobScheduler;
+import org.molgenis.data.support.QueryImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Decorator for indexed repositories. Sends all queries with operators that are not supported by
- * the decorated repository to the index.
+ * the decorated repository to the index. Permission rules of such queries are evaluated by the
+ * decorated repository.
+ *
+ * <p>Records the number of queries routed to the index and to the decorated repository and the
+ * latency of the index requests.
  */
 class IndexedRepositoryDecorator extends AbstractRepositoryDecorator<Entity> {
   private static final Logger LOG = LoggerFactory.getLogger(IndexedRepositoryDecorator.class);
   private static final String INDEX_REPOSITORY = "Index Repository";
   private static final String DECORATED_REPOSITORY = "Decorated Repository";
+  private static final String INDEX_AND_DECORATED_REPOSITORY = "Index and Decorated Repository";
+  private static final int BATCH_SIZE = 1000;
+
+  static final String METER_QUERIES = "repository.queries";
+  static final String METER_INDEX_REQUESTS = "repository.index.requests";
+  static final String TAG_OPERATION = "operation";
+  static final String TAG_ROUTE = "route";
+  static final String ROUTE_INDEX = "index";
+  static final String ROUTE_BACKEND = "backend";
+
+  private static final String FIND_ONE = "findOne";
+  private static final String FIND_ALL = "findAll";
+  private static final String COUNT = "count";
+  private static final String AGGREGATE = "aggregate";
 
   private final SearchService searchService;
   private final IndexJobScheduler indexJobScheduler;
+  private final MeterRegistry meterRegistry;
 
   /** Operators NOT supported by the decorated repository. */
   private Set<Operator> unsupportedOperators;
@@ -47,10 +79,12 @@ class IndexedRepositoryDecorator extends AbstractRepositoryDecorator<Entity> {
   IndexedRepositoryDecorator(
       Repository<Entity> delegateRepository,
       SearchService searchService,
-      IndexJobScheduler indexJobScheduler) {
+      IndexJobScheduler indexJobScheduler,
+      MeterRegistry meterRegistry) {
     super(delegateRepository);
     this.searchService = requireNonNull(searchService);
     this.indexJobScheduler = requireNonNull(indexJobScheduler);
+    this.meterRegistry = requireNonNull(meterRegistry);
     Set<Operator> operators = getQueryOperators();
     operators.removeAll(delegate().getQueryOperators());
     unsupportedOperators = Collections.unmodifiableSet(operators);
@@ -64,14 +98,27 @@ class IndexedRepositoryDecorator extends AbstractRepositoryDecorator<Entity> {
           q,
           getEntityType().getId(),
           DECORATED_REPOSITORY);
+      countQuery(FIND_ONE, ROUTE_BACKEND);
       return delegate().findOne(q);
+    } else if (containsOperator(q, PERMITTED)) {
+      LOG.debug(
+          "public Entity findOne({}) entityTypeId: [{}] repository: [{}]",
+          q,
+          getEntityType().getId(),
+          INDEX_AND_DECORATED_REPOSITORY);
+      countQuery(FIND_ONE, ROUTE_INDEX);
+      try (Stream<Object> entityIds =
+          findAllPermittedIds(FIND_ONE, new QueryImpl<>(q).setPageSize(1))) {
+        return delegate().findAll(entityIds, q.getFetch()).findFirst().orElse(null);
+      }
     } else {
       LOG.debug(
           "public Entity findOne({}) entityTypeId: [{}] repository: [{}]",
           q,
           getEntityType().getId(),
           INDEX_REPOSITORY);
-      Object entityId = tryTwice(() -> searchService.searchOne(getEntityType(), q));
+      countQuery(FIND_ONE, ROUTE_INDEX);
+      Object entityId = queryIndex(FIND_ONE, () -> searchService.searchOne(getEntityType(), q));
       return entityId != null ? delegate().findOneById(entityId, q.getFetch()) : null;
     }
   }
@@ -84,15 +131,27 @@ class IndexedRepositoryDecorator extends AbstractRepositoryDecorator<Entity> {
           q,
           getEntityType().getId(),
           DECORATED_REPOSITORY);
+      countQuery(FIND_ALL, ROUTE_BACKEND);
       return delegate().findAll(q);
+    } else if (containsOperator(q, PERMITTED)) {
+      LOG.debug(
+          "public Entity findAll({}) entityTypeId: [{}] repository: [{}]",
+          q,
+          getEntityType().getId(),
+          INDEX_AND_DECORATED_REPOSITORY);
+      countQuery(FIND_ALL, ROUTE_INDEX);
+      Stream<Object> entityIds = findAllPermittedIds(FIND_ALL, q);
+      return delegate().findAll(entityIds, q.getFetch()).onClose(entityIds::close);
     } else {
       LOG.debug(
           "public Entity findAll({}) entityTypeId: [{}] repository: [{}]",
           q,
           getEntityType().getId(),
           INDEX_REPOSITORY);
-      Stream<Object> entityIds = tryTwice(() -> searchService.search(getEntityType(), q));
-      return delegate().findAll(entityIds, q.getFetch());
+      countQuery(FIND_ALL, ROUTE_INDEX);
+      Stream<Object> entityIds =
+          queryIndex(FIND_ALL, () -> searchService.search(getEntityType(), q));
+      return delegate().findAll(entityIds, q.getFetch()).onClose(entityIds::close);
     }
   }
 
@@ -110,9 +169,17 @@ class IndexedRepositoryDecorator extends AbstractRepositoryDecorator<Entity> {
     return unmodifiableSet(capabilities);
   }
 
+  /**
+   * Returns all operators except {@link Operator#PERMITTED}, which cannot be evaluated by the index
+   * and is only supported if the decorated repository supports it.
+   */
   @Override
   public Set<Operator> getQueryOperators() {
-    return EnumSet.allOf(Operator.class);
+    Set<Operator> operators = EnumSet.complementOf(EnumSet.of(PERMITTED));
+    if (delegate().getQueryOperators().contains(PERMITTED)) {
+      operators.add(PERMITTED);
+    }
+    return operators;
   }
 
   @Override
@@ -125,20 +192,227 @@ class IndexedRepositoryDecorator extends AbstractRepositoryDecorator<Entity> {
           q,
           getEntityType().getId(),
           DECORATED_REPOSITORY);
+      countQuery(COUNT, ROUTE_BACKEND);
       return delegate().count(q);
+    } else if (containsOperator(q, PERMITTED)) {
+      LOG.debug(
+          "public long count({}) entityTypeId: [{}] repository: [{}]",
+          q,
+          getEntityType().getId(),
+          INDEX_AND_DECORATED_REPOSITORY);
+      countQuery(COUNT, ROUTE_INDEX);
+      return countPermitted(q);
     } else {
       LOG.debug(
           "public long count({}) entityTypeId: [{}] repository: [{}]",
           q,
           getEntityType().getId(),
           INDEX_REPOSITORY);
-      return tryTwice(() -> searchService.count(getEntityType(), q));
+      countQuery(COUNT, ROUTE_INDEX);
+      return queryIndex(COUNT, () -> searchService.count(getEntityType(), q));
     }
   }
 
   @Override
   public AggregateResult aggregate(AggregateQuery aggregateQuery) {
-    return tryTwice(() -> searchService.aggregate(getEntityType(), aggregateQuery));
+    countQuery(AGGREGATE, ROUTE_INDEX);
+    return queryIndex(AGGREGATE, () -> searchService.aggregate(getEntityType(), aggregateQuery));
+  }
+
+  /**
+   * Returns the ids of the entities that match a query with permission rules that the decorated
+   * repository can not execute, with query offset and page size applied.
+   *
+   * <p>If at most one batch of entities is permitted, their ids are added to the index query so
+   * that the index applies the permissions, sort, offset and page size. Otherwise the index selects
+   * the entities that match the query without permission rules and the decorated repository
+   * removes the entities that are not permitted in batches while the ids are consumed.
+   */
+  private Stream<Object> findAllPermittedIds(String operation, Query<Entity> q) {
+    String idAttributeName = getEntityType().getIdAttribute().getName();
+    List<QueryRule> permissionRules = new ArrayList<>();
+    Query<Entity> indexQuery = createIndexQuery(q, permissionRules);
+    Query<Entity> permittedQuery = createPermittedQuery(permissionRules);
+
+    long permittedCount = delegate().count(permittedQuery);
+    if (permittedCount == 0) {
+      return Stream.empty();
+    } else if (permittedCount <= BATCH_SIZE) {
+      List<Object> permittedIds;
+      try (Stream<Object> permittedIdStream = findPermittedIds(idAttributeName, permittedQuery)) {
+        permittedIds = permittedIdStream.collect(toList());
+      }
+      Query<Entity> permittedIndexQuery =
+          createIndexBatchQuery(indexQuery, idAttributeName, permittedIds)
+              .setOffset(q.getOffset())
+              .setPageSize(q.getPageSize());
+      return queryIndex(
+          operation, () -> searchService.search(getEntityType(), permittedIndexQuery));
+    }
+
+    Stream<Object> entityIds =
+        queryIndex(operation, () -> searchService.search(getEntityType(), indexQuery));
+    Stream<Object> permittedEntityIds =
+        stream(partition(entityIds.iterator(), BATCH_SIZE))
+            .flatMap(
+                entityIdBatch -> {
+                  Query<Entity> batchQuery =
+                      createPermittedBatchQuery(idAttributeName, entityIdBatch, permissionRules);
+                  batchQuery.fetch(new Fetch().field(idAttributeName));
+                  Set<Object> permittedIds =
+                      delegate().findAll(batchQuery).map(Entity::getIdValue).collect(toSet());
+                  return entityIdBatch.stream().filter(permittedIds::contains);
+                })
+            .onClose(entityIds::close)
+            .skip(q.getOffset());
+    if (q.getPageSize() > 0) {
+      permittedEntityIds = permittedEntityIds.limit(q.getPageSize());
+    }
+    return permittedEntityIds;
+  }
+
+  /**
+   * Counts the entities that match a query with permission rules that the decorated repository can
+   * not execute. Iterates over the smaller of the set of permitted entities and the set of
+   * entities that match the query without permission rules: batches of permitted ids are counted
+   * by the index, batches of index hits are counted by the decorated repository.
+   */
+  private long countPermitted(Query<Entity> q) {
+    String idAttributeName = getEntityType().getIdAttribute().getName();
+    List<QueryRule> permissionRules = new ArrayList<>();
+    Query<Entity> indexQuery = createIndexQuery(q, permissionRules);
+    Query<Entity> permittedQuery = createPermittedQuery(permissionRules);
+
+    long permittedCount = delegate().count(permittedQuery);
+    if (permittedCount == 0) {
+      return 0;
+    }
+    long indexCount = queryIndex(COUNT, () -> searchService.count(getEntityType(), indexQuery));
+    if (indexCount == 0) {
+      return 0;
+    }
+
+    if (permittedCount <= indexCount) {
+      try (Stream<Object> permittedIds = findPermittedIds(idAttributeName, permittedQuery)) {
+        return stream(partition(permittedIds.iterator(), BATCH_SIZE))
+            .mapToLong(
+                permittedIdBatch -> {
+                  Query<Entity> batchQuery =
+                      createIndexBatchQuery(indexQuery, idAttributeName, permittedIdBatch);
+                  return queryIndex(COUNT, () -> searchService.count(getEntityType(), batchQuery));
+                })
+            .sum();
+      }
+    } else {
+      try (Stream<Object> entityIds =
+          queryIndex(COUNT, () -> searchService.search(getEntityType(), indexQuery))) {
+        return stream(partition(entityIds.iterator(), BATCH_SIZE))
+            .mapToLong(
+                entityIdBatch ->
+                    delegate()
+                        .count(
+                            createPermittedBatchQuery(
+                                idAttributeName, entityIdBatch, permissionRules)))
+            .sum();
+      }
+    }
+  }
+
+  private Stream<Object> findPermittedIds(String idAttributeName, Query<Entity> permittedQuery) {
+    Query<Entity> idQuery = new QueryImpl<>(permittedQuery);
+    idQuery.fetch(new Fetch().field(idAttributeName));
+    return delegate().findAll(idQuery).map(Entity::getIdValue);
+  }
+
+  /**
+   * Creates an unpaged copy of the query without its permission rules and adds the permission rules
+   * to the given list. Permission rules have to be top-level rules combined with AND.
+   */
+  private static Query<Entity> createIndexQuery(Query<Entity> q, List<QueryRule> permissionRules) {
+    List<QueryRule> indexRules = new ArrayList<>();
+    boolean skipAnd = false;
+    for (QueryRule rule : q.getRules()) {
+      Operator operator = rule.getOperator();
+      if (operator == PERMITTED) {
+        permissionRules.add(rule);
+        if (!indexRules.isEmpty()) {
+          QueryRule previousRule = indexRules.remove(indexRules.size() - 1);
+          if (previousRule.getOperator() != AND) {
+            throw new UnsupportedOperationException(
+                format("Query operator [%s] must be combined with [%s]", PERMITTED, AND));
+          }
+        } else {
+          skipAnd = true;
+        }
+      } else if (skipAnd) {
+        if (operator != AND) {
+          throw new UnsupportedOperationException(
+              format("Query operator [%s] must be combined with [%s]", PERMITTED, AND));
+        }
+        skipAnd = false;
+      } else {
+        indexRules.add(rule);
+      }
+    }
+
+    QueryImpl<Entity> indexQuery = new QueryImpl<>(indexRules);
+    indexQuery.setSort(q.getSort());
+    return indexQuery;
+  }
+
+  /** Creates a query that combines the permission rules with AND. */
+  private static Query<Entity> createPermittedQuery(List<QueryRule> permissionRules) {
+    QueryImpl<Entity> permittedQuery = new QueryImpl<>();
+    permissionRules.forEach(
+        permissionRule -> {
+          if (!permittedQuery.getRules().isEmpty()) {
+            permittedQuery.and();
+          }
+          permittedQuery.addRule(permissionRule);
+        });
+    return permittedQuery;
+  }
+
+  /** Creates a copy of the index query that only matches the entities with the given ids. */
+  private static QueryImpl<Entity> createIndexBatchQuery(
+      Query<Entity> indexQuery, String idAttributeName, List<Object> entityIds) {
+    QueryImpl<Entity> batchQuery = new QueryImpl<>();
+    if (!indexQuery.getRules().isEmpty()) {
+      batchQuery.nest();
+      indexQuery.getRules().forEach(batchQuery::addRule);
+      batchQuery.unnest();
+      batchQuery.and();
+    }
+    batchQuery.in(idAttributeName, entityIds);
+    batchQuery.setSort(indexQuery.getSort());
+    return batchQuery;
+  }
+
+  private static Query<Entity> createPermittedBatchQuery(
+      String idAttributeName, List<Object> entityIds, List<QueryRule> permissionRules) {
+    QueryImpl<Entity> batchQuery = new QueryImpl<>();
+    batchQuery.in(idAttributeName, entityIds);
+    permissionRules.forEach(
+        permissionRule -> {
+          batchQuery.and();
+          batchQuery.addRule(permissionRule);
+        });
+    return batchQuery;
+  }
+
+  /**
+   * Counts a query routed to the index or to the decorated repository. Queries with permission
+   * rules that the decorated repository can not execute are routed to the index.
+   */
+  private void countQuery(String operation, String route) {
+    meterRegistry.counter(METER_QUERIES, TAG_OPERATION, operation, TAG_ROUTE, route).increment();
+  }
+
+  /** Executes an action on the index and records its latency. */
+  private <R> R queryIndex(String operation, Supplier<R> action) {
+    return meterRegistry
+        .timer(METER_INDEX_REQUESTS, TAG_OPERATION, operation)
+        .record(() -> tryTwice(action));
   }
 
   /**
@@ -179,6 +453,11 @@ class IndexedRepositoryDecorator extends AbstractRepositoryDecorator<Entity> {
         && !containsNestedQueryRuleField(q);
   }
 
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    delegate().upsertBatch(entities);
+  }
+
   private void waitForIndexToBeStable() {
     try {
       indexJobScheduler.waitForIndexToBeStableIncludingReferences(getEntityType());
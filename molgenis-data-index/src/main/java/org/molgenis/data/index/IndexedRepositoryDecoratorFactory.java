@@ -2,6 +2,7 @@ package org.molgenis.data.index;
 
 import static java.util.Objects.requireNonNull;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Repository;
 import org.molgenis.data.index.job.IndexJobScheduler;
@@ -11,14 +12,19 @@ import org.springframework.stereotype.Component;
 public class IndexedRepositoryDecoratorFactory {
   private final SearchService searchService;
   private final IndexJobScheduler indexJobScheduler;
+  private final MeterRegistry meterRegistry;
 
   IndexedRepositoryDecoratorFactory(
-      SearchService searchService, IndexJobScheduler indexJobScheduler) {
+      SearchService searchService,
+      IndexJobScheduler indexJobScheduler,
+      MeterRegistry meterRegistry) {
     this.searchService = requireNonNull(searchService);
     this.indexJobScheduler = requireNonNull(indexJobScheduler);
+    this.meterRegistry = requireNonNull(meterRegistry);
   }
 
   public IndexedRepositoryDecorator create(Repository<Entity> delegateRepository) {
-    return new IndexedRepositoryDecorator(delegateRepository, searchService, indexJobScheduler);
+    return new IndexedRepositoryDecorator(
+        delegateRepository, searchService, indexJobScheduler, meterRegistry);
   }
 }
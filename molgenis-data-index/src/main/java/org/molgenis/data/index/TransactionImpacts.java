@@ -0,0 +1,150 @@
+package org.molgenis.data.index;
+
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static java.util.Collections.emptySet;
+import static org.molgenis.data.index.Impact.createSingleEntityImpact;
+import static org.molgenis.data.index.Impact.createWholeRepositoryImpact;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+import org.molgenis.data.EntityKey;
+
+/**
+ * Registry of the changes made in a single transaction, grouped per entity type. Only the ids of
+ * changed entities are stored. Once the number of changed entities of an entity type exceeds a
+ * threshold, the changes are promoted to a whole repository change so that the memory used per
+ * transaction stays bounded.
+ *
+ * <p>Safe for concurrent use without locking.
+ */
+class TransactionImpacts {
+  private final int maxEntityImpactsPerEntityType;
+  private final ConcurrentMap<String, EntityTypeImpacts> entityTypeImpacts =
+      new ConcurrentHashMap<>();
+  private final AtomicInteger size = new AtomicInteger();
+
+  TransactionImpacts(int maxEntityImpactsPerEntityType) {
+    if (maxEntityImpactsPerEntityType < 0) {
+      throw new IllegalArgumentException("maxEntityImpactsPerEntityType must be >= 0");
+    }
+    this.maxEntityImpactsPerEntityType = maxEntityImpactsPerEntityType;
+  }
+
+  /**
+   * Registers a change of an entity or of an entire repository.
+   *
+   * @param entityTypeId id of the changed entity type
+   * @param entityId id of the changed entity or <code>null</code> if the entire repository changed
+   * @return number of registered changes if the change was not registered before, otherwise -1
+   */
+  int register(String entityTypeId, @Nullable Object entityId) {
+    boolean newlyRegistered = getEntityTypeImpacts(entityTypeId).register(entityId);
+    return newlyRegistered ? size.incrementAndGet() : -1;
+  }
+
+  /** Registers the attributes that were changed by an update of a single entity. */
+  void registerChangedAttributes(String entityTypeId, Set<String> changedAttributeNames) {
+    getEntityTypeImpacts(entityTypeId).changedAttributeNames.addAll(changedAttributeNames);
+  }
+
+  /** Registers that an entity type was changed in a way that may affect any attribute. */
+  void registerUntrackedChanges(String entityTypeId) {
+    getEntityTypeImpacts(entityTypeId).untracked = true;
+  }
+
+  private EntityTypeImpacts getEntityTypeImpacts(String entityTypeId) {
+    return entityTypeImpacts.computeIfAbsent(
+        entityTypeId, id -> new EntityTypeImpacts(maxEntityImpactsPerEntityType));
+  }
+
+  Set<Impact> getImpacts() {
+    return entityTypeImpacts
+        .entrySet()
+        .stream()
+        .flatMap(entry -> entry.getValue().getImpacts(entry.getKey()))
+        .collect(toImmutableSet());
+  }
+
+  boolean isEntityDirty(EntityKey entityKey) {
+    EntityTypeImpacts impacts = entityTypeImpacts.get(entityKey.getEntityTypeId());
+    return impacts != null && impacts.entityIds.contains(entityKey.getId());
+  }
+
+  boolean isEntireRepositoryDirty(String entityTypeId) {
+    EntityTypeImpacts impacts = entityTypeImpacts.get(entityTypeId);
+    return impacts != null && impacts.wholeRepository;
+  }
+
+  Set<EntityKey> getDirtyEntities() {
+    return entityTypeImpacts
+        .entrySet()
+        .stream()
+        .flatMap(
+            entry ->
+                entry.getValue().entityIds.stream().map(id -> EntityKey.create(entry.getKey(), id)))
+        .collect(toImmutableSet());
+  }
+
+  Set<String> getEntirelyDirtyRepositories() {
+    return entityTypeImpacts
+        .entrySet()
+        .stream()
+        .filter(entry -> entry.getValue().wholeRepository)
+        .map(Entry::getKey)
+        .collect(toImmutableSet());
+  }
+
+  Set<String> getDirtyRepositories() {
+    return ImmutableSet.copyOf(entityTypeImpacts.keySet());
+  }
+
+  /** @see org.molgenis.data.transaction.TransactionInformation#getChangedAttributes(String) */
+  Optional<Set<String>> getChangedAttributes(String entityTypeId) {
+    EntityTypeImpacts impacts = entityTypeImpacts.get(entityTypeId);
+    if (impacts == null) {
+      return Optional.of(emptySet());
+    }
+    return impacts.untracked
+        ? Optional.empty()
+        : Optional.of(ImmutableSet.copyOf(impacts.changedAttributeNames));
+  }
+
+  private static class EntityTypeImpacts {
+    private final int maxEntityImpacts;
+    private final Set<Object> entityIds = ConcurrentHashMap.newKeySet();
+    private final Set<String> changedAttributeNames = ConcurrentHashMap.newKeySet();
+    private volatile boolean wholeRepository;
+    private volatile boolean untracked;
+
+    EntityTypeImpacts(int maxEntityImpacts) {
+      this.maxEntityImpacts = maxEntityImpacts;
+    }
+
+    boolean register(@Nullable Object entityId) {
+      if (wholeRepository) {
+        return false;
+      }
+      if (entityId == null || entityIds.size() >= maxEntityImpacts) {
+        // entity changes are superseded by the whole repository change
+        wholeRepository = true;
+        entityIds.clear();
+        return true;
+      }
+      return entityIds.add(entityId);
+    }
+
+    Stream<Impact> getImpacts(String entityTypeId) {
+      if (wholeRepository) {
+        return Stream.of(createWholeRepositoryImpact(entityTypeId));
+      }
+      return entityIds.stream().map(id -> createSingleEntityImpact(entityTypeId, id));
+    }
+  }
+}
@@ -14,7 +14,12 @@ import static org.molgenis.security.core.runas.RunAsSystemAspect.runAsSystem;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.stream.Stream;
@@ -35,17 +40,21 @@ public class IndexJobSchedulerImpl implements IndexJobScheduler {
   private final DataService dataService;
   private final IndexJobExecutionFactory indexJobExecutionFactory;
   // the executor for the index jobs.
-  private ExecutorService executorService = Executors.newSingleThreadExecutor();
+  private final ExecutorService executorService;
   private final JobExecutor jobExecutor;
   private final IndexStatus indexStatus = new IndexStatus();
+  // the last scheduled index job per entity type, index jobs that share an entity type run in order
+  private final Map<String, CompletableFuture<Void>> entityTypeIndexJobs = new HashMap<>();
 
   public IndexJobSchedulerImpl(
       DataService dataService,
       IndexJobExecutionFactory indexJobExecutionFactory,
-      JobExecutor jobExecutor) {
+      JobExecutor jobExecutor,
+      int nrIndexJobThreads) {
     this.dataService = requireNonNull(dataService);
     this.indexJobExecutionFactory = requireNonNull(indexJobExecutionFactory);
     this.jobExecutor = requireNonNull(jobExecutor);
+    this.executorService = Executors.newFixedThreadPool(nrIndexJobThreads);
   }
 
   @Override
@@ -66,14 +75,42 @@ public class IndexJobSchedulerImpl implements IndexJobScheduler {
 
       IndexJobExecution indexJobExecution = indexJobExecutionFactory.create();
       indexJobExecution.setIndexActionJobID(transactionId);
-      jobExecutor
-          .submit(indexJobExecution, executorService)
+      submitIndexJob(indexJobExecution, numberOfActionsPerEntity.keySet())
           .whenComplete((a, b) -> indexStatus.removeActionCounts(numberOfActionsPerEntity));
     } else {
       LOG.debug("No index job found for id [{}].", transactionId);
     }
   }
 
+  /**
+   * Submits an index job that starts after all previously submitted index jobs for the given entity
+   * types have completed. Index jobs for other entity types can run in parallel.
+   */
+  private synchronized CompletableFuture<Void> submitIndexJob(
+      IndexJobExecution indexJobExecution, Set<String> entityTypeIds) {
+    CompletableFuture<?>[] previousIndexJobs =
+        entityTypeIds
+            .stream()
+            .map(entityTypeIndexJobs::get)
+            .filter(Objects::nonNull)
+            .toArray(CompletableFuture[]::new);
+    CompletableFuture<Void> previousIndexJobsDone = CompletableFuture.allOf(previousIndexJobs);
+    Executor executor =
+        runnable ->
+            previousIndexJobsDone.whenComplete(
+                (result, throwable) -> executorService.execute(runnable));
+
+    CompletableFuture<Void> indexJob = jobExecutor.submit(indexJobExecution, executor);
+    entityTypeIds.forEach(entityTypeId -> entityTypeIndexJobs.put(entityTypeId, indexJob));
+    indexJob.whenComplete((result, throwable) -> removeIndexJob(indexJob, entityTypeIds));
+    return indexJob;
+  }
+
+  private synchronized void removeIndexJob(
+      CompletableFuture<Void> indexJob, Set<String> entityTypeIds) {
+    entityTypeIds.forEach(entityTypeId -> entityTypeIndexJobs.remove(entityTypeId, indexJob));
+  }
+
   @Override
   @RunAsSystem
   public void waitForAllIndicesStable() throws InterruptedException {
@@ -1,20 +1,30 @@
 package org.molgenis.data.index.job;
 
 import static java.text.MessageFormat.format;
+import static java.util.Collections.singletonList;
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toCollection;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static org.molgenis.data.QueryRule.Operator.EQUALS;
 import static org.molgenis.data.index.meta.IndexActionGroupMetadata.INDEX_ACTION_GROUP;
 import static org.molgenis.data.index.meta.IndexActionMetadata.ACTION_ORDER;
 import static org.molgenis.data.index.meta.IndexActionMetadata.INDEX_ACTION;
 import static org.molgenis.data.index.meta.IndexActionMetadata.INDEX_ACTION_GROUP_ATTR;
+import static org.molgenis.data.util.EntityTypeUtils.createFetchForReindexing;
 import static org.molgenis.data.util.EntityUtils.getTypedValue;
 
+import com.google.common.collect.Iterators;
 import io.micrometer.core.annotation.Timed;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
-import org.molgenis.data.MolgenisDataException;
+import org.molgenis.data.Fetch;
 import org.molgenis.data.Query;
 import org.molgenis.data.QueryRule;
 import org.molgenis.data.Repository;
@@ -23,6 +33,7 @@ import org.molgenis.data.index.IndexService;
 import org.molgenis.data.index.meta.IndexAction;
 import org.molgenis.data.index.meta.IndexActionGroup;
 import org.molgenis.data.index.meta.IndexActionMetadata;
+import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.meta.model.EntityTypeFactory;
 import org.molgenis.data.support.QueryImpl;
@@ -34,6 +45,8 @@ import org.slf4j.LoggerFactory;
 public class IndexJobService {
   private static final Logger LOG = LoggerFactory.getLogger(IndexJobService.class);
 
+  private static final int BATCH_SIZE = 1000;
+
   private final DataService dataService;
   private final IndexService indexService;
   private final EntityTypeFactory entityTypeFactory;
@@ -65,7 +78,8 @@ public class IndexJobService {
   }
 
   /**
-   * Performs the IndexActions.
+   * Performs the IndexActions. Consecutive row-level index actions are grouped per entity type and
+   * performed together.
    *
    * @param progress {@link Progress} instance to log progress information to
    */
@@ -77,8 +91,9 @@ public class IndexJobService {
     try {
       boolean success = true;
       int count = 0;
-      for (IndexAction indexAction : indexActions) {
-        success &= performAction(progress, count++, indexAction);
+      for (List<IndexAction> entityTypeIndexActions : groupIndexActions(indexActions)) {
+        success &= performActions(progress, count, entityTypeIndexActions);
+        count += entityTypeIndexActions.size();
       }
       if (success) {
         progress.progress(count, "Executed all index actions, cleaning up the actions...");
@@ -97,25 +112,47 @@ public class IndexJobService {
   }
 
   /**
-   * Performs a single IndexAction
+   * Groups index actions so that each group either contains one entity type index action or all
+   * row-level index actions for one entity type that are not separated by an entity type index
+   * action.
+   */
+  static List<List<IndexAction>> groupIndexActions(List<IndexAction> indexActions) {
+    List<List<IndexAction>> indexActionGroups = new ArrayList<>();
+    Map<String, List<IndexAction>> rowIndexActions = new LinkedHashMap<>();
+    for (IndexAction indexAction : indexActions) {
+      if (indexAction.getEntityId() != null) {
+        rowIndexActions
+            .computeIfAbsent(indexAction.getEntityTypeId(), entityTypeId -> new ArrayList<>())
+            .add(indexAction);
+      } else {
+        indexActionGroups.addAll(rowIndexActions.values());
+        rowIndexActions.clear();
+        indexActionGroups.add(singletonList(indexAction));
+      }
+    }
+    indexActionGroups.addAll(rowIndexActions.values());
+    return indexActionGroups;
+  }
+
+  /**
+   * Performs a group of IndexActions for one entity type
    *
    * @param progress {@link Progress} to report progress to
-   * @param progressCount the progress count for this IndexAction
-   * @param indexAction Entity of type IndexActionMetaData
+   * @param progressCount the progress count for the first IndexAction
+   * @param indexActions either one entity type IndexAction or one or more row-level IndexActions
    * @return boolean indicating success or failure
    */
-  private boolean performAction(Progress progress, int progressCount, IndexAction indexAction) {
-    requireNonNull(indexAction);
+  private boolean performActions(
+      Progress progress, int progressCount, List<IndexAction> indexActions) {
+    IndexAction indexAction = indexActions.get(0);
     String entityTypeId = indexAction.getEntityTypeId();
-    updateIndexActionStatus(indexAction, IndexActionMetadata.IndexStatus.STARTED);
+    updateIndexActionStatus(indexActions, IndexActionMetadata.IndexStatus.STARTED);
     try {
       if (dataService.hasEntityType(entityTypeId)) {
         EntityType entityType = dataService.getEntityType(entityTypeId);
         if (indexAction.getEntityId() != null) {
-          progress.progress(
-              progressCount,
-              format("Indexing {0}.{1}", entityType.getId(), indexAction.getEntityId()));
-          rebuildIndexOneEntity(entityTypeId, indexAction.getEntityId());
+          progress.progress(progressCount, createRowsProgressMessage(entityType, indexActions));
+          rebuildIndexRows(entityType, indexActions);
         } else {
           progress.progress(progressCount, format("Indexing {0}", entityType.getId()));
           final Repository<Entity> repository = dataService.getRepository(entityType.getId());
@@ -135,61 +172,79 @@ public class IndexJobService {
               format("Skip index entity {0}.{1}", entityType.getId(), indexAction.getEntityId()));
         }
       }
-      updateIndexActionStatus(indexAction, IndexActionMetadata.IndexStatus.FINISHED);
+      updateIndexActionStatus(indexActions, IndexActionMetadata.IndexStatus.FINISHED);
       return true;
     } catch (Exception ex) {
       LOG.error("Index job failed", ex);
-      updateIndexActionStatus(indexAction, IndexActionMetadata.IndexStatus.FAILED);
+      updateIndexActionStatus(indexActions, IndexActionMetadata.IndexStatus.FAILED);
       return false;
     }
   }
 
+  private static String createRowsProgressMessage(
+      EntityType entityType, List<IndexAction> indexActions) {
+    if (indexActions.size() == 1) {
+      return format("Indexing {0}.{1}", entityType.getId(), indexActions.get(0).getEntityId());
+    }
+    return format("Indexing {0} rows of {1}", indexActions.size(), entityType.getId());
+  }
+
   /**
-   * Updates the {@link IndexStatus} of a IndexAction and stores the change.
+   * Updates the {@link IndexStatus} of IndexActions and stores the change.
    *
-   * @param indexAction the IndexAction of which the status is updated
+   * @param indexActions the IndexActions of which the status is updated
    * @param status the new {@link IndexStatus}
    */
   private void updateIndexActionStatus(
-      IndexAction indexAction, IndexActionMetadata.IndexStatus status) {
-    indexAction.setIndexStatus(status);
-    dataService.update(INDEX_ACTION, indexAction);
+      List<IndexAction> indexActions, IndexActionMetadata.IndexStatus status) {
+    indexActions.forEach(indexAction -> indexAction.setIndexStatus(status));
+    dataService.update(INDEX_ACTION, indexActions.stream());
   }
 
   /**
-   * Indexes one single entity instance.
+   * Indexes entity instances in batches. Instances that no longer exist are removed from the index.
    *
-   * @param entityTypeId the id of the entity's repository
-   * @param untypedEntityId the identifier of the entity to update
+   * @param entityType the entity type of the instances
+   * @param indexActions row-level index actions that refer to the instances to update
    */
-  private void rebuildIndexOneEntity(String entityTypeId, String untypedEntityId) {
-    LOG.trace("Indexing [{}].[{}]... ", entityTypeId, untypedEntityId);
-
-    // convert entity id string to typed entity id
-    EntityType entityType = dataService.getEntityType(entityTypeId);
-    if (null != entityType) {
-      Object entityId = getTypedValue(untypedEntityId, entityType.getIdAttribute());
-      String entityFullName = entityType.getId();
-
-      Entity actualEntity = dataService.findOneById(entityFullName, entityId);
-
-      if (null == actualEntity) {
-        // Delete
-        LOG.debug("Index delete [{}].[{}].", entityFullName, entityId);
-        indexService.deleteById(entityType, entityId);
-        return;
-      }
+  private void rebuildIndexRows(EntityType entityType, List<IndexAction> indexActions) {
+    LOG.trace("Indexing {} [{}] rows... ", indexActions.size(), entityType.getId());
+
+    // convert entity id strings to typed entity ids
+    Attribute idAttribute = entityType.getIdAttribute();
+    Set<Object> entityIds =
+        indexActions
+            .stream()
+            .map(indexAction -> getTypedValue(indexAction.getEntityId(), idAttribute))
+            .collect(toCollection(LinkedHashSet::new));
+
+    Fetch fetch = createFetchForReindexing(entityType);
+    Iterators.partition(entityIds.iterator(), BATCH_SIZE)
+        .forEachRemaining(batchEntityIds -> rebuildIndexRows(entityType, batchEntityIds, fetch));
+  }
+
+  private void rebuildIndexRows(EntityType entityType, List<Object> entityIds, Fetch fetch) {
+    List<Entity> entities =
+        dataService.findAll(entityType.getId(), entityIds.stream(), fetch).collect(toList());
 
+    if (!entities.isEmpty()) {
       boolean indexEntityExists = indexService.hasIndex(entityType);
       if (!indexEntityExists) {
-        LOG.debug("Create mapping of repository [{}] because it was not exist yet", entityTypeId);
+        LOG.debug(
+            "Create mapping of repository [{}] because it was not exist yet", entityType.getId());
         indexService.createIndex(entityType);
       }
 
-      LOG.debug("Index [{}].[{}].", entityTypeId, entityId);
-      indexService.index(actualEntity.getEntityType(), actualEntity);
-    } else {
-      throw new MolgenisDataException("Unknown EntityType for entityTypeId: " + entityTypeId);
+      LOG.debug("Index {} [{}] rows.", entities.size(), entityType.getId());
+      indexService.index(entityType, entities.stream());
+    }
+
+    if (entities.size() < entityIds.size()) {
+      Set<Object> existingEntityIds = entities.stream().map(Entity::getIdValue).collect(toSet());
+      List<Object> deletedEntityIds =
+          entityIds.stream().filter(id -> !existingEntityIds.contains(id)).collect(toList());
+      LOG.debug("Index delete {} [{}] rows.", deletedEntityIds.size(), entityType.getId());
+      indexService.deleteAll(entityType, deletedEntityIds.stream());
     }
   }
 
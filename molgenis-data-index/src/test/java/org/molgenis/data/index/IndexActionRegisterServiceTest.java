@@ -1,36 +1,39 @@
 package org.molgenis.data.index;
 
+import static com.google.common.collect.Sets.newHashSet;
+import static java.util.Collections.emptySet;
 import static java.util.Collections.singleton;
-import static org.mockito.Mockito.doReturn;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
+import static org.molgenis.data.index.IndexDependencyModel.ENTITY_TYPE_FETCH;
 import static org.molgenis.data.index.meta.IndexActionGroupMetadata.INDEX_ACTION_GROUP;
 import static org.molgenis.data.index.meta.IndexActionMetadata.INDEX_ACTION;
 import static org.molgenis.data.index.meta.IndexActionMetadata.IndexStatus.PENDING;
-import static org.molgenis.data.meta.model.AttributeMetadata.ATTRIBUTE_META_DATA;
+import static org.molgenis.data.meta.model.EntityTypeMetadata.ENTITY_TYPE_META_DATA;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 import com.google.common.collect.Lists;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.molgenis.data.DataService;
-import org.molgenis.data.Entity;
 import org.molgenis.data.EntityKey;
 import org.molgenis.data.Query;
 import org.molgenis.data.index.meta.IndexAction;
 import org.molgenis.data.index.meta.IndexActionFactory;
 import org.molgenis.data.index.meta.IndexActionGroup;
 import org.molgenis.data.index.meta.IndexActionGroupFactory;
-import org.molgenis.data.meta.model.AttributeMetadata;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.transaction.TransactionManager;
 import org.molgenis.test.AbstractMockitoTest;
@@ -54,7 +57,7 @@ public class IndexActionRegisterServiceTest extends AbstractMockitoTest {
         TransactionManager.TRANSACTION_ID_RESOURCE_NAME, "1");
     indexActionRegisterServiceImpl =
         new IndexActionRegisterServiceImpl(
-            dataService, indexActionFactory, indexActionGroupFactory, new IndexingStrategy());
+            dataService, indexActionFactory, indexActionGroupFactory, new IndexingStrategy(), 2);
   }
 
   @AfterMethod
@@ -82,11 +85,6 @@ public class IndexActionRegisterServiceTest extends AbstractMockitoTest {
 
     verifyZeroInteractions(dataService);
 
-    Query<Entity> refEntityQuery = mock(Query.class);
-    when(refEntityQuery.count()).thenReturn(0L);
-    when(refEntityQuery.in(AttributeMetadata.REF_ENTITY_TYPE, singleton("entityTypeId")))
-        .thenReturn(refEntityQuery);
-    doReturn(refEntityQuery).when(dataService).query(ATTRIBUTE_META_DATA);
     indexActionRegisterServiceImpl.storeIndexActions("1");
 
     verify(dataService).add(INDEX_ACTION_GROUP, indexActionGroup);
@@ -145,4 +143,115 @@ public class IndexActionRegisterServiceTest extends AbstractMockitoTest {
     EntityKey entityKey = EntityKey.create(entityTypeId, otherId);
     assertFalse(indexActionRegisterServiceImpl.isEntityDirty(entityKey));
   }
+
+  @Test
+  public void testGetChangedAttributes() {
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getId()).thenReturn("entityTypeId");
+    indexActionRegisterServiceImpl.register(entityType, 123, singleton("attr0"));
+    indexActionRegisterServiceImpl.register(entityType, 456, singleton("attr1"));
+    assertEquals(
+        indexActionRegisterServiceImpl.getChangedAttributes("entityTypeId"),
+        Optional.of(newHashSet("attr0", "attr1")));
+  }
+
+  @Test
+  public void testGetChangedAttributesUnknown() {
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getId()).thenReturn("entityTypeId");
+    indexActionRegisterServiceImpl.register(entityType, 123, singleton("attr0"));
+    indexActionRegisterServiceImpl.register(entityType, 456);
+    assertEquals(
+        indexActionRegisterServiceImpl.getChangedAttributes("entityTypeId"), Optional.empty());
+  }
+
+  @Test
+  public void testGetChangedAttributesAfterForget() {
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getId()).thenReturn("entityTypeId");
+    indexActionRegisterServiceImpl.register(entityType, 123);
+    indexActionRegisterServiceImpl.forgetIndexActions("1");
+    assertEquals(
+        indexActionRegisterServiceImpl.getChangedAttributes("entityTypeId"),
+        Optional.of(emptySet()));
+  }
+
+  @Test
+  public void testRegisterPromotesToWholeRepository() {
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getId()).thenReturn("entityTypeId");
+    indexActionRegisterServiceImpl.register(entityType, 1);
+    indexActionRegisterServiceImpl.register(entityType, 2);
+    assertFalse(indexActionRegisterServiceImpl.isEntireRepositoryDirty(entityType));
+
+    indexActionRegisterServiceImpl.register(entityType, 3);
+    assertTrue(indexActionRegisterServiceImpl.isEntireRepositoryDirty(entityType));
+    assertEquals(indexActionRegisterServiceImpl.getDirtyEntities(), emptySet());
+    assertEquals(
+        indexActionRegisterServiceImpl.getEntirelyDirtyRepositories(), singleton("entityTypeId"));
+  }
+
+  @Test
+  public void testRegisterWithoutTransaction() {
+    TransactionSynchronizationManager.unbindResource(
+        TransactionManager.TRANSACTION_ID_RESOURCE_NAME);
+    try {
+      EntityType entityType = mock(EntityType.class);
+      when(entityType.getId()).thenReturn("entityTypeId");
+      indexActionRegisterServiceImpl.register(entityType, 123);
+      assertEquals(indexActionRegisterServiceImpl.getDirtyRepositories(), emptySet());
+    } finally {
+      TransactionSynchronizationManager.bindResource(
+          TransactionManager.TRANSACTION_ID_RESOURCE_NAME, "1");
+    }
+  }
+
+  @Test
+  public void testForgetIndexActionsUnknownTransaction() {
+    assertFalse(indexActionRegisterServiceImpl.forgetIndexActions("unknown"));
+  }
+
+  @Test
+  public void testStoreIndexActionsDependencyModelCached() {
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getId()).thenReturn("entityTypeId");
+    when(indexActionFactory.create()).thenReturn(indexAction);
+
+    indexActionRegisterServiceImpl.register(entityType, 123);
+    indexActionRegisterServiceImpl.storeIndexActions("1");
+    indexActionRegisterServiceImpl.forgetIndexActions("1");
+    indexActionRegisterServiceImpl.register(entityType, 456);
+    indexActionRegisterServiceImpl.storeIndexActions("1");
+
+    verify(dataService).findAll(eq(ENTITY_TYPE_META_DATA), any(Query.class), eq(EntityType.class));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testStoreIndexActionsEntityTypeChanged() {
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getId()).thenReturn("entityTypeId");
+    EntityType entityTypeMetadata = mock(EntityType.class);
+    when(entityTypeMetadata.getId()).thenReturn(ENTITY_TYPE_META_DATA);
+    when(indexActionFactory.create()).thenReturn(indexAction);
+
+    indexActionRegisterServiceImpl.register(entityType, 123);
+    indexActionRegisterServiceImpl.storeIndexActions("1");
+    indexActionRegisterServiceImpl.forgetIndexActions("1");
+
+    indexActionRegisterServiceImpl.register(entityTypeMetadata, "entityTypeId");
+    indexActionRegisterServiceImpl.storeIndexActions("1");
+    indexActionRegisterServiceImpl.forgetIndexActions("1");
+
+    indexActionRegisterServiceImpl.register(entityType, 456);
+    indexActionRegisterServiceImpl.storeIndexActions("1");
+
+    verify(dataService).findAll(eq(ENTITY_TYPE_META_DATA), any(Query.class), eq(EntityType.class));
+    verify(dataService, times(2))
+        .findAll(
+            eq(ENTITY_TYPE_META_DATA),
+            any(Stream.class),
+            eq(ENTITY_TYPE_FETCH),
+            eq(EntityType.class));
+  }
 }
@@ -1,13 +1,16 @@
 package org.molgenis.data.index;
 
 import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.internal.verification.VerificationModeFactory.times;
+import static org.molgenis.data.RepositoryCapability.CACHEABLE;
 import static org.molgenis.data.RepositoryCapability.INDEXABLE;
 import static org.molgenis.data.RepositoryCapability.MANAGABLE;
+import static org.molgenis.data.meta.AttributeType.STRING;
 import static org.testng.Assert.assertEquals;
 
 import java.util.EnumSet;
@@ -52,6 +55,30 @@ public class IndexActionRepositoryDecoratorTest {
     verifyNoMoreInteractions(indexActionRegisterService);
   }
 
+  @Test
+  public void updateEntityCacheable() {
+    initEntityMeta();
+    when(delegateRepository.getCapabilities()).thenReturn(EnumSet.of(MANAGABLE, CACHEABLE));
+
+    Attribute attribute = mock(Attribute.class);
+    when(attribute.getName()).thenReturn("attr");
+    when(attribute.getDataType()).thenReturn(STRING);
+    when(entityType.getAtomicAttributes()).thenReturn(singletonList(attribute));
+
+    Entity currentEntity = mock(Entity.class);
+    when(currentEntity.getEntityType()).thenReturn(entityType);
+    when(currentEntity.getString("attr")).thenReturn("value");
+    when(delegateRepository.findOneById(1)).thenReturn(currentEntity);
+
+    Entity entity0 = mock(Entity.class);
+    when(entity0.getIdValue()).thenReturn(1);
+    when(entity0.getString("attr")).thenReturn("updatedValue");
+    indexActionRepositoryDecorator.update(entity0);
+    verify(delegateRepository, times(1)).update(entity0);
+    verify(indexActionRegisterService).register(entityType, 1, singleton("attr"));
+    verifyNoMoreInteractions(indexActionRegisterService);
+  }
+
   @Test
   public void updateEntityBidi() {
     initEntityMetaBidi();
@@ -112,6 +112,34 @@ public class IndexDependencyModelTest {
     assertEquals(dependencies, ImmutableSet.of());
   }
 
+  @Test
+  public void testWithEntityTypes() {
+    when(entity1.getIndexingDepth()).thenReturn(1);
+    when(entity2.getIndexingDepth()).thenReturn(1);
+
+    addReferences(entity0, ImmutableList.of());
+    addReferences(entity1, ImmutableList.of(entity0));
+    addReferences(entity2, ImmutableList.of());
+
+    IndexDependencyModel dependencyModel =
+        new IndexDependencyModel(ImmutableList.of(entity0, entity1, entity2));
+    assertEquals(
+        dependencyModel.getEntityTypesDependentOn("0").collect(toSet()), ImmutableSet.of("1"));
+
+    EntityType updatedEntity2 = Mockito.mock(EntityType.class);
+    when(updatedEntity2.getId()).thenReturn("2");
+    when(updatedEntity2.getIndexingDepth()).thenReturn(1);
+    addReferences(updatedEntity2, ImmutableList.of(entity0));
+
+    IndexDependencyModel updatedDependencyModel =
+        dependencyModel.withEntityTypes(ImmutableList.of(updatedEntity2), ImmutableList.of("1"));
+    assertEquals(
+        updatedDependencyModel.getEntityTypesDependentOn("0").collect(toSet()),
+        ImmutableSet.of("2"));
+    assertEquals(
+        dependencyModel.getEntityTypesDependentOn("0").collect(toSet()), ImmutableSet.of("1"));
+  }
+
   private void addReferences(EntityType referringEntity, List<EntityType> refEntities) {
     ImmutableList.Builder<Attribute> attributes = ImmutableList.builder();
 
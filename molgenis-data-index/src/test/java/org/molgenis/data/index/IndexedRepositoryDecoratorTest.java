@@ -1,7 +1,9 @@
 package org.molgenis.data.index;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.isNull;
 import static org.mockito.Mockito.mock;
@@ -16,12 +18,21 @@ import static org.molgenis.data.QueryRule.Operator.FUZZY_MATCH;
 import static org.molgenis.data.QueryRule.Operator.IN;
 import static org.molgenis.data.QueryRule.Operator.LESS;
 import static org.molgenis.data.QueryRule.Operator.OR;
+import static org.molgenis.data.QueryRule.Operator.PERMITTED;
+import static org.molgenis.data.QueryRule.Operator.SEARCH;
 import static org.molgenis.data.RepositoryCapability.AGGREGATEABLE;
 import static org.molgenis.data.RepositoryCapability.MANAGABLE;
 import static org.molgenis.data.RepositoryCapability.QUERYABLE;
 import static org.molgenis.data.RepositoryCapability.VALIDATE_NOTNULL_CONSTRAINT;
+import static org.molgenis.data.index.IndexedRepositoryDecorator.METER_INDEX_REQUESTS;
+import static org.molgenis.data.index.IndexedRepositoryDecorator.METER_QUERIES;
+import static org.molgenis.data.index.IndexedRepositoryDecorator.ROUTE_BACKEND;
+import static org.molgenis.data.index.IndexedRepositoryDecorator.ROUTE_INDEX;
+import static org.molgenis.data.index.IndexedRepositoryDecorator.TAG_ROUTE;
 import static org.testng.Assert.assertEquals;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
@@ -30,9 +41,11 @@ import java.util.List;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import org.mockito.ArgumentCaptor;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Fetch;
 import org.molgenis.data.MolgenisDataException;
+import org.molgenis.data.PermissionFilter;
 import org.molgenis.data.Query;
 import org.molgenis.data.QueryRule;
 import org.molgenis.data.QueryRule.Operator;
@@ -45,6 +58,7 @@ import org.molgenis.data.index.job.IndexJobScheduler;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.support.AggregateQueryImpl;
+import org.molgenis.data.support.QueryImpl;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -56,6 +70,7 @@ public class IndexedRepositoryDecoratorTest {
   private String idAttrName;
   private Query<Entity> query;
   private Query<Entity> unsupportedQuery;
+  private MeterRegistry meterRegistry;
 
   @SuppressWarnings("unchecked")
   @BeforeMethod
@@ -77,8 +92,10 @@ public class IndexedRepositoryDecoratorTest {
         .thenReturn(EnumSet.of(QUERYABLE, MANAGABLE, VALIDATE_NOTNULL_CONSTRAINT));
     when(delegateRepository.getQueryOperators()).thenReturn(EnumSet.of(IN, LESS, EQUALS, AND, OR));
     IndexJobScheduler indexJobScheduler = mock(IndexJobScheduler.class);
+    meterRegistry = new SimpleMeterRegistry();
     indexedRepositoryDecorator =
-        new IndexedRepositoryDecorator(delegateRepository, searchService, indexJobScheduler);
+        new IndexedRepositoryDecorator(
+            delegateRepository, searchService, indexJobScheduler, meterRegistry);
 
     when(repositoryEntityType.getAtomicAttributes()).thenReturn(newArrayList(idAttr));
 
@@ -100,7 +117,7 @@ public class IndexedRepositoryDecoratorTest {
   @SuppressWarnings("resource")
   @Test(expectedExceptions = NullPointerException.class)
   public void indexedRepositoryDecorator() {
-    new IndexedRepositoryDecorator(null, null, null);
+    new IndexedRepositoryDecorator(null, null, null, null);
   }
 
   @Test
@@ -180,6 +197,8 @@ public class IndexedRepositoryDecoratorTest {
     indexedRepositoryDecorator.count(query);
     verify(delegateRepository).count(query);
     verifyZeroInteractions(searchService);
+    assertEquals(
+        meterRegistry.find(METER_QUERIES).tag(TAG_ROUTE, ROUTE_BACKEND).counter().count(), 1.0);
   }
 
   @Test
@@ -187,6 +206,9 @@ public class IndexedRepositoryDecoratorTest {
     indexedRepositoryDecorator.count(unsupportedQuery);
     verify(searchService).count(repositoryEntityType, unsupportedQuery);
     verify(delegateRepository, never()).count(unsupportedQuery);
+    assertEquals(
+        meterRegistry.find(METER_QUERIES).tag(TAG_ROUTE, ROUTE_INDEX).counter().count(), 1.0);
+    assertEquals(meterRegistry.find(METER_INDEX_REQUESTS).timer().count(), 1);
   }
 
   @Test
@@ -368,6 +390,17 @@ public class IndexedRepositoryDecoratorTest {
     verify(delegateRepository).findAll(any(Stream.class), isNull());
   }
 
+  @SuppressWarnings("unchecked")
+  @Test
+  public void findAllQueryUnsupportedCloseStream() {
+    Runnable closeHandler = mock(Runnable.class);
+    when(searchService.search(repositoryEntityType, unsupportedQuery))
+        .thenReturn(Stream.<Object>of("id0").onClose(closeHandler));
+    when(delegateRepository.findAll(any(Stream.class), isNull())).thenReturn(Stream.empty());
+    indexedRepositoryDecorator.findAll(unsupportedQuery).close();
+    verify(closeHandler).run();
+  }
+
   @SuppressWarnings("unchecked")
   @Test
   public void findAllUnknownIndexExceptionRecoverable() {
@@ -415,7 +448,160 @@ public class IndexedRepositoryDecoratorTest {
 
   @Test
   public void getQueryOperators() {
-    assertEquals(indexedRepositoryDecorator.getQueryOperators(), EnumSet.allOf(Operator.class));
+    assertEquals(
+        indexedRepositoryDecorator.getQueryOperators(),
+        EnumSet.complementOf(EnumSet.of(PERMITTED)));
+  }
+
+  @Test
+  public void getQueryOperatorsPermitted() {
+    assertEquals(
+        createPermittedIndexedRepositoryDecorator().getQueryOperators(),
+        EnumSet.allOf(Operator.class));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void findAllPermitted() {
+    IndexedRepositoryDecorator permittedIndexedRepositoryDecorator =
+        createPermittedIndexedRepositoryDecorator();
+    QueryRule permittedRule = new QueryRule(PERMITTED, mock(PermissionFilter.class));
+    Query<Entity> q =
+        new QueryImpl<>(
+                newArrayList(new QueryRule(SEARCH, "text"), new QueryRule(AND), permittedRule))
+            .setOffset(1)
+            .setPageSize(1);
+    when(delegateRepository.count(new QueryImpl<>(permittedRule))).thenReturn(2000L);
+    when(searchService.search(repositoryEntityType, new QueryImpl<>(new QueryRule(SEARCH, "text"))))
+        .thenReturn(Stream.of("id0", "id1", "id2", "id3"));
+    Entity entity1 = when(mock(Entity.class).getIdValue()).thenReturn("id1").getMock();
+    Entity entity3 = when(mock(Entity.class).getIdValue()).thenReturn("id3").getMock();
+    Entity entity0 = when(mock(Entity.class).getIdValue()).thenReturn("id0").getMock();
+    QueryImpl<Entity> batchQuery = new QueryImpl<>();
+    batchQuery.in(idAttrName, asList("id0", "id1", "id2", "id3"));
+    batchQuery.and();
+    batchQuery.addRule(permittedRule);
+    batchQuery.fetch(new Fetch().field(idAttrName));
+    when(delegateRepository.findAll(batchQuery)).thenReturn(Stream.of(entity3, entity1, entity0));
+    Entity entity = mock(Entity.class);
+    ArgumentCaptor<Stream<Object>> idsCaptor = ArgumentCaptor.forClass(Stream.class);
+    when(delegateRepository.findAll(idsCaptor.capture(), isNull())).thenReturn(Stream.of(entity));
+
+    assertEquals(
+        permittedIndexedRepositoryDecorator.findAll(q).collect(toList()), singletonList(entity));
+    assertEquals(idsCaptor.getValue().collect(toList()), singletonList("id1"));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void findAllPermittedFewPermitted() {
+    IndexedRepositoryDecorator permittedIndexedRepositoryDecorator =
+        createPermittedIndexedRepositoryDecorator();
+    QueryRule permittedRule = new QueryRule(PERMITTED, mock(PermissionFilter.class));
+    Query<Entity> q =
+        new QueryImpl<>(
+                newArrayList(new QueryRule(SEARCH, "text"), new QueryRule(AND), permittedRule))
+            .setOffset(1)
+            .setPageSize(1);
+    when(delegateRepository.count(new QueryImpl<>(permittedRule))).thenReturn(2L);
+    Entity entity1 = when(mock(Entity.class).getIdValue()).thenReturn("id1").getMock();
+    Entity entity3 = when(mock(Entity.class).getIdValue()).thenReturn("id3").getMock();
+    when(delegateRepository.findAll(
+            new QueryImpl<>(permittedRule).fetch(new Fetch().field(idAttrName))))
+        .thenReturn(Stream.of(entity1, entity3));
+    QueryImpl<Entity> indexQuery = new QueryImpl<>();
+    indexQuery.nest().search("text").unnest().and().in(idAttrName, asList("id1", "id3"));
+    indexQuery.setOffset(1).setPageSize(1);
+    when(searchService.search(repositoryEntityType, indexQuery)).thenReturn(Stream.of("id3"));
+    Entity entity = mock(Entity.class);
+    ArgumentCaptor<Stream<Object>> idsCaptor = ArgumentCaptor.forClass(Stream.class);
+    when(delegateRepository.findAll(idsCaptor.capture(), isNull())).thenReturn(Stream.of(entity));
+
+    assertEquals(
+        permittedIndexedRepositoryDecorator.findAll(q).collect(toList()), singletonList(entity));
+    assertEquals(idsCaptor.getValue().collect(toList()), singletonList("id3"));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void findAllPermittedNonePermitted() {
+    IndexedRepositoryDecorator permittedIndexedRepositoryDecorator =
+        createPermittedIndexedRepositoryDecorator();
+    QueryRule permittedRule = new QueryRule(PERMITTED, mock(PermissionFilter.class));
+    Query<Entity> q =
+        new QueryImpl<>(
+            newArrayList(new QueryRule(SEARCH, "text"), new QueryRule(AND), permittedRule));
+    when(delegateRepository.findAll(any(Stream.class), isNull())).thenReturn(Stream.empty());
+
+    assertEquals(permittedIndexedRepositoryDecorator.findAll(q).count(), 0L);
+    verifyZeroInteractions(searchService);
+  }
+
+  @Test
+  public void countPermitted() {
+    IndexedRepositoryDecorator permittedIndexedRepositoryDecorator =
+        createPermittedIndexedRepositoryDecorator();
+    QueryRule permittedRule = new QueryRule(PERMITTED, mock(PermissionFilter.class));
+    Query<Entity> q =
+        new QueryImpl<>(
+            newArrayList(permittedRule, new QueryRule(AND), new QueryRule(SEARCH, "text")));
+    when(delegateRepository.count(new QueryImpl<>(permittedRule))).thenReturn(5L);
+    when(searchService.count(repositoryEntityType, new QueryImpl<>(new QueryRule(SEARCH, "text"))))
+        .thenReturn(2L);
+    when(searchService.search(repositoryEntityType, new QueryImpl<>(new QueryRule(SEARCH, "text"))))
+        .thenReturn(Stream.of("id0", "id1"));
+    QueryImpl<Entity> batchQuery = new QueryImpl<>();
+    batchQuery.in(idAttrName, asList("id0", "id1"));
+    batchQuery.and();
+    batchQuery.addRule(permittedRule);
+    when(delegateRepository.count(batchQuery)).thenReturn(1L);
+
+    assertEquals(permittedIndexedRepositoryDecorator.count(q), 1L);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void countPermittedFewPermitted() {
+    IndexedRepositoryDecorator permittedIndexedRepositoryDecorator =
+        createPermittedIndexedRepositoryDecorator();
+    QueryRule permittedRule = new QueryRule(PERMITTED, mock(PermissionFilter.class));
+    Query<Entity> q =
+        new QueryImpl<>(
+            newArrayList(permittedRule, new QueryRule(AND), new QueryRule(SEARCH, "text")));
+    when(delegateRepository.count(new QueryImpl<>(permittedRule))).thenReturn(2L);
+    when(searchService.count(repositoryEntityType, new QueryImpl<>(new QueryRule(SEARCH, "text"))))
+        .thenReturn(5L);
+    Entity entity0 = when(mock(Entity.class).getIdValue()).thenReturn("id0").getMock();
+    Entity entity1 = when(mock(Entity.class).getIdValue()).thenReturn("id1").getMock();
+    when(delegateRepository.findAll(
+            new QueryImpl<>(permittedRule).fetch(new Fetch().field(idAttrName))))
+        .thenReturn(Stream.of(entity0, entity1));
+    QueryImpl<Entity> indexQuery = new QueryImpl<>();
+    indexQuery.nest().search("text").unnest().and().in(idAttrName, asList("id0", "id1"));
+    when(searchService.count(repositoryEntityType, indexQuery)).thenReturn(1L);
+
+    assertEquals(permittedIndexedRepositoryDecorator.count(q), 1L);
+    verify(searchService, never()).search(any(EntityType.class), any(Query.class));
+  }
+
+  @Test(expectedExceptions = UnsupportedOperationException.class)
+  public void findAllPermittedOr() {
+    IndexedRepositoryDecorator permittedIndexedRepositoryDecorator =
+        createPermittedIndexedRepositoryDecorator();
+    Query<Entity> q =
+        new QueryImpl<>(
+            newArrayList(
+                new QueryRule(SEARCH, "text"),
+                new QueryRule(OR),
+                new QueryRule(PERMITTED, mock(PermissionFilter.class))));
+    permittedIndexedRepositoryDecorator.findAll(q);
+  }
+
+  private IndexedRepositoryDecorator createPermittedIndexedRepositoryDecorator() {
+    when(delegateRepository.getQueryOperators())
+        .thenReturn(EnumSet.of(IN, LESS, EQUALS, AND, OR, PERMITTED));
+    return new IndexedRepositoryDecorator(
+        delegateRepository, searchService, mock(IndexJobScheduler.class), meterRegistry);
   }
 
   @Test
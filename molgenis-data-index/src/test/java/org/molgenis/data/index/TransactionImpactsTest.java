@@ -0,0 +1,78 @@
+package org.molgenis.data.index;
+
+import static com.google.common.collect.Sets.newHashSet;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static org.molgenis.data.index.Impact.createSingleEntityImpact;
+import static org.molgenis.data.index.Impact.createWholeRepositoryImpact;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Optional;
+import org.molgenis.data.EntityKey;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TransactionImpactsTest {
+  private TransactionImpacts transactionImpacts;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    transactionImpacts = new TransactionImpacts(2);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testTransactionImpactsInvalidThreshold() {
+    new TransactionImpacts(-1);
+  }
+
+  @Test
+  public void testRegister() {
+    assertEquals(transactionImpacts.register("entityTypeId", 1), 1);
+    assertEquals(transactionImpacts.register("entityTypeId", 1), -1);
+    assertEquals(transactionImpacts.register("otherEntityTypeId", 1), 2);
+    assertEquals(
+        transactionImpacts.getImpacts(),
+        newHashSet(
+            createSingleEntityImpact("entityTypeId", 1),
+            createSingleEntityImpact("otherEntityTypeId", 1)));
+    assertTrue(transactionImpacts.isEntityDirty(EntityKey.create("entityTypeId", 1)));
+    assertFalse(transactionImpacts.isEntityDirty(EntityKey.create("entityTypeId", 2)));
+  }
+
+  @Test
+  public void testRegisterWholeRepository() {
+    transactionImpacts.register("entityTypeId", 1);
+    transactionImpacts.register("entityTypeId", null);
+    assertEquals(
+        transactionImpacts.getImpacts(), singleton(createWholeRepositoryImpact("entityTypeId")));
+    assertTrue(transactionImpacts.isEntireRepositoryDirty("entityTypeId"));
+    assertEquals(transactionImpacts.getDirtyEntities(), emptySet());
+  }
+
+  @Test
+  public void testRegisterPromotesToWholeRepository() {
+    transactionImpacts.register("entityTypeId", 1);
+    transactionImpacts.register("entityTypeId", 2);
+    assertFalse(transactionImpacts.isEntireRepositoryDirty("entityTypeId"));
+    transactionImpacts.register("entityTypeId", 3);
+    assertEquals(
+        transactionImpacts.getImpacts(), singleton(createWholeRepositoryImpact("entityTypeId")));
+    assertEquals(transactionImpacts.getEntirelyDirtyRepositories(), singleton("entityTypeId"));
+    assertEquals(transactionImpacts.register("entityTypeId", 4), -1);
+  }
+
+  @Test
+  public void testGetChangedAttributes() {
+    transactionImpacts.register("entityTypeId", 1);
+    transactionImpacts.registerChangedAttributes("entityTypeId", singleton("attr"));
+    assertEquals(
+        transactionImpacts.getChangedAttributes("entityTypeId"), Optional.of(singleton("attr")));
+    assertEquals(
+        transactionImpacts.getChangedAttributes("otherEntityTypeId"), Optional.of(emptySet()));
+
+    transactionImpacts.registerUntrackedChanges("entityTypeId");
+    assertEquals(transactionImpacts.getChangedAttributes("entityTypeId"), Optional.empty());
+  }
+}
@@ -1,6 +1,10 @@
 package org.molgenis.data.index.job;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
@@ -8,12 +12,18 @@ import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.molgenis.data.index.job.IndexJobExecutionMetadata.INDEX_JOB_EXECUTION;
 import static org.molgenis.data.index.meta.IndexActionGroupMetadata.INDEX_ACTION_GROUP;
+import static org.molgenis.data.index.meta.IndexActionMetadata.ENTITY_TYPE_ID;
+import static org.molgenis.data.index.meta.IndexActionMetadata.INDEX_ACTION;
 import static org.molgenis.data.util.MolgenisDateFormat.parseInstant;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
@@ -29,6 +39,7 @@ import org.molgenis.data.index.IndexActionRegisterServiceImpl;
 import org.molgenis.data.index.IndexConfig;
 import org.molgenis.data.index.IndexService;
 import org.molgenis.data.index.config.IndexTestConfig;
+import org.molgenis.data.index.meta.IndexActionGroup;
 import org.molgenis.data.support.QueryImpl;
 import org.molgenis.data.transaction.TransactionListener;
 import org.molgenis.data.transaction.TransactionManager;
@@ -87,6 +98,45 @@ public class IndexJobSchedulerTest extends AbstractMolgenisSpringTest {
     verify(jobExecutor, never()).submit(any());
   }
 
+  @Test
+  public void testScheduleIndexJobsSameEntityTypeRunInOrder() throws Exception {
+    DataService dataService = mock(DataService.class);
+    IndexJobExecutionFactory indexJobExecutionFactory = mock(IndexJobExecutionFactory.class);
+    JobExecutor jobExecutor = mock(JobExecutor.class);
+    IndexJobScheduler indexJobScheduler =
+        new IndexJobSchedulerImpl(dataService, indexJobExecutionFactory, jobExecutor, 2);
+
+    when(dataService.findOneById(eq(INDEX_ACTION_GROUP), any(), eq(IndexActionGroup.class)))
+        .thenReturn(mock(IndexActionGroup.class));
+    Entity indexAction = mock(Entity.class);
+    when(indexAction.getString(ENTITY_TYPE_ID)).thenReturn("entityTypeId");
+    when(dataService.findAll(eq(INDEX_ACTION), any(Query.class)))
+        .thenAnswer(invocation -> Stream.of(indexAction));
+    IndexJobExecution indexJobExecution0 = mock(IndexJobExecution.class);
+    IndexJobExecution indexJobExecution1 = mock(IndexJobExecution.class);
+    when(indexJobExecutionFactory.create()).thenReturn(indexJobExecution0, indexJobExecution1);
+
+    CompletableFuture<Void> indexJob0 = new CompletableFuture<>();
+    CountDownLatch indexJob0Started = new CountDownLatch(1);
+    CountDownLatch indexJob1Started = new CountDownLatch(1);
+    when(jobExecutor.submit(any(IndexJobExecution.class), any(Executor.class)))
+        .thenAnswer(
+            invocation -> {
+              boolean firstJob = invocation.getArgument(0) == indexJobExecution0;
+              CountDownLatch started = firstJob ? indexJob0Started : indexJob1Started;
+              invocation.<Executor>getArgument(1).execute(started::countDown);
+              return firstJob ? indexJob0 : new CompletableFuture<>();
+            });
+
+    indexJobScheduler.scheduleIndexJob("transaction0");
+    indexJobScheduler.scheduleIndexJob("transaction1");
+
+    assertTrue(indexJob0Started.await(5, SECONDS));
+    assertFalse(indexJob1Started.await(100, MILLISECONDS));
+    indexJob0.complete(null);
+    assertTrue(indexJob1Started.await(5, SECONDS));
+  }
+
   @Test
   public void testCleanupJobExecutions() throws Exception {
     when(dataService.getRepository(INDEX_JOB_EXECUTION)).thenReturn(repository);
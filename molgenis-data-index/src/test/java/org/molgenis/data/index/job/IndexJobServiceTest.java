@@ -1,11 +1,12 @@
 package org.molgenis.data.index.job;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Stream.empty;
 import static java.util.stream.Stream.of;
 import static org.mockito.Mockito.any;
-import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
@@ -20,7 +21,6 @@ import static org.molgenis.data.index.meta.IndexActionMetadata.INDEX_ACTION;
 import static org.molgenis.data.index.meta.IndexActionMetadata.IndexStatus.FAILED;
 import static org.molgenis.data.index.meta.IndexActionMetadata.IndexStatus.FINISHED;
 import static org.testng.Assert.assertEquals;
-import static org.testng.Assert.assertSame;
 
 import java.util.Optional;
 import java.util.stream.Stream;
@@ -32,6 +32,7 @@ import org.molgenis.data.AbstractMolgenisSpringTest;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityTestHarness;
+import org.molgenis.data.Fetch;
 import org.molgenis.data.MolgenisDataException;
 import org.molgenis.data.Query;
 import org.molgenis.data.TestHarnessConfig;
@@ -58,6 +59,8 @@ import org.testng.annotations.Test;
 @ContextConfiguration(classes = {IndexJobServiceTest.Config.class})
 public class IndexJobServiceTest extends AbstractMolgenisSpringTest {
   @Captor private ArgumentCaptor<Stream<Entity>> streamCaptor;
+  @Captor private ArgumentCaptor<Stream<Object>> idStreamCaptor;
+  @Captor private ArgumentCaptor<Stream<IndexAction>> indexActionStreamCaptor;
 
   @Autowired private Progress progress;
   @Autowired private Authentication authentication;
@@ -91,9 +94,11 @@ public class IndexJobServiceTest extends AbstractMolgenisSpringTest {
     testEntityType = harness.createDynamicRefEntityType();
     when(mds.getEntityType("TypeTestRefDynamic")).thenReturn(Optional.of(testEntityType));
     toIndexEntity = harness.createTestRefEntities(testEntityType, 1).get(0);
+    toIndexEntity.setIdValue("entityId");
     when(dataService.hasEntityType("TypeTestRefDynamic")).thenReturn(true);
     when(dataService.getEntityType("TypeTestRefDynamic")).thenReturn(testEntityType);
-    when(dataService.findOneById("TypeTestRefDynamic", "entityId")).thenReturn(toIndexEntity);
+    when(dataService.findAll(eq("TypeTestRefDynamic"), any(Stream.class), any(Fetch.class)))
+        .thenAnswer(invocation -> Stream.of(toIndexEntity));
     when(dataService.hasEntityType("entityType")).thenReturn(true);
     when(dataService.getEntityType("entityType")).thenReturn(testEntityType);
   }
@@ -134,7 +139,8 @@ public class IndexJobServiceTest extends AbstractMolgenisSpringTest {
 
   @Test
   public void rebuildIndexDeleteSingleEntityTest() {
-    when(dataService.findOneById("TypeTestRefDynamic", "entityId")).thenReturn(null);
+    when(dataService.findAll(eq("TypeTestRefDynamic"), any(Stream.class), any(Fetch.class)))
+        .thenAnswer(invocation -> Stream.empty());
 
     IndexAction indexAction =
         indexActionFactory
@@ -152,7 +158,8 @@ public class IndexJobServiceTest extends AbstractMolgenisSpringTest {
     indexJobService.executeJob(progress, transactionId);
     assertEquals(indexAction.getIndexStatus(), FINISHED);
 
-    verify(indexService).deleteById(testEntityType, "entityId");
+    verify(indexService).deleteAll(eq(testEntityType), idStreamCaptor.capture());
+    assertEquals(idStreamCaptor.getValue().collect(toList()), singletonList("entityId"));
 
     // verify progress messages
     verify(progress).status("Start indexing for transaction id: [aabbcc]");
@@ -163,7 +170,7 @@ public class IndexJobServiceTest extends AbstractMolgenisSpringTest {
     verify(progress).status("Refresh index done");
     verify(progress).status("Finished indexing for transaction id: [aabbcc]");
     verify(indexService).refreshIndex();
-    verify(dataService, times(2)).update(INDEX_ACTION, indexAction);
+    verifyIndexActionStatusUpdates(indexAction);
   }
 
   @Test
@@ -183,7 +190,9 @@ public class IndexJobServiceTest extends AbstractMolgenisSpringTest {
     indexJobService.executeJob(progress, transactionId);
     assertEquals(indexAction.getIndexStatus(), FINISHED);
 
-    verify(this.indexService).index(testEntityType, toIndexEntity);
+    verify(this.indexService).index(eq(testEntityType), streamCaptor.capture());
+    assertEquals(streamCaptor.getValue().collect(toList()), singletonList(toIndexEntity));
+    verify(indexService, never()).deleteAll(any(EntityType.class), any(Stream.class));
 
     verify(progress).status("Start indexing for transaction id: [aabbcc]");
     verify(progress).setProgressMax(1);
@@ -193,7 +202,7 @@ public class IndexJobServiceTest extends AbstractMolgenisSpringTest {
     verify(progress).status("Refresh index done");
     verify(progress).status("Finished indexing for transaction id: [aabbcc]");
 
-    verify(dataService, times(2)).update(INDEX_ACTION, indexAction);
+    verifyIndexActionStatusUpdates(indexAction);
   }
 
   @Test
@@ -224,7 +233,7 @@ public class IndexJobServiceTest extends AbstractMolgenisSpringTest {
     verify(progress).status("Refresh index done");
     verify(progress).status("Finished indexing for transaction id: [aabbcc]");
 
-    verify(dataService, times(2)).update(INDEX_ACTION, indexAction);
+    verifyIndexActionStatusUpdates(indexAction);
 
     // make sure both the actions and the action job got deleted
     verify(dataService).delete(eq(INDEX_ACTION), streamCaptor.capture());
@@ -258,7 +267,7 @@ public class IndexJobServiceTest extends AbstractMolgenisSpringTest {
     verify(progress).status("Refresh index done");
     verify(progress).status("Finished indexing for transaction id: [aabbcc]");
 
-    verify(dataService, times(2)).update(INDEX_ACTION, indexAction);
+    verifyIndexActionStatusUpdates(indexAction);
 
     // make sure both the actions and the action job got deleted
     verify(dataService).delete(eq(INDEX_ACTION), streamCaptor.capture());
@@ -307,11 +316,11 @@ public class IndexJobServiceTest extends AbstractMolgenisSpringTest {
     verify(progress).status("Refresh index done");
     verify(progress).status("Finished indexing for transaction id: [aabbcc]");
 
-    verify(dataService, times(2)).update(INDEX_ACTION, indexAction);
+    verifyIndexActionStatusUpdates(indexAction);
   }
 
   @Test
-  public void indexSingleEntityindexServiceThrowsExceptionOnSecondEntityId() {
+  public void indexSingleEntityindexServiceThrowsExceptionOnSecondEntityType() {
     IndexAction indexAction1 =
         indexActionFactory
             .create()
@@ -325,7 +334,7 @@ public class IndexJobServiceTest extends AbstractMolgenisSpringTest {
         indexActionFactory
             .create()
             .setIndexActionGroup(indexActionGroup)
-            .setEntityTypeId("entityType")
+            .setEntityTypeId("otherEntityType")
             .setEntityId("entityId2")
             .setActionOrder(1)
             .setIndexStatus(IndexActionMetadata.IndexStatus.PENDING);
@@ -342,31 +351,71 @@ public class IndexJobServiceTest extends AbstractMolgenisSpringTest {
     mockGetAllIndexActions(of(indexAction1, indexAction2, indexAction3));
     indexActionGroup.setCount(3);
 
-    MolgenisDataException mde = new MolgenisDataException("Random unrecoverable exception");
-    doThrow(mde).when(indexService).deleteById(testEntityType, "entityId2");
+    EntityType otherEntityType = harness.createDynamicRefEntityType("OtherTypeTestRefDynamic");
+    when(dataService.hasEntityType("otherEntityType")).thenReturn(true);
+    when(dataService.getEntityType("otherEntityType")).thenReturn(otherEntityType);
+    when(dataService.findAll(eq("TypeTestRefDynamic"), any(Stream.class), any(Fetch.class)))
+        .thenAnswer(invocation -> Stream.empty());
+    when(dataService.findAll(eq("OtherTypeTestRefDynamic"), any(Stream.class), any(Fetch.class)))
+        .thenAnswer(invocation -> Stream.empty());
 
-    when(dataService.hasRepository("TypeTestRefDynamic")).thenReturn(true);
+    MolgenisDataException mde = new MolgenisDataException("Random unrecoverable exception");
+    doThrow(mde).when(indexService).deleteAll(eq(otherEntityType), any(Stream.class));
 
-    try {
-      indexJobService.executeJob(progress, transactionId);
-    } catch (Exception expected) {
-      assertSame(expected, mde);
-    }
+    indexJobService.executeJob(progress, transactionId);
 
-    verify(indexService).deleteById(testEntityType, "entityId1");
-    verify(indexService).deleteById(testEntityType, "entityId2");
-    verify(indexService).deleteById(testEntityType, "entityId3");
+    // row-level index actions are grouped per entity type
+    verify(indexService).deleteAll(eq(testEntityType), idStreamCaptor.capture());
+    assertEquals(idStreamCaptor.getValue().collect(toList()), asList("entityId1", "entityId3"));
+    verify(indexService).deleteAll(eq(otherEntityType), any(Stream.class));
+    verify(progress).progress(0, "Indexing 2 rows of TypeTestRefDynamic");
+    verify(progress).progress(2, "Indexing OtherTypeTestRefDynamic.entityId2");
 
     verify(indexService).refreshIndex();
 
     // Make sure the action status got updated and that the actionJob didn't get deleted
     assertEquals(indexAction1.getIndexStatus(), FINISHED);
     assertEquals(indexAction2.getIndexStatus(), FAILED);
-    verify(dataService, atLeast(1)).update(INDEX_ACTION, indexAction1);
-    verify(dataService, atLeast(1)).update(INDEX_ACTION, indexAction2);
+    assertEquals(indexAction3.getIndexStatus(), FINISHED);
     verify(dataService, never()).delete(INDEX_ACTION_GROUP, indexActionGroup);
   }
 
+  @Test
+  public void testGroupIndexActions() {
+    IndexAction rowAction0 = createIndexAction("entityType0", "entityId0");
+    IndexAction rowAction1 = createIndexAction("entityType1", "entityId1");
+    IndexAction rowAction2 = createIndexAction("entityType0", "entityId2");
+    IndexAction entityTypeAction = createIndexAction("entityType0", null);
+    IndexAction rowAction3 = createIndexAction("entityType0", "entityId3");
+
+    assertEquals(
+        IndexJobService.groupIndexActions(
+            asList(rowAction0, rowAction1, rowAction2, entityTypeAction, rowAction3)),
+        asList(
+            asList(rowAction0, rowAction2),
+            singletonList(rowAction1),
+            singletonList(entityTypeAction),
+            singletonList(rowAction3)));
+  }
+
+  private IndexAction createIndexAction(String entityTypeId, String entityId) {
+    return indexActionFactory
+        .create()
+        .setIndexActionGroup(indexActionGroup)
+        .setEntityTypeId(entityTypeId)
+        .setEntityId(entityId)
+        .setIndexStatus(IndexActionMetadata.IndexStatus.PENDING);
+  }
+
+  private void verifyIndexActionStatusUpdates(IndexAction indexAction) {
+    verify(dataService, times(2)).update(eq(INDEX_ACTION), indexActionStreamCaptor.capture());
+    indexActionStreamCaptor
+        .getAllValues()
+        .forEach(
+            indexActions ->
+                assertEquals(indexActions.collect(toList()), singletonList(indexAction)));
+  }
+
   @Configuration
   @Import({IndexTestConfig.class, TestHarnessConfig.class})
   public static class Config {
@@ -10,6 +10,7 @@ import org.molgenis.data.config.DataConfig;
 import org.molgenis.data.listeners.EntityListenersService;
 import org.molgenis.data.meta.MetaDataService;
 import org.molgenis.data.platform.decorators.SystemRepositoryDecoratorRegistryImpl;
+import org.molgenis.data.util.ConcurrentQueryExecutor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
@@ -18,6 +19,7 @@ import org.springframework.context.annotation.Import;
 @Import({
   DataConfig.class,
   EntityManagerImpl.class,
+  ConcurrentQueryExecutor.class,
   SystemRepositoryDecoratorRegistryImpl.class,
   EntityFactoryRegistry.class,
   EntityListenersService.class
@@ -1,6 +1,8 @@
 package org.molgenis.data.platform.decorators;
 
 import static java.util.Objects.requireNonNull;
+import static org.molgenis.data.platform.metrics.RepositoryLayer.BACKEND;
+import static org.molgenis.data.platform.metrics.RepositoryLayer.REPOSITORY;
 
 import org.molgenis.data.CascadeDeleteRepositoryDecorator;
 import org.molgenis.data.DataService;
@@ -22,6 +24,7 @@ import org.molgenis.data.index.IndexActionRepositoryDecorator;
 import org.molgenis.data.index.IndexedRepositoryDecoratorFactory;
 import org.molgenis.data.listeners.EntityListenerRepositoryDecorator;
 import org.molgenis.data.listeners.EntityListenersService;
+import org.molgenis.data.platform.metrics.RepositoryMetrics;
 import org.molgenis.data.security.RepositorySecurityDecorator;
 import org.molgenis.data.security.aggregation.AggregateAnonymizer;
 import org.molgenis.data.security.aggregation.AggregateAnonymizerRepositoryDecorator;
@@ -33,8 +36,10 @@ import org.molgenis.data.validation.EntityAttributesValidator;
 import org.molgenis.data.validation.QueryValidationRepositoryDecorator;
 import org.molgenis.data.validation.QueryValidator;
 import org.molgenis.data.validation.RepositoryValidationDecorator;
+import org.molgenis.data.validation.RepositoryValidationDecorator.ValidationScope;
 import org.molgenis.security.core.UserPermissionEvaluator;
 import org.molgenis.settings.AppSettings;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.PlatformTransactionManager;
 
@@ -60,6 +65,8 @@ public class MolgenisRepositoryDecoratorFactory implements RepositoryDecoratorFa
   private final UserPermissionEvaluator permissionService;
   private final RowLevelSecurityRepositoryDecoratorFactory
       rowLevelSecurityRepositoryDecoratorFactory;
+  private final ValidationScope validationScope;
+  private final RepositoryMetrics repositoryMetrics;
 
   public MolgenisRepositoryDecoratorFactory(
       EntityManager entityManager,
@@ -80,7 +87,9 @@ public class MolgenisRepositoryDecoratorFactory implements RepositoryDecoratorFa
       QueryValidator queryValidator,
       DefaultValueReferenceValidator defaultValueReferenceValidator,
       UserPermissionEvaluator permissionService,
-      RowLevelSecurityRepositoryDecoratorFactory rowLevelSecurityRepositoryDecoratorFactory) {
+      RowLevelSecurityRepositoryDecoratorFactory rowLevelSecurityRepositoryDecoratorFactory,
+      @Value("${validation.scope:BATCH}") ValidationScope validationScope,
+      RepositoryMetrics repositoryMetrics) {
 
     this.entityManager = requireNonNull(entityManager);
     this.entityAttributesValidator = requireNonNull(entityAttributesValidator);
@@ -102,74 +111,83 @@ public class MolgenisRepositoryDecoratorFactory implements RepositoryDecoratorFa
     this.permissionService = requireNonNull(permissionService);
     this.rowLevelSecurityRepositoryDecoratorFactory =
         requireNonNull(rowLevelSecurityRepositoryDecoratorFactory);
+    this.validationScope = requireNonNull(validationScope);
+    this.repositoryMetrics = requireNonNull(repositoryMetrics);
   }
 
   @Override
   public Repository<Entity> createDecoratedRepository(Repository<Entity> repository) {
     Repository<Entity> decoratedRepository = repository;
 
-    // 15. Query the L2 cache before querying the database
+    // 17. Record metrics of the backend operations
+    decoratedRepository = repositoryMetrics.decorate(decoratedRepository, BACKEND);
+
+    // 16. Query the L2 cache before querying the database
     decoratedRepository =
         new L2CacheRepositoryDecorator(decoratedRepository, l2Cache, transactionInformation);
 
-    // 14. Query the L1 cache before querying the database
+    // 15. Query the L1 cache before querying the database
     decoratedRepository = new L1CacheRepositoryDecorator(decoratedRepository, l1Cache);
 
-    // 13. Route specific queries to the index
+    // 14. Route specific queries to the index
     decoratedRepository = indexedRepositoryDecoratorFactory.create(decoratedRepository);
 
-    // 12. Query the L3 cache before querying the index
+    // 13. Query the L3 cache before querying the index
     decoratedRepository =
         new L3CacheRepositoryDecorator(decoratedRepository, l3Cache, transactionInformation);
 
-    // 11. Register the cud action needed to index indexed repositories
+    // 12. Register the cud action needed to index indexed repositories
     decoratedRepository =
         new IndexActionRepositoryDecorator(decoratedRepository, indexActionRegisterService);
 
-    // 10. Custom decorators for system entity types
+    // 11. Custom decorators for system entity types
     decoratedRepository = systemRepositoryDecoratorRegistry.decorate(decoratedRepository);
 
-    // 9. Perform cascading deletes
+    // 10. Perform cascading deletes
     decoratedRepository = new CascadeDeleteRepositoryDecorator(decoratedRepository, dataService);
 
-    // 8. Row level security decorator
+    // 9. Row level security decorator
     decoratedRepository =
         rowLevelSecurityRepositoryDecoratorFactory.createDecoratedRepository(decoratedRepository);
 
-    // 7. Entity reference resolver decorator
+    // 8. Entity reference resolver decorator
     decoratedRepository = new EntityReferenceResolverDecorator(decoratedRepository, entityManager);
 
-    // 6. Entity listener
+    // 7. Entity listener
     decoratedRepository =
         new EntityListenerRepositoryDecorator(decoratedRepository, entityListenersService);
 
-    // 5. validation decorator
+    // 6. validation decorator
     decoratedRepository =
         new RepositoryValidationDecorator(
             dataService,
             decoratedRepository,
             entityAttributesValidator,
-            defaultValueReferenceValidator);
+            defaultValueReferenceValidator,
+            validationScope);
 
-    // 4. aggregate anonymization decorator
+    // 5. aggregate anonymization decorator
     decoratedRepository =
         new AggregateAnonymizerRepositoryDecorator<>(
             decoratedRepository, aggregateAnonymizer, appSettings);
 
-    // 3. security decorator
+    // 4. security decorator
     decoratedRepository = new RepositorySecurityDecorator(decoratedRepository, permissionService);
 
-    // 2. transaction decorator
+    // 3. transaction decorator
     decoratedRepository =
         new TransactionalRepositoryDecorator<>(decoratedRepository, transactionManager);
 
-    // 1. query validation decorator
+    // 2. query validation decorator
     decoratedRepository =
         new QueryValidationRepositoryDecorator<>(decoratedRepository, queryValidator);
 
-    // 0. Dynamic decorators
+    // 1. Dynamic decorators
     decoratedRepository = dynamicRepositoryDecoratorRegistry.decorate(decoratedRepository);
 
+    // 0. Record metrics of the operations on the fully decorated repository
+    decoratedRepository = repositoryMetrics.decorate(decoratedRepository, REPOSITORY);
+
     return decoratedRepository;
   }
 }
@@ -0,0 +1,281 @@
+package org.molgenis.data.platform.metrics;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.molgenis.data.platform.metrics.RepositoryOperation.ADD;
+import static org.molgenis.data.platform.metrics.RepositoryOperation.AGGREGATE;
+import static org.molgenis.data.platform.metrics.RepositoryOperation.COUNT;
+import static org.molgenis.data.platform.metrics.RepositoryOperation.DELETE;
+import static org.molgenis.data.platform.metrics.RepositoryOperation.FIND_ALL;
+import static org.molgenis.data.platform.metrics.RepositoryOperation.FIND_ONE;
+import static org.molgenis.data.platform.metrics.RepositoryOperation.UPDATE;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.molgenis.data.AbstractRepositoryDecorator;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
+import org.molgenis.data.Query;
+import org.molgenis.data.Repository;
+import org.molgenis.data.aggregation.AggregateQuery;
+import org.molgenis.data.aggregation.AggregateResult;
+
+/**
+ * Repository decorator that records the latency of repository operations and the number of rows
+ * read and written.
+ *
+ * <p>Entity streams are read lazily, so the latency of an operation that returns a stream includes
+ * the time spent reading the stream but excludes the time spent by the consumer of the stream. It
+ * is recorded once the stream is exhausted or closed.
+ */
+class MetricsRepositoryDecorator<E extends Entity> extends AbstractRepositoryDecorator<E> {
+  private final RepositoryMeters repositoryMeters;
+
+  MetricsRepositoryDecorator(Repository<E> delegateRepository, RepositoryMeters repositoryMeters) {
+    super(delegateRepository);
+    this.repositoryMeters = requireNonNull(repositoryMeters);
+  }
+
+  @Override
+  public long count() {
+    return record(COUNT, () -> delegate().count());
+  }
+
+  @Override
+  public long count(Query<E> q) {
+    return record(COUNT, () -> delegate().count(q));
+  }
+
+  @Override
+  public Stream<E> findAll(Query<E> q) {
+    return recordStream(() -> delegate().findAll(q));
+  }
+
+  @Override
+  public Stream<E> findAll(Stream<Object> ids) {
+    return recordStream(() -> delegate().findAll(ids));
+  }
+
+  @Override
+  public Stream<E> findAll(Stream<Object> ids, Fetch fetch) {
+    return recordStream(() -> delegate().findAll(ids, fetch));
+  }
+
+  @Override
+  public void forEachBatched(Fetch fetch, Consumer<List<E>> consumer, int batchSize) {
+    long[] rows = {0};
+    long[] consumerNanos = {0};
+    long start = System.nanoTime();
+    try {
+      delegate()
+          .forEachBatched(
+              fetch,
+              batch -> {
+                long consumerStart = System.nanoTime();
+                try {
+                  consumer.accept(batch);
+                } finally {
+                  rows[0] += batch.size();
+                  consumerNanos[0] += System.nanoTime() - consumerStart;
+                }
+              },
+              batchSize);
+    } finally {
+      long nanos = System.nanoTime() - start - consumerNanos[0];
+      repositoryMeters.getTimer(FIND_ALL).record(nanos, NANOSECONDS);
+      repositoryMeters.incrementRows(FIND_ALL, rows[0]);
+    }
+  }
+
+  @Override
+  public E findOne(Query<E> q) {
+    return recordEntity(() -> delegate().findOne(q));
+  }
+
+  @Override
+  public E findOneById(Object id) {
+    return recordEntity(() -> delegate().findOneById(id));
+  }
+
+  @Override
+  public E findOneById(Object id, Fetch fetch) {
+    return recordEntity(() -> delegate().findOneById(id, fetch));
+  }
+
+  @Override
+  public AggregateResult aggregate(AggregateQuery aggregateQuery) {
+    return record(AGGREGATE, () -> delegate().aggregate(aggregateQuery));
+  }
+
+  @Override
+  public void add(E entity) {
+    record(ADD, () -> delegate().add(entity));
+    repositoryMeters.incrementRows(ADD, 1);
+  }
+
+  @Override
+  public Integer add(Stream<E> entities) {
+    Integer count = record(ADD, () -> delegate().add(entities));
+    if (count != null) {
+      repositoryMeters.incrementRows(ADD, count);
+    }
+    return count;
+  }
+
+  @Override
+  public void update(E entity) {
+    record(UPDATE, () -> delegate().update(entity));
+    repositoryMeters.incrementRows(UPDATE, 1);
+  }
+
+  @Override
+  public void update(Stream<E> entities) {
+    long[] rows = {0};
+    try {
+      record(UPDATE, () -> delegate().update(entities.peek(entity -> rows[0]++)));
+    } finally {
+      repositoryMeters.incrementRows(UPDATE, rows[0]);
+    }
+  }
+
+  @Override
+  public void upsertBatch(List<E> entities) {
+    record(UPDATE, () -> delegate().upsertBatch(entities));
+    repositoryMeters.incrementRows(UPDATE, entities.size());
+  }
+
+  @Override
+  public void delete(E entity) {
+    record(DELETE, () -> delegate().delete(entity));
+    repositoryMeters.incrementRows(DELETE, 1);
+  }
+
+  @Override
+  public void delete(Stream<E> entities) {
+    long[] rows = {0};
+    try {
+      record(DELETE, () -> delegate().delete(entities.peek(entity -> rows[0]++)));
+    } finally {
+      repositoryMeters.incrementRows(DELETE, rows[0]);
+    }
+  }
+
+  @Override
+  public void deleteById(Object id) {
+    record(DELETE, () -> delegate().deleteById(id));
+    repositoryMeters.incrementRows(DELETE, 1);
+  }
+
+  @Override
+  public void deleteAll(Stream<Object> ids) {
+    long[] rows = {0};
+    try {
+      record(DELETE, () -> delegate().deleteAll(ids.peek(id -> rows[0]++)));
+    } finally {
+      repositoryMeters.incrementRows(DELETE, rows[0]);
+    }
+  }
+
+  /** The number of deleted rows is unknown, only the latency is recorded. */
+  @Override
+  public void deleteAll() {
+    record(DELETE, () -> delegate().deleteAll());
+  }
+
+  private <R> R record(RepositoryOperation operation, Supplier<R> action) {
+    return repositoryMeters.getTimer(operation).record(action);
+  }
+
+  private void record(RepositoryOperation operation, Runnable action) {
+    repositoryMeters.getTimer(operation).record(action);
+  }
+
+  private E recordEntity(Supplier<E> action) {
+    E entity = record(FIND_ONE, action);
+    if (entity != null) {
+      repositoryMeters.incrementRows(FIND_ONE, 1);
+    }
+    return entity;
+  }
+
+  private Stream<E> recordStream(Supplier<Stream<E>> action) {
+    long start = System.nanoTime();
+    Stream<E> stream;
+    try {
+      stream = action.get();
+    } catch (RuntimeException e) {
+      repositoryMeters.getTimer(FIND_ALL).record(System.nanoTime() - start, NANOSECONDS);
+      throw e;
+    }
+    MeteredSpliterator spliterator =
+        new MeteredSpliterator(stream.spliterator(), System.nanoTime() - start);
+    return StreamSupport.stream(spliterator, false).onClose(stream::close).onClose(spliterator);
+  }
+
+  /**
+   * Spliterator that measures the time spent reading entities from the delegate spliterator and
+   * counts the entities read. The measurements are recorded when the spliterator is exhausted or
+   * when the stream is closed.
+   */
+  private class MeteredSpliterator implements Spliterator<E>, Runnable {
+    private final Spliterator<E> spliterator;
+    private long nanos;
+    private long rows;
+    private boolean recorded;
+    private E entity;
+
+    MeteredSpliterator(Spliterator<E> spliterator, long nanos) {
+      this.spliterator = requireNonNull(spliterator);
+      this.nanos = nanos;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super E> action) {
+      long start = System.nanoTime();
+      boolean advanced;
+      try {
+        advanced = spliterator.tryAdvance(nextEntity -> entity = nextEntity);
+      } finally {
+        nanos += System.nanoTime() - start;
+      }
+      if (!advanced) {
+        run();
+        return false;
+      }
+      rows++;
+      E nextEntity = entity;
+      entity = null;
+      action.accept(nextEntity);
+      return true;
+    }
+
+    @Override
+    public Spliterator<E> trySplit() {
+      return null;
+    }
+
+    @Override
+    public long estimateSize() {
+      return spliterator.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+      return spliterator.characteristics();
+    }
+
+    /** Records the measurements, only the first invocation has effect. */
+    @Override
+    public void run() {
+      if (!recorded) {
+        recorded = true;
+        repositoryMeters.getTimer(FIND_ALL).record(nanos, NANOSECONDS);
+        repositoryMeters.incrementRows(FIND_ALL, rows);
+      }
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package org.molgenis.data.platform.metrics;
+
+/** Layers in the repository decorator chain at which metrics are recorded. */
+public enum RepositoryLayer {
+  /** All repository decorators, as seen by the callers of the repository */
+  REPOSITORY("repository"),
+  /** The repository of the backend without decorators */
+  BACKEND("backend");
+
+  private final String tagValue;
+
+  RepositoryLayer(String tagValue) {
+    this.tagValue = tagValue;
+  }
+
+  String getTagValue() {
+    return tagValue;
+  }
+}
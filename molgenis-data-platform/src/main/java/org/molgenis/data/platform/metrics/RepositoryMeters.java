@@ -0,0 +1,81 @@
+package org.molgenis.data.platform.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Meters of the operations on a single repository layer. Meters are registered when they are first
+ * used, so operations that are never executed do not produce time series.
+ */
+class RepositoryMeters {
+  static final String METER_OPERATIONS = "repository.operations";
+  static final String METER_ROWS_READ = "repository.rows.read";
+  static final String METER_ROWS_WRITTEN = "repository.rows.written";
+  static final String TAG_OPERATION = "operation";
+
+  /** Fixed histogram buckets, keeps the number of time series per timer small */
+  private static final Duration[] LATENCY_BUCKETS = {
+    Duration.ofMillis(1),
+    Duration.ofMillis(5),
+    Duration.ofMillis(10),
+    Duration.ofMillis(50),
+    Duration.ofMillis(100),
+    Duration.ofMillis(500),
+    Duration.ofSeconds(1),
+    Duration.ofSeconds(5),
+    Duration.ofSeconds(10)
+  };
+
+  private final MeterRegistry meterRegistry;
+  private final Tags tags;
+  private final ConcurrentMap<RepositoryOperation, Timer> timers = new ConcurrentHashMap<>();
+  private final ConcurrentMap<RepositoryOperation, Counter> rowCounters =
+      new ConcurrentHashMap<>();
+
+  RepositoryMeters(MeterRegistry meterRegistry, Tags tags) {
+    this.meterRegistry = requireNonNull(meterRegistry);
+    this.tags = requireNonNull(tags);
+  }
+
+  Timer getTimer(RepositoryOperation operation) {
+    return timers.computeIfAbsent(
+        operation,
+        op ->
+            Timer.builder(METER_OPERATIONS)
+                .description("Latency of repository operations")
+                .tags(tags)
+                .tag(TAG_OPERATION, op.getTagValue())
+                .sla(LATENCY_BUCKETS)
+                .register(meterRegistry));
+  }
+
+  void incrementRows(RepositoryOperation operation, long rows) {
+    if (rows > 0) {
+      rowCounters.computeIfAbsent(operation, this::createRowCounter).increment(rows);
+    }
+  }
+
+  private Counter createRowCounter(RepositoryOperation operation) {
+    String name;
+    String description;
+    if (operation.isWrite()) {
+      name = METER_ROWS_WRITTEN;
+      description = "Number of rows written by repository operations";
+    } else {
+      name = METER_ROWS_READ;
+      description = "Number of rows read by repository operations";
+    }
+    return Counter.builder(name)
+        .description(description)
+        .tags(tags)
+        .tag(TAG_OPERATION, operation.getTagValue())
+        .register(meterRegistry);
+  }
+}
@@ -0,0 +1,86 @@
+package org.molgenis.data.platform.metrics;
+
+import static java.util.Objects.requireNonNull;
+import static org.molgenis.data.util.EntityTypeUtils.isSystemEntity;
+
+import com.google.common.collect.ImmutableSet;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Repository;
+import org.molgenis.data.meta.model.EntityType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Provides the meters of repository operations. Meters are tagged with the entity type, the layer
+ * in the repository decorator chain and the backend of the entity type.
+ *
+ * <p>The number of entity types is not bounded, so entity types do not get their own tag value by
+ * default. Operations on system entity types are recorded with the {@link #SYSTEM_ENTITY_TYPES} tag
+ * value and operations on other entity types with the {@link #OTHER_ENTITY_TYPES} tag value, unless
+ * the entity type is listed in the {@code metrics.repository.entity_types} property.
+ */
+@Component
+public class RepositoryMetrics {
+  static final String SYSTEM_ENTITY_TYPES = "system";
+  static final String OTHER_ENTITY_TYPES = "other";
+
+  static final String TAG_ENTITY_TYPE = "entityType";
+  static final String TAG_LAYER = "layer";
+  static final String TAG_BACKEND = "backend";
+
+  private final MeterRegistry meterRegistry;
+  private final Set<String> taggedEntityTypeIds;
+  private final ConcurrentMap<Tags, RepositoryMeters> repositoryMeters = new ConcurrentHashMap<>();
+
+  RepositoryMetrics(
+      MeterRegistry meterRegistry,
+      @Value("${metrics.repository.entity_types:}") Set<String> taggedEntityTypeIds) {
+    this.meterRegistry = requireNonNull(meterRegistry);
+    this.taggedEntityTypeIds = ImmutableSet.copyOf(taggedEntityTypeIds);
+  }
+
+  /**
+   * Decorates a repository with a decorator that records metrics of the repository operations.
+   *
+   * @param repository repository to decorate
+   * @param layer layer in the repository decorator chain at which the repository is decorated
+   * @return decorated repository
+   */
+  public <E extends Entity> Repository<E> decorate(
+      Repository<E> repository, RepositoryLayer layer) {
+    RepositoryMeters meters = getMeters(repository.getEntityType(), layer);
+    return new MetricsRepositoryDecorator<>(repository, meters);
+  }
+
+  /**
+   * Returns the meters of the repository of the given entity type at the given layer.
+   *
+   * @param entityType entity type
+   * @param layer layer in the repository decorator chain, e.g. the backend
+   */
+  RepositoryMeters getMeters(EntityType entityType, RepositoryLayer layer) {
+    String backend = entityType.getBackend();
+    Tags tags =
+        Tags.of(
+            TAG_ENTITY_TYPE,
+            getEntityTypeTagValue(entityType),
+            TAG_LAYER,
+            layer.getTagValue(),
+            TAG_BACKEND,
+            backend != null ? backend : "unknown");
+    return repositoryMeters.computeIfAbsent(tags, key -> new RepositoryMeters(meterRegistry, key));
+  }
+
+  private String getEntityTypeTagValue(EntityType entityType) {
+    String entityTypeId = entityType.getId();
+    if (taggedEntityTypeIds.contains(entityTypeId)) {
+      return entityTypeId;
+    }
+    return isSystemEntity(entityType) ? SYSTEM_ENTITY_TYPES : OTHER_ENTITY_TYPES;
+  }
+}
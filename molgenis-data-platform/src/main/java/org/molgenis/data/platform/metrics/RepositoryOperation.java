@@ -0,0 +1,28 @@
+package org.molgenis.data.platform.metrics;
+
+/** Repository operations for which metrics are recorded. */
+enum RepositoryOperation {
+  FIND_ALL("findAll", false),
+  FIND_ONE("findOne", false),
+  COUNT("count", false),
+  AGGREGATE("aggregate", false),
+  ADD("add", true),
+  UPDATE("update", true),
+  DELETE("delete", true);
+
+  private final String tagValue;
+  private final boolean write;
+
+  RepositoryOperation(String tagValue, boolean write) {
+    this.tagValue = tagValue;
+    this.write = write;
+  }
+
+  String getTagValue() {
+    return tagValue;
+  }
+
+  boolean isWrite() {
+    return write;
+  }
+}
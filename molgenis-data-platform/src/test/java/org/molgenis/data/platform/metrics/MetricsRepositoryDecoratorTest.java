@@ -0,0 +1,175 @@
+package org.molgenis.data.platform.metrics;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.molgenis.data.platform.metrics.RepositoryMeters.METER_OPERATIONS;
+import static org.molgenis.data.platform.metrics.RepositoryMeters.METER_ROWS_READ;
+import static org.molgenis.data.platform.metrics.RepositoryMeters.METER_ROWS_WRITTEN;
+import static org.molgenis.data.platform.metrics.RepositoryMeters.TAG_OPERATION;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.mockito.Mock;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Fetch;
+import org.molgenis.data.Query;
+import org.molgenis.data.Repository;
+import org.molgenis.test.AbstractMockitoTest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class MetricsRepositoryDecoratorTest extends AbstractMockitoTest {
+  @Mock private Repository<Entity> delegateRepository;
+
+  private MeterRegistry meterRegistry;
+  private MetricsRepositoryDecorator<Entity> metricsRepositoryDecorator;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    meterRegistry = new SimpleMeterRegistry();
+    RepositoryMeters repositoryMeters = new RepositoryMeters(meterRegistry, Tags.empty());
+    metricsRepositoryDecorator =
+        new MetricsRepositoryDecorator<>(delegateRepository, repositoryMeters);
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testMetricsRepositoryDecorator() {
+    new MetricsRepositoryDecorator<>(delegateRepository, null);
+  }
+
+  @Test
+  public void testCount() {
+    when(delegateRepository.count()).thenReturn(3L);
+    assertEquals(metricsRepositoryDecorator.count(), 3L);
+    assertEquals(getTimerCount("count"), 1L);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testFindAll() {
+    Query<Entity> query = mock(Query.class);
+    Entity entity0 = mock(Entity.class);
+    Entity entity1 = mock(Entity.class);
+    when(delegateRepository.findAll(query)).thenReturn(Stream.of(entity0, entity1));
+
+    Stream<Entity> entities = metricsRepositoryDecorator.findAll(query);
+    assertNull(meterRegistry.find(METER_OPERATIONS).timer());
+    assertEquals(entities.collect(toList()), asList(entity0, entity1));
+    assertEquals(getTimerCount("findAll"), 1L);
+    assertEquals(getCounterCount(METER_ROWS_READ, "findAll"), 2.0);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testFindAllClosed() {
+    Query<Entity> query = mock(Query.class);
+    when(delegateRepository.findAll(query)).thenReturn(Stream.of(mock(Entity.class)));
+
+    metricsRepositoryDecorator.findAll(query).close();
+    assertEquals(getTimerCount("findAll"), 1L);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testForEachBatched() {
+    Fetch fetch = mock(Fetch.class);
+    List<Entity> batch = asList(mock(Entity.class), mock(Entity.class));
+    doAnswer(
+            invocation -> {
+              ((Consumer<List<Entity>>) invocation.getArgument(1)).accept(batch);
+              return null;
+            })
+        .when(delegateRepository)
+        .forEachBatched(eq(fetch), any(), eq(1000));
+
+    Consumer<List<Entity>> consumer = mock(Consumer.class);
+    metricsRepositoryDecorator.forEachBatched(fetch, consumer, 1000);
+    verify(consumer).accept(batch);
+    assertEquals(getTimerCount("findAll"), 1L);
+    assertEquals(getCounterCount(METER_ROWS_READ, "findAll"), 2.0);
+  }
+
+  @Test
+  public void testFindOneById() {
+    Entity entity = mock(Entity.class);
+    when(delegateRepository.findOneById("id")).thenReturn(entity);
+    assertEquals(metricsRepositoryDecorator.findOneById("id"), entity);
+    assertEquals(getTimerCount("findOne"), 1L);
+    assertEquals(getCounterCount(METER_ROWS_READ, "findOne"), 1.0);
+  }
+
+  @Test
+  public void testFindOneByIdUnknown() {
+    assertNull(metricsRepositoryDecorator.findOneById("id"));
+    assertEquals(getTimerCount("findOne"), 1L);
+    assertNull(meterRegistry.find(METER_ROWS_READ).counter());
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testAddStream() {
+    Stream<Entity> entities = mock(Stream.class);
+    when(delegateRepository.add(entities)).thenReturn(3);
+    assertEquals(metricsRepositoryDecorator.add(entities), Integer.valueOf(3));
+    assertEquals(getTimerCount("add"), 1L);
+    assertEquals(getCounterCount(METER_ROWS_WRITTEN, "add"), 3.0);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testUpdateStream() {
+    doAnswer(invocation -> ((Stream<Entity>) invocation.getArgument(0)).count())
+        .when(delegateRepository)
+        .update(any(Stream.class));
+
+    metricsRepositoryDecorator.update(Stream.of(mock(Entity.class), mock(Entity.class)));
+    assertEquals(getTimerCount("update"), 1L);
+    assertEquals(getCounterCount(METER_ROWS_WRITTEN, "update"), 2.0);
+  }
+
+  @Test
+  public void testDeleteById() {
+    metricsRepositoryDecorator.deleteById("id");
+    verify(delegateRepository).deleteById("id");
+    assertEquals(getTimerCount("delete"), 1L);
+    assertEquals(getCounterCount(METER_ROWS_WRITTEN, "delete"), 1.0);
+  }
+
+  @Test
+  public void testDeleteAll() {
+    metricsRepositoryDecorator.deleteAll();
+    verify(delegateRepository).deleteAll();
+    assertEquals(getTimerCount("delete"), 1L);
+    assertNull(meterRegistry.find(METER_ROWS_WRITTEN).counter());
+  }
+
+  @Test(expectedExceptions = RuntimeException.class)
+  public void testCountException() {
+    when(delegateRepository.count()).thenThrow(new RuntimeException());
+    try {
+      metricsRepositoryDecorator.count();
+    } finally {
+      assertEquals(getTimerCount("count"), 1L);
+    }
+  }
+
+  private long getTimerCount(String operation) {
+    return meterRegistry.get(METER_OPERATIONS).tag(TAG_OPERATION, operation).timer().count();
+  }
+
+  private double getCounterCount(String name, String operation) {
+    return meterRegistry.get(name).tag(TAG_OPERATION, operation).counter().count();
+  }
+}
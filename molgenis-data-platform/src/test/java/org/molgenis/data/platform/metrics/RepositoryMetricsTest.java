@@ -0,0 +1,87 @@
+package org.molgenis.data.platform.metrics;
+
+import static java.util.stream.Collectors.toSet;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.molgenis.data.platform.metrics.RepositoryLayer.BACKEND;
+import static org.molgenis.data.platform.metrics.RepositoryLayer.REPOSITORY;
+import static org.molgenis.data.platform.metrics.RepositoryMeters.METER_OPERATIONS;
+import static org.molgenis.data.platform.metrics.RepositoryMetrics.OTHER_ENTITY_TYPES;
+import static org.molgenis.data.platform.metrics.RepositoryMetrics.SYSTEM_ENTITY_TYPES;
+import static org.molgenis.data.platform.metrics.RepositoryMetrics.TAG_ENTITY_TYPE;
+import static org.molgenis.data.platform.metrics.RepositoryOperation.COUNT;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableSet;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Repository;
+import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.meta.model.Package;
+import org.molgenis.test.AbstractMockitoTest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class RepositoryMetricsTest extends AbstractMockitoTest {
+  private MeterRegistry meterRegistry;
+  private RepositoryMetrics repositoryMetrics;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    meterRegistry = new SimpleMeterRegistry();
+    repositoryMetrics = new RepositoryMetrics(meterRegistry, ImmutableSet.of("entityType0"));
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testRepositoryMetrics() {
+    new RepositoryMetrics(null, ImmutableSet.of());
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testDecorate() {
+    EntityType entityType = createEntityType("entityType0");
+    Repository<Entity> repository = mock(Repository.class);
+    when(repository.getEntityType()).thenReturn(entityType);
+    assertTrue(
+        repositoryMetrics.decorate(repository, REPOSITORY) instanceof MetricsRepositoryDecorator);
+  }
+
+  @Test
+  public void testGetMetersSameTags() {
+    EntityType entityType = createEntityType("entityType0");
+    assertSame(
+        repositoryMetrics.getMeters(entityType, BACKEND),
+        repositoryMetrics.getMeters(entityType, BACKEND));
+  }
+
+  @Test
+  public void testGetMetersBoundedEntityTypes() {
+    Package systemPackage = mock(Package.class);
+    when(systemPackage.getId()).thenReturn("sys");
+    EntityType systemEntityType = createEntityType("sys_EntityType");
+    when(systemEntityType.getPackage()).thenReturn(systemPackage);
+
+    repositoryMetrics.getMeters(createEntityType("entityType0"), BACKEND).getTimer(COUNT);
+    repositoryMetrics.getMeters(createEntityType("entityType1"), BACKEND).getTimer(COUNT);
+    repositoryMetrics.getMeters(systemEntityType, BACKEND).getTimer(COUNT);
+    assertEquals(
+        meterRegistry
+            .find(METER_OPERATIONS)
+            .timers()
+            .stream()
+            .map(timer -> timer.getId().getTag(TAG_ENTITY_TYPE))
+            .collect(toSet()),
+        ImmutableSet.of("entityType0", OTHER_ENTITY_TYPES, SYSTEM_ENTITY_TYPES));
+  }
+
+  private static EntityType createEntityType(String entityTypeId) {
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getId()).thenReturn(entityTypeId);
+    when(entityType.getBackend()).thenReturn("PostgreSQL");
+    return entityType;
+  }
+}
@@ -6,6 +6,7 @@ import javax.sql.DataSource;
 import org.molgenis.data.DataService;
 import org.molgenis.data.RepositoryCollection;
 import org.molgenis.data.postgresql.identifier.EntityTypeRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -17,18 +18,24 @@ public class PostgreSqlConfiguration {
   private final DataService dataService;
   private final PostgreSqlExceptionTranslator postgreSqlExceptionTranslator;
   private final EntityTypeRegistry entityTypeRegistry;
+  private final int fetchSize;
+  private final boolean bulkLoad;
 
   public PostgreSqlConfiguration(
       PostgreSqlEntityFactory postgreSqlEntityFactory,
       DataSource dataSource,
       DataService dataService,
       PostgreSqlExceptionTranslator postgreSqlExceptionTranslator,
-      EntityTypeRegistry entityTypeRegistry) {
+      EntityTypeRegistry entityTypeRegistry,
+      @Value("${db_fetch_size:1000}") int fetchSize,
+      @Value("${db_bulk_load:false}") boolean bulkLoad) {
     this.postgreSqlEntityFactory = requireNonNull(postgreSqlEntityFactory);
     this.dataSource = requireNonNull(dataSource);
     this.dataService = requireNonNull(dataService);
     this.postgreSqlExceptionTranslator = requireNonNull(postgreSqlExceptionTranslator);
     this.entityTypeRegistry = requireNonNull(entityTypeRegistry);
+    this.fetchSize = fetchSize;
+    this.bulkLoad = bulkLoad;
   }
 
   @Bean
@@ -42,7 +49,12 @@ public class PostgreSqlConfiguration {
   public RepositoryCollection postgreSqlRepositoryCollection() {
     return new PostgreSqlRepositoryCollectionDecorator(
         new PostgreSqlRepositoryCollection(
-            postgreSqlEntityFactory, dataSource, jdbcTemplate(), dataService),
+            postgreSqlEntityFactory,
+            dataSource,
+            jdbcTemplate(),
+            dataService,
+            fetchSize,
+            bulkLoad),
         entityTypeRegistry);
   }
 }
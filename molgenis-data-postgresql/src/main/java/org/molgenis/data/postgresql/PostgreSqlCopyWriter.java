@@ -0,0 +1,126 @@
+package org.molgenis.data.postgresql;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.format.DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+import static java.util.Objects.requireNonNull;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import javax.sql.DataSource;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+
+/**
+ * Writes rows to a table with the PostgreSQL COPY FROM STDIN protocol in CSV format. The rows are
+ * written using the connection bound to the current transaction, if any.
+ *
+ * <p>Values must be the PostgreSQL values as returned by {@link
+ * PostgreSqlUtils#getPostgreSqlValue}. <code>null</code> values are written as unquoted empty
+ * strings, all other values are quoted so that empty strings are preserved.
+ */
+class PostgreSqlCopyWriter {
+  private static final Logger LOG = LoggerFactory.getLogger(PostgreSqlCopyWriter.class);
+
+  /** Number of characters buffered before they are sent to the server */
+  private static final int BUFFER_SIZE = 65536;
+
+  private final DataSource dataSource;
+  private final SQLExceptionTranslator exceptionTranslator;
+
+  PostgreSqlCopyWriter(DataSource dataSource, SQLExceptionTranslator exceptionTranslator) {
+    this.dataSource = requireNonNull(dataSource);
+    this.exceptionTranslator = requireNonNull(exceptionTranslator);
+  }
+
+  /**
+   * Copies rows using the given COPY FROM STDIN statement
+   *
+   * @param sql COPY ... FROM STDIN statement with CSV format
+   * @param rows rows of PostgreSQL values in the column order of the statement
+   * @return number of copied rows
+   */
+  long copy(String sql, Iterable<Object[]> rows) {
+    Connection connection = DataSourceUtils.getConnection(dataSource);
+    try {
+      CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+      try {
+        StringBuilder buffer = new StringBuilder(BUFFER_SIZE);
+        for (Object[] row : rows) {
+          appendCsvRow(buffer, row);
+          if (buffer.length() >= BUFFER_SIZE) {
+            writeToCopy(copyIn, buffer);
+          }
+        }
+        if (buffer.length() > 0) {
+          writeToCopy(copyIn, buffer);
+        }
+        long nrRows = copyIn.endCopy();
+        LOG.trace("Copied {} rows", nrRows);
+        return nrRows;
+      } finally {
+        if (copyIn.isActive()) {
+          copyIn.cancelCopy();
+        }
+      }
+    } catch (SQLException e) {
+      throw translateException(sql, e);
+    } finally {
+      DataSourceUtils.releaseConnection(connection, dataSource);
+    }
+  }
+
+  private static void writeToCopy(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+    byte[] bytes = buffer.toString().getBytes(UTF_8);
+    copyIn.writeToCopy(bytes, 0, bytes.length);
+    buffer.setLength(0);
+  }
+
+  private DataAccessException translateException(String sql, SQLException e) {
+    DataAccessException dataAccessException = exceptionTranslator.translate("COPY", sql, e);
+    return dataAccessException != null
+        ? dataAccessException
+        : new UncategorizedSQLException("COPY", sql, e);
+  }
+
+  static void appendCsvRow(StringBuilder buffer, Object[] row) {
+    for (int i = 0; i < row.length; ++i) {
+      if (i > 0) {
+        buffer.append(',');
+      }
+      appendCsvValue(buffer, row[i]);
+    }
+    buffer.append('\n');
+  }
+
+  private static void appendCsvValue(StringBuilder buffer, Object value) {
+    if (value == null) {
+      return;
+    }
+
+    String text;
+    if (value instanceof Boolean) {
+      text = (Boolean) value ? "t" : "f";
+    } else if (value instanceof OffsetDateTime) {
+      text = ((OffsetDateTime) value).format(ISO_OFFSET_DATE_TIME);
+    } else {
+      text = value.toString();
+    }
+
+    buffer.append('"');
+    for (int i = 0; i < text.length(); ++i) {
+      char c = text.charAt(i);
+      if (c == '"') {
+        buffer.append('"');
+      }
+      buffer.append(c);
+    }
+    buffer.append('"');
+  }
+}
@@ -0,0 +1,192 @@
+package org.molgenis.data.postgresql;
+
+import static java.util.Objects.requireNonNull;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.IntFunction;
+import javax.sql.DataSource;
+import org.molgenis.data.Entity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Iterator over the result of a SQL select that reads rows from a server-side cursor, fetch size
+ * rows at a time.
+ *
+ * <p>PostgreSQL only keeps a cursor open within a transaction, so the cursor is bound to the
+ * transaction that is active when iteration starts. If no transaction is active at that moment, or
+ * if the transaction completes before all rows have been read, the remaining entities are retrieved
+ * with the given fallback function which receives the number of rows that were already read.
+ *
+ * <p>The cursor is closed when all rows have been read, when {@link #close()} is called or when the
+ * transaction completes, whichever comes first.
+ */
+class PostgreSqlCursorIterator implements Iterator<Entity>, AutoCloseable {
+  private static final Logger LOG = LoggerFactory.getLogger(PostgreSqlCursorIterator.class);
+
+  private enum State {
+    INITIAL,
+    CURSOR,
+    FALLBACK,
+    CLOSED
+  }
+
+  private final DataSource dataSource;
+  private final JdbcTemplate jdbcTemplate;
+  private final String sql;
+  private final List<Object> parameters;
+  private final RowMapper<Entity> rowMapper;
+  private final int fetchSize;
+  private final IntFunction<Iterator<Entity>> fallback;
+
+  private State state = State.INITIAL;
+  private Connection connection;
+  private PreparedStatement statement;
+  private ResultSet resultSet;
+  private int rowNum;
+  private Entity nextEntity;
+  private Iterator<Entity> fallbackIterator;
+
+  PostgreSqlCursorIterator(
+      DataSource dataSource,
+      JdbcTemplate jdbcTemplate,
+      String sql,
+      List<Object> parameters,
+      RowMapper<Entity> rowMapper,
+      int fetchSize,
+      IntFunction<Iterator<Entity>> fallback) {
+    this.dataSource = requireNonNull(dataSource);
+    this.jdbcTemplate = requireNonNull(jdbcTemplate);
+    this.sql = requireNonNull(sql);
+    this.parameters = requireNonNull(parameters);
+    this.rowMapper = rowMapper;
+    this.fetchSize = fetchSize;
+    this.fallback = requireNonNull(fallback);
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (nextEntity != null) {
+      return true;
+    }
+    switch (state) {
+      case INITIAL:
+        if (!openCursor()) {
+          state = State.FALLBACK;
+        }
+        return hasNext();
+      case CURSOR:
+        return readNext();
+      case FALLBACK:
+        if (fallbackIterator == null) {
+          fallbackIterator = fallback.apply(rowNum);
+        }
+        return fallbackIterator.hasNext();
+      case CLOSED:
+        return false;
+      default:
+        throw new IllegalStateException(state.toString());
+    }
+  }
+
+  @Override
+  public Entity next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    if (nextEntity != null) {
+      Entity entity = nextEntity;
+      nextEntity = null;
+      return entity;
+    }
+    return fallbackIterator.next();
+  }
+
+  @Override
+  public void close() {
+    closeCursor();
+    state = State.CLOSED;
+    nextEntity = null;
+  }
+
+  private boolean openCursor() {
+    if (!TransactionSynchronizationManager.isActualTransactionActive()
+        || !TransactionSynchronizationManager.isSynchronizationActive()) {
+      return false;
+    }
+
+    connection = DataSourceUtils.getConnection(dataSource);
+    try {
+      if (connection.getAutoCommit()) {
+        // the PostgreSQL driver ignores the fetch size in auto-commit mode
+        releaseConnection();
+        return false;
+      }
+
+      LOG.trace("Opening cursor for SQL: {}, parameters: {}", sql, parameters);
+      statement = connection.prepareStatement(sql);
+      statement.setFetchSize(fetchSize);
+      new ArgumentPreparedStatementSetter(parameters.toArray()).setValues(statement);
+      resultSet = statement.executeQuery();
+    } catch (SQLException e) {
+      closeCursor();
+      throw jdbcTemplate.getExceptionTranslator().translate("PostgreSqlCursorIterator", sql, e);
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronizationAdapter() {
+          @Override
+          public void beforeCompletion() {
+            if (state == State.CURSOR) {
+              LOG.debug("Transaction completes before cursor was exhausted, switching to batches");
+              closeCursor();
+              state = State.FALLBACK;
+            }
+          }
+        });
+    state = State.CURSOR;
+    return true;
+  }
+
+  private boolean readNext() {
+    try {
+      if (resultSet.next()) {
+        nextEntity = rowMapper.mapRow(resultSet, rowNum++);
+        return true;
+      }
+    } catch (SQLException e) {
+      close();
+      throw jdbcTemplate.getExceptionTranslator().translate("PostgreSqlCursorIterator", sql, e);
+    }
+    close();
+    return false;
+  }
+
+  private void closeCursor() {
+    JdbcUtils.closeResultSet(resultSet);
+    resultSet = null;
+    JdbcUtils.closeStatement(statement);
+    statement = null;
+    releaseConnection();
+  }
+
+  private void releaseConnection() {
+    if (connection != null) {
+      DataSourceUtils.releaseConnection(connection, dataSource);
+      connection = null;
+    }
+  }
+}
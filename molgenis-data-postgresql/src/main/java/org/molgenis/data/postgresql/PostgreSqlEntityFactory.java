@@ -14,7 +14,9 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityManager;
 import org.molgenis.data.Fetch;
@@ -22,6 +24,7 @@ import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.IllegalAttributeTypeException;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.meta.model.EntityTypeSchema;
 import org.molgenis.util.UnexpectedEnumException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,43 +54,44 @@ class PostgreSqlEntityFactory {
     private final EntityManager entityManager;
     private final EntityType entityType;
     private final Fetch fetch;
+    /** non-computed attributes in the fetch with their names and column names */
+    private final Attribute[] attributes;
+    private final String[] attributeNames;
+    private final String[] columnNames;
 
     private EntityMapper(EntityManager entityManager, EntityType entityType, Fetch fetch) {
       this.entityManager = requireNonNull(entityManager);
       this.entityType = requireNonNull(entityType);
       this.fetch = fetch; // can be null
+
+      EntityTypeSchema entityTypeSchema = entityType.getSchema();
+      List<Integer> indexes = new ArrayList<>(entityTypeSchema.size());
+      for (int i = 0; i < entityTypeSchema.size(); i++) {
+        if ((fetch == null || fetch.hasField(entityTypeSchema.getName(i)))
+            && !entityTypeSchema.isComputed(i)) {
+          indexes.add(i);
+        }
+      }
+      attributes = new Attribute[indexes.size()];
+      attributeNames = new String[indexes.size()];
+      columnNames = new String[indexes.size()];
+      for (int i = 0; i < indexes.size(); i++) {
+        int index = indexes.get(i);
+        attributes[i] = entityTypeSchema.getAttribute(index);
+        attributeNames[i] = entityTypeSchema.getName(index);
+        columnNames[i] = getColumnName(attributes[i], false);
+      }
     }
 
     @Override
     public Entity mapRow(ResultSet resultSet, int i) throws SQLException {
       Entity e = entityManager.createFetch(entityType, fetch);
-
-      // TODO performance, iterate over fetch if available
-      for (Attribute attr : entityType.getAtomicAttributes()) {
-        if (fetch == null || fetch.hasField(attr.getName())) {
-          if (attr.getExpression() != null) {
-            continue;
-          }
-
-          e.set(attr.getName(), mapValue(resultSet, attr));
-        }
+      for (int j = 0; j < attributes.length; j++) {
+        e.set(attributeNames[j], mapValue(resultSet, attributes[j], columnNames[j]));
       }
       return e;
     }
 
-    /**
-     * Maps a single results set value to an entity value. See the JDBC 4.0 specification appendix B
-     * titled "Data Type Conversion Tables" for conversion rules.
-     *
-     * @param resultSet result set
-     * @param attr attribute
-     * @return value for the given attribute in the type defined by the attribute type
-     * @throws SQLException if an error occurs reading from the result set
-     */
-    private Object mapValue(ResultSet resultSet, Attribute attr) throws SQLException {
-      return mapValue(resultSet, attr, getColumnName(attr, false));
-    }
-
     /**
      * Maps a single results set value to an entity value. See the JDBC 4.0 specification appendix B
      * titled "Data Type Conversion Tables" for conversion rules.
@@ -33,6 +33,7 @@ import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.ColumnMode.I
 import static org.molgenis.data.postgresql.PostgreSqlQueryUtils.getPersistedAttributes;
 import static org.molgenis.data.postgresql.PostgreSqlQueryUtils.getTableAttributes;
 import static org.molgenis.data.postgresql.PostgreSqlQueryUtils.isPersistedInPostgreSql;
+import static org.molgenis.data.postgresql.PostgreSqlUtils.getPostgreSqlValue;
 import static org.molgenis.data.util.EntityTypeUtils.isMultipleReferenceType;
 import static org.molgenis.data.util.EntityTypeUtils.isSingleReferenceType;
 import static org.molgenis.data.util.EntityTypeUtils.isStringType;
@@ -43,14 +44,17 @@ import java.text.MessageFormat;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
+import javax.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.molgenis.data.Entity;
 import org.molgenis.data.MolgenisDataException;
+import org.molgenis.data.PermissionFilter;
 import org.molgenis.data.Query;
 import org.molgenis.data.QueryRule;
 import org.molgenis.data.QueryRule.Operator;
@@ -66,6 +70,9 @@ import org.molgenis.data.util.EntityTypeUtils;
 import org.molgenis.util.UnexpectedEnumException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.security.acls.domain.GrantedAuthoritySid;
+import org.springframework.security.acls.domain.PrincipalSid;
+import org.springframework.security.acls.model.Sid;
 
 /**
  * Utility class that generates the SQL used by {@link PostgreSqlRepository} and {@link
@@ -437,6 +444,34 @@ class PostgreSqlQueryGenerator {
     return sql.toString();
   }
 
+  /**
+   * Returns SQL to insert a row in the entity table or, if a row with the same id already exists,
+   * to update all other columns of that row.
+   */
+  static String getSqlUpsert(EntityType entityType) {
+    Attribute idAttribute = entityType.getIdAttribute();
+    String idColumnName = getColumnName(idAttribute);
+
+    String updateColumns =
+        getTableAttributes(entityType)
+            .map(PostgreSqlNameGenerator::getColumnName)
+            .filter(columnName -> !columnName.equals(idColumnName))
+            .map(columnName -> columnName + " = EXCLUDED." + columnName)
+            .collect(joining(", "));
+
+    StringBuilder sql =
+        new StringBuilder(getSqlInsert(entityType))
+            .append(" ON CONFLICT (")
+            .append(idColumnName)
+            .append(')');
+    if (updateColumns.isEmpty()) {
+      sql.append(" DO NOTHING");
+    } else {
+      sql.append(" DO UPDATE SET ").append(updateColumns);
+    }
+    return sql.toString();
+  }
+
   static String getSqlInsertJunction(EntityType entityType, Attribute attr) {
     String junctionTableName = getJunctionTableName(entityType, attr);
     return "INSERT INTO "
@@ -450,6 +485,32 @@ class PostgreSqlQueryGenerator {
         + ") VALUES (?,?,?)";
   }
 
+  /** Returns SQL to copy CSV formatted rows from STDIN into the entity table. */
+  static String getSqlCopy(EntityType entityType) {
+    String columns =
+        getTableAttributes(entityType)
+            .map(PostgreSqlNameGenerator::getColumnName)
+            .collect(joining(", "));
+    return "COPY "
+        + getTableName(entityType)
+        + " ("
+        + columns
+        + ") FROM STDIN WITH (FORMAT csv)";
+  }
+
+  /** Returns SQL to copy CSV formatted rows from STDIN into the junction table. */
+  static String getSqlCopyJunction(EntityType entityType, Attribute attr) {
+    return "COPY "
+        + getJunctionTableName(entityType, attr)
+        + " ("
+        + getJunctionTableOrderColumnName()
+        + ','
+        + getColumnName(entityType.getIdAttribute())
+        + ','
+        + getColumnName(attr)
+        + ") FROM STDIN WITH (FORMAT csv)";
+  }
+
   static String getSqlDeleteAll(EntityType entityType) {
     return "DELETE FROM " + getTableName(entityType);
   }
@@ -541,6 +602,22 @@ class PostgreSqlQueryGenerator {
 
   static <E extends Entity> String getSqlSelect(
       EntityType entityType, Query<E> q, List<Object> parameters, boolean includeMrefs) {
+    return getSqlSelect(entityType, q, parameters, includeMrefs, null);
+  }
+
+  /**
+   * Produces SQL to select the entities that match the given query. If a keyset entity is given
+   * only the entities that follow this entity in the query sort order are selected (keyset
+   * pagination), see {@link #isKeysetPaginationSupported(EntityType, Query)}.
+   *
+   * @param keysetEntity entity after which to continue or <code>null</code>
+   */
+  static <E extends Entity> String getSqlSelect(
+      EntityType entityType,
+      Query<E> q,
+      List<Object> parameters,
+      boolean includeMrefs,
+      @Nullable Entity keysetEntity) {
     final StringBuilder select = new StringBuilder("SELECT ");
     if (isDistinctSelectRequired(entityType, q)) {
       select.append("DISTINCT ");
@@ -616,6 +693,10 @@ class PostgreSqlQueryGenerator {
     StringBuilder result = new StringBuilder().append(select).append(getSqlFrom(entityType, q));
     // where
     String where = getSqlWhere(entityType, q, parameters, new AtomicInteger());
+    if (keysetEntity != null) {
+      String keysetWhere = getSqlWhereKeyset(entityType, q, keysetEntity, parameters);
+      where = where.length() > 0 ? '(' + where + ") AND " + keysetWhere : keysetWhere;
+    }
     if (where.length() > 0) {
       result.append(" WHERE ").append(where);
     }
@@ -1026,6 +1107,16 @@ class PostgreSqlQueryGenerator {
           }
           result.append(predicate);
           break;
+        case PERMITTED:
+          if (result.length() > 0
+              && !result.toString().endsWith(" OR ")
+              && !result.toString().endsWith(" AND ")
+              && !result.toString().endsWith(" NOT ")) {
+            result.append(" AND ");
+          }
+          result.append(
+              getSqlWherePermitted(entityType, (PermissionFilter) r.getValue(), parameters));
+          break;
         case DIS_MAX:
         case FUZZY_MATCH:
         case FUZZY_MATCH_NGRAM:
@@ -1044,6 +1135,82 @@ class PostgreSqlQueryGenerator {
     return result.toString().trim();
   }
 
+  /**
+   * Returns a predicate that evaluates the access control list of each row the way the
+   * BitMaskPermissionGrantingStrategy of the access control list service does: for each
+   * permission, the first access control entry that matches the permission, ordered by security
+   * identity and entry order, decides whether the permission is granted. If no entry of the access
+   * control list matches any permission and the list inherits entries, the parent list is
+   * evaluated instead. Uses the unique (object_id_class, object_id_identity) index of
+   * acl_object_identity and the unique (acl_object_identity, ace_order) index of acl_entry.
+   */
+  private static String getSqlWherePermitted(
+      EntityType entityType, PermissionFilter permissionFilter, List<Object> parameters) {
+    List<Sid> sids = permissionFilter.getSids();
+    List<Integer> masks = permissionFilter.getMasks();
+    if (sids.isEmpty() || masks.isEmpty()) {
+      return "FALSE";
+    }
+
+    parameters.add(permissionFilter.getAclClass());
+
+    StringBuilder sidValues = new StringBuilder();
+    for (int i = 0; i < sids.size(); i++) {
+      if (i > 0) {
+        sidValues.append(", ");
+      }
+      sidValues.append('(').append(i).append(", ?, ?)");
+      Sid sid = sids.get(i);
+      if (sid instanceof PrincipalSid) {
+        parameters.add(true);
+        parameters.add(((PrincipalSid) sid).getPrincipal());
+      } else if (sid instanceof GrantedAuthoritySid) {
+        parameters.add(false);
+        parameters.add(((GrantedAuthoritySid) sid).getGrantedAuthority());
+      } else {
+        throw new IllegalArgumentException(format("Unsupported sid type [%s]", sid.getClass()));
+      }
+    }
+
+    StringBuilder permissionValues = new StringBuilder();
+    for (int i = 0; i < masks.size(); i++) {
+      if (i > 0) {
+        permissionValues.append(", ");
+      }
+      permissionValues.append('(').append(i).append(", ?)");
+      parameters.add(masks.get(i));
+    }
+
+    return "(WITH RECURSIVE acl_chain (id, parent_object, entries_inheriting, depth) AS ("
+        + "SELECT acl_object_identity.id, acl_object_identity.parent_object,"
+        + " acl_object_identity.entries_inheriting, 0 FROM acl_object_identity"
+        + " JOIN acl_class ON acl_object_identity.object_id_class = acl_class.id"
+        + " WHERE acl_class.class = ? AND acl_object_identity.object_id_identity = CAST(this."
+        + getColumnName(entityType.getIdAttribute())
+        + " AS VARCHAR)"
+        + " UNION ALL SELECT acl_object_identity.id, acl_object_identity.parent_object,"
+        + " acl_object_identity.entries_inheriting, acl_chain.depth + 1 FROM acl_chain"
+        + " JOIN acl_object_identity ON acl_chain.parent_object = acl_object_identity.id"
+        + " WHERE acl_chain.entries_inheriting),"
+        + " matching_entries AS (SELECT acl_chain.depth, permissions.permission_order,"
+        + " sids.sid_order, acl_entry.ace_order, acl_entry.granting FROM acl_chain"
+        + " JOIN acl_entry ON acl_entry.acl_object_identity = acl_chain.id"
+        + " JOIN acl_sid ON acl_entry.sid = acl_sid.id"
+        + " JOIN (VALUES "
+        + sidValues
+        + ") AS sids (sid_order, principal, sid)"
+        + " ON acl_sid.principal = sids.principal AND acl_sid.sid = sids.sid"
+        + " JOIN (VALUES "
+        + permissionValues
+        + ") AS permissions (permission_order, mask)"
+        + " ON (acl_entry.mask & permissions.mask) <> 0)"
+        + " SELECT bool_or(decisions.granting) FROM (SELECT DISTINCT ON"
+        + " (matching_entries.permission_order) matching_entries.granting FROM matching_entries"
+        + " WHERE matching_entries.depth = (SELECT MIN(depth) FROM matching_entries)"
+        + " ORDER BY matching_entries.permission_order, matching_entries.sid_order,"
+        + " matching_entries.ace_order) AS decisions) IS TRUE";
+  }
+
   private static void getSqlWhereForInQueryRule(
       QueryRule r,
       EntityType entityType,
@@ -1095,10 +1262,98 @@ class PostgreSqlQueryGenerator {
     result.append(" IN (").append(in).append(')');
   }
 
+  /**
+   * Returns whether the entities that match the given query can be paged through by continuing
+   * after the sort values of the last entity of the previous page instead of by offset. Deep pages
+   * then cost the same as the first page. This requires that all attributes of the (deterministic)
+   * query sort are stored in the entity table and cannot be null.
+   */
+  static <E extends Entity> boolean isKeysetPaginationSupported(EntityType entityType, Query<E> q) {
+    for (Sort.Order order : getSort(entityType, q)) {
+      Attribute attr = entityType.getAttribute(order.getAttr());
+      if (attr == null
+          || attr.getExpression() != null
+          || attr.isNillable()
+          || isPersistedInOtherTable(attr)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Produces the SQL predicate that selects the rows that follow the given entity in the query sort
+   * order, e.g. <code>(this."a", this."id") > (?, ?)</code>
+   */
+  private static <E extends Entity> String getSqlWhereKeyset(
+      EntityType entityType, Query<E> q, Entity keysetEntity, List<Object> parameters) {
+    List<Sort.Order> orders = Lists.newArrayList(getSort(entityType, q));
+    List<String> columns = new ArrayList<>(orders.size());
+    List<Object> values = new ArrayList<>(orders.size());
+    for (Sort.Order order : orders) {
+      Attribute attr = entityType.getAttribute(order.getAttr());
+      columns.add("this." + getColumnName(attr));
+      values.add(getPostgreSqlValue(keysetEntity, attr));
+    }
+
+    StringBuilder keysetSql = new StringBuilder();
+    boolean sameDirection = orders.stream().map(Sort.Order::getDirection).distinct().count() == 1;
+    if (sameDirection) {
+      // row value comparison allows the database to use a multi-column index
+      String operator = orders.get(0).getDirection() == Sort.Direction.DESC ? " < " : " > ";
+      keysetSql
+          .append('(')
+          .append(String.join(", ", columns))
+          .append(')')
+          .append(operator)
+          .append('(')
+          .append(range(0, columns.size()).mapToObj(i -> "?").collect(joining(", ")))
+          .append(')');
+      parameters.addAll(values);
+    } else {
+      // (c0 > ?) OR (c0 = ? AND c1 < ?) OR ...
+      keysetSql.append('(');
+      for (int i = 0; i < orders.size(); i++) {
+        if (i > 0) {
+          keysetSql.append(" OR ");
+        }
+        keysetSql.append('(');
+        for (int j = 0; j < i; j++) {
+          keysetSql.append(columns.get(j)).append(" = ? AND ");
+          parameters.add(values.get(j));
+        }
+        String operator = orders.get(i).getDirection() == Sort.Direction.DESC ? " < ?" : " > ?";
+        keysetSql.append(columns.get(i)).append(operator).append(')');
+        parameters.add(values.get(i));
+      }
+      keysetSql.append(')');
+    }
+    return keysetSql.toString();
+  }
+
   /** Package-private for testability */
   static <E extends Entity> String getSqlSort(EntityType entityType, Query<E> q) {
     StringBuilder sortSql = new StringBuilder();
 
+    for (Sort.Order o : getSort(entityType, q)) {
+      Attribute attr = entityType.getAttribute(o.getAttr());
+      sortSql.append(", ").append(getColumnName(attr));
+      if (o.getDirection().equals(Sort.Direction.DESC)) {
+        sortSql.append(" DESC");
+      } else {
+        sortSql.append(" ASC");
+      }
+    }
+
+    if (sortSql.length() > 0) {
+      sortSql = new StringBuilder("ORDER BY ").append(sortSql.substring(2));
+    }
+
+    return sortSql.toString();
+  }
+
+  /** Returns the query sort extended with the id attribute if the sort is not deterministic */
+  static <E extends Entity> Sort getSort(EntityType entityType, Query<E> q) {
     // https://www.postgresql.org/docs/9.6/static/queries-limit.html
     // When using LIMIT, it is important to use an ORDER BY clause that constrains the result rows
     // into a unique order.
@@ -1117,22 +1372,7 @@ class PostgreSqlQueryGenerator {
     } else {
       sort = q.getSort();
     }
-
-    for (Sort.Order o : sort) {
-      Attribute attr = entityType.getAttribute(o.getAttr());
-      sortSql.append(", ").append(getColumnName(attr));
-      if (o.getDirection().equals(Sort.Direction.DESC)) {
-        sortSql.append(" DESC");
-      } else {
-        sortSql.append(" ASC");
-      }
-    }
-
-    if (sortSql.length() > 0) {
-      sortSql = new StringBuilder("ORDER BY ").append(sortSql.substring(2));
-    }
-
-    return sortSql.toString();
+    return sort;
   }
 
   private static boolean hasUniqueSortAttribute(EntityType entityType, Sort sort) {
@@ -5,6 +5,7 @@ import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.newHashMap;
 import static com.google.common.collect.Streams.stream;
 import static java.lang.String.format;
+import static java.util.Collections.emptyIterator;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.unmodifiableSet;
 import static java.util.Objects.requireNonNull;
@@ -22,6 +23,7 @@ import static org.molgenis.data.QueryRule.Operator.LIKE;
 import static org.molgenis.data.QueryRule.Operator.NESTED;
 import static org.molgenis.data.QueryRule.Operator.NOT;
 import static org.molgenis.data.QueryRule.Operator.OR;
+import static org.molgenis.data.QueryRule.Operator.PERMITTED;
 import static org.molgenis.data.QueryRule.Operator.RANGE;
 import static org.molgenis.data.RepositoryCapability.CACHEABLE;
 import static org.molgenis.data.RepositoryCapability.MANAGABLE;
@@ -34,6 +36,8 @@ import static org.molgenis.data.RepositoryCapability.WRITABLE;
 import static org.molgenis.data.meta.AttributeType.ONE_TO_MANY;
 import static org.molgenis.data.postgresql.PostgreSqlExceptionTranslator.VALUE_TOO_LONG_MSG;
 import static org.molgenis.data.postgresql.PostgreSqlNameGenerator.getJunctionTableOrderColumnName;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlCopy;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlCopyJunction;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlCount;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlDelete;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlDeleteAll;
@@ -42,6 +46,8 @@ import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlInsert
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlJunctionTableSelect;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlSelect;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlUpdate;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.getSqlUpsert;
+import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.isKeysetPaginationSupported;
 import static org.molgenis.data.postgresql.PostgreSqlQueryUtils.getJunctionTableAttributes;
 import static org.molgenis.data.postgresql.PostgreSqlQueryUtils.getTableAttributes;
 import static org.molgenis.data.postgresql.PostgreSqlUtils.getPostgreSqlValue;
@@ -73,11 +79,13 @@ import org.molgenis.data.Fetch;
 import org.molgenis.data.Query;
 import org.molgenis.data.QueryRule.Operator;
 import org.molgenis.data.RepositoryCapability;
+import org.molgenis.data.Sort;
 import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.support.AbstractRepository;
 import org.molgenis.data.support.BatchingQueryResult;
+import org.molgenis.data.support.KeysetBatchingQueryResult;
 import org.molgenis.data.support.QueryImpl;
 import org.molgenis.data.validation.MolgenisValidationException;
 import org.molgenis.util.UnexpectedEnumException;
@@ -132,22 +140,54 @@ class PostgreSqlRepository extends AbstractRepository {
               NOT,
               AND,
               OR,
-              NESTED));
+              NESTED,
+              PERMITTED));
 
   private final PostgreSqlEntityFactory postgreSqlEntityFactory;
   private final JdbcTemplate jdbcTemplate;
   private final DataSource dataSource;
   private final EntityType entityType;
+  /** Number of rows fetched per round trip when streaming query results from a cursor */
+  private final int fetchSize;
+  /** Writes added entities with the COPY protocol instead of batched INSERTs, null if disabled */
+  private final PostgreSqlCopyWriter copyWriter;
 
   PostgreSqlRepository(
       PostgreSqlEntityFactory postgreSqlEntityFactory,
       JdbcTemplate jdbcTemplate,
       DataSource dataSource,
       EntityType entityType) {
+    this(postgreSqlEntityFactory, jdbcTemplate, dataSource, entityType, BATCH_SIZE);
+  }
+
+  PostgreSqlRepository(
+      PostgreSqlEntityFactory postgreSqlEntityFactory,
+      JdbcTemplate jdbcTemplate,
+      DataSource dataSource,
+      EntityType entityType,
+      int fetchSize) {
+    this(postgreSqlEntityFactory, jdbcTemplate, dataSource, entityType, fetchSize, false);
+  }
+
+  PostgreSqlRepository(
+      PostgreSqlEntityFactory postgreSqlEntityFactory,
+      JdbcTemplate jdbcTemplate,
+      DataSource dataSource,
+      EntityType entityType,
+      int fetchSize,
+      boolean bulkLoad) {
     this.postgreSqlEntityFactory = requireNonNull(postgreSqlEntityFactory);
     this.jdbcTemplate = requireNonNull(jdbcTemplate);
     this.dataSource = requireNonNull(dataSource);
     this.entityType = requireNonNull(entityType);
+    if (fetchSize < 1) {
+      throw new IllegalArgumentException("fetch size must be greater than zero");
+    }
+    this.fetchSize = fetchSize;
+    this.copyWriter =
+        bulkLoad
+            ? new PostgreSqlCopyWriter(dataSource, jdbcTemplate.getExceptionTranslator())
+            : null;
   }
 
   @Override
@@ -186,14 +226,24 @@ class PostgreSqlRepository extends AbstractRepository {
         sql, parameters.toArray(new Object[parameters.size()]), Long.class);
   }
 
+  /**
+   * Streams the query result from a server-side cursor when a transaction is active at the moment
+   * the stream is consumed, otherwise the result is retrieved in batches. Close the stream to
+   * release the cursor before the transaction ends.
+   *
+   * <p>Only callers that consume the stream within their own transaction benefit from the cursor:
+   * the transaction that {@link org.molgenis.data.transaction.TransactionalRepositoryDecorator}
+   * starts has ended by the time the stream is consumed.
+   */
   @Override
   public Stream<Entity> findAll(Query<Entity> q) {
-    return stream(findAllBatching(q));
+    PostgreSqlCursorIterator cursorIterator = createCursorIterator(q);
+    return stream(cursorIterator).onClose(cursorIterator::close);
   }
 
   @Override
   public Entity findOne(Query<Entity> q) {
-    Iterator<Entity> iterator = findAll(q).iterator();
+    Iterator<Entity> iterator = findAllBatching(q).iterator();
     if (iterator.hasNext()) {
       return iterator.next();
     }
@@ -282,6 +332,20 @@ class PostgreSqlRepository extends AbstractRepository {
     return addBatching(entities.iterator());
   }
 
+  /**
+   * Inserts entities that do not exist and updates entities that do exist using a single INSERT
+   * ... ON CONFLICT statement per batch instead of looking up the existing entities first.
+   */
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    // read-only junction table values of existing entities may not be replaced
+    if (getJunctionTableAttributes(entityType).anyMatch(Attribute::isReadOnly)) {
+      super.upsertBatch(entities);
+    } else {
+      upsertBatching(entities.iterator());
+    }
+  }
+
   @Override
   public void forEachBatched(Fetch fetch, Consumer<List<Entity>> consumer, int batchSize) {
     final Stopwatch stopwatch = createStarted();
@@ -447,27 +511,102 @@ class PostgreSqlRepository extends AbstractRepository {
     };
   }
 
+  private PostgreSqlCursorIterator createCursorIterator(Query<Entity> q) {
+    List<Object> parameters = new ArrayList<>();
+    String sql = getSqlSelect(entityType, q, parameters, true);
+    RowMapper<Entity> entityMapper =
+        postgreSqlEntityFactory.createRowMapper(entityType, q.getFetch());
+    LOG.debug("Streaming [{}] data for query [{}]", getName(), q);
+    return new PostgreSqlCursorIterator(
+        dataSource,
+        jdbcTemplate,
+        sql,
+        parameters,
+        entityMapper,
+        fetchSize,
+        nrRowsRead -> findAllBatchingFrom(q, nrRowsRead));
+  }
+
+  /** Returns the entities of the query result that follow the first nrRowsRead entities. */
+  private Iterator<Entity> findAllBatchingFrom(Query<Entity> q, int nrRowsRead) {
+    if (nrRowsRead == 0) {
+      return findAllBatching(q).iterator();
+    }
+    int pageSize = q.getPageSize();
+    if (pageSize != 0 && nrRowsRead >= pageSize) {
+      return emptyIterator();
+    }
+    Query<Entity> remainderQuery =
+        new QueryImpl<>(q)
+            .setOffset(q.getOffset() + nrRowsRead)
+            .setPageSize(pageSize != 0 ? pageSize - nrRowsRead : 0);
+    return findAllBatching(remainderQuery).iterator();
+  }
+
   private BatchingQueryResult<Entity> findAllBatching(Query<Entity> q) {
-    return new BatchingQueryResult<Entity>(BATCH_SIZE, q) {
+    if (!isKeysetPaginationSupported(entityType, q)) {
+      return new BatchingQueryResult<Entity>(BATCH_SIZE, q) {
+        @Override
+        protected List<Entity> getBatch(Query<Entity> batchQuery) {
+          return findAllBatch(batchQuery, null);
+        }
+      };
+    }
+
+    return new KeysetBatchingQueryResult<Entity>(BATCH_SIZE, createKeysetPaginationQuery(q)) {
       @Override
       protected List<Entity> getBatch(Query<Entity> batchQuery) {
-        List<Object> parameters = new ArrayList<>();
+        return findAllBatch(batchQuery, null);
+      }
 
-        String sql = getSqlSelect(getEntityType(), batchQuery, parameters, true);
-        RowMapper<Entity> entityMapper =
-            postgreSqlEntityFactory.createRowMapper(getEntityType(), batchQuery.getFetch());
-        LOG.debug("Fetching [{}] data for query [{}]", getName(), batchQuery);
-        LOG.trace("SQL: {}, parameters: {}", sql, parameters);
-        Stopwatch sw = createStarted();
-        List<Entity> result =
-            jdbcTemplate.query(
-                sql, parameters.toArray(new Object[parameters.size()]), entityMapper);
-        LOG.trace("That took {}", sw);
-        return result;
+      @Override
+      protected List<Entity> getBatchAfter(Query<Entity> batchQuery, Entity lastEntity) {
+        return findAllBatch(batchQuery, lastEntity);
       }
     };
   }
 
+  /**
+   * Returns a query that fetches all sort attributes so that the sort values of the last entity of
+   * a batch are available to retrieve the next batch.
+   */
+  private Query<Entity> createKeysetPaginationQuery(Query<Entity> q) {
+    Fetch fetch = q.getFetch();
+    if (fetch == null) {
+      return q;
+    }
+
+    Sort sort = PostgreSqlQueryGenerator.getSort(entityType, q);
+    if (stream(sort).allMatch(order -> fetch.hasField(order.getAttr()))) {
+      return q;
+    }
+
+    Fetch keysetFetch = new Fetch();
+    fetch.forEach(entry -> keysetFetch.field(entry.getKey(), entry.getValue()));
+    sort.forEach(
+        order -> {
+          if (!keysetFetch.hasField(order.getAttr())) {
+            keysetFetch.field(order.getAttr());
+          }
+        });
+    return new QueryImpl<>(q).fetch(keysetFetch);
+  }
+
+  private List<Entity> findAllBatch(Query<Entity> batchQuery, Entity keysetEntity) {
+    List<Object> parameters = new ArrayList<>();
+
+    String sql = getSqlSelect(getEntityType(), batchQuery, parameters, true, keysetEntity);
+    RowMapper<Entity> entityMapper =
+        postgreSqlEntityFactory.createRowMapper(getEntityType(), batchQuery.getFetch());
+    LOG.debug("Fetching [{}] data for query [{}]", getName(), batchQuery);
+    LOG.trace("SQL: {}, parameters: {}", sql, parameters);
+    Stopwatch sw = createStarted();
+    List<Entity> result =
+        jdbcTemplate.query(sql, parameters.toArray(new Object[parameters.size()]), entityMapper);
+    LOG.trace("That took {}", sw);
+    return result;
+  }
+
   private Integer addBatching(Iterator<? extends Entity> entities) {
     AtomicInteger count = new AtomicInteger();
 
@@ -475,7 +614,8 @@ class PostgreSqlRepository extends AbstractRepository {
     final List<Attribute> tableAttrs = getTableAttributes(entityType).collect(toList());
     final List<Attribute> junctionTableAttrs =
         getJunctionTableAttributes(entityType).collect(toList());
-    final String insertSql = getSqlInsert(entityType);
+    final String insertSql =
+        copyWriter != null ? getSqlCopy(entityType) : getSqlInsert(entityType);
 
     Iterators.partition(entities, BATCH_SIZE)
         .forEachRemaining(
@@ -488,8 +628,20 @@ class PostgreSqlRepository extends AbstractRepository {
               }
 
               // persist values in entity table
-              jdbcTemplate.batchUpdate(
-                  insertSql, new BatchAddPreparedStatementSetter(entitiesBatch, tableAttrs));
+              if (copyWriter != null) {
+                copyWriter.copy(
+                    insertSql,
+                    Lists.transform(
+                        entitiesBatch,
+                        entity ->
+                            tableAttrs
+                                .stream()
+                                .map(attr -> getPostgreSqlValue(entity, attr))
+                                .toArray()));
+              } else {
+                jdbcTemplate.batchUpdate(
+                    insertSql, new BatchAddPreparedStatementSetter(entitiesBatch, tableAttrs));
+              }
 
               // persist values in entity junction table
               if (!junctionTableAttrs.isEmpty()) {
@@ -499,7 +651,7 @@ class PostgreSqlRepository extends AbstractRepository {
                 for (Attribute attr : junctionTableAttrs) {
                   List<Map<String, Object>> attrMrefs = mrefs.get(attr.getName());
                   if (attrMrefs != null && !attrMrefs.isEmpty()) {
-                    addMrefs(attrMrefs, attr);
+                    addMrefs(attrMrefs, attr, copyWriter != null);
                   }
                 }
               }
@@ -596,6 +748,45 @@ class PostgreSqlRepository extends AbstractRepository {
             });
   }
 
+  private void upsertBatching(Iterator<? extends Entity> entities) {
+    final Attribute idAttr = entityType.getIdAttribute();
+    final List<Attribute> tableAttrs = getTableAttributes(entityType).collect(toList());
+    final List<Attribute> junctionTableAttrs =
+        getJunctionTableAttributes(entityType).collect(toList());
+    final String upsertSql = getSqlUpsert(entityType);
+
+    Iterators.partition(entities, BATCH_SIZE)
+        .forEachRemaining(
+            entitiesBatch -> {
+              if (LOG.isDebugEnabled()) {
+                LOG.debug("Upserting {} [{}] entities", entitiesBatch.size(), getName());
+                if (LOG.isTraceEnabled()) {
+                  LOG.trace("SQL: {}", upsertSql);
+                }
+              }
+
+              // insert or update values in entity table
+              jdbcTemplate.batchUpdate(
+                  upsertSql, new BatchAddPreparedStatementSetter(entitiesBatch, tableAttrs));
+
+              // replace values in entity junction table
+              if (!junctionTableAttrs.isEmpty()) {
+                Map<String, List<Map<String, Object>>> mrefs =
+                    createMrefMap(idAttr, junctionTableAttrs, entitiesBatch);
+
+                List<Object> ids =
+                    entitiesBatch
+                        .stream()
+                        .map(entity -> getPostgreSqlValue(entity, idAttr))
+                        .collect(toList());
+                for (Attribute attr : junctionTableAttrs) {
+                  removeMrefs(ids, attr);
+                  addMrefs(mrefs.get(attr.getName()), attr);
+                }
+              }
+            });
+  }
+
   private void verifyUpdate(List<? extends Entity> entitiesBatch, int[] counts, Attribute idAttr) {
     int nrUpdatedEntities = Arrays.stream(counts).sum();
     if (nrUpdatedEntities < entitiesBatch.size()) {
@@ -624,6 +815,11 @@ class PostgreSqlRepository extends AbstractRepository {
   }
 
   void addMrefs(final List<Map<String, Object>> mrefs, final Attribute attr) {
+    addMrefs(mrefs, attr, false);
+  }
+
+  private void addMrefs(
+      final List<Map<String, Object>> mrefs, final Attribute attr, boolean copy) {
     // database doesn't validate NOT NULL constraint for attribute values referencing multiple
     // entities,
     // so validate it ourselves
@@ -636,7 +832,8 @@ class PostgreSqlRepository extends AbstractRepository {
     }
 
     final Attribute idAttr = entityType.getIdAttribute();
-    String insertMrefSql = getSqlInsertJunction(entityType, attr);
+    String insertMrefSql =
+        copy ? getSqlCopyJunction(entityType, attr) : getSqlInsertJunction(entityType, attr);
 
     if (LOG.isDebugEnabled()) {
       LOG.debug(
@@ -649,9 +846,14 @@ class PostgreSqlRepository extends AbstractRepository {
     }
 
     try {
-      jdbcTemplate.batchUpdate(
-          insertMrefSql, new BatchJunctionTableAddPreparedStatementSetter(mrefs, attr, idAttr));
-
+      if (copy) {
+        copyWriter.copy(
+            insertMrefSql,
+            Lists.transform(mrefs, mref -> getJunctionTableRowValues(mref, attr, idAttr)));
+      } else {
+        jdbcTemplate.batchUpdate(
+            insertMrefSql, new BatchJunctionTableAddPreparedStatementSetter(mrefs, attr, idAttr));
+      }
     } catch (MolgenisValidationException mve) {
       if (mve.getMessage().equals(VALUE_TOO_LONG_MSG)) {
         mve =
@@ -683,6 +885,23 @@ class PostgreSqlRepository extends AbstractRepository {
         deleteMrefSql, new BatchJunctionTableDeletePreparedStatementSetter(ids));
   }
 
+  /** Returns the order, entity id and referenced entity id values of a junction table row */
+  private static Object[] getJunctionTableRowValues(
+      Map<String, Object> mref, Attribute attr, Attribute idAttr) {
+    Object idValue0;
+    Object idValue1;
+    if (attr.isMappedBy()) {
+      Entity mrefEntity = (Entity) mref.get(attr.getName());
+      idValue0 = getPostgreSqlValue(mrefEntity, attr.getRefEntity().getIdAttribute());
+      idValue1 = mref.get(idAttr.getName());
+    } else {
+      idValue0 = mref.get(idAttr.getName());
+      Entity mrefEntity = (Entity) mref.get(attr.getName());
+      idValue1 = getPostgreSqlValue(mrefEntity, mrefEntity.getEntityType().getIdAttribute());
+    }
+    return new Object[] {mref.get(getJunctionTableOrderColumnName()), idValue0, idValue1};
+  }
+
   private static class BatchAddPreparedStatementSetter implements BatchPreparedStatementSetter {
     private final List<? extends Entity> entities;
     private final List<Attribute> tableAttrs;
@@ -773,22 +992,10 @@ class PostgreSqlRepository extends AbstractRepository {
 
     @Override
     public void setValues(PreparedStatement preparedStatement, int i) throws SQLException {
-      Map<String, Object> mref = mrefs.get(i);
-
-      Object idValue0;
-      Object idValue1;
-      if (attr.isMappedBy()) {
-        Entity mrefEntity = (Entity) mref.get(attr.getName());
-        idValue0 = getPostgreSqlValue(mrefEntity, attr.getRefEntity().getIdAttribute());
-        idValue1 = mref.get(idAttr.getName());
-      } else {
-        idValue0 = mref.get(idAttr.getName());
-        Entity mrefEntity = (Entity) mref.get(attr.getName());
-        idValue1 = getPostgreSqlValue(mrefEntity, mrefEntity.getEntityType().getIdAttribute());
-      }
-      preparedStatement.setInt(1, (int) mref.get(getJunctionTableOrderColumnName()));
-      preparedStatement.setObject(2, idValue0);
-      preparedStatement.setObject(3, idValue1);
+      Object[] values = getJunctionTableRowValues(mrefs.get(i), attr, idAttr);
+      preparedStatement.setInt(1, (int) values[0]);
+      preparedStatement.setObject(2, values[1]);
+      preparedStatement.setObject(3, values[2]);
     }
 
     @Override
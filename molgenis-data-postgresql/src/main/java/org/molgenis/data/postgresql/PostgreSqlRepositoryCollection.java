@@ -90,16 +90,31 @@ public class PostgreSqlRepositoryCollection extends AbstractRepositoryCollection
   private final DataSource dataSource;
   private final JdbcTemplate jdbcTemplate;
   private final DataService dataService;
+  private final int fetchSize;
+  private final boolean bulkLoad;
 
   PostgreSqlRepositoryCollection(
       PostgreSqlEntityFactory postgreSqlEntityFactory,
       DataSource dataSource,
       JdbcTemplate jdbcTemplate,
-      DataService dataService) {
+      DataService dataService,
+      int fetchSize) {
+    this(postgreSqlEntityFactory, dataSource, jdbcTemplate, dataService, fetchSize, false);
+  }
+
+  PostgreSqlRepositoryCollection(
+      PostgreSqlEntityFactory postgreSqlEntityFactory,
+      DataSource dataSource,
+      JdbcTemplate jdbcTemplate,
+      DataService dataService,
+      int fetchSize,
+      boolean bulkLoad) {
     this.postgreSqlEntityFactory = requireNonNull(postgreSqlEntityFactory);
     this.dataSource = requireNonNull(dataSource);
     this.jdbcTemplate = requireNonNull(jdbcTemplate);
     this.dataService = requireNonNull(dataService);
+    this.fetchSize = fetchSize;
+    this.bulkLoad = bulkLoad;
   }
 
   @Override
@@ -546,7 +561,8 @@ public class PostgreSqlRepositoryCollection extends AbstractRepositoryCollection
 
   /** Return a new PostgreSQL repository */
   private PostgreSqlRepository createPostgreSqlRepository(EntityType entityType) {
-    return new PostgreSqlRepository(postgreSqlEntityFactory, jdbcTemplate, dataSource, entityType);
+    return new PostgreSqlRepository(
+        postgreSqlEntityFactory, jdbcTemplate, dataSource, entityType, fetchSize, bulkLoad);
   }
 
   private boolean isTableExists(EntityType entityType) {
@@ -0,0 +1,126 @@
+package org.molgenis.data.postgresql;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mockitoSession;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.quality.Strictness.STRICT_STUBS;
+import static org.testng.Assert.assertEquals;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import javax.sql.DataSource;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoSession;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class PostgreSqlCopyWriterTest {
+  private static final String SQL =
+      "COPY \"entity\" (\"id\", \"value\") FROM STDIN WITH (FORMAT csv)";
+
+  @Mock private DataSource dataSource;
+  @Mock private SQLExceptionTranslator exceptionTranslator;
+  @Mock private Connection connection;
+  @Mock private PGConnection pgConnection;
+  @Mock private CopyManager copyManager;
+  @Mock private CopyIn copyIn;
+
+  private MockitoSession mockitoSession;
+  private PostgreSqlCopyWriter postgreSqlCopyWriter;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    mockitoSession = mockitoSession().initMocks(this).strictness(STRICT_STUBS).startMocking();
+    postgreSqlCopyWriter = new PostgreSqlCopyWriter(dataSource, exceptionTranslator);
+  }
+
+  @AfterMethod
+  public void tearDownAfterMethod() {
+    mockitoSession.finishMocking();
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testPostgreSqlCopyWriter() {
+    new PostgreSqlCopyWriter(null, null);
+  }
+
+  @Test
+  public void testCopy() throws SQLException {
+    initCopyMocks();
+    when(copyIn.endCopy()).thenReturn(2L);
+
+    Object[] row0 = {"id0", "value0"};
+    Object[] row1 = {"id1", null};
+    assertEquals(postgreSqlCopyWriter.copy(SQL, asList(row0, row1)), 2L);
+
+    ArgumentCaptor<byte[]> bytesCaptor = ArgumentCaptor.forClass(byte[].class);
+    verify(copyIn).writeToCopy(bytesCaptor.capture(), eq(0), anyInt());
+    assertEquals(new String(bytesCaptor.getValue(), UTF_8), "\"id0\",\"value0\"\n\"id1\",\n");
+    verify(connection).close();
+  }
+
+  @Test
+  public void testCopyException() throws SQLException {
+    initCopyMocks();
+    SQLException sqlException = new SQLException();
+    doThrow(sqlException).when(copyIn).writeToCopy(any(byte[].class), eq(0), anyInt());
+    when(copyIn.isActive()).thenReturn(true);
+    DataAccessException dataAccessException = new DataIntegrityViolationException("message");
+    when(exceptionTranslator.translate("COPY", SQL, sqlException)).thenReturn(dataAccessException);
+
+    Object[] row = {"id0", "value0"};
+    try {
+      postgreSqlCopyWriter.copy(SQL, asList(row, row));
+      throw new AssertionError("Expected DataAccessException");
+    } catch (DataAccessException e) {
+      assertEquals(e, dataAccessException);
+    }
+    verify(copyIn).cancelCopy();
+    verify(connection).close();
+  }
+
+  @Test
+  public void testAppendCsvRow() {
+    StringBuilder buffer = new StringBuilder();
+    Object[] row = {
+      "a \"quoted\", value",
+      "",
+      null,
+      1,
+      2L,
+      1.5,
+      true,
+      false,
+      LocalDate.of(2018, 1, 2),
+      OffsetDateTime.of(2018, 1, 2, 3, 4, 0, 0, ZoneOffset.UTC)
+    };
+    PostgreSqlCopyWriter.appendCsvRow(buffer, row);
+    assertEquals(
+        buffer.toString(),
+        "\"a \"\"quoted\"\", value\",\"\",,\"1\",\"2\",\"1.5\",\"t\",\"f\",\"2018-01-02\",\"2018-01-02T03:04:00Z\"\n");
+  }
+
+  private void initCopyMocks() throws SQLException {
+    when(dataSource.getConnection()).thenReturn(connection);
+    when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+    when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+    when(copyManager.copyIn(SQL)).thenReturn(copyIn);
+  }
+}
@@ -0,0 +1,210 @@
+package org.molgenis.data.postgresql;
+
+import static com.google.common.collect.Streams.stream;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockitoSession;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.quality.Strictness.STRICT_STUBS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import com.google.common.collect.Lists;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
+import org.mockito.Mock;
+import org.mockito.MockitoSession;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Query;
+import org.molgenis.data.Repository;
+import org.molgenis.data.support.QueryImpl;
+import org.molgenis.data.transaction.TransactionalRepositoryDecorator;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class PostgreSqlCursorIteratorTest {
+  private static final String SQL =
+      "SELECT this.\"id\" FROM \"entity\" AS this WHERE this.\"id\" = ?";
+
+  @Mock private DataSource dataSource;
+  @Mock private JdbcTemplate jdbcTemplate;
+  @Mock private RowMapper<Entity> rowMapper;
+  @Mock private Connection connection;
+  @Mock private PreparedStatement preparedStatement;
+  @Mock private ResultSet resultSet;
+
+  private MockitoSession mockitoSession;
+  private List<Integer> fallbackOffsets;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    mockitoSession = mockitoSession().initMocks(this).strictness(STRICT_STUBS).startMocking();
+    fallbackOffsets = new ArrayList<>();
+  }
+
+  @AfterMethod
+  public void tearDownAfterMethod() {
+    if (TransactionSynchronizationManager.hasResource(dataSource)) {
+      TransactionSynchronizationManager.unbindResource(dataSource);
+    }
+    TransactionSynchronizationManager.clear();
+    mockitoSession.finishMocking();
+  }
+
+  @Test
+  public void iterateNoTransaction() {
+    Entity entity = mock(Entity.class);
+    PostgreSqlCursorIterator iterator = createCursorIterator(singletonList(entity));
+    assertEquals(Lists.newArrayList(iterator), singletonList(entity));
+    assertEquals(fallbackOffsets, singletonList(0));
+    verifyZeroInteractions(dataSource);
+  }
+
+  @Test
+  public void iterateTransaction() throws Exception {
+    startTransaction();
+    Entity entity0 = mock(Entity.class);
+    Entity entity1 = mock(Entity.class);
+    when(resultSet.next()).thenReturn(true, true, false);
+    when(rowMapper.mapRow(eq(resultSet), anyInt())).thenReturn(entity0, entity1);
+
+    PostgreSqlCursorIterator iterator = createCursorIterator(singletonList(mock(Entity.class)));
+    assertEquals(Lists.newArrayList(iterator), asList(entity0, entity1));
+    assertTrue(fallbackOffsets.isEmpty());
+    verify(preparedStatement).setFetchSize(2);
+    verify(preparedStatement).setString(1, "id0");
+    verify(resultSet).close();
+    verify(preparedStatement).close();
+  }
+
+  @Test
+  public void iterateTransactionCompletes() throws Exception {
+    startTransaction();
+    Entity entity0 = mock(Entity.class);
+    Entity entity1 = mock(Entity.class);
+    when(resultSet.next()).thenReturn(true);
+    when(rowMapper.mapRow(resultSet, 0)).thenReturn(entity0);
+
+    PostgreSqlCursorIterator iterator = createCursorIterator(singletonList(entity1));
+    assertEquals(iterator.next(), entity0);
+    TransactionSynchronizationManager.getSynchronizations()
+        .forEach(synchronization -> synchronization.beforeCompletion());
+    verify(resultSet).close();
+    verify(preparedStatement).close();
+
+    assertEquals(Lists.newArrayList(iterator), singletonList(entity1));
+    assertEquals(fallbackOffsets, singletonList(1));
+  }
+
+  @Test
+  public void close() throws Exception {
+    startTransaction();
+    when(resultSet.next()).thenReturn(true);
+    when(rowMapper.mapRow(resultSet, 0)).thenReturn(mock(Entity.class));
+
+    PostgreSqlCursorIterator iterator = createCursorIterator(singletonList(mock(Entity.class)));
+    assertTrue(iterator.hasNext());
+    iterator.close();
+    assertFalse(iterator.hasNext());
+    verify(resultSet).close();
+    verify(preparedStatement).close();
+    assertTrue(fallbackOffsets.isEmpty());
+  }
+
+  @Test
+  public void iterateTransactionalRepositoryDecoratorNoTransaction() throws Exception {
+    when(dataSource.getConnection()).thenReturn(connection);
+    Entity entity = mock(Entity.class);
+    Repository<Entity> repository = createTransactionalRepository(singletonList(entity));
+
+    try (Stream<Entity> entities = repository.findAll(new QueryImpl<>())) {
+      assertEquals(entities.collect(toList()), singletonList(entity));
+    }
+    assertEquals(fallbackOffsets, singletonList(0));
+    verify(connection, never()).prepareStatement(SQL);
+  }
+
+  @Test
+  public void iterateTransactionalRepositoryDecoratorCallerTransaction() throws Exception {
+    when(dataSource.getConnection()).thenReturn(connection);
+    when(connection.prepareStatement(SQL)).thenReturn(preparedStatement);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    Entity entity0 = mock(Entity.class);
+    Entity entity1 = mock(Entity.class);
+    when(resultSet.next()).thenReturn(true, true, false);
+    when(rowMapper.mapRow(eq(resultSet), anyInt())).thenReturn(entity0, entity1);
+    Repository<Entity> repository = createTransactionalRepository(emptyList());
+
+    TransactionTemplate transactionTemplate =
+        new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    transactionTemplate.setReadOnly(true);
+    List<Entity> entities =
+        transactionTemplate.execute(
+            status -> {
+              try (Stream<Entity> entityStream = repository.findAll(new QueryImpl<>())) {
+                return entityStream.collect(toList());
+              }
+            });
+
+    assertEquals(entities, asList(entity0, entity1));
+    assertTrue(fallbackOffsets.isEmpty());
+    verify(preparedStatement).setFetchSize(2);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Repository<Entity> createTransactionalRepository(List<Entity> fallbackEntities) {
+    Repository<Entity> repository = mock(Repository.class);
+    when(repository.findAll(any(Query.class)))
+        .thenAnswer(
+            invocation -> {
+              PostgreSqlCursorIterator iterator = createCursorIterator(fallbackEntities);
+              return stream(iterator).onClose(iterator::close);
+            });
+    return new TransactionalRepositoryDecorator<>(
+        repository, new DataSourceTransactionManager(dataSource));
+  }
+
+  private void startTransaction() throws Exception {
+    TransactionSynchronizationManager.initSynchronization();
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    when(dataSource.getConnection()).thenReturn(connection);
+    when(connection.getAutoCommit()).thenReturn(false);
+    when(connection.prepareStatement(SQL)).thenReturn(preparedStatement);
+    when(preparedStatement.executeQuery()).thenReturn(resultSet);
+  }
+
+  private PostgreSqlCursorIterator createCursorIterator(List<Entity> fallbackEntities) {
+    return new PostgreSqlCursorIterator(
+        dataSource,
+        jdbcTemplate,
+        SQL,
+        singletonList("id0"),
+        rowMapper,
+        2,
+        nrRowsRead -> {
+          fallbackOffsets.add(nrRowsRead);
+          return fallbackEntities.iterator();
+        });
+  }
+}
@@ -3,12 +3,14 @@ package org.molgenis.data.postgresql;
 import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.molgenis.data.QueryRule.Operator.AND;
 import static org.molgenis.data.QueryRule.Operator.EQUALS;
 import static org.molgenis.data.QueryRule.Operator.NESTED;
 import static org.molgenis.data.QueryRule.Operator.OR;
+import static org.molgenis.data.QueryRule.Operator.PERMITTED;
 import static org.molgenis.data.meta.AttributeType.BOOL;
 import static org.molgenis.data.meta.AttributeType.CATEGORICAL;
 import static org.molgenis.data.meta.AttributeType.CATEGORICAL_MREF;
@@ -32,6 +34,8 @@ import static org.molgenis.data.meta.AttributeType.XREF;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.ColumnMode.EXCLUDE_DEFAULT_CONSTRAINT;
 import static org.molgenis.data.postgresql.PostgreSqlQueryGenerator.ColumnMode.INCLUDE_DEFAULT_CONSTRAINT;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -41,6 +45,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Fetch;
 import org.molgenis.data.MolgenisDataException;
+import org.molgenis.data.PermissionFilter;
 import org.molgenis.data.Query;
 import org.molgenis.data.QueryRule;
 import org.molgenis.data.Sort;
@@ -50,6 +55,8 @@ import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.meta.model.Package;
 import org.molgenis.data.postgresql.PostgreSqlQueryGenerator.ColumnMode;
 import org.molgenis.data.support.QueryImpl;
+import org.springframework.security.acls.domain.GrantedAuthoritySid;
+import org.springframework.security.acls.domain.PrincipalSid;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 import org.testng.collections.Lists;
@@ -426,6 +433,74 @@ public class PostgreSqlQueryGeneratorTest {
         "INSERT INTO \"entityTypeId#c34894ba_attr\" (\"order\",\"idAttr\",\"attr\") VALUES (?,?,?)");
   }
 
+  @Test
+  public void getSqlUpsert() {
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    when(idAttr.getIdentifier()).thenReturn("idAttrId");
+    when(idAttr.getDataType()).thenReturn(STRING);
+    Attribute attr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    when(attr.getIdentifier()).thenReturn("attrId");
+    when(attr.getDataType()).thenReturn(STRING);
+    Attribute mrefAttr = when(mock(Attribute.class).getName()).thenReturn("mrefAttr").getMock();
+    when(mrefAttr.getIdentifier()).thenReturn("mrefAttrId");
+    when(mrefAttr.getDataType()).thenReturn(MREF);
+    EntityType entityType = when(mock(EntityType.class).getId()).thenReturn("entity").getMock();
+    when(entityType.getId()).thenReturn("entityTypeId");
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAtomicAttributes()).thenReturn(newArrayList(idAttr, attr, mrefAttr));
+    assertEquals(
+        PostgreSqlQueryGenerator.getSqlUpsert(entityType),
+        "INSERT INTO \"entityTypeId#c34894ba\" (\"idAttr\", \"attr\") VALUES (?, ?) ON CONFLICT (\"idAttr\") DO UPDATE SET \"attr\" = EXCLUDED.\"attr\"");
+  }
+
+  @Test
+  public void getSqlUpsertIdAttributeOnly() {
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    when(idAttr.getIdentifier()).thenReturn("idAttrId");
+    when(idAttr.getDataType()).thenReturn(STRING);
+    EntityType entityType = when(mock(EntityType.class).getId()).thenReturn("entity").getMock();
+    when(entityType.getId()).thenReturn("entityTypeId");
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAtomicAttributes()).thenReturn(newArrayList(idAttr));
+    assertEquals(
+        PostgreSqlQueryGenerator.getSqlUpsert(entityType),
+        "INSERT INTO \"entityTypeId#c34894ba\" (\"idAttr\") VALUES (?) ON CONFLICT (\"idAttr\") DO NOTHING");
+  }
+
+  @Test
+  public void getSqlCopy() {
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    when(idAttr.getIdentifier()).thenReturn("idAttrId");
+    when(idAttr.getDataType()).thenReturn(STRING);
+    Attribute attr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    when(attr.getIdentifier()).thenReturn("attrId");
+    when(attr.getDataType()).thenReturn(STRING);
+    Attribute mrefAttr = when(mock(Attribute.class).getName()).thenReturn("mrefAttr").getMock();
+    when(mrefAttr.getIdentifier()).thenReturn("mrefAttrId");
+    when(mrefAttr.getDataType()).thenReturn(MREF);
+    EntityType entityType = when(mock(EntityType.class).getId()).thenReturn("entity").getMock();
+    when(entityType.getId()).thenReturn("entityTypeId");
+    when(entityType.getAtomicAttributes()).thenReturn(newArrayList(idAttr, attr, mrefAttr));
+    assertEquals(
+        PostgreSqlQueryGenerator.getSqlCopy(entityType),
+        "COPY \"entityTypeId#c34894ba\" (\"idAttr\", \"attr\") FROM STDIN WITH (FORMAT csv)");
+  }
+
+  @Test
+  public void getSqlCopyJunction() {
+    EntityType entityType = when(mock(EntityType.class).getId()).thenReturn("entity").getMock();
+    when(entityType.getId()).thenReturn("entityTypeId");
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    when(idAttr.getIdentifier()).thenReturn("idAttrId");
+    Attribute attr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    when(attr.getIdentifier()).thenReturn("attrId");
+    when(attr.getDataType()).thenReturn(MREF);
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    assertEquals(
+        PostgreSqlQueryGenerator.getSqlCopyJunction(entityType, attr),
+        "COPY \"entityTypeId#c34894ba_attr\" (\"order\",\"idAttr\",\"attr\") FROM STDIN WITH (FORMAT csv)");
+  }
+
   @Test
   public void getSqlInsertJunctionInversedBy() {
     EntityType entityType = when(mock(EntityType.class).getId()).thenReturn("entity").getMock();
@@ -691,6 +766,103 @@ public class PostgreSqlQueryGeneratorTest {
         "ORDER BY \"attr\" ASC, \"idAttr\" ASC");
   }
 
+  @Test
+  public void getSqlSelectKeyset() {
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    when(idAttr.getIdentifier()).thenReturn("idAttrId");
+    when(idAttr.getDataType()).thenReturn(STRING);
+    when(idAttr.isUnique()).thenReturn(true);
+
+    Attribute attr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    when(attr.getIdentifier()).thenReturn("attrId");
+    when(attr.getDataType()).thenReturn(STRING);
+
+    EntityType entityType = when(mock(EntityType.class).getId()).thenReturn("entity").getMock();
+    when(entityType.getId()).thenReturn("entityTypeId");
+    when(entityType.getAtomicAttributes()).thenReturn(newArrayList(idAttr, attr));
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAttribute("idAttr")).thenReturn(idAttr);
+    when(entityType.getAttribute("attr")).thenReturn(attr);
+
+    Entity keysetEntity = mock(Entity.class);
+    when(keysetEntity.getString("idAttr")).thenReturn("id0");
+    when(keysetEntity.getString("attr")).thenReturn("value0");
+
+    Query<Entity> q = new QueryImpl<>().eq("attr", "value0").sort(new Sort("attr")).pageSize(10);
+    List<Object> parameters = Lists.newArrayList();
+    assertEquals(
+        PostgreSqlQueryGenerator.getSqlSelect(entityType, q, parameters, true, keysetEntity),
+        "SELECT this.\"idAttr\", this.\"attr\" FROM \"entityTypeId#c34894ba\" AS this WHERE (this.\"attr\" = ?) AND (this.\"attr\", this.\"idAttr\") > (?, ?) ORDER BY \"attr\" ASC, \"idAttr\" ASC LIMIT 10");
+    assertEquals(parameters, asList("value0", "value0", "id0"));
+  }
+
+  @Test
+  public void getSqlSelectKeysetMixedSortDirections() {
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    when(idAttr.getIdentifier()).thenReturn("idAttrId");
+    when(idAttr.getDataType()).thenReturn(STRING);
+    when(idAttr.isUnique()).thenReturn(true);
+
+    Attribute attr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    when(attr.getIdentifier()).thenReturn("attrId");
+    when(attr.getDataType()).thenReturn(STRING);
+
+    EntityType entityType = when(mock(EntityType.class).getId()).thenReturn("entity").getMock();
+    when(entityType.getId()).thenReturn("entityTypeId");
+    when(entityType.getAtomicAttributes()).thenReturn(newArrayList(idAttr, attr));
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAttribute("idAttr")).thenReturn(idAttr);
+    when(entityType.getAttribute("attr")).thenReturn(attr);
+
+    Entity keysetEntity = mock(Entity.class);
+    when(keysetEntity.getString("idAttr")).thenReturn("id0");
+    when(keysetEntity.getString("attr")).thenReturn("value0");
+
+    Query<Entity> q = new QueryImpl<>().sort(new Sort("attr", Sort.Direction.DESC));
+    List<Object> parameters = Lists.newArrayList();
+    assertEquals(
+        PostgreSqlQueryGenerator.getSqlSelect(entityType, q, parameters, true, keysetEntity),
+        "SELECT this.\"idAttr\", this.\"attr\" FROM \"entityTypeId#c34894ba\" AS this WHERE ((this.\"attr\" < ?) OR (this.\"attr\" = ? AND this.\"idAttr\" > ?)) ORDER BY \"attr\" DESC, \"idAttr\" ASC");
+    assertEquals(parameters, asList("value0", "value0", "id0"));
+  }
+
+  @Test
+  public void isKeysetPaginationSupported() {
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    when(idAttr.getDataType()).thenReturn(STRING);
+    when(idAttr.isUnique()).thenReturn(true);
+
+    Attribute attr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    when(attr.getDataType()).thenReturn(STRING);
+
+    EntityType entityType = when(mock(EntityType.class).getId()).thenReturn("entity").getMock();
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAttribute("idAttr")).thenReturn(idAttr);
+    when(entityType.getAttribute("attr")).thenReturn(attr);
+
+    Query<Entity> q = new QueryImpl<>().sort(new Sort("attr"));
+    assertTrue(PostgreSqlQueryGenerator.isKeysetPaginationSupported(entityType, q));
+  }
+
+  @Test
+  public void isKeysetPaginationSupportedNillableSortAttribute() {
+    Attribute idAttr = when(mock(Attribute.class).getName()).thenReturn("idAttr").getMock();
+    when(idAttr.getDataType()).thenReturn(STRING);
+    when(idAttr.isUnique()).thenReturn(true);
+
+    Attribute attr = when(mock(Attribute.class).getName()).thenReturn("attr").getMock();
+    when(attr.getDataType()).thenReturn(STRING);
+    when(attr.isNillable()).thenReturn(true);
+
+    EntityType entityType = when(mock(EntityType.class).getId()).thenReturn("entity").getMock();
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAttribute("idAttr")).thenReturn(idAttr);
+    when(entityType.getAttribute("attr")).thenReturn(attr);
+
+    Query<Entity> q = new QueryImpl<>().sort(new Sort("attr"));
+    assertFalse(PostgreSqlQueryGenerator.isKeysetPaginationSupported(entityType, q));
+  }
+
   @Test
   public void getSqlSortOnUnselectedMref() {
     Package package_ = when(mock(Package.class).getId()).thenReturn("org_molgenis").getMock();
@@ -1350,6 +1522,73 @@ public class PostgreSqlQueryGeneratorTest {
             + "(\"data_categories_filter3\".\"data_categories\" = ?  OR \"data_categories_filter4\".\"data_categories\" = ?))");
   }
 
+  @Test
+  public void getSqlWherePermitted() {
+    Attribute idAttribute = createIdAttribute("id");
+    EntityType entityType = createMockEntityWithIdAttribute("entity", idAttribute, "id");
+    PermissionFilter permissionFilter =
+        PermissionFilter.create(
+            "entity-entity",
+            asList(new PrincipalSid("user"), new GrantedAuthoritySid("ROLE_USER")),
+            asList(4, 8));
+    QueryImpl<Entity> q =
+        new QueryImpl<>(
+            newArrayList(
+                new QueryRule("id", EQUALS, "id0"),
+                new QueryRule(AND),
+                new QueryRule(PERMITTED, permissionFilter)));
+
+    List<Object> parameters = Lists.newArrayList();
+    String sqlWhere =
+        PostgreSqlQueryGenerator.getSqlWhere(entityType, q, parameters, new AtomicInteger());
+    assertEquals(
+        sqlWhere,
+        "this.\"id\" = ?  AND (WITH RECURSIVE acl_chain"
+            + " (id, parent_object, entries_inheriting, depth) AS ("
+            + "SELECT acl_object_identity.id, acl_object_identity.parent_object,"
+            + " acl_object_identity.entries_inheriting, 0 FROM acl_object_identity"
+            + " JOIN acl_class ON acl_object_identity.object_id_class = acl_class.id"
+            + " WHERE acl_class.class = ? AND acl_object_identity.object_id_identity ="
+            + " CAST(this.\"id\" AS VARCHAR)"
+            + " UNION ALL SELECT acl_object_identity.id, acl_object_identity.parent_object,"
+            + " acl_object_identity.entries_inheriting, acl_chain.depth + 1 FROM acl_chain"
+            + " JOIN acl_object_identity ON acl_chain.parent_object = acl_object_identity.id"
+            + " WHERE acl_chain.entries_inheriting),"
+            + " matching_entries AS (SELECT acl_chain.depth, permissions.permission_order,"
+            + " sids.sid_order, acl_entry.ace_order, acl_entry.granting FROM acl_chain"
+            + " JOIN acl_entry ON acl_entry.acl_object_identity = acl_chain.id"
+            + " JOIN acl_sid ON acl_entry.sid = acl_sid.id"
+            + " JOIN (VALUES (0, ?, ?), (1, ?, ?)) AS sids (sid_order, principal, sid)"
+            + " ON acl_sid.principal = sids.principal AND acl_sid.sid = sids.sid"
+            + " JOIN (VALUES (0, ?), (1, ?)) AS permissions (permission_order, mask)"
+            + " ON (acl_entry.mask & permissions.mask) <> 0)"
+            + " SELECT bool_or(decisions.granting) FROM (SELECT DISTINCT ON"
+            + " (matching_entries.permission_order) matching_entries.granting"
+            + " FROM matching_entries"
+            + " WHERE matching_entries.depth = (SELECT MIN(depth) FROM matching_entries)"
+            + " ORDER BY matching_entries.permission_order, matching_entries.sid_order,"
+            + " matching_entries.ace_order) AS decisions) IS TRUE");
+    assertEquals(
+        parameters, asList("id0", "entity-entity", true, "user", false, "ROLE_USER", 4, 8));
+  }
+
+  @Test
+  public void getSqlWherePermittedNoSids() {
+    Attribute idAttribute = createIdAttribute("id");
+    EntityType entityType = createMockEntityWithIdAttribute("entity", idAttribute, "id");
+    QueryImpl<Entity> q =
+        new QueryImpl<>(
+            new QueryRule(
+                PERMITTED,
+                PermissionFilter.create("entity-entity", emptyList(), singletonList(3))));
+
+    List<Object> parameters = Lists.newArrayList();
+    assertEquals(
+        PostgreSqlQueryGenerator.getSqlWhere(entityType, q, parameters, new AtomicInteger()),
+        "FALSE");
+    assertEquals(parameters, emptyList());
+  }
+
   private Attribute createIdAttribute(String idAttributeName) {
     final String idAttributeIdentifier = idAttributeName + "AttrId";
     Attribute idAttribute =
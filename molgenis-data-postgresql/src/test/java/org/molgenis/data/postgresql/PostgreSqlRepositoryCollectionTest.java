@@ -51,7 +51,7 @@ public class PostgreSqlRepositoryCollectionTest {
     dataService = mock(DataService.class);
     postgreSqlRepoCollection =
         new PostgreSqlRepositoryCollection(
-            postgreSqlEntityFactory, dataSource, jdbcTemplate, dataService);
+            postgreSqlEntityFactory, dataSource, jdbcTemplate, dataService, 1000);
   }
 
   @Test
@@ -6,6 +6,7 @@ import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.isNull;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockitoSession;
@@ -223,6 +224,28 @@ public class PostgreSqlRepositoryTest {
     postgreSqlRepo.update(Stream.of(entity0, entity1));
   }
 
+  @Test
+  public void testUpsertBatch() {
+    Attribute idAttr = mock(Attribute.class);
+    when(idAttr.getName()).thenReturn("attr");
+    when(idAttr.getDataType()).thenReturn(STRING);
+
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getAtomicAttributes()).thenReturn(singletonList(idAttr));
+    when(entityType.getId()).thenReturn("entity");
+
+    Entity entity0 = mock(Entity.class);
+    Entity entity1 = mock(Entity.class);
+
+    postgreSqlRepo.upsertBatch(newArrayList(entity0, entity1));
+    verify(jdbcTemplate)
+        .batchUpdate(
+            eq(
+                "INSERT INTO \"entity#6844280e\" (\"attr\") VALUES (?) ON CONFLICT (\"attr\") DO NOTHING"),
+            any(BatchPreparedStatementSetter.class));
+    verifyNoMoreInteractions(jdbcTemplate);
+  }
+
   @SuppressWarnings("ConstantConditions")
   @Test(
       expectedExceptions = NullPointerException.class,
@@ -175,6 +175,14 @@ public class RepositorySecurityDecorator extends AbstractRepositoryDecorator<Ent
     return delegate().add(entities);
   }
 
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    EntityType entityType = delegate().getEntityType();
+    validatePermission(entityType, ADD_DATA);
+    validatePermission(entityType, UPDATE_DATA);
+    delegate().upsertBatch(entities);
+  }
+
   @Override
   public AggregateResult aggregate(AggregateQuery aggregateQuery) {
     EntityType entityType = delegate().getEntityType();
@@ -2,6 +2,7 @@ package org.molgenis.data.security.aggregation;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.List;
 import org.molgenis.data.AbstractRepositoryDecorator;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Repository;
@@ -27,6 +28,11 @@ public class AggregateAnonymizerRepositoryDecorator<E extends Entity>
     this.aggregateAnonymizer = requireNonNull(aggregateAnonymizer);
   }
 
+  @Override
+  public void upsertBatch(List<E> entities) {
+    delegate().upsertBatch(entities);
+  }
+
   @Override
   public AggregateResult aggregate(AggregateQuery aggregateQuery) {
     AggregateResult result = delegate().aggregate(aggregateQuery);
@@ -12,6 +12,7 @@ import static org.molgenis.security.core.utils.SecurityUtils.currentUserIsSuOrSy
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 import org.molgenis.data.AbstractRepositoryDecorator;
@@ -50,12 +51,22 @@ public abstract class AbstractRowLevelSecurityRepositoryDecorator<E extends Enti
 
   @Override
   public Iterator<E> iterator() {
+    Optional<Query<E>> permittedQuery = createPermittedQuery(new QueryImpl<>(), READ);
+    if (permittedQuery.isPresent()) {
+      return delegate().findAll(permittedQuery.get()).iterator();
+    }
     Iterable<E> iterable = () -> delegate().iterator();
     return stream(iterable).filter(entity -> isActionPermitted(entity, READ)).iterator();
   }
 
   @Override
   public void forEachBatched(Fetch fetch, Consumer<List<E>> consumer, int batchSize) {
+    Optional<Query<E>> permittedQuery = createPermittedQuery(new QueryImpl<E>().fetch(fetch), READ);
+    if (permittedQuery.isPresent()) {
+      partition(delegate().findAll(permittedQuery.get()).iterator(), batchSize)
+          .forEachRemaining(consumer);
+      return;
+    }
     delegate()
         .forEachBatched(
             fetch,
@@ -70,11 +81,15 @@ public abstract class AbstractRowLevelSecurityRepositoryDecorator<E extends Enti
 
   @Override
   public long count() {
-    return findAllPermitted(COUNT).count();
+    return count(new QueryImpl<>());
   }
 
   @Override
   public long count(Query<E> q) {
+    Optional<Query<E>> permittedQuery = createPermittedQuery(q, COUNT);
+    if (permittedQuery.isPresent()) {
+      return delegate().count(permittedQuery.get());
+    }
     return findAllPermitted(q, COUNT).count();
   }
 
@@ -140,15 +155,18 @@ public abstract class AbstractRowLevelSecurityRepositoryDecorator<E extends Enti
   public void update(Stream<E> entities) {
     delegate()
         .update(
-            entities.filter(
-                (E entity) -> {
-                  if (isActionPermitted(entity, UPDATE)) {
-                    updateAcl(entity);
-                  } else {
-                    throwPermissionException(entity, UPDATE);
-                  }
-                  return true;
-                }));
+            stream(partition(entities.iterator(), BATCH_SIZE))
+                .flatMap(
+                    batch -> {
+                      batch.forEach(
+                          entity -> {
+                            if (!isActionPermitted(entity, UPDATE)) {
+                              throwPermissionException(entity, UPDATE);
+                            }
+                          });
+                      updateAcls(batch);
+                      return batch.stream();
+                    }));
   }
 
   @Override
@@ -187,7 +205,7 @@ public abstract class AbstractRowLevelSecurityRepositoryDecorator<E extends Enti
               List<Object> filteredIds =
                   idsBatch.stream().filter(id -> isActionPermitted(id, DELETE)).collect(toList());
               delegate().deleteAll(filteredIds.stream());
-              filteredIds.forEach(this::deleteAcl);
+              deleteAclsById(filteredIds);
             });
   }
 
@@ -201,7 +219,7 @@ public abstract class AbstractRowLevelSecurityRepositoryDecorator<E extends Enti
     List<E> filteredEntities =
         entities.stream().filter(entity -> isActionPermitted(entity, DELETE)).collect(toList());
     delegate().delete(filteredEntities.stream());
-    filteredEntities.forEach(this::deleteAcl);
+    deleteAcls(filteredEntities);
   }
 
   @Override
@@ -216,20 +234,22 @@ public abstract class AbstractRowLevelSecurityRepositoryDecorator<E extends Enti
   public Integer add(Stream<E> entities) {
     return delegate()
         .add(
-            entities.filter(
-                entity -> {
-                  // throws exception if no permission on the containing package
-                  isActionPermitted(entity, Action.CREATE);
-                  createAcl(entity);
-                  return true;
-                }));
-  }
-
-  private Stream<E> findAllPermitted(Action action) {
-    return findAllPermitted(new QueryImpl<>(), action);
+            stream(partition(entities.iterator(), BATCH_SIZE))
+                .flatMap(
+                    batch -> {
+                      // throws exception if no permission on the containing package
+                      batch.forEach(entity -> isActionPermitted(entity, Action.CREATE));
+                      createAcls(batch);
+                      return batch.stream();
+                    }));
   }
 
   private Stream<E> findAllPermitted(Query<E> query, Action action) {
+    Optional<Query<E>> permittedQuery = createPermittedQuery(query, action);
+    if (permittedQuery.isPresent()) {
+      return delegate().findAll(permittedQuery.get());
+    }
+
     Query<E> qWithoutLimitOffset = new QueryImpl<>(query);
     qWithoutLimitOffset.offset(0).pageSize(Integer.MAX_VALUE);
     Stream<E> permittedEntityStream =
@@ -243,6 +263,36 @@ public abstract class AbstractRowLevelSecurityRepositoryDecorator<E extends Enti
     return permittedEntityStream;
   }
 
+  /**
+   * Returns a query that only matches the entities of the given query on which the action is
+   * permitted, so that the decorated repository can evaluate permissions instead of this decorator
+   * checking them entity by entity. Returns an empty optional if permissions can not be evaluated
+   * by the decorated repository.
+   */
+  protected Optional<Query<E>> createPermittedQuery(Query<E> query, Action action) {
+    return Optional.empty();
+  }
+
+  /** Creates the ACLs of a batch of entities, override to create them in bulk. */
+  protected void createAcls(List<E> entities) {
+    entities.forEach(this::createAcl);
+  }
+
+  /** Updates the ACLs of a batch of entities, override to update them in bulk. */
+  protected void updateAcls(List<E> entities) {
+    entities.forEach(this::updateAcl);
+  }
+
+  /** Deletes the ACLs of a batch of entities, override to delete them in bulk. */
+  protected void deleteAcls(List<E> entities) {
+    entities.forEach(this::deleteAcl);
+  }
+
+  /** Deletes the ACLs of a batch of entity ids, override to delete them in bulk. */
+  protected void deleteAclsById(List<Object> ids) {
+    ids.forEach(this::deleteAcl);
+  }
+
   void deleteAcl(ObjectIdentity objectIdentity) {
     mutableAclService.deleteAcl(objectIdentity, true);
   }
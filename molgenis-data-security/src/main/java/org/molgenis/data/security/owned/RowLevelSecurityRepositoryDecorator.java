@@ -1,21 +1,39 @@
 package org.molgenis.data.security.owned;
 
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+import static org.molgenis.data.QueryRule.Operator.PERMITTED;
+import static org.molgenis.security.core.utils.SecurityUtils.currentUserIsSuOrSystem;
 
+import java.util.List;
+import java.util.Optional;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityAlreadyExistsException;
+import org.molgenis.data.PermissionFilter;
+import org.molgenis.data.Query;
+import org.molgenis.data.QueryRule;
+import org.molgenis.data.QueryRule.Operator;
 import org.molgenis.data.Repository;
 import org.molgenis.data.security.EntityIdentity;
+import org.molgenis.data.security.EntityIdentityUtils;
 import org.molgenis.data.security.EntityPermission;
 import org.molgenis.data.security.exception.EntityPermissionDeniedException;
+import org.molgenis.data.support.QueryImpl;
+import org.molgenis.security.acl.BatchMutableAclService;
+import org.molgenis.security.core.PermissionRegistry;
 import org.molgenis.security.core.PermissionSet;
 import org.molgenis.security.core.SidUtils;
 import org.molgenis.security.core.UserPermissionEvaluator;
 import org.molgenis.util.UnexpectedEnumException;
 import org.springframework.security.acls.model.AlreadyExistsException;
 import org.springframework.security.acls.model.MutableAcl;
-import org.springframework.security.acls.model.MutableAclService;
+import org.springframework.security.acls.model.ObjectIdentity;
 import org.springframework.security.acls.model.Sid;
+import org.springframework.security.acls.model.SidRetrievalStrategy;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 
 /**
  * RepositoryDecorator that works on EntityTypes that are row-level secured. It is reponsible to
@@ -23,16 +41,37 @@ import org.springframework.security.acls.model.Sid;
  */
 public class RowLevelSecurityRepositoryDecorator
     extends AbstractRowLevelSecurityRepositoryDecorator<Entity> {
+  /** Determines how permissions on entities are evaluated when reading or counting entities. */
+  public enum RowLevelSecurityMode {
+    /** Check permissions for each entity returned by the decorated repository */
+    ENTITY,
+    /**
+     * Add a permission rule to the query so that the decorated repository only returns permitted
+     * entities, falls back to {@link #ENTITY} if the decorated repository does not support {@link
+     * Operator#PERMITTED}.
+     */
+    QUERY
+  }
+
   private final UserPermissionEvaluator userPermissionEvaluator;
-  private final MutableAclService mutableAclService;
+  private final BatchMutableAclService mutableAclService;
+  private final PermissionRegistry permissionRegistry;
+  private final RowLevelSecurityMode rowLevelSecurityMode;
+  private final SidRetrievalStrategy sidRetrievalStrategy;
 
   RowLevelSecurityRepositoryDecorator(
       Repository<Entity> delegateRepository,
       UserPermissionEvaluator userPermissionEvaluator,
-      MutableAclService mutableAclService) {
+      BatchMutableAclService mutableAclService,
+      PermissionRegistry permissionRegistry,
+      SidRetrievalStrategy sidRetrievalStrategy,
+      RowLevelSecurityMode rowLevelSecurityMode) {
     super(delegateRepository, mutableAclService);
     this.userPermissionEvaluator = requireNonNull(userPermissionEvaluator);
     this.mutableAclService = requireNonNull(mutableAclService);
+    this.permissionRegistry = requireNonNull(permissionRegistry);
+    this.sidRetrievalStrategy = requireNonNull(sidRetrievalStrategy);
+    this.rowLevelSecurityMode = requireNonNull(rowLevelSecurityMode);
   }
 
   @Override
@@ -50,6 +89,43 @@ public class RowLevelSecurityRepositoryDecorator
     throw new EntityPermissionDeniedException(getPermission(action), entity);
   }
 
+  @Override
+  protected Optional<Query<Entity>> createPermittedQuery(Query<Entity> query, Action action) {
+    if (rowLevelSecurityMode != RowLevelSecurityMode.QUERY
+        || !delegate().getQueryOperators().contains(PERMITTED)) {
+      return Optional.empty();
+    }
+    if (currentUserIsSuOrSystem()) {
+      return Optional.of(query);
+    }
+
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    List<Sid> sids =
+        authentication != null ? sidRetrievalStrategy.getSids(authentication) : emptyList();
+    // same cumulative permission as the one checked by the user permission evaluator
+    int mask = 0;
+    for (PermissionSet permissionSet : permissionRegistry.getPermissions(getPermission(action))) {
+      mask |= permissionSet.getMask();
+    }
+    PermissionFilter permissionFilter =
+        PermissionFilter.create(
+            EntityIdentityUtils.toType(getEntityType()), sids, singletonList(mask));
+
+    QueryImpl<Entity> permittedQuery = new QueryImpl<>();
+    if (!query.getRules().isEmpty()) {
+      permittedQuery.nest();
+      query.getRules().forEach(permittedQuery::addRule);
+      permittedQuery.unnest();
+      permittedQuery.and();
+    }
+    permittedQuery.addRule(new QueryRule(PERMITTED, permissionFilter));
+    permittedQuery.setOffset(query.getOffset());
+    permittedQuery.setPageSize(query.getPageSize());
+    permittedQuery.setSort(query.getSort());
+    permittedQuery.setFetch(query.getFetch());
+    return Optional.of(permittedQuery);
+  }
+
   private boolean isActionPermitted(EntityIdentity entityIdentity, Action action) {
     if (action == Action.CREATE) {
       return true;
@@ -98,6 +174,29 @@ public class RowLevelSecurityRepositoryDecorator
     mutableAclService.updateAcl(acl);
   }
 
+  @Override
+  protected void createAcls(List<Entity> entities) {
+    List<ObjectIdentity> entityIdentities =
+        entities.stream().map(EntityIdentity::new).collect(toList());
+    Sid sid = SidUtils.createSecurityContextSid();
+    try {
+      mutableAclService.createAcls(entityIdentities, sid, PermissionSet.WRITE);
+    } catch (AlreadyExistsException e) {
+      // no ACLs were created, create them one by one to report the entity that already exists
+      super.createAcls(entities);
+    }
+  }
+
+  @Override
+  protected void deleteAcls(List<Entity> entities) {
+    mutableAclService.deleteAcls(entities.stream().map(EntityIdentity::new).collect(toList()));
+  }
+
+  @Override
+  protected void deleteAclsById(List<Object> ids) {
+    mutableAclService.deleteAcls(ids.stream().map(this::toEntityIdentity).collect(toList()));
+  }
+
   @Override
   public void deleteAcl(Entity entity) {
     EntityIdentity entityIdentity = new EntityIdentity(entity);
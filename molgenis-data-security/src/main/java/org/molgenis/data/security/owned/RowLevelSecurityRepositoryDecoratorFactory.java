@@ -5,25 +5,38 @@ import static java.util.Objects.requireNonNull;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Repository;
 import org.molgenis.data.security.EntityIdentityUtils;
+import org.molgenis.data.security.owned.RowLevelSecurityRepositoryDecorator.RowLevelSecurityMode;
+import org.molgenis.security.acl.BatchMutableAclService;
 import org.molgenis.security.acl.MutableAclClassService;
+import org.molgenis.security.core.PermissionRegistry;
 import org.molgenis.security.core.UserPermissionEvaluator;
-import org.springframework.security.acls.model.MutableAclService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.acls.model.SidRetrievalStrategy;
 import org.springframework.stereotype.Component;
 
 /** @see RowLevelSecurityRepositoryDecorator */
 @Component
 public class RowLevelSecurityRepositoryDecoratorFactory {
   private final UserPermissionEvaluator userPermissionEvaluator;
-  private final MutableAclService mutableAclService;
+  private final BatchMutableAclService mutableAclService;
   private final MutableAclClassService mutableAclClassService;
+  private final PermissionRegistry permissionRegistry;
+  private final SidRetrievalStrategy sidRetrievalStrategy;
+  private final RowLevelSecurityMode rowLevelSecurityMode;
 
   RowLevelSecurityRepositoryDecoratorFactory(
       UserPermissionEvaluator userPermissionEvaluator,
-      MutableAclService mutableAclService,
-      MutableAclClassService mutableAclClassService) {
+      BatchMutableAclService mutableAclService,
+      MutableAclClassService mutableAclClassService,
+      PermissionRegistry permissionRegistry,
+      SidRetrievalStrategy sidRetrievalStrategy,
+      @Value("${row_level_security.mode:QUERY}") RowLevelSecurityMode rowLevelSecurityMode) {
     this.userPermissionEvaluator = requireNonNull(userPermissionEvaluator);
     this.mutableAclService = requireNonNull(mutableAclService);
     this.mutableAclClassService = requireNonNull(mutableAclClassService);
+    this.permissionRegistry = requireNonNull(permissionRegistry);
+    this.sidRetrievalStrategy = requireNonNull(sidRetrievalStrategy);
+    this.rowLevelSecurityMode = requireNonNull(rowLevelSecurityMode);
   }
 
   public Repository<Entity> createDecoratedRepository(Repository<Entity> repository) {
@@ -31,7 +44,12 @@ public class RowLevelSecurityRepositoryDecoratorFactory {
     if (isRowLevelSecured(repository)) {
       decoratedRepository =
           new RowLevelSecurityRepositoryDecorator(
-              repository, userPermissionEvaluator, mutableAclService);
+              repository,
+              userPermissionEvaluator,
+              mutableAclService,
+              permissionRegistry,
+              sidRetrievalStrategy,
+              rowLevelSecurityMode);
     } else {
       decoratedRepository = repository;
     }
@@ -1,5 +1,6 @@
 package org.molgenis.data.security;
 
+import static java.util.Collections.singletonList;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -7,6 +8,7 @@ import static org.mockito.Mockito.when;
 import static org.molgenis.data.security.EntityTypePermission.ADD_DATA;
 import static org.molgenis.data.security.EntityTypePermission.AGGREGATE_DATA;
 import static org.molgenis.data.security.EntityTypePermission.COUNT_DATA;
+import static org.molgenis.data.security.EntityTypePermission.UPDATE_DATA;
 
 import java.io.IOException;
 import java.util.List;
@@ -420,6 +422,28 @@ public class RepositorySecurityDecoratorTest extends AbstractMockitoTest {
     verify(delegateRepository).update(entityStream);
   }
 
+  @Test
+  public void testUpsertBatchPermissionGranted() {
+    initPermissionServiceMock(ADD_DATA, true);
+    when(permissionService.hasPermission(new EntityTypeIdentity("entityTypeId"), UPDATE_DATA))
+        .thenReturn(true);
+    List<Entity> entities = singletonList(mock(Entity.class));
+    repositorySecurityDecorator.upsertBatch(entities);
+    verify(delegateRepository).upsertBatch(entities);
+  }
+
+  @Test(
+      expectedExceptions = EntityTypePermissionDeniedException.class,
+      expectedExceptionsMessageRegExp = "permission:UPDATE_DATA entityTypeId:entityTypeId")
+  public void testUpsertBatchPermissionDenied() {
+    initPermissionServiceMock(ADD_DATA, true);
+    when(permissionService.hasPermission(new EntityTypeIdentity("entityTypeId"), UPDATE_DATA))
+        .thenReturn(false);
+    List<Entity> entities = singletonList(mock(Entity.class));
+    repositorySecurityDecorator.upsertBatch(entities);
+    verify(delegateRepository).upsertBatch(entities);
+  }
+
   private void initPermissionServiceMock(EntityTypePermission permission, boolean hasPermission) {
     EntityType entityType = mock(EntityType.class);
     String entityTypeId = "entityTypeId";
@@ -9,29 +9,39 @@ import org.mockito.Mock;
 import org.molgenis.data.Entity;
 import org.molgenis.data.Repository;
 import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.security.owned.RowLevelSecurityRepositoryDecorator.RowLevelSecurityMode;
+import org.molgenis.security.acl.BatchMutableAclService;
 import org.molgenis.security.acl.MutableAclClassService;
+import org.molgenis.security.core.PermissionRegistry;
 import org.molgenis.security.core.UserPermissionEvaluator;
 import org.molgenis.test.AbstractMockitoTest;
-import org.springframework.security.acls.model.MutableAclService;
+import org.springframework.security.acls.model.SidRetrievalStrategy;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 public class RowLevelSecurityRepositoryDecoratorFactoryTest extends AbstractMockitoTest {
   @Mock private UserPermissionEvaluator userPermissionEvaluator;
-  @Mock private MutableAclService mutableAclService;
+  @Mock private BatchMutableAclService mutableAclService;
   @Mock private MutableAclClassService mutableAclClassService;
+  @Mock private PermissionRegistry permissionRegistry;
+  @Mock private SidRetrievalStrategy sidRetrievalStrategy;
   private RowLevelSecurityRepositoryDecoratorFactory rowLevelSecurityRepositoryDecoratorFactory;
 
   @BeforeMethod
   public void setUpBeforeMethod() {
     rowLevelSecurityRepositoryDecoratorFactory =
         new RowLevelSecurityRepositoryDecoratorFactory(
-            userPermissionEvaluator, mutableAclService, mutableAclClassService);
+            userPermissionEvaluator,
+            mutableAclService,
+            mutableAclClassService,
+            permissionRegistry,
+            sidRetrievalStrategy,
+            RowLevelSecurityMode.QUERY);
   }
 
   @Test(expectedExceptions = NullPointerException.class)
   public void testRowLevelSecurityRepositoryDecoratorFactory() {
-    new RowLevelSecurityRepositoryDecoratorFactory(null, null, null);
+    new RowLevelSecurityRepositoryDecoratorFactory(null, null, null, null, null, null);
   }
 
   @Test
@@ -7,16 +7,23 @@ import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
+import static org.molgenis.data.QueryRule.Operator.AND;
+import static org.molgenis.data.QueryRule.Operator.EQUALS;
+import static org.molgenis.data.QueryRule.Operator.PERMITTED;
 import static org.molgenis.data.security.EntityPermission.READ;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
 
+import com.google.common.collect.ImmutableSet;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
@@ -25,7 +32,9 @@ import org.mockito.Mock;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityAlreadyExistsException;
 import org.molgenis.data.Fetch;
+import org.molgenis.data.PermissionFilter;
 import org.molgenis.data.Query;
+import org.molgenis.data.QueryRule;
 import org.molgenis.data.Repository;
 import org.molgenis.data.aggregation.AggregateQuery;
 import org.molgenis.data.aggregation.AggregateResult;
@@ -33,14 +42,18 @@ import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.security.EntityIdentity;
 import org.molgenis.data.security.EntityPermission;
 import org.molgenis.data.security.exception.EntityPermissionDeniedException;
+import org.molgenis.data.security.owned.RowLevelSecurityRepositoryDecorator.RowLevelSecurityMode;
 import org.molgenis.data.support.QueryImpl;
+import org.molgenis.security.acl.BatchMutableAclService;
+import org.molgenis.security.core.PermissionRegistry;
 import org.molgenis.security.core.PermissionSet;
 import org.molgenis.security.core.UserPermissionEvaluator;
 import org.molgenis.test.AbstractMockitoTestNGSpringContextTests;
+import org.springframework.security.acls.domain.GrantedAuthoritySid;
 import org.springframework.security.acls.domain.PrincipalSid;
+import org.springframework.security.acls.domain.SidRetrievalStrategyImpl;
 import org.springframework.security.acls.model.AlreadyExistsException;
 import org.springframework.security.acls.model.MutableAcl;
-import org.springframework.security.acls.model.MutableAclService;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.security.test.context.support.WithSecurityContextTestExecutionListener;
 import org.springframework.test.context.ContextConfiguration;
@@ -56,19 +69,25 @@ public class RowLevelSecurityRepositoryDecoratorTest
 
   @Mock private Repository<Entity> delegateRepository;
   @Mock private UserPermissionEvaluator userPermissionEvaluator;
-  @Mock private MutableAclService mutableAclService;
+  @Mock private BatchMutableAclService mutableAclService;
+  @Mock private PermissionRegistry permissionRegistry;
   private RowLevelSecurityRepositoryDecorator rowLevelSecurityRepositoryDecorator;
 
   @BeforeMethod
   public void setUpBeforeMethod() {
     rowLevelSecurityRepositoryDecorator =
         new RowLevelSecurityRepositoryDecorator(
-            delegateRepository, userPermissionEvaluator, mutableAclService);
+            delegateRepository,
+            userPermissionEvaluator,
+            mutableAclService,
+            permissionRegistry,
+            new SidRetrievalStrategyImpl(),
+            RowLevelSecurityMode.QUERY);
   }
 
   @Test(expectedExceptions = NullPointerException.class)
   public void testRowLevelSecurityRepositoryDecorator() {
-    new RowLevelSecurityRepositoryDecorator(null, null, null);
+    new RowLevelSecurityRepositoryDecorator(null, null, null, null, null, null);
   }
 
   @WithMockUser(username = USERNAME)
@@ -88,8 +107,6 @@ public class RowLevelSecurityRepositoryDecoratorTest
   @Test
   public void testAddStream() {
     Entity entity = getEntityMock();
-    MutableAcl acl = mock(MutableAcl.class);
-    when(mutableAclService.createAcl(new EntityIdentity(entity))).thenReturn(acl);
 
     rowLevelSecurityRepositoryDecorator.add(Stream.of(entity));
 
@@ -97,7 +114,31 @@ public class RowLevelSecurityRepositoryDecoratorTest
     ArgumentCaptor<Stream<Entity>> entityStreamCaptor = ArgumentCaptor.forClass(Stream.class);
     verify(delegateRepository).add(entityStreamCaptor.capture());
     assertEquals(entityStreamCaptor.getValue().collect(toList()), singletonList(entity));
-    verify(acl).insertAce(0, PermissionSet.WRITE, new PrincipalSid(USERNAME), true);
+    verify(mutableAclService)
+        .createAcls(
+            singletonList(new EntityIdentity(entity)),
+            new PrincipalSid(USERNAME),
+            PermissionSet.WRITE);
+  }
+
+  @WithMockUser(username = USERNAME)
+  @Test(
+      expectedExceptions = EntityAlreadyExistsException.class,
+      expectedExceptionsMessageRegExp = "type:entityTypeId id:entityId")
+  public void testAddStreamAlreadyExists() {
+    Entity entity = getEntityMock();
+    EntityIdentity entityIdentity = new EntityIdentity(entity);
+    doThrow(new AlreadyExistsException(""))
+        .when(mutableAclService)
+        .createAcls(singletonList(entityIdentity), new PrincipalSid(USERNAME), PermissionSet.WRITE);
+    when(mutableAclService.createAcl(entityIdentity)).thenThrow(new AlreadyExistsException(""));
+
+    rowLevelSecurityRepositoryDecorator.add(Stream.of(entity));
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<Stream<Entity>> entityStreamCaptor = ArgumentCaptor.forClass(Stream.class);
+    verify(delegateRepository).add(entityStreamCaptor.capture());
+    entityStreamCaptor.getValue().collect(toList());
   }
 
   @WithMockUser(username = USERNAME)
@@ -189,7 +230,7 @@ public class RowLevelSecurityRepositoryDecoratorTest
     ArgumentCaptor<Stream<Entity>> entityStreamCaptor = ArgumentCaptor.forClass(Stream.class);
     verify(delegateRepository).delete(entityStreamCaptor.capture());
     assertEquals(entityStreamCaptor.getValue().collect(toList()), singletonList(entity));
-    verify(mutableAclService).deleteAcl(new EntityIdentity(entity), true);
+    verify(mutableAclService).deleteAcls(singletonList(new EntityIdentity(entity)));
   }
 
   @Test
@@ -256,6 +297,7 @@ public class RowLevelSecurityRepositoryDecoratorTest
     ArgumentCaptor<Stream<Entity>> entityStreamCaptor = ArgumentCaptor.forClass(Stream.class);
     verify(delegateRepository).delete(entityStreamCaptor.capture());
     assertEquals(entityStreamCaptor.getValue().collect(toList()), singletonList(permittedEntity));
+    verify(mutableAclService).deleteAcls(singletonList(new EntityIdentity(permittedEntity)));
   }
 
   @SuppressWarnings("unchecked")
@@ -299,7 +341,7 @@ public class RowLevelSecurityRepositoryDecoratorTest
     ArgumentCaptor<Stream<Object>> entityStreamCaptor = ArgumentCaptor.forClass(Stream.class);
     verify(delegateRepository).deleteAll(entityStreamCaptor.capture());
     assertEquals(entityStreamCaptor.getValue().collect(toList()), singletonList(entityId));
-    verify(mutableAclService).deleteAcl(new EntityIdentity(entityTypeId, entityId), true);
+    verify(mutableAclService).deleteAcls(singletonList(new EntityIdentity(entityTypeId, entityId)));
   }
 
   @Test
@@ -497,6 +539,73 @@ public class RowLevelSecurityRepositoryDecoratorTest
     assertEquals(rowLevelSecurityRepositoryDecorator.count(query), 0L);
   }
 
+  @WithMockUser(username = USERNAME, roles = "USER")
+  @Test
+  public void testCountQueryPermitted() {
+    EntityType entityType =
+        when(mock(EntityType.class).getId()).thenReturn("entityTypeId").getMock();
+    when(delegateRepository.getEntityType()).thenReturn(entityType);
+    when(delegateRepository.getQueryOperators()).thenReturn(EnumSet.of(EQUALS, AND, PERMITTED));
+    when(permissionRegistry.getPermissions(READ))
+        .thenReturn(ImmutableSet.of(PermissionSet.READ, PermissionSet.WRITE));
+    Query<Entity> query = new QueryImpl<>().eq("attr", "value").offset(1).pageSize(2);
+
+    PermissionFilter permissionFilter =
+        PermissionFilter.create(
+            "entity-entityTypeId",
+            asList(new PrincipalSid(USERNAME), new GrantedAuthoritySid("ROLE_USER")),
+            singletonList(PermissionSet.READ.getMask() | PermissionSet.WRITE.getMask()));
+    Query<Entity> permittedQuery = new QueryImpl<>();
+    permittedQuery.nest().eq("attr", "value").unnest();
+    permittedQuery.and();
+    ((QueryImpl<Entity>) permittedQuery).addRule(new QueryRule(PERMITTED, permissionFilter));
+    permittedQuery.offset(1).pageSize(2);
+    when(delegateRepository.count(permittedQuery)).thenReturn(2L);
+
+    assertEquals(rowLevelSecurityRepositoryDecorator.count(query), 2L);
+    verifyZeroInteractions(userPermissionEvaluator);
+  }
+
+  @WithMockUser(username = USERNAME, roles = "USER")
+  @Test
+  public void testFindAllPermitted() {
+    EntityType entityType =
+        when(mock(EntityType.class).getId()).thenReturn("entityTypeId").getMock();
+    when(delegateRepository.getEntityType()).thenReturn(entityType);
+    when(delegateRepository.getQueryOperators()).thenReturn(EnumSet.of(PERMITTED));
+    when(permissionRegistry.getPermissions(READ)).thenReturn(ImmutableSet.of(PermissionSet.READ));
+    Fetch fetch = new Fetch().field("attr");
+    Query<Entity> query = new QueryImpl<>().fetch(fetch);
+
+    PermissionFilter permissionFilter =
+        PermissionFilter.create(
+            "entity-entityTypeId",
+            asList(new PrincipalSid(USERNAME), new GrantedAuthoritySid("ROLE_USER")),
+            singletonList(PermissionSet.READ.getMask()));
+    Query<Entity> permittedQuery =
+        new QueryImpl<>(new QueryRule(PERMITTED, permissionFilter)).fetch(fetch);
+    Entity entity = mock(Entity.class);
+    when(delegateRepository.findAll(permittedQuery)).thenReturn(Stream.of(entity));
+
+    assertEquals(
+        rowLevelSecurityRepositoryDecorator.findAll(query).collect(toList()),
+        singletonList(entity));
+  }
+
+  @WithMockUser(username = USERNAME, roles = "SU")
+  @Test
+  public void testFindAllPermittedSuperuser() {
+    when(delegateRepository.getQueryOperators()).thenReturn(EnumSet.of(PERMITTED));
+    Query<Entity> query = new QueryImpl<>().eq("attr", "value");
+    Entity entity = mock(Entity.class);
+    when(delegateRepository.findAll(query)).thenReturn(Stream.of(entity));
+
+    assertEquals(
+        rowLevelSecurityRepositoryDecorator.findAll(query).collect(toList()),
+        singletonList(entity));
+    verifyZeroInteractions(permissionRegistry);
+  }
+
   @Test
   public void testIterator() {
     Entity entity = getEntityMock();
@@ -1,7 +1,6 @@
 package org.molgenis.data.validation;
 
 import static com.google.common.collect.Lists.newArrayList;
-import static com.google.common.collect.Streams.stream;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 import static org.molgenis.data.meta.AttributeType.EMAIL;
@@ -25,6 +24,7 @@ import org.molgenis.data.Range;
 import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.meta.model.EntityTypeSchema;
 import org.molgenis.data.util.EntityUtils;
 import org.molgenis.util.UnexpectedEnumException;
 import org.molgenis.validation.ConstraintViolation;
@@ -49,15 +49,19 @@ public class EntityAttributesValidator {
     Set<ConstraintViolation> violations = checkNullableExpressions(entity, meta);
     violations.addAll(checkValidationExpressions(entity, meta));
 
-    stream(meta.getAtomicAttributes())
-        .filter(this::isValidationAttribute)
-        .forEach(attr -> validateAttribute(entity, meta, attr).ifPresent(violations::add));
+    EntityTypeSchema entityTypeSchema = meta.getSchema();
+    for (int i = 0; i < entityTypeSchema.size(); i++) {
+      if (isValidationAttribute(entityTypeSchema, i)) {
+        validateAttribute(entity, meta, entityTypeSchema.getAttribute(i))
+            .ifPresent(violations::add);
+      }
+    }
 
     return violations;
   }
 
-  private boolean isValidationAttribute(Attribute attribute) {
-    return !attribute.hasExpression() && !attribute.isMappedBy();
+  private boolean isValidationAttribute(EntityTypeSchema entityTypeSchema, int index) {
+    return !entityTypeSchema.isComputed(index) && !entityTypeSchema.isMappedBy(index);
   }
 
   private Optional<ConstraintViolation> validateAttribute(
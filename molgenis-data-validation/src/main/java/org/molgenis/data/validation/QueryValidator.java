@@ -90,6 +90,10 @@ public class QueryValidator {
             .getNestedRules()
             .forEach(nestedQueryRule -> validateQueryRule(nestedQueryRule, entityType));
         break;
+      case PERMITTED:
+        // permission rules are added by row-level security and are not part of user queries
+        throw new MolgenisValidationException(
+            new ConstraintViolation(format("Invalid query operator [%s]", operator)));
       default:
         throw new UnexpectedEnumException(operator);
     }
@@ -11,6 +11,7 @@ import static java.util.Collections.unmodifiableMap;
 import static java.util.Collections.unmodifiableSet;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static org.molgenis.data.RepositoryCapability.VALIDATE_NOTNULL_CONSTRAINT;
 import static org.molgenis.data.RepositoryCapability.VALIDATE_READONLY_CONSTRAINT;
 import static org.molgenis.data.RepositoryCapability.VALIDATE_REFERENCE_CONSTRAINT;
@@ -19,12 +20,18 @@ import static org.molgenis.data.util.EntityTypeUtils.isMultipleReferenceType;
 import static org.molgenis.data.util.EntityTypeUtils.isReferenceType;
 import static org.molgenis.data.util.EntityTypeUtils.isSingleReferenceType;
 
+import com.google.common.collect.Iterators;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Streams;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
@@ -43,24 +50,54 @@ import org.molgenis.util.HugeSet;
 import org.molgenis.validation.ConstraintViolation;
 
 public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<Entity> {
+  private static final int BATCH_SIZE = 1000;
+
   private enum ValidationMode {
     ADD,
-    UPDATE
+    UPDATE,
+    /** entities are either added or updated, depending on whether they exist */
+    UPSERT
+  }
+
+  /**
+   * Determines which existing data is consulted when validating reference and unique constraints
+   */
+  public enum ValidationScope {
+    /** Load all referenced entity ids and all unique attribute values before validation */
+    REPOSITORY,
+    /** Only look up the referenced entity ids and unique attribute values of each entity batch */
+    BATCH
   }
 
   private final DataService dataService;
   private final EntityAttributesValidator entityAttributesValidator;
   private final DefaultValueReferenceValidator defaultValueReferenceValidator;
+  private final ValidationScope validationScope;
 
   public RepositoryValidationDecorator(
       DataService dataService,
       Repository<Entity> delegateRepository,
       EntityAttributesValidator entityAttributesValidator,
       DefaultValueReferenceValidator defaultValueReferenceValidator) {
+    this(
+        dataService,
+        delegateRepository,
+        entityAttributesValidator,
+        defaultValueReferenceValidator,
+        ValidationScope.BATCH);
+  }
+
+  public RepositoryValidationDecorator(
+      DataService dataService,
+      Repository<Entity> delegateRepository,
+      EntityAttributesValidator entityAttributesValidator,
+      DefaultValueReferenceValidator defaultValueReferenceValidator,
+      ValidationScope validationScope) {
     super(delegateRepository);
     this.dataService = requireNonNull(dataService);
     this.entityAttributesValidator = requireNonNull(entityAttributesValidator);
     this.defaultValueReferenceValidator = defaultValueReferenceValidator;
+    this.validationScope = requireNonNull(validationScope);
   }
 
   @Override
@@ -95,6 +132,20 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
     }
   }
 
+  /**
+   * Validates the batch without determining which entities already exist: unique values may only
+   * be taken by the entity itself and read-only values may only change for entities that do not
+   * exist yet.
+   */
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    try (ValidationResource validationResource = new ValidationResource()) {
+      // consume the stream to validate the entities before upserting the list
+      validate(entities.stream(), validationResource, ValidationMode.UPSERT).forEach(entity -> {});
+    }
+    delegate().upsertBatch(entities);
+  }
+
   @Override
   public void delete(Entity entity) {
     defaultValueReferenceValidator.validateEntityNotReferenced(entity);
@@ -137,6 +188,21 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
 
     ValidationProfile validationProfile = new ValidationProfile().invoke();
 
+    if (validationScope == ValidationScope.BATCH) {
+      // add batch validation operation to stream
+      Iterable<List<Entity>> iterable = () -> Iterators.partition(entities.iterator(), BATCH_SIZE);
+      return Streams.stream(iterable)
+          .flatMap(
+              batch -> {
+                initBatchValidation(batch, validationResource);
+                batch.forEach(
+                    entity ->
+                        validate(entity, validationResource, validationMode, validationProfile));
+                return batch.stream();
+              })
+          .onClose(entities::close);
+    }
+
     // add validation operation to stream
     return entities.filter(
         entity -> {
@@ -149,6 +215,9 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
   private void validate(
       Entity entity, ValidationResource validationResource, ValidationMode validationMode) {
     initValidation(validationResource, validationMode);
+    if (validationScope == ValidationScope.BATCH) {
+      initBatchValidation(singleton(entity), validationResource);
+    }
     validate(entity, validationResource, validationMode, new ValidationProfile().invoke());
   }
 
@@ -176,7 +245,7 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
 
     validateEntityValueReferences(entity, validationResource);
 
-    if (validationProfile.isValidateReadonly() && validationMode == ValidationMode.UPDATE) {
+    if (validationProfile.isValidateReadonly() && validationMode != ValidationMode.ADD) {
       validateEntityValueReadOnly(entity, validationResource);
     }
 
@@ -190,7 +259,7 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
     initRequiredValueValidation(validationResource);
     initReferenceValidation(validationResource);
     initUniqueValidation(validationResource);
-    if (validationMode == ValidationMode.UPDATE) {
+    if (validationMode != ValidationMode.ADD) {
       initReadonlyValidation(validationResource);
     }
   }
@@ -230,8 +299,20 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
               .collect(toList());
     }
 
+    boolean selfReferencing =
+        refAttrs
+            .stream()
+            .anyMatch(refAttr -> refAttr.getRefEntity().getId().equals(getEntityType().getId()));
+
     // get referenced entity ids
-    if (!refAttrs.isEmpty()) {
+    if (validationScope == ValidationScope.BATCH) {
+      // referenced entity ids are retrieved per batch, only keep track of entities in this stream
+      if (selfReferencing) {
+        Map<String, HugeSet<Object>> refEntitiesIds = new HashMap<>();
+        refEntitiesIds.put(getEntityType().getId(), new HugeSet<>());
+        validationResource.setRefEntitiesIds(refEntitiesIds);
+      }
+    } else if (!refAttrs.isEmpty()) {
       Map<String, HugeSet<Object>> refEntitiesIds = new HashMap<>();
       refAttrs.forEach(
           refAttr -> {
@@ -255,10 +336,7 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
       validationResource.setRefEntitiesIds(refEntitiesIds);
     }
 
-    validationResource.setSelfReferencing(
-        refAttrs
-            .stream()
-            .anyMatch(refAttr -> refAttr.getRefEntity().getId().equals(getEntityType().getId())));
+    validationResource.setSelfReferencing(selfReferencing);
     validationResource.setRefAttrs(refAttrs);
   }
 
@@ -277,7 +355,13 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
               .collect(toList());
 
       // get existing values for each attributes
-      if (!uniqueAttrs.isEmpty()) {
+      if (validationScope == ValidationScope.BATCH) {
+        // existing values are retrieved per batch, only keep track of values in this stream
+        Map<String, HugeMap<Object, Object>> uniqueAttrsValues = new HashMap<>();
+        uniqueAttrs.forEach(
+            uniqueAttr -> uniqueAttrsValues.put(uniqueAttr.getName(), new HugeMap<>()));
+        validationResource.setUniqueAttrsValues(uniqueAttrsValues);
+      } else if (!uniqueAttrs.isEmpty()) {
         Map<String, HugeMap<Object, Object>> uniqueAttrsValues = new HashMap<>();
 
         Fetch fetch = new Fetch();
@@ -312,6 +396,105 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
     }
   }
 
+  private void initBatchValidation(
+      Collection<Entity> entities, ValidationResource validationResource) {
+    initBatchReferenceValidation(entities, validationResource);
+    initBatchUniqueValidation(entities, validationResource);
+  }
+
+  /** Retrieve the ids of entities referenced by the given batch that exist in the data store */
+  private void initBatchReferenceValidation(
+      Collection<Entity> entities, ValidationResource validationResource) {
+    List<Attribute> refAttrs = validationResource.getRefAttrs();
+    if (refAttrs.isEmpty()) {
+      return;
+    }
+
+    // entity type id --> referenced entity ids
+    Map<String, EntityType> refEntityTypes = new HashMap<>();
+    SetMultimap<String, Object> refEntityIdsMap = LinkedHashMultimap.create();
+    entities.forEach(
+        entity ->
+            refAttrs.forEach(
+                refAttr -> {
+                  String refEntityTypeId = refAttr.getRefEntity().getId();
+                  refEntityTypes.putIfAbsent(refEntityTypeId, refAttr.getRefEntity());
+                  if (isSingleReferenceType(refAttr)) {
+                    Entity refEntity = entity.getEntity(refAttr.getName());
+                    if (refEntity != null) {
+                      refEntityIdsMap.put(refEntityTypeId, refEntity.getIdValue());
+                    }
+                  } else {
+                    entity
+                        .getEntities(refAttr.getName())
+                        .forEach(
+                            refEntity ->
+                                refEntityIdsMap.put(refEntityTypeId, refEntity.getIdValue()));
+                  }
+                }));
+
+    Map<String, Set<Object>> batchRefEntitiesIds = new HashMap<>();
+    refEntityIdsMap
+        .asMap()
+        .forEach(
+            (refEntityTypeId, refEntityIds) -> {
+              EntityType refEntityType = refEntityTypes.get(refEntityTypeId);
+              Fetch fetch = new Fetch().field(refEntityType.getIdAttribute().getName());
+              Set<Object> existingRefEntityIds =
+                  dataService
+                      .findAll(refEntityTypeId, refEntityIds.stream(), fetch)
+                      .map(Entity::getIdValue)
+                      .collect(toSet());
+              batchRefEntitiesIds.put(refEntityTypeId, existingRefEntityIds);
+            });
+    validationResource.setBatchRefEntitiesIds(batchRefEntitiesIds);
+  }
+
+  /** Retrieve the existing unique attribute values that occur in the given batch */
+  private void initBatchUniqueValidation(
+      Collection<Entity> entities, ValidationResource validationResource) {
+    List<Attribute> uniqueAttrs = validationResource.getUniqueAttrs();
+    if (uniqueAttrs.isEmpty()) {
+      return;
+    }
+
+    String idAttrName = getEntityType().getIdAttribute().getName();
+    Map<String, Map<Object, Object>> batchUniqueAttrsValues = new HashMap<>();
+    uniqueAttrs.forEach(
+        uniqueAttr -> {
+          Set<Object> attrValues =
+              entities
+                  .stream()
+                  .map(entity -> getUniqueAttrValue(entity, uniqueAttr))
+                  .filter(Objects::nonNull)
+                  .collect(toSet());
+
+          Map<Object, Object> uniqueAttrValues = new HashMap<>();
+          if (!attrValues.isEmpty()) {
+            Query<Entity> q =
+                new QueryImpl<>()
+                    .in(uniqueAttr.getName(), attrValues)
+                    .fetch(new Fetch().field(idAttrName).field(uniqueAttr.getName()));
+            delegate()
+                .findAll(q)
+                .forEach(
+                    entity ->
+                        uniqueAttrValues.put(
+                            getUniqueAttrValue(entity, uniqueAttr), entity.getIdValue()));
+          }
+          batchUniqueAttrsValues.put(uniqueAttr.getName(), uniqueAttrValues);
+        });
+    validationResource.setBatchUniqueAttrsValues(batchUniqueAttrsValues);
+  }
+
+  private static Object getUniqueAttrValue(Entity entity, Attribute uniqueAttr) {
+    Object attrValue = entity.get(uniqueAttr.getName());
+    if (attrValue != null && isSingleReferenceType(uniqueAttr)) {
+      attrValue = ((Entity) attrValue).getIdValue();
+    }
+    return attrValue;
+  }
+
   private void initReadonlyValidation(ValidationResource validationResource) {
     if (!getCapabilities().contains(VALIDATE_READONLY_CONSTRAINT)) {
       String idAttrName = getEntityType().getIdAttribute().getName();
@@ -370,11 +553,10 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
                   attrValue = ((Entity) attrValue).getIdValue();
                 }
 
-                HugeMap<Object, Object> uniqueAttrValues =
-                    validationResource.getUniqueAttrsValues().get(uniqueAttr.getName());
-                Object existingEntityId = uniqueAttrValues.get(attrValue);
+                Object existingEntityId =
+                    validationResource.getUniqueAttrValueEntityId(uniqueAttr.getName(), attrValue);
                 if ((validationMode == ValidationMode.ADD && existingEntityId != null)
-                    || (validationMode == ValidationMode.UPDATE
+                    || (validationMode != ValidationMode.ADD
                         && existingEntityId != null
                         && !existingEntityId.equals(entity.getIdValue()))) {
                   ConstraintViolation constraintViolation =
@@ -385,7 +567,10 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
                           (long) validationResource.getRow());
                   validationResource.addViolation(constraintViolation);
                 } else {
-                  uniqueAttrValues.put(attrValue, entity.getIdValue());
+                  validationResource
+                      .getUniqueAttrsValues()
+                      .get(uniqueAttr.getName())
+                      .put(attrValue, entity.getIdValue());
                 }
               }
             });
@@ -396,8 +581,7 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
         .getRefAttrs()
         .forEach(
             refAttr -> {
-              HugeSet<Object> refEntityIds =
-                  validationResource.getRefEntitiesIds().get(refAttr.getRefEntity().getId());
+              String refEntityTypeId = refAttr.getRefEntity().getId();
 
               Iterable<Entity> refEntities;
               if (isSingleReferenceType(refAttr)) {
@@ -412,7 +596,7 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
               }
 
               for (Entity refEntity : refEntities) {
-                if (!refEntityIds.contains(refEntity.getIdValue())) {
+                if (!validationResource.hasRefEntityId(refEntityTypeId, refEntity.getIdValue())) {
                   boolean selfReference =
                       entity.getEntityType().getId().equals(refAttr.getRefEntity().getId());
                   if (!(selfReference && entity.getIdValue().equals(refEntity.getIdValue()))) {
@@ -444,6 +628,10 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
     }
 
     Entity entityToUpdate = findOneById(entity.getIdValue());
+    if (entityToUpdate == null) {
+      // upserted entity that does not exist yet
+      return;
+    }
     validationResource
         .getReadonlyAttrs()
         .forEach(
@@ -488,8 +676,10 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
     private List<Attribute> requiredValueAttrs;
     private List<Attribute> refAttrs;
     private Map<String, HugeSet<Object>> refEntitiesIds;
+    private Map<String, Set<Object>> batchRefEntitiesIds;
     private List<Attribute> uniqueAttrs;
     private Map<String, HugeMap<Object, Object>> uniqueAttrsValues;
+    private Map<String, Map<Object, Object>> batchUniqueAttrsValues;
     private List<Attribute> readonlyAttrs;
     private boolean selfReferencing;
     private Set<ConstraintViolation> violations;
@@ -530,6 +720,20 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
       this.refEntitiesIds = refEntitiesIds;
     }
 
+    void setBatchRefEntitiesIds(Map<String, Set<Object>> batchRefEntitiesIds) {
+      this.batchRefEntitiesIds = batchRefEntitiesIds;
+    }
+
+    boolean hasRefEntityId(String refEntityTypeId, Object idValue) {
+      HugeSet<Object> refEntityIds = getRefEntitiesIds().get(refEntityTypeId);
+      if (refEntityIds != null && refEntityIds.contains(idValue)) {
+        return true;
+      }
+      Set<Object> batchRefEntityIds =
+          batchRefEntitiesIds != null ? batchRefEntitiesIds.get(refEntityTypeId) : null;
+      return batchRefEntityIds != null && batchRefEntityIds.contains(idValue);
+    }
+
     void addRefEntityId(String name, Object idValue) {
       HugeSet<Object> refEntityIds = refEntitiesIds.get(name);
       // only add entity id if this validation run requires entity
@@ -554,6 +758,25 @@ public class RepositoryValidationDecorator extends AbstractRepositoryDecorator<E
       this.uniqueAttrsValues = uniqueAttrsValues;
     }
 
+    void setBatchUniqueAttrsValues(Map<String, Map<Object, Object>> batchUniqueAttrsValues) {
+      this.batchUniqueAttrsValues = batchUniqueAttrsValues;
+    }
+
+    /**
+     * Returns the id of the entity that has the given unique attribute value, values encountered
+     * earlier in the validated stream take precedence over values in the current batch
+     */
+    Object getUniqueAttrValueEntityId(String attrName, Object attrValue) {
+      Object entityId = getUniqueAttrsValues().get(attrName).get(attrValue);
+      if (entityId == null && batchUniqueAttrsValues != null) {
+        Map<Object, Object> batchUniqueAttrValues = batchUniqueAttrsValues.get(attrName);
+        if (batchUniqueAttrValues != null) {
+          entityId = batchUniqueAttrValues.get(attrValue);
+        }
+      }
+      return entityId;
+    }
+
     List<Attribute> getReadonlyAttrs() {
       return readonlyAttrs != null ? unmodifiableList(readonlyAttrs) : emptyList();
     }
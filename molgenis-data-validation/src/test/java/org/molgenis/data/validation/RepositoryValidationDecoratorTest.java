@@ -4,8 +4,11 @@ import static java.util.Collections.emptyList;
 import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -32,6 +35,7 @@ import org.molgenis.data.meta.MetaDataService;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.support.QueryImpl;
+import org.molgenis.data.validation.RepositoryValidationDecorator.ValidationScope;
 import org.molgenis.validation.ConstraintViolation;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -210,7 +214,8 @@ public class RepositoryValidationDecoratorTest {
             dataService,
             delegateRepository,
             entityAttributesValidator,
-            defaultValueReferenceValidator);
+            defaultValueReferenceValidator,
+            ValidationScope.REPOSITORY);
   }
 
   @Test
@@ -3710,6 +3715,253 @@ public class RepositoryValidationDecoratorTest {
     }
   }
 
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void addStreamBatchScope() {
+    RepositoryValidationDecorator batchRepositoryValidationDecorator =
+        new RepositoryValidationDecorator(
+            dataService,
+            delegateRepository,
+            entityAttributesValidator,
+            defaultValueReferenceValidator,
+            ValidationScope.BATCH);
+
+    // entities
+    Entity entity0 = mock(Entity.class);
+    when(entity0.getEntityType()).thenReturn(entityType);
+
+    when(entity0.getIdValue()).thenReturn("id0");
+    when(entity0.getEntity(attrXrefName)).thenReturn(refEntity0);
+    when(entity0.getEntity(attrNillableXrefName)).thenReturn(null);
+    when(entity0.getEntities(attrMrefName)).thenReturn(Arrays.asList(refEntity0));
+    when(entity0.getEntities(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity0.getString(attrUniqueStringName)).thenReturn("unique0");
+    when(entity0.getEntity(attrUniqueXrefName)).thenReturn(refEntity0);
+
+    when(entity0.get(attrIdName)).thenReturn("id0");
+    when(entity0.get(attrXrefName)).thenReturn(refEntity0);
+    when(entity0.get(attrNillableXrefName)).thenReturn(null);
+    when(entity0.get(attrMrefName)).thenReturn(Arrays.asList(refEntity0));
+    when(entity0.get(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity0.get(attrUniqueStringName)).thenReturn("unique0");
+    when(entity0.get(attrUniqueXrefName)).thenReturn(refEntity0);
+
+    when(dataService.findAll(
+            eq(refEntityName), any(Stream.class), eq(new Fetch().field(refAttrIdName))))
+        .thenReturn(Stream.of(refEntity0));
+
+    // actual tests
+    List<Entity> entities = Arrays.asList(entity0);
+    batchRepositoryValidationDecorator.add(entities.stream());
+
+    ArgumentCaptor<Stream<Entity>> captor = ArgumentCaptor.forClass(Stream.class);
+    verify(delegateRepository, times(1)).add(captor.capture());
+    Stream<Entity> stream = captor.getValue();
+    assertEquals(stream.collect(toList()), entities); // process stream to enable validation
+
+    verify(entityAttributesValidator, times(1)).validate(entity0, entityType);
+    verify(dataService, never()).findAll(eq(refEntityName), any(Query.class));
+    verify(delegateRepository)
+        .findAll(
+            new QueryImpl<>()
+                .in(attrUniqueStringName, singleton("unique0"))
+                .fetch(new Fetch().field(attrIdName).field(attrUniqueStringName)));
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void addStreamBatchScopeReferenceXrefDoesNotExistsValidationError() {
+    RepositoryValidationDecorator batchRepositoryValidationDecorator =
+        new RepositoryValidationDecorator(
+            dataService,
+            delegateRepository,
+            entityAttributesValidator,
+            defaultValueReferenceValidator,
+            ValidationScope.BATCH);
+
+    // entities
+    Entity entity0 = mock(Entity.class);
+    when(entity0.getEntityType()).thenReturn(entityType);
+
+    when(entity0.getIdValue()).thenReturn("id0");
+    when(entity0.getEntity(attrXrefName)).thenReturn(refEntity1);
+    when(entity0.getEntity(attrNillableXrefName)).thenReturn(null);
+    when(entity0.getEntities(attrMrefName)).thenReturn(Arrays.asList(refEntity0));
+    when(entity0.getEntities(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity0.getString(attrUniqueStringName)).thenReturn("unique0");
+    when(entity0.getEntity(attrUniqueXrefName)).thenReturn(refEntity0);
+
+    when(entity0.get(attrIdName)).thenReturn("id0");
+    when(entity0.get(attrXrefName)).thenReturn(refEntity1);
+    when(entity0.get(attrNillableXrefName)).thenReturn(null);
+    when(entity0.get(attrMrefName)).thenReturn(Arrays.asList(refEntity0));
+    when(entity0.get(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity0.get(attrUniqueStringName)).thenReturn("unique0");
+    when(entity0.get(attrUniqueXrefName)).thenReturn(refEntity0);
+
+    when(dataService.findAll(
+            eq(refEntityName), any(Stream.class), eq(new Fetch().field(refAttrIdName))))
+        .thenReturn(Stream.of(refEntity0));
+
+    // actual tests
+    List<Entity> entities = Arrays.asList(entity0);
+    batchRepositoryValidationDecorator.add(entities.stream());
+
+    ArgumentCaptor<Stream<Entity>> captor = ArgumentCaptor.forClass(Stream.class);
+    verify(delegateRepository, times(1)).add(captor.capture());
+    Stream<Entity> stream = captor.getValue();
+    try {
+      stream.collect(toList()); // process stream to enable validation
+
+      throw new RuntimeException("Expected MolgenisValidationException instead of no exception");
+    } catch (MolgenisValidationException e) {
+      verify(entityAttributesValidator, times(1)).validate(entity0, entityType);
+      assertEquals(
+          e.getMessage(),
+          "Unknown xref value 'idref1' for attribute 'xrefAttr' of entity 'entity'. (entity 1)");
+    }
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  @Test
+  public void addStreamBatchScopeUniqueStringValueExistsInSourceValidationError() {
+    RepositoryValidationDecorator batchRepositoryValidationDecorator =
+        new RepositoryValidationDecorator(
+            dataService,
+            delegateRepository,
+            entityAttributesValidator,
+            defaultValueReferenceValidator,
+            ValidationScope.BATCH);
+
+    // entities
+    Entity entity0 = mock(Entity.class);
+    when(entity0.getEntityType()).thenReturn(entityType);
+
+    when(entity0.getIdValue()).thenReturn("id0");
+    when(entity0.getEntity(attrXrefName)).thenReturn(refEntity0);
+    when(entity0.getEntity(attrNillableXrefName)).thenReturn(null);
+    when(entity0.getEntities(attrMrefName)).thenReturn(Arrays.asList(refEntity0));
+    when(entity0.getEntities(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity0.getString(attrUniqueStringName)).thenReturn("unique0");
+    when(entity0.getEntity(attrUniqueXrefName)).thenReturn(refEntity0);
+
+    when(entity0.get(attrIdName)).thenReturn("id0");
+    when(entity0.get(attrXrefName)).thenReturn(refEntity0);
+    when(entity0.get(attrNillableXrefName)).thenReturn(null);
+    when(entity0.get(attrMrefName)).thenReturn(Arrays.asList(refEntity0));
+    when(entity0.get(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity0.get(attrUniqueStringName)).thenReturn("unique0");
+    when(entity0.get(attrUniqueXrefName)).thenReturn(refEntity0);
+
+    Entity entity1 = mock(Entity.class);
+    when(entity1.getEntityType()).thenReturn(entityType);
+
+    when(entity1.getIdValue()).thenReturn("id1");
+    when(entity1.getEntity(attrXrefName)).thenReturn(refEntity0);
+    when(entity1.getEntity(attrNillableXrefName)).thenReturn(null);
+    when(entity1.getEntities(attrMrefName)).thenReturn(Arrays.asList(refEntity0));
+    when(entity1.getEntities(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity1.getString(attrUniqueStringName)).thenReturn("unique0"); // duplicate
+    when(entity1.getEntity(attrUniqueXrefName)).thenReturn(refEntity1);
+
+    when(entity1.get(attrIdName)).thenReturn("id1");
+    when(entity1.get(attrXrefName)).thenReturn(refEntity0);
+    when(entity1.get(attrNillableXrefName)).thenReturn(null);
+    when(entity1.get(attrMrefName)).thenReturn(Arrays.asList(refEntity0));
+    when(entity1.get(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity1.get(attrUniqueStringName)).thenReturn("unique0"); // duplicate
+    when(entity1.get(attrUniqueXrefName)).thenReturn(refEntity1);
+
+    when(dataService.findAll(
+            eq(refEntityName), any(Stream.class), eq(new Fetch().field(refAttrIdName))))
+        .thenReturn(Stream.of(refEntity0, refEntity1));
+
+    // actual tests
+    List<Entity> entities = Arrays.asList(entity0, entity1);
+    batchRepositoryValidationDecorator.add(entities.stream());
+
+    ArgumentCaptor<Stream<Entity>> captor = ArgumentCaptor.forClass(Stream.class);
+    verify(delegateRepository, times(1)).add(captor.capture());
+    Stream<Entity> stream = captor.getValue();
+    try {
+      stream.collect(toList()); // process stream to enable validation
+
+      throw new RuntimeException("Expected MolgenisValidationException instead of no exception");
+    } catch (MolgenisValidationException e) {
+      verify(entityAttributesValidator, times(1)).validate(entity0, entityType);
+      verify(entityAttributesValidator, times(1)).validate(entity1, entityType);
+      assertEquals(
+          e.getMessage(),
+          "Duplicate value 'unique0' for unique attribute 'uniqueStringAttr' from entity 'entity' (entity 2)");
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void upsertBatch() {
+    RepositoryValidationDecorator batchRepositoryValidationDecorator =
+        new RepositoryValidationDecorator(
+            dataService,
+            delegateRepository,
+            entityAttributesValidator,
+            defaultValueReferenceValidator,
+            ValidationScope.BATCH);
+
+    // entities
+    Entity entity0 = mock(Entity.class);
+    when(entity0.getEntityType()).thenReturn(entityType);
+
+    when(entity0.getIdValue()).thenReturn("id0");
+    when(entity0.getEntity(attrXrefName)).thenReturn(refEntity0);
+    when(entity0.getEntity(attrNillableXrefName)).thenReturn(null);
+    when(entity0.getEntities(attrMrefName)).thenReturn(Arrays.asList(refEntity0));
+    when(entity0.getEntities(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity0.getString(attrUniqueStringName)).thenReturn("unique0");
+    when(entity0.getEntity(attrUniqueXrefName)).thenReturn(refEntity0);
+
+    when(entity0.get(attrIdName)).thenReturn("id0");
+    when(entity0.get(attrXrefName)).thenReturn(refEntity0);
+    when(entity0.get(attrNillableXrefName)).thenReturn(null);
+    when(entity0.get(attrMrefName)).thenReturn(Arrays.asList(refEntity0));
+    when(entity0.get(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity0.get(attrUniqueStringName)).thenReturn("unique0");
+    when(entity0.get(attrUniqueXrefName)).thenReturn(refEntity0);
+
+    Entity entity1 = mock(Entity.class);
+    when(entity1.getEntityType()).thenReturn(entityType);
+
+    when(entity1.getIdValue()).thenReturn("id1");
+    when(entity1.getEntity(attrXrefName)).thenReturn(refEntity1);
+    when(entity1.getEntity(attrNillableXrefName)).thenReturn(null);
+    when(entity1.getEntities(attrMrefName)).thenReturn(Arrays.asList(refEntity1));
+    when(entity1.getEntities(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity1.getString(attrUniqueStringName)).thenReturn("unique1");
+    when(entity1.getEntity(attrUniqueXrefName)).thenReturn(refEntity1);
+
+    when(entity1.get(attrIdName)).thenReturn("id1");
+    when(entity1.get(attrXrefName)).thenReturn(refEntity1);
+    when(entity1.get(attrNillableXrefName)).thenReturn(null);
+    when(entity1.get(attrMrefName)).thenReturn(Arrays.asList(refEntity1));
+    when(entity1.get(attrNillableMrefName)).thenReturn(emptyList());
+    when(entity1.get(attrUniqueStringName)).thenReturn("unique1");
+    when(entity1.get(attrUniqueXrefName)).thenReturn(refEntity1);
+
+    when(dataService.findAll(
+            eq(refEntityName), any(Stream.class), eq(new Fetch().field(refAttrIdName))))
+        .thenAnswer(invocation -> Stream.of(refEntity0, refEntity1));
+
+    // actual tests
+    List<Entity> entities = Arrays.asList(entity0, entity1);
+    batchRepositoryValidationDecorator.upsertBatch(entities);
+
+    verify(entityAttributesValidator, times(1)).validate(entity0, entityType);
+    verify(entityAttributesValidator, times(1)).validate(entity1, entityType);
+    verify(delegateRepository, times(1)).upsertBatch(entities);
+    verify(delegateRepository, never()).getExistingIDs(any());
+    verify(delegateRepository, never()).add(any(Stream.class));
+    verify(delegateRepository, never()).update(any(Stream.class));
+  }
+
   @Test
   public void findAllStream() {
     Object id0 = "id0";
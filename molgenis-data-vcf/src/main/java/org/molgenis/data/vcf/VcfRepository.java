@@ -3,35 +3,53 @@ package org.molgenis.data.vcf;
 import static com.google.common.collect.Iterators.partition;
 import static com.google.common.collect.Iterators.transform;
 import static com.google.common.collect.Streams.stream;
+import static java.lang.String.format;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.requireNonNull;
+import static org.molgenis.data.RepositoryCapability.QUERYABLE;
+import static org.molgenis.data.vcf.model.VcfAttributes.CHROM;
+import static org.molgenis.data.vcf.model.VcfAttributes.POS;
 
+import com.google.common.io.Closeables;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import org.molgenis.data.Entity;
 import org.molgenis.data.MolgenisDataException;
+import org.molgenis.data.Query;
+import org.molgenis.data.QueryRule;
+import org.molgenis.data.QueryRule.Operator;
 import org.molgenis.data.RepositoryCapability;
 import org.molgenis.data.meta.model.AttributeFactory;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.meta.model.EntityTypeFactory;
 import org.molgenis.data.support.AbstractRepository;
+import org.molgenis.data.support.QueryImpl;
 import org.molgenis.data.vcf.format.VcfToEntity;
+import org.molgenis.data.vcf.index.BgzfInputStream;
+import org.molgenis.data.vcf.index.TabixIndex;
+import org.molgenis.data.vcf.index.TabixIndex.Chunk;
 import org.molgenis.data.vcf.model.VcfAttributes;
 import org.molgenis.vcf.VcfReader;
 import org.molgenis.vcf.meta.VcfMeta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Repository implementation for vcf files.
@@ -39,6 +57,8 @@ import org.molgenis.vcf.meta.VcfMeta;
  * <p>The filename without the extension is considered to be the entityname
  */
 public class VcfRepository extends AbstractRepository {
+  private static final Logger LOG = LoggerFactory.getLogger(VcfRepository.class);
+
   public static final String DEFAULT_ATTRIBUTE_DESCRIPTION = "Description not provided";
 
   public static final String NAME = "NAME";
@@ -46,12 +66,16 @@ public class VcfRepository extends AbstractRepository {
   public static final String PREFIX = "##";
 
   public static final int BATCH_SIZE = 1000;
+  private static final String TABIX_INDEX_EXTENSION = ".tbi";
+
   private final String entityTypeId;
   private final VcfAttributes vcfAttributes;
   private final EntityTypeFactory entityTypeFactory;
   private final AttributeFactory attrMetaFactory;
   private VcfToEntity vcfToEntity;
   private final File file;
+  private final TabixIndex tabixIndex;
+  private Long count;
 
   VcfRepository(
       File file,
@@ -65,6 +89,25 @@ public class VcfRepository extends AbstractRepository {
     this.entityTypeFactory = requireNonNull(entityTypeFactory);
     this.attrMetaFactory = requireNonNull(attrMetaFactory);
     parseVcfMeta();
+    this.tabixIndex = readTabixIndex();
+  }
+
+  /**
+   * Reads the tabix index of a bgzip compressed file if it exists, the index file name is the file
+   * name followed by '.tbi'
+   */
+  private TabixIndex readTabixIndex() {
+    File indexFile = new File(file.getPath() + TABIX_INDEX_EXTENSION);
+    if (!file.getName().endsWith(".gz") || !indexFile.isFile()) {
+      return null;
+    }
+
+    try {
+      return TabixIndex.read(indexFile);
+    } catch (IOException e) {
+      LOG.warn("Failed to read tabix index [{}], region queries are not supported", indexFile, e);
+      return null;
+    }
   }
 
   private void parseVcfMeta() {
@@ -90,16 +133,60 @@ public class VcfRepository extends AbstractRepository {
     return vcfToEntity.getEntityType();
   }
 
+  /** A repository for an indexed file supports region queries, see {@link #findAll(Query)}. */
   @Override
   public Set<RepositoryCapability> getCapabilities() {
-    return Collections.emptySet();
+    return tabixIndex != null ? EnumSet.of(QUERYABLE) : Collections.emptySet();
   }
 
   @Override
   public long count() {
-    AtomicInteger counter = new AtomicInteger(0);
-    forEachBatched(batch -> counter.addAndGet(batch.size()), BATCH_SIZE);
-    return counter.get();
+    if (count == null) {
+      Long recordCount = tabixIndex != null ? tabixIndex.getRecordCount() : null;
+      if (recordCount != null) {
+        count = recordCount;
+      } else {
+        AtomicInteger counter = new AtomicInteger(0);
+        forEachBatched(batch -> counter.addAndGet(batch.size()), BATCH_SIZE);
+        count = (long) counter.get();
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public long count(Query<Entity> q) {
+    if (q.getRules().isEmpty()) {
+      return count();
+    }
+    try (Stream<Entity> entities = findAllInRegion(toRegion(q))) {
+      return entities.count();
+    }
+  }
+
+  /**
+   * Finds the records in a region using the tabix index. Supported queries are '#CHROM = x',
+   * '#CHROM = x AND POS = y' and '#CHROM = x AND POS RANGE [y, z]'. A query without rules returns
+   * all records. Sorting is not supported, records are returned in file order. Records are read
+   * while the stream is consumed, the file is closed when the stream is closed.
+   */
+  @Override
+  public Stream<Entity> findAll(Query<Entity> q) {
+    if (q.getSort() != null) {
+      throw new UnsupportedOperationException("Sorting is not supported");
+    }
+
+    Stream<Entity> entityStream =
+        q.getRules().isEmpty() ? findAllInFile() : findAllInRegion(toRegion(q));
+    entityStream = entityStream.skip(q.getOffset());
+    return q.getPageSize() > 0 ? entityStream.limit(q.getPageSize()) : entityStream;
+  }
+
+  @Override
+  public Entity findOne(Query<Entity> q) {
+    try (Stream<Entity> entities = findAll(new QueryImpl<>(q).setPageSize(1))) {
+      return entities.findFirst().orElse(null);
+    }
   }
 
   @Override
@@ -110,30 +197,201 @@ public class VcfRepository extends AbstractRepository {
                 .forEach(consumer));
   }
 
-  private void withReader(Consumer<VcfReader> consumer) {
-    withInputStream(
-        inputStream -> {
-          try (VcfReader reader = new VcfReader(new InputStreamReader(inputStream, UTF_8))) {
-            consumer.accept(reader);
-          } catch (IOException e) {
-            throw new MolgenisDataException(
-                "Failed to create VCF Reader for file" + file.getAbsolutePath(), e);
+  private Stream<Entity> findAllInFile() {
+    VcfReader reader = createReader();
+    return stream(transform(reader.iterator(), vcfToEntity::toEntity))
+        .onClose(() -> closeReader(reader));
+  }
+
+  private Stream<Entity> findAllInRegion(Region region) {
+    RegionIterator iterator = new RegionIterator(region);
+    return stream(iterator).onClose(iterator::close);
+  }
+
+  private Region toRegion(Query<Entity> q) {
+    if (tabixIndex == null) {
+      throw new UnsupportedOperationException(
+          format("Queries require a tabix index for file [%s]", file.getName()));
+    }
+
+    String chrom = null;
+    int start = 1;
+    int end = Integer.MAX_VALUE;
+    for (QueryRule rule : q.getRules()) {
+      Operator operator = rule.getOperator();
+      if (operator == Operator.AND) {
+        continue;
+      }
+
+      if (operator == Operator.EQUALS && CHROM.equals(rule.getField()) && chrom == null) {
+        chrom = String.valueOf(rule.getValue());
+      } else if (operator == Operator.EQUALS && POS.equals(rule.getField())) {
+        start = Math.max(start, toPosition(rule.getValue()));
+        end = Math.min(end, toPosition(rule.getValue()));
+      } else if (operator == Operator.RANGE && POS.equals(rule.getField())) {
+        Iterator<?> range = ((Iterable<?>) rule.getValue()).iterator();
+        start = Math.max(start, toPosition(range.next()));
+        end = Math.min(end, toPosition(range.next()));
+      } else {
+        throw new UnsupportedOperationException(format("Unsupported query rule [%s]", rule));
+      }
+    }
+
+    if (chrom == null) {
+      throw new UnsupportedOperationException(format("Query requires a [%s] rule", CHROM));
+    }
+    return new Region(chrom, start, end);
+  }
+
+  private static int toPosition(Object value) {
+    return value instanceof Number
+        ? ((Number) value).intValue()
+        : Integer.parseInt(value.toString());
+  }
+
+  /** One-based region, start and end position are inclusive */
+  private static class Region {
+    private final String chrom;
+    private final int start;
+    private final int end;
+
+    Region(String chrom, int start, int end) {
+      this.chrom = chrom;
+      this.start = start;
+      this.end = end;
+    }
+  }
+
+  /**
+   * Iterates over the records in a region, reading the chunks of the compressed file that the
+   * tabix index lists for the region. The file is closed after the last record in the region has
+   * been read or when {@link #close()} is called.
+   */
+  private class RegionIterator implements Iterator<Entity>, AutoCloseable {
+    private final Region region;
+    private final Iterator<Chunk> chunks;
+    private BgzfInputStream inputStream;
+    private Chunk chunk;
+    private Entity nextEntity;
+    private boolean closed;
+
+    RegionIterator(Region region) {
+      this.region = region;
+      this.chunks = tabixIndex.getChunks(region.chrom, region.start - 1, region.end).iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (nextEntity == null && !closed) {
+        nextEntity = readNext();
+      }
+      return nextEntity != null;
+    }
+
+    @Override
+    public Entity next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Entity entity = nextEntity;
+      nextEntity = null;
+      return entity;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+      nextEntity = null;
+      if (inputStream != null) {
+        Closeables.closeQuietly(inputStream);
+        inputStream = null;
+      }
+    }
+
+    private Entity readNext() {
+      try {
+        while (true) {
+          if (chunk == null || inputStream.getVirtualOffset() >= chunk.getEnd()) {
+            if (!chunks.hasNext()) {
+              close();
+              return null;
+            }
+            chunk = chunks.next();
+            if (inputStream == null) {
+              inputStream = new BgzfInputStream(file);
+            }
+            inputStream.seek(chunk.getBegin());
           }
-        });
+
+          String line = inputStream.readLine();
+          if (line == null) {
+            chunk = null;
+          } else if (!line.isEmpty() && !line.startsWith("#")) {
+            String[] tokens = line.split("\t");
+            if (tokens[0].equals(region.chrom)) {
+              int pos = Integer.parseInt(tokens[1]);
+              if (pos > region.end) {
+                // records are sorted by position
+                close();
+                return null;
+              }
+              if (pos >= region.start) {
+                return vcfToEntity.toEntity(tokens);
+              }
+            }
+          }
+        }
+      } catch (IOException e) {
+        close();
+        throw new MolgenisDataException(
+            "Failed to read region from file " + file.getAbsolutePath(), e);
+      }
+    }
+  }
+
+  private void withReader(Consumer<VcfReader> consumer) {
+    try (VcfReader reader = createReader()) {
+      consumer.accept(reader);
+    } catch (IOException e) {
+      throw new MolgenisDataException(
+          "Failed to create VCF Reader for file" + file.getAbsolutePath(), e);
+    }
   }
 
-  private void withInputStream(Consumer<InputStream> consumer) {
+  private VcfReader createReader() {
+    return new VcfReader(new InputStreamReader(createInputStream(), UTF_8));
+  }
+
+  private void closeReader(VcfReader reader) {
+    try {
+      reader.close();
+    } catch (IOException e) {
+      throw new MolgenisDataException(
+          "Failed to close VCF Reader for file" + file.getAbsolutePath(), e);
+    }
+  }
+
+  private InputStream createInputStream() {
     try {
       if (file.getName().endsWith(".gz")) {
-        consumer.accept(new GZIPInputStream(new FileInputStream(file)));
+        return new GZIPInputStream(new FileInputStream(file));
       } else if (file.getName().endsWith(".zip")) {
-        try (ZipFile zipFile = new ZipFile(file.getPath())) {
-          Enumeration<? extends ZipEntry> e = zipFile.entries();
-          ZipEntry entry = e.nextElement(); // your only file
-          consumer.accept(zipFile.getInputStream(entry));
-        }
+        ZipFile zipFile = new ZipFile(file.getPath());
+        Enumeration<? extends ZipEntry> e = zipFile.entries();
+        ZipEntry entry = e.nextElement(); // your only file
+        // closing the entry input stream closes the zip file
+        return new FilterInputStream(zipFile.getInputStream(entry)) {
+          @Override
+          public void close() throws IOException {
+            try {
+              super.close();
+            } finally {
+              zipFile.close();
+            }
+          }
+        };
       } else {
-        consumer.accept(new FileInputStream(file));
+        return new FileInputStream(file);
       }
     } catch (IOException e) {
       throw new MolgenisDataException(
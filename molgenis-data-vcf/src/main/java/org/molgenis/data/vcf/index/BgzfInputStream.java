@@ -0,0 +1,182 @@
+package org.molgenis.data.vcf.index;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a BGZF (blocked gzip) compressed file and supports seeking to virtual file offsets as used
+ * by tabix indices.
+ *
+ * <p>A virtual file offset consists of the offset of a compressed block in the file (upper 48 bits)
+ * and the offset in the uncompressed block (lower 16 bits).
+ */
+public class BgzfInputStream extends InputStream {
+  private static final int BLOCK_HEADER_LENGTH = 18;
+  private static final int BLOCK_FOOTER_LENGTH = 8;
+
+  private final RandomAccessFile file;
+  private final Inflater inflater = new Inflater(true);
+  private final byte[] header = new byte[BLOCK_HEADER_LENGTH];
+  private byte[] compressedBlock = new byte[0];
+  private byte[] block = new byte[0];
+  private int blockLength;
+  private int blockOffset;
+  private long blockAddress;
+  private long nextBlockAddress;
+
+  public BgzfInputStream(File file) throws IOException {
+    this.file = new RandomAccessFile(file, "r");
+  }
+
+  /** Moves to the given virtual file offset */
+  public void seek(long virtualOffset) throws IOException {
+    long address = virtualOffset >>> 16;
+    int offset = (int) (virtualOffset & 0xFFFF);
+    readBlock(address);
+    if (offset > blockLength) {
+      throw new IOException(format("Invalid virtual file offset [%d]", virtualOffset));
+    }
+    blockOffset = offset;
+  }
+
+  /** Returns the virtual file offset of the next byte to read */
+  public long getVirtualOffset() {
+    if (blockOffset == blockLength) {
+      return nextBlockAddress << 16;
+    }
+    return (blockAddress << 16) | blockOffset;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!ensureAvailable()) {
+      return -1;
+    }
+    return block[blockOffset++] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (!ensureAvailable()) {
+      return -1;
+    }
+    int nrBytes = Math.min(len, blockLength - blockOffset);
+    System.arraycopy(block, blockOffset, b, off, nrBytes);
+    blockOffset += nrBytes;
+    return nrBytes;
+  }
+
+  /**
+   * Reads a line of UTF-8 text that is terminated by a line feed
+   *
+   * @return line without line terminator or <code>null</code> at the end of the file
+   */
+  public String readLine() throws IOException {
+    ByteArrayOutputStream line = null;
+    while (ensureAvailable()) {
+      if (line == null) {
+        line = new ByteArrayOutputStream(256);
+      }
+      int start = blockOffset;
+      while (blockOffset < blockLength && block[blockOffset] != '\n') {
+        ++blockOffset;
+      }
+      line.write(block, start, blockOffset - start);
+      if (blockOffset < blockLength) {
+        ++blockOffset; // skip line feed
+        break;
+      }
+    }
+
+    if (line == null) {
+      return null;
+    }
+    String text = new String(line.toByteArray(), UTF_8);
+    return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+  }
+
+  @Override
+  public void close() throws IOException {
+    inflater.end();
+    file.close();
+  }
+
+  /** Returns whether there is data to read, reads the next block if required */
+  private boolean ensureAvailable() throws IOException {
+    while (blockOffset == blockLength) {
+      if (nextBlockAddress >= file.length()) {
+        return false;
+      }
+      readBlock(nextBlockAddress);
+    }
+    return true;
+  }
+
+  private void readBlock(long address) throws IOException {
+    file.seek(address);
+    file.readFully(header);
+    if ((header[0] & 0xFF) != 31 || (header[1] & 0xFF) != 139 || (header[3] & 4) == 0) {
+      throw new IOException(format("Invalid BGZF block at offset [%d]", address));
+    }
+    int extraLength = readUnsignedShort(header, 10);
+    if (extraLength != 6 || header[12] != 'B' || header[13] != 'C') {
+      throw new IOException(format("Invalid BGZF block header at offset [%d]", address));
+    }
+    int blockSize = readUnsignedShort(header, 16) + 1;
+
+    int remainingLength = blockSize - BLOCK_HEADER_LENGTH;
+    if (compressedBlock.length < remainingLength) {
+      compressedBlock = new byte[remainingLength];
+    }
+    file.readFully(compressedBlock, 0, remainingLength);
+
+    int compressedLength = remainingLength - BLOCK_FOOTER_LENGTH;
+    int uncompressedLength = readInt(compressedBlock, remainingLength - 4);
+    if (block.length < uncompressedLength) {
+      block = new byte[uncompressedLength];
+    }
+
+    inflater.reset();
+    inflater.setInput(compressedBlock, 0, compressedLength);
+    try {
+      int length = 0;
+      while (length < uncompressedLength) {
+        int nrBytes = inflater.inflate(block, length, uncompressedLength - length);
+        if (nrBytes == 0 && (inflater.finished() || inflater.needsInput())) {
+          throw new EOFException(format("Truncated BGZF block at offset [%d]", address));
+        }
+        length += nrBytes;
+      }
+    } catch (DataFormatException e) {
+      throw new IOException(format("Invalid BGZF block data at offset [%d]", address), e);
+    }
+
+    blockAddress = address;
+    nextBlockAddress = address + blockSize;
+    blockLength = uncompressedLength;
+    blockOffset = 0;
+  }
+
+  private static int readUnsignedShort(byte[] bytes, int offset) {
+    return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8;
+  }
+
+  private static int readInt(byte[] bytes, int offset) {
+    return (bytes[offset] & 0xFF)
+        | (bytes[offset + 1] & 0xFF) << 8
+        | (bytes[offset + 2] & 0xFF) << 16
+        | (bytes[offset + 3] & 0xFF) << 24;
+  }
+}
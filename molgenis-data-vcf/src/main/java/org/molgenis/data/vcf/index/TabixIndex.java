@@ -0,0 +1,240 @@
+package org.molgenis.data.vcf.index;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static java.util.Comparator.comparingLong;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Tabix index (.tbi) of a BGZF compressed and position sorted file.
+ *
+ * <p>The index maps genomic regions to chunks of the compressed file using the UCSC binning scheme
+ * and a linear index of 16kbp windows, see the tabix file format specification.
+ */
+public class TabixIndex {
+  private static final byte[] MAGIC = {'T', 'B', 'I', 1};
+  /** Bin that contains the offsets and record counts of a reference sequence */
+  private static final int META_BIN = 37450;
+
+  private static final int LINEAR_INDEX_SHIFT = 14;
+  /** Maximum position supported by the binning scheme */
+  private static final int MAX_POSITION = 1 << 29;
+
+  private final Map<String, Integer> referenceIndices;
+  private final List<ReferenceIndex> referenceIndexList;
+  private final Long recordCount;
+
+  private TabixIndex(
+      Map<String, Integer> referenceIndices,
+      List<ReferenceIndex> referenceIndexList,
+      @Nullable @CheckForNull Long recordCount) {
+    this.referenceIndices = ImmutableMap.copyOf(referenceIndices);
+    this.referenceIndexList = referenceIndexList;
+    this.recordCount = recordCount;
+  }
+
+  /**
+   * Returns the chunks of the compressed file that contain all records that overlap the given
+   * region. Chunks are sorted by file offset and do not overlap.
+   *
+   * @param sequenceName reference sequence name, e.g. chromosome
+   * @param begin zero-based region start (inclusive)
+   * @param end zero-based region end (exclusive)
+   */
+  public List<Chunk> getChunks(String sequenceName, int begin, int end) {
+    Integer referenceIndex = referenceIndices.get(sequenceName);
+    end = Math.min(end, MAX_POSITION);
+    if (referenceIndex == null || end <= begin) {
+      return emptyList();
+    }
+    ReferenceIndex index = referenceIndexList.get(referenceIndex);
+
+    long minOffset = 0;
+    if (index.linearIndex.length > 0) {
+      int window = begin >> LINEAR_INDEX_SHIFT;
+      minOffset = index.linearIndex[Math.min(window, index.linearIndex.length - 1)];
+    }
+
+    List<Chunk> chunks = new ArrayList<>();
+    for (int bin : regionToBins(begin, end)) {
+      List<Chunk> binChunks = index.bins.get(bin);
+      if (binChunks != null) {
+        for (Chunk chunk : binChunks) {
+          if (chunk.getEnd() > minOffset) {
+            chunks.add(chunk);
+          }
+        }
+      }
+    }
+    return mergeChunks(chunks);
+  }
+
+  /** Returns whether the index contains records for the given reference sequence */
+  public boolean hasSequence(String sequenceName) {
+    return referenceIndices.containsKey(sequenceName);
+  }
+
+  /**
+   * Returns the number of records in the indexed file or <code>null</code> if the index does not
+   * contain record counts.
+   */
+  @Nullable
+  @CheckForNull
+  public Long getRecordCount() {
+    return recordCount;
+  }
+
+  /** Reads the tabix index from the given .tbi file */
+  public static TabixIndex read(File indexFile) throws IOException {
+    try (InputStream inputStream = new BgzfInputStream(indexFile)) {
+      return read(new DataInputStream(inputStream), indexFile);
+    }
+  }
+
+  private static TabixIndex read(DataInputStream in, File indexFile) throws IOException {
+    byte[] magic = new byte[MAGIC.length];
+    in.readFully(magic);
+    for (int i = 0; i < MAGIC.length; ++i) {
+      if (magic[i] != MAGIC[i]) {
+        throw new IOException(format("[%s] is not a tabix index", indexFile.getName()));
+      }
+    }
+
+    int nrReferences = readInt(in);
+    in.skipBytes(4 * 6); // format, col_seq, col_beg, col_end, meta, skip
+    byte[] names = new byte[readInt(in)];
+    in.readFully(names);
+
+    Map<String, Integer> referenceIndices = new HashMap<>();
+    int nameStart = 0;
+    for (int i = 0; i < names.length; ++i) {
+      if (names[i] == 0) {
+        referenceIndices.put(
+            new String(names, nameStart, i - nameStart, UTF_8), referenceIndices.size());
+        nameStart = i + 1;
+      }
+    }
+    if (referenceIndices.size() != nrReferences) {
+      throw new IOException(format("Invalid sequence names in [%s]", indexFile.getName()));
+    }
+
+    List<ReferenceIndex> referenceIndexList = new ArrayList<>(nrReferences);
+    boolean hasRecordCounts = true;
+    long recordCount = 0;
+    for (int i = 0; i < nrReferences; ++i) {
+      Map<Integer, List<Chunk>> bins = new HashMap<>();
+      boolean hasMetaBin = false;
+      int nrBins = readInt(in);
+      for (int j = 0; j < nrBins; ++j) {
+        int bin = readInt(in);
+        int nrChunks = readInt(in);
+        List<Chunk> chunks = new ArrayList<>(nrChunks);
+        for (int k = 0; k < nrChunks; ++k) {
+          chunks.add(new Chunk(readLong(in), readLong(in)));
+        }
+        if (bin == META_BIN && nrChunks == 2) {
+          // second pseudo-chunk contains the number of mapped and unmapped records
+          hasMetaBin = true;
+          recordCount += chunks.get(1).getBegin() + chunks.get(1).getEnd();
+        } else {
+          bins.put(bin, chunks);
+        }
+      }
+      hasRecordCounts &= hasMetaBin;
+
+      long[] linearIndex = new long[readInt(in)];
+      for (int j = 0; j < linearIndex.length; ++j) {
+        linearIndex[j] = readLong(in);
+      }
+      referenceIndexList.add(new ReferenceIndex(bins, linearIndex));
+    }
+
+    return new TabixIndex(
+        referenceIndices, referenceIndexList, hasRecordCounts ? recordCount : null);
+  }
+
+  /** Returns the bins that may contain records overlapping the zero-based region [begin, end) */
+  static List<Integer> regionToBins(int begin, int end) {
+    List<Integer> bins = new ArrayList<>();
+    int last = end - 1;
+    bins.add(0);
+    for (int k = 1 + (begin >> 26); k <= 1 + (last >> 26); ++k) bins.add(k);
+    for (int k = 9 + (begin >> 23); k <= 9 + (last >> 23); ++k) bins.add(k);
+    for (int k = 73 + (begin >> 20); k <= 73 + (last >> 20); ++k) bins.add(k);
+    for (int k = 585 + (begin >> 17); k <= 585 + (last >> 17); ++k) bins.add(k);
+    for (int k = 4681 + (begin >> 14); k <= 4681 + (last >> 14); ++k) bins.add(k);
+    return bins;
+  }
+
+  private static List<Chunk> mergeChunks(List<Chunk> chunks) {
+    if (chunks.isEmpty()) {
+      return chunks;
+    }
+    chunks.sort(comparingLong(Chunk::getBegin));
+
+    List<Chunk> mergedChunks = new ArrayList<>();
+    Chunk current = chunks.get(0);
+    for (int i = 1; i < chunks.size(); ++i) {
+      Chunk chunk = chunks.get(i);
+      if (chunk.getBegin() <= current.getEnd()) {
+        if (chunk.getEnd() > current.getEnd()) {
+          current = new Chunk(current.getBegin(), chunk.getEnd());
+        }
+      } else {
+        mergedChunks.add(current);
+        current = chunk;
+      }
+    }
+    mergedChunks.add(current);
+    return mergedChunks;
+  }
+
+  private static int readInt(DataInputStream in) throws IOException {
+    return Integer.reverseBytes(in.readInt());
+  }
+
+  private static long readLong(DataInputStream in) throws IOException {
+    return Long.reverseBytes(in.readLong());
+  }
+
+  private static class ReferenceIndex {
+    private final Map<Integer, List<Chunk>> bins;
+    private final long[] linearIndex;
+
+    ReferenceIndex(Map<Integer, List<Chunk>> bins, long[] linearIndex) {
+      this.bins = bins;
+      this.linearIndex = linearIndex;
+    }
+  }
+
+  /** Range of virtual file offsets [begin, end) in a BGZF compressed file */
+  public static class Chunk {
+    private final long begin;
+    private final long end;
+
+    Chunk(long begin, long end) {
+      this.begin = begin;
+      this.end = end;
+    }
+
+    public long getBegin() {
+      return begin;
+    }
+
+    public long getEnd() {
+      return end;
+    }
+  }
+}
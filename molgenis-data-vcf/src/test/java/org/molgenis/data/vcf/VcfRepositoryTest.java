@@ -1,10 +1,12 @@
 package org.molgenis.data.vcf;
 
 import static java.nio.file.Files.createTempFile;
+import static java.util.Collections.emptySet;
 import static java.util.Collections.singleton;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.molgenis.data.RepositoryCapability.QUERYABLE;
 import static org.molgenis.data.meta.AttributeType.COMPOUND;
 import static org.molgenis.data.meta.AttributeType.INT;
 import static org.molgenis.data.meta.AttributeType.STRING;
@@ -22,16 +24,19 @@ import java.util.List;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.molgenis.data.AbstractMolgenisSpringTest;
 import org.molgenis.data.Entity;
 import org.molgenis.data.MolgenisDataException;
+import org.molgenis.data.Query;
 import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.AttributeFactory;
 import org.molgenis.data.meta.model.EntityTypeFactory;
+import org.molgenis.data.support.QueryImpl;
 import org.molgenis.data.vcf.config.VcfTestConfig;
 import org.molgenis.data.vcf.model.VcfAttributes;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -56,12 +61,14 @@ public class VcfRepositoryTest extends AbstractMolgenisSpringTest {
   @Captor private ArgumentCaptor<List<Entity>> entityListCaptor;
 
   private static File testData;
+  private static File testDataIndexed;
   private static File testNoData;
   private static File testEmptyFile;
 
   @BeforeClass
   public void beforeClass() throws IOException {
     testData = new ClassPathResource("testdata.vcf").getFile();
+    testDataIndexed = new ClassPathResource("testdata.vcf.gz").getFile();
     testNoData = new ClassPathResource("testnodata.vcf").getFile();
     testEmptyFile = createTempFile("empty", "vcf").toFile();
   }
@@ -160,6 +167,139 @@ public class VcfRepositoryTest extends AbstractMolgenisSpringTest {
     verifyZeroInteractions(batchConsumer);
   }
 
+  @Test
+  public void testGetCapabilities() {
+    VcfRepository vcfRepository =
+        new VcfRepository(testData, "testData", vcfAttrs, entityTypeFactory, attrMetaFactory);
+    assertEquals(vcfRepository.getCapabilities(), emptySet());
+  }
+
+  @Test
+  public void testGetCapabilitiesIndexed() {
+    VcfRepository vcfRepository = createIndexedVcfRepository();
+    assertEquals(vcfRepository.getCapabilities(), singleton(QUERYABLE));
+  }
+
+  @Test
+  public void testCount() {
+    VcfRepository vcfRepository =
+        new VcfRepository(testData, "testData", vcfAttrs, entityTypeFactory, attrMetaFactory);
+    assertEquals(vcfRepository.count(), 7L);
+  }
+
+  @Test
+  public void testCountIndexed() {
+    assertEquals(createIndexedVcfRepository().count(), 7L);
+  }
+
+  @Test
+  public void testFindAllRange() {
+    Query<Entity> query = new QueryImpl<Entity>().eq(CHROM, "1").and().rng(POS, 3171929, 3172273);
+    List<Integer> positions =
+        createIndexedVcfRepository()
+            .findAll(query)
+            .map(entity -> entity.getInt(POS))
+            .collect(Collectors.toList());
+    assertEquals(positions, ImmutableList.of(3171929, 3172062, 3172273));
+  }
+
+  @Test
+  public void testFindAllEquals() {
+    Query<Entity> query = new QueryImpl<Entity>().eq(POS, "6097450").and().eq(CHROM, "1");
+    List<Entity> entities =
+        createIndexedVcfRepository().findAll(query).collect(Collectors.toList());
+    assertEquals(entities.size(), 1);
+    assertEquals(entities.get(0).getInt(POS), Integer.valueOf(6097450));
+    assertEquals(entities.get(0).getString(VcfAttributes.ID), "rs1295089");
+  }
+
+  @Test
+  public void testFindAllChromosome() {
+    QueryImpl<Entity> query = new QueryImpl<>();
+    query.eq(CHROM, "1");
+    query.setPageSize(2);
+    query.setOffset(1);
+    List<Integer> positions =
+        createIndexedVcfRepository()
+            .findAll(query)
+            .map(entity -> entity.getInt(POS))
+            .collect(Collectors.toList());
+    assertEquals(positions, ImmutableList.of(2243618, 3171929));
+  }
+
+  @Test
+  public void testFindAllUnknownChromosome() {
+    Query<Entity> query = new QueryImpl<Entity>().eq(CHROM, "2");
+    assertEquals(createIndexedVcfRepository().findAll(query).count(), 0L);
+  }
+
+  @Test
+  public void testFindOne() {
+    Query<Entity> query = new QueryImpl<Entity>().eq(CHROM, "1").and().eq(POS, 7569187);
+    Entity entity = createIndexedVcfRepository().findOne(query);
+    assertEquals(entity.getString(VcfAttributes.ID), "rs4908464");
+  }
+
+  @Test
+  public void testCountQuery() {
+    Query<Entity> query = new QueryImpl<Entity>().eq(CHROM, "1").and().rng(POS, 1, 3000000);
+    assertEquals(createIndexedVcfRepository().count(query), 2L);
+  }
+
+  @Test
+  public void testCountEmptyQuery() {
+    VcfRepository vcfRepository =
+        new VcfRepository(testData, "testData", vcfAttrs, entityTypeFactory, attrMetaFactory);
+    assertEquals(vcfRepository.count(new QueryImpl<>()), 7L);
+  }
+
+  @Test
+  public void testFindAllEmptyQuery() {
+    QueryImpl<Entity> query = new QueryImpl<>();
+    query.setPageSize(2);
+    query.setOffset(1);
+    VcfRepository vcfRepository =
+        new VcfRepository(testData, "testData", vcfAttrs, entityTypeFactory, attrMetaFactory);
+    try (Stream<Entity> entities = vcfRepository.findAll(query)) {
+      List<Integer> positions =
+          entities.map(entity -> entity.getInt(POS)).collect(Collectors.toList());
+      assertEquals(positions, ImmutableList.of(2243618, 3171929));
+    }
+  }
+
+  @Test
+  public void testFindAllEmptyQueryIndexed() {
+    try (Stream<Entity> entities = createIndexedVcfRepository().findAll(new QueryImpl<>())) {
+      assertEquals(entities.count(), 7L);
+    }
+  }
+
+  @Test
+  public void testFindAllRegionPartiallyConsumed() {
+    Query<Entity> query = new QueryImpl<Entity>().eq(CHROM, "1");
+    try (Stream<Entity> entities = createIndexedVcfRepository().findAll(query)) {
+      Iterator<Entity> iterator = entities.iterator();
+      assertEquals(iterator.next().getInt(POS), Integer.valueOf(565286));
+      assertEquals(iterator.next().getInt(POS), Integer.valueOf(2243618));
+    }
+  }
+
+  @Test(expectedExceptions = UnsupportedOperationException.class)
+  public void testFindAllUnsupportedQuery() {
+    createIndexedVcfRepository().findAll(new QueryImpl<Entity>().eq(VcfAttributes.ID, "rs4908464"));
+  }
+
+  @Test(expectedExceptions = UnsupportedOperationException.class)
+  public void testFindAllNotIndexed() {
+    new VcfRepository(testData, "testData", vcfAttrs, entityTypeFactory, attrMetaFactory)
+        .findAll(new QueryImpl<Entity>().eq(CHROM, "1"));
+  }
+
+  private VcfRepository createIndexedVcfRepository() {
+    return new VcfRepository(
+        testDataIndexed, "testData", vcfAttrs, entityTypeFactory, attrMetaFactory);
+  }
+
   @Configuration
   @Import({VcfTestConfig.class})
   public static class Config {}
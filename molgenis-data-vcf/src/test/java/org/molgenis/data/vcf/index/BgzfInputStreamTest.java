@@ -0,0 +1,52 @@
+package org.molgenis.data.vcf.index;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import org.springframework.core.io.ClassPathResource;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class BgzfInputStreamTest {
+  private File file;
+
+  @BeforeClass
+  public void setUpBeforeClass() throws IOException {
+    file = new ClassPathResource("testdata.vcf.gz").getFile();
+  }
+
+  @Test
+  public void testReadLine() throws IOException {
+    try (BgzfInputStream inputStream = new BgzfInputStream(file)) {
+      assertEquals(inputStream.readLine(), "##fileformat=VCFv4.1");
+      int nrLines = 1;
+      while (inputStream.readLine() != null) {
+        ++nrLines;
+      }
+      assertEquals(nrLines, 42);
+      assertNull(inputStream.readLine());
+    }
+  }
+
+  @Test
+  public void testSeek() throws IOException {
+    try (BgzfInputStream inputStream = new BgzfInputStream(file)) {
+      inputStream.readLine();
+      long virtualOffset = inputStream.getVirtualOffset();
+      String line = inputStream.readLine();
+
+      inputStream.seek(virtualOffset);
+      assertEquals(inputStream.getVirtualOffset(), virtualOffset);
+      assertEquals(inputStream.readLine(), line);
+    }
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testSeekInvalidBlock() throws IOException {
+    try (BgzfInputStream inputStream = new BgzfInputStream(file)) {
+      inputStream.seek(1L << 16);
+    }
+  }
+}
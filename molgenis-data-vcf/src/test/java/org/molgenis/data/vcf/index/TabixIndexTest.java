@@ -0,0 +1,64 @@
+package org.molgenis.data.vcf.index;
+
+import static java.util.Arrays.asList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import org.molgenis.data.vcf.index.TabixIndex.Chunk;
+import org.springframework.core.io.ClassPathResource;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class TabixIndexTest {
+  private TabixIndex tabixIndex;
+
+  @BeforeClass
+  public void setUpBeforeClass() throws IOException {
+    File indexFile = new ClassPathResource("testdata.vcf.gz.tbi").getFile();
+    tabixIndex = TabixIndex.read(indexFile);
+  }
+
+  @Test
+  public void testGetRecordCount() {
+    assertEquals(tabixIndex.getRecordCount(), Long.valueOf(7L));
+  }
+
+  @Test
+  public void testHasSequence() {
+    assertTrue(tabixIndex.hasSequence("1"));
+    assertFalse(tabixIndex.hasSequence("2"));
+  }
+
+  @Test
+  public void testGetChunks() {
+    List<Chunk> chunks = tabixIndex.getChunks("1", 3171928, 3172273);
+    assertFalse(chunks.isEmpty());
+    for (int i = 1; i < chunks.size(); ++i) {
+      assertTrue(chunks.get(i - 1).getEnd() < chunks.get(i).getBegin());
+    }
+  }
+
+  @Test
+  public void testGetChunksUnknownSequence() {
+    assertTrue(tabixIndex.getChunks("2", 0, 100).isEmpty());
+  }
+
+  @Test
+  public void testGetChunksEmptyRegion() {
+    assertTrue(tabixIndex.getChunks("1", 100, 100).isEmpty());
+  }
+
+  @Test
+  public void testRegionToBins() {
+    assertEquals(TabixIndex.regionToBins(0, 1), asList(0, 1, 9, 73, 585, 4681));
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testReadNoTabixIndex() throws IOException {
+    TabixIndex.read(new ClassPathResource("testdata.vcf.gz").getFile());
+  }
+}
@@ -5,6 +5,7 @@ import static java.util.Objects.requireNonNull;
 import static org.molgenis.data.util.EntityTypeUtils.isSingleReferenceType;
 
 import com.google.common.collect.Iterators;
+import java.util.List;
 import java.util.stream.Stream;
 import org.molgenis.data.meta.model.Attribute;
 
@@ -125,6 +126,11 @@ public class CascadeDeleteRepositoryDecorator extends AbstractRepositoryDecorato
         .filter(attribute -> attribute.getCascadeDelete() != null && attribute.getCascadeDelete());
   }
 
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    delegate().upsertBatch(entities);
+  }
+
   private boolean hasCascadeDeleteAttributes() {
     return stream(getEntityType().getAtomicAttributes())
         .anyMatch(
@@ -1,23 +1,36 @@
 package org.molgenis.data;
 
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static java.util.Collections.emptyMap;
 import static java.util.Collections.singletonList;
 import static java.util.Objects.requireNonNull;
-import static java.util.stream.StreamSupport.stream;
+import static java.util.stream.Collectors.toMap;
 import static org.molgenis.data.EntityManager.CreationMode.NO_POPULATE;
 import static org.molgenis.data.EntityManager.CreationMode.POPULATE;
 import static org.molgenis.data.util.EntityTypeUtils.isMultipleReferenceType;
 import static org.molgenis.data.util.EntityTypeUtils.isSingleReferenceType;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.isActualTransactionActive;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.isCurrentTransactionReadOnly;
 
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Streams;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Objects;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -27,6 +40,7 @@ import org.molgenis.data.populate.EntityPopulator;
 import org.molgenis.data.support.DynamicEntity;
 import org.molgenis.data.support.EntityWithComputedAttributes;
 import org.molgenis.data.support.PartialEntity;
+import org.molgenis.data.util.ConcurrentQueryExecutor;
 import org.molgenis.data.util.EntityTypeUtils;
 import org.springframework.stereotype.Component;
 
@@ -37,21 +51,26 @@ import org.springframework.stereotype.Component;
 @Component
 public class EntityManagerImpl implements EntityManager {
   private static final int BATCH_SIZE = 100;
+  /** maximum number of resolved entities per entity type that are reused between batches */
+  private static final int MAX_RESOLVED_ENTITIES = 10000;
 
   private final DataService dataService;
   private final EntityFactoryRegistry entityFactoryRegistry;
   private final EntityPopulator entityPopulator;
   private final EntityReferenceCreator entityReferenceCreator;
+  private final ConcurrentQueryExecutor concurrentQueryExecutor;
 
   public EntityManagerImpl(
       DataService dataService,
       EntityFactoryRegistry entityFactoryRegistry,
       EntityPopulator entityPopulator,
-      EntityReferenceCreator entityReferenceCreator) {
+      EntityReferenceCreator entityReferenceCreator,
+      ConcurrentQueryExecutor concurrentQueryExecutor) {
     this.dataService = requireNonNull(dataService);
     this.entityFactoryRegistry = requireNonNull(entityFactoryRegistry);
     this.entityPopulator = requireNonNull(entityPopulator);
     this.entityReferenceCreator = requireNonNull(entityReferenceCreator);
+    this.concurrentQueryExecutor = requireNonNull(concurrentQueryExecutor);
   }
 
   @Override
@@ -113,7 +132,9 @@ public class EntityManagerImpl implements EntityManager {
       return entity;
     }
 
-    return resolveReferences(resolvableAttrs, singletonList(entity), fetch).iterator().next();
+    ReferenceResolver referenceResolver =
+        new ReferenceResolver(resolvableAttrs, fetch, isConcurrentResolutionAllowed());
+    return referenceResolver.resolve(singletonList(entity)).get().iterator().next();
   }
 
   @Override
@@ -136,98 +157,224 @@ public class EntityManagerImpl implements EntityManager {
       return entities;
     }
 
-    Iterable<List<Entity>> iterable = () -> Iterators.partition(entities.iterator(), BATCH_SIZE);
-    return Streams.stream(iterable)
-        .flatMap(
-            batch -> {
-              List<Entity> batchWithReferences = resolveReferences(resolvableAttrs, batch, fetch);
-              return batchWithReferences.stream();
-            });
+    ReferenceResolver referenceResolver =
+        new ReferenceResolver(resolvableAttrs, fetch, isConcurrentResolutionAllowed());
+    Iterable<List<Entity>> iterable =
+        () ->
+            new ResolvedBatchIterator(
+                Iterators.partition(entities.iterator(), BATCH_SIZE), referenceResolver);
+    return Streams.stream(iterable).flatMap(List::stream);
   }
 
-  private List<Entity> resolveReferences(
-      List<Attribute> resolvableAttrs, List<Entity> entities, Fetch fetch) {
-    // entity name --> entity ids
-    SetMultimap<String, Object> lazyRefEntityIdsMap =
-        HashMultimap.create(resolvableAttrs.size(), 16);
-    // entity name --> attributes referring to this entity
-    SetMultimap<String, Attribute> refEntityAttrsMap =
-        HashMultimap.create(resolvableAttrs.size(), 2);
-
-    // fill maps
-    for (Attribute attr : resolvableAttrs) {
-      String refEntityName = attr.getRefEntity().getId();
-
-      if (isSingleReferenceType(attr)) {
-        for (Entity entity : entities) {
-          Entity lazyRefEntity = entity.getEntity(attr.getName());
-          if (lazyRefEntity != null) {
-            lazyRefEntityIdsMap.put(refEntityName, lazyRefEntity.getIdValue());
-          }
-        }
+  /**
+   * Reference entity types are retrieved concurrently on other threads. Entities modified in the
+   * current transaction are not visible to these threads, so concurrent retrieval is only allowed
+   * outside of read-write transactions. Query threads retrieve nested references themselves to
+   * prevent them from waiting for each other.
+   */
+  private static boolean isConcurrentResolutionAllowed() {
+    return !ConcurrentQueryExecutor.isQueryThread()
+        && (!isActualTransactionActive() || isCurrentTransactionReadOnly());
+  }
 
-      } else if (isMultipleReferenceType(attr)) {
-        for (Entity entity : entities) {
-          Iterable<Entity> lazyRefEntities = entity.getEntities(attr.getName());
-          for (Entity lazyRefEntity : lazyRefEntities) {
-            lazyRefEntityIdsMap.put(refEntityName, lazyRefEntity.getIdValue());
-          }
+  /**
+   * Resolves the references of entity batches. While a batch is being consumed the references of
+   * the next batch are retrieved.
+   */
+  private static class ResolvedBatchIterator implements Iterator<List<Entity>> {
+    private final Iterator<List<Entity>> batches;
+    private final ReferenceResolver referenceResolver;
+    private BatchResolution nextBatchResolution;
+
+    ResolvedBatchIterator(Iterator<List<Entity>> batches, ReferenceResolver referenceResolver) {
+      this.batches = requireNonNull(batches);
+      this.referenceResolver = requireNonNull(referenceResolver);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return nextBatchResolution != null || batches.hasNext();
+    }
+
+    @Override
+    public List<Entity> next() {
+      if (nextBatchResolution == null) {
+        if (!batches.hasNext()) {
+          throw new NoSuchElementException();
         }
+        nextBatchResolution = referenceResolver.resolve(batches.next());
       }
-
-      refEntityAttrsMap.put(refEntityName, attr);
+      List<Entity> batch = nextBatchResolution.get();
+      nextBatchResolution =
+          referenceResolver.isConcurrent() && batches.hasNext()
+              ? referenceResolver.resolve(batches.next())
+              : null;
+      return batch;
     }
+  }
 
-    // batch retrieve referred entities and replace entity references with actual entities
-    for (Entry<String, Collection<Object>> entry : lazyRefEntityIdsMap.asMap().entrySet()) {
-      String refEntityName = entry.getKey();
+  /**
+   * Resolves the references of batches of entities. Referenced entities are kept between batches,
+   * so that entities referenced from multiple batches are only retrieved once.
+   */
+  private class ReferenceResolver {
+    private final Fetch fetch;
+    private final boolean concurrent;
+    /** entity type id --> attributes referring to this entity type */
+    private final SetMultimap<String, Attribute> refEntityAttrsMap;
+    /** entity type id --> fetch for the referenced entities */
+    private final Map<String, Fetch> subFetchMap;
+    /** entity type id --> referenced entity id --> referenced entity */
+    private final Map<String, Map<Object, Entity>> refEntitiesMap;
+
+    ReferenceResolver(List<Attribute> resolvableAttrs, Fetch fetch, boolean concurrent) {
+      this.fetch = requireNonNull(fetch);
+      this.concurrent = concurrent;
+      this.refEntityAttrsMap = LinkedHashMultimap.create(resolvableAttrs.size(), 2);
+      resolvableAttrs.forEach(attr -> refEntityAttrsMap.put(attr.getRefEntity().getId(), attr));
+      this.subFetchMap = new HashMap<>();
+      this.refEntitiesMap = new HashMap<>();
+    }
 
-      // create a fetch for the referenced entity which is a union of the fetches defined by
-      // attributes
-      // referencing this entity
-      Set<Attribute> attrs = refEntityAttrsMap.get(refEntityName);
-      Fetch subFetch = createSubFetch(fetch, attrs);
+    boolean isConcurrent() {
+      return concurrent;
+    }
 
-      // retrieve referenced entities
-      Stream<Entity> refEntities =
-          dataService.findAll(refEntityName, entry.getValue().stream(), subFetch);
+    /** Starts retrieving the entities referenced by the given entities */
+    BatchResolution resolve(List<Entity> entities) {
+      Map<String, Future<Map<Object, Entity>>> refEntitiesFutures = new LinkedHashMap<>();
+      for (Entry<String, Collection<Attribute>> entry : refEntityAttrsMap.asMap().entrySet()) {
+        String refEntityName = entry.getKey();
+        Set<Object> refEntityIds = getRefEntityIds(entry.getValue(), entities);
+        if (refEntityIds.isEmpty()) {
+          continue;
+        }
 
-      Map<Object, Entity> refEntitiesIdMap =
-          refEntities.collect(Collectors.toMap(Entity::getIdValue, Function.identity()));
+        // only retrieve entities that were not retrieved for previous batches
+        refEntityIds.removeAll(refEntitiesMap.getOrDefault(refEntityName, emptyMap()).keySet());
+        Future<Map<Object, Entity>> refEntitiesFuture;
+        if (refEntityIds.isEmpty()) {
+          refEntitiesFuture = immediateFuture(emptyMap());
+        } else {
+          // create a fetch for the referenced entity which is a union of the fetches defined by
+          // attributes referencing this entity
+          Fetch subFetch =
+              subFetchMap.computeIfAbsent(
+                  refEntityName, key -> createSubFetch(fetch, refEntityAttrsMap.get(key)));
+          refEntitiesFuture =
+              concurrent
+                  ? concurrentQueryExecutor.submit(
+                      () -> findAll(refEntityName, refEntityIds, subFetch))
+                  : immediateFuture(findAll(refEntityName, refEntityIds, subFetch));
+        }
+        refEntitiesFutures.put(refEntityName, refEntitiesFuture);
+      }
+      return new BatchResolution(this, entities, refEntitiesFutures);
+    }
 
+    private Set<Object> getRefEntityIds(Collection<Attribute> attrs, List<Entity> entities) {
+      Set<Object> refEntityIds = new LinkedHashSet<>();
       for (Attribute attr : attrs) {
+        String attrName = attr.getName();
+        if (isSingleReferenceType(attr)) {
+          for (Entity entity : entities) {
+            Entity lazyRefEntity = entity.getEntity(attrName);
+            if (lazyRefEntity != null) {
+              refEntityIds.add(lazyRefEntity.getIdValue());
+            }
+          }
+        } else if (isMultipleReferenceType(attr)) {
+          for (Entity entity : entities) {
+            for (Entity lazyRefEntity : entity.getEntities(attrName)) {
+              refEntityIds.add(lazyRefEntity.getIdValue());
+            }
+          }
+        }
+      }
+      return refEntityIds;
+    }
+
+    private Map<Object, Entity> findAll(
+        String refEntityName, Collection<Object> refEntityIds, Fetch subFetch) {
+      try (Stream<Entity> refEntities =
+          dataService.findAll(refEntityName, refEntityIds.stream(), subFetch)) {
+        return refEntities.collect(toMap(Entity::getIdValue, Function.identity()));
+      }
+    }
+
+    /** Replaces the entity references of the given entities with the referenced entities */
+    void replaceReferences(
+        List<Entity> entities, String refEntityName, Map<Object, Entity> newRefEntities) {
+      Map<Object, Entity> refEntities =
+          refEntitiesMap.computeIfAbsent(refEntityName, key -> new HashMap<>());
+      refEntities.putAll(newRefEntities);
+
+      for (Attribute attr : refEntityAttrsMap.get(refEntityName)) {
+        String attrName = attr.getName();
         if (isSingleReferenceType(attr)) {
-          String attrName = attr.getName();
           for (Entity entity : entities) {
             Entity lazyRefEntity = entity.getEntity(attrName);
             if (lazyRefEntity != null) {
               // replace lazy entity with real entity
               Object refEntityId = lazyRefEntity.getIdValue();
-              Entity refEntity = refEntitiesIdMap.get(refEntityId);
+              Entity refEntity = refEntities.get(refEntityId);
               entity.set(attrName, refEntity);
             }
           }
         } else if (isMultipleReferenceType(attr)) {
-          String attrName = attr.getName();
           for (Entity entity : entities) {
             // replace lazy entities with real entities
-            Iterable<Entity> lazyRefEntities = entity.getEntities(attrName);
-            List<Entity> mrefEntities =
-                stream(lazyRefEntities.spliterator(), true)
-                    .map(
-                        lazyRefEntity -> {
-                          // replace lazy entity with real entity
-                          Object refEntityId = lazyRefEntity.getIdValue();
-                          return refEntitiesIdMap.get(refEntityId);
-                        })
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toList());
+            List<Entity> mrefEntities = new ArrayList<>();
+            for (Entity lazyRefEntity : entity.getEntities(attrName)) {
+              Entity refEntity = refEntities.get(lazyRefEntity.getIdValue());
+              if (refEntity != null) {
+                mrefEntities.add(refEntity);
+              }
+            }
             entity.set(attrName, mrefEntities);
           }
         }
       }
+
+      // bound the memory used by streams that reference many distinct entities
+      if (refEntities.size() > MAX_RESOLVED_ENTITIES) {
+        refEntities.clear();
+      }
+    }
+  }
+
+  /** Entity batch for which referenced entities are being retrieved */
+  private static class BatchResolution {
+    private final ReferenceResolver referenceResolver;
+    private final List<Entity> entities;
+    private final Map<String, Future<Map<Object, Entity>>> refEntitiesFutures;
+
+    BatchResolution(
+        ReferenceResolver referenceResolver,
+        List<Entity> entities,
+        Map<String, Future<Map<Object, Entity>>> refEntitiesFutures) {
+      this.referenceResolver = requireNonNull(referenceResolver);
+      this.entities = requireNonNull(entities);
+      this.refEntitiesFutures = requireNonNull(refEntitiesFutures);
+    }
+
+    /** Waits for the referenced entities and returns the entities with resolved references */
+    List<Entity> get() {
+      try {
+        for (Entry<String, Future<Map<Object, Entity>>> entry : refEntitiesFutures.entrySet()) {
+          referenceResolver.replaceReferences(entities, entry.getKey(), entry.getValue().get());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new MolgenisDataException(e);
+      } catch (ExecutionException e) {
+        throwIfUnchecked(e.getCause());
+        throw new UncheckedExecutionException(e.getCause());
+      } finally {
+        refEntitiesFutures.values().forEach(future -> future.cancel(false));
+      }
+      return entities;
     }
-    return entities;
   }
 
   private static Fetch createSubFetch(Fetch fetch, Iterable<Attribute> attrs) {
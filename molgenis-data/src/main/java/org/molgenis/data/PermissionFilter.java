@@ -0,0 +1,33 @@
+package org.molgenis.data;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import org.molgenis.data.QueryRule.Operator;
+import org.springframework.security.acls.model.Sid;
+
+/**
+ * Value of a {@link Operator#PERMITTED} query rule. Matches rows for which at least one of the
+ * permissions is granted. A permission is granted if the first access control entry that applies to
+ * one of the security identities and to the permission mask is granting. Security identities are
+ * evaluated in the given order, entries of one security identity in access control list order. If
+ * no entry of an access control list applies to any permission, the entries of its parent are
+ * evaluated if the list inherits entries.
+ */
+@AutoValue
+@SuppressWarnings(
+    "squid:S1610") // Abstract classes without fields should be converted to interfaces
+public abstract class PermissionFilter {
+  /** Returns the access control list class of the rows, e.g. 'entity-myEntityTypeId'. */
+  public abstract String getAclClass();
+
+  public abstract List<Sid> getSids();
+
+  /** Returns the masks of the permissions of which at least one has to be granted. */
+  public abstract List<Integer> getMasks();
+
+  public static PermissionFilter create(String aclClass, List<Sid> sids, List<Integer> masks) {
+    return new AutoValue_PermissionFilter(
+        aclClass, ImmutableList.copyOf(sids), ImmutableList.copyOf(masks));
+  }
+}
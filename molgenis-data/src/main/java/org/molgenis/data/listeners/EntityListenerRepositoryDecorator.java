@@ -2,6 +2,8 @@ package org.molgenis.data.listeners;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.List;
+import java.util.Set;
 import java.util.stream.Stream;
 import org.molgenis.data.AbstractRepositoryDecorator;
 import org.molgenis.data.Entity;
@@ -28,4 +30,22 @@ public class EntityListenerRepositoryDecorator extends AbstractRepositoryDecorat
     entities = entityListenersService.updateEntities(delegate().getName(), entities);
     delegate().update(entities);
   }
+
+  /**
+   * Notifies the listeners of the entities that already exist, the other entities are added. The
+   * existence of entities is only looked up if they have listeners.
+   */
+  @Override
+  public void upsertBatch(List<Entity> entities) {
+    Set<Object> listenedEntityIds =
+        entityListenersService.getListenedEntityIds(delegate().getName(), entities);
+    if (!listenedEntityIds.isEmpty()) {
+      Set<Object> existingEntityIds = delegate().getExistingIDs(listenedEntityIds);
+      entities
+          .stream()
+          .filter(entity -> existingEntityIds.contains(entity.getIdValue()))
+          .forEach(entity -> entityListenersService.updateEntity(delegate().getName(), entity));
+    }
+    delegate().upsertBatch(entities);
+  }
 }
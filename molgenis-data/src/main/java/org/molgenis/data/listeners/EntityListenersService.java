@@ -1,9 +1,11 @@
 package org.molgenis.data.listeners;
 
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toSet;
 
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.SetMultimap;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -71,6 +73,27 @@ public class EntityListenersService {
     }
   }
 
+  /**
+   * Returns the ids of the given entities that have registered listeners
+   *
+   * @return Set<Object>
+   */
+  Set<Object> getListenedEntityIds(String repoFullName, Collection<Entity> entities) {
+    lock.readLock().lock();
+    try {
+      verifyRepoRegistered(repoFullName);
+      SetMultimap<Object, EntityListener> entityListeners =
+          this.entityListenersByRepo.get(repoFullName);
+      return entities
+          .stream()
+          .map(Entity::getIdValue)
+          .filter(entityListeners::containsKey)
+          .collect(toSet());
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
   /**
    * Adds an entity listener for a entity of the given class that listens to entity changes
    *
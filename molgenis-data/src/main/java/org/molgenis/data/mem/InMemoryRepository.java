@@ -205,7 +205,7 @@ public class InMemoryRepository implements Repository<Entity> {
 
   @Override
   public Set<Operator> getQueryOperators() {
-    return EnumSet.allOf(Operator.class);
+    return EnumSet.complementOf(EnumSet.of(Operator.PERMITTED));
   }
 
   @Override
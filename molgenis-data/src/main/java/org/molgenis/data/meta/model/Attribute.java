@@ -61,6 +61,8 @@ import org.molgenis.i18n.Labeled;
 /** Attribute defines the properties of an entity. Synonyms: feature, column, data item. */
 public class Attribute extends StaticEntity implements Labeled {
   private AttributeType cachedDataType;
+  /** whether this attribute is part of an {@link EntityTypeSchema} */
+  private boolean schemaMember;
 
   public Attribute(Entity entity) {
     super(entity);
@@ -719,6 +721,42 @@ public class Attribute extends StaticEntity implements Labeled {
     return !enumOptions.isEmpty() ? enumOptions.stream().collect(joining(",")) : null;
   }
 
+  @Override
+  public void set(String attributeName, Object value) {
+    super.set(attributeName, value);
+    if (schemaMember && isSchemaAttribute(attributeName)) {
+      EntityTypeSchema.invalidateAll();
+    }
+  }
+
+  @Override
+  public void set(Entity values) {
+    super.set(values);
+    invalidateCachedDataType();
+    if (schemaMember) {
+      EntityTypeSchema.invalidateAll();
+    }
+  }
+
+  void markSchemaMember() {
+    schemaMember = true;
+  }
+
+  private static boolean isSchemaAttribute(String attributeName) {
+    switch (attributeName) {
+      case NAME:
+      case TYPE:
+      case REF_ENTITY_TYPE:
+      case EXPRESSION:
+      case MAPPED_BY:
+      case IS_ID_ATTRIBUTE:
+      case IS_LABEL_ATTRIBUTE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
   private AttributeType getCachedDataType() {
     if (cachedDataType == null) {
       String dataTypeStr = getString(TYPE);
@@ -46,7 +46,9 @@ import org.molgenis.util.UnexpectedEnumException;
  */
 public class EntityType extends StaticEntity implements Labeled {
   private Map<String, Attribute> cachedOwnAttrs;
-  private Boolean cachedHasAttrWithExpression;
+  private EntityTypeSchema cachedSchema;
+  /** whether the attributes of this entity type are part of a schema */
+  private boolean schemaMember;
 
   public EntityType(Entity entity) {
     super(entity);
@@ -603,15 +605,26 @@ public class EntityType extends StaticEntity implements Labeled {
    * @return whether this entity has an attribute with expression
    */
   public boolean hasAttributeWithExpression() {
-    return getCachedHasAttrWithExpession();
+    return getSchema().hasAttributeWithExpression();
   }
 
-  private boolean getCachedHasAttrWithExpession() {
-    if (cachedHasAttrWithExpression == null) {
-      cachedHasAttrWithExpression =
-          stream(getAtomicAttributes()).anyMatch(attr -> attr.getExpression() != null);
+  /**
+   * Returns an immutable snapshot of the atomic attributes of this entity type. Prefer the schema
+   * over {@link #getAtomicAttributes()} when processing entities one by one.
+   *
+   * @return schema that reflects the current attributes of this entity type
+   */
+  public final EntityTypeSchema getSchema() {
+    EntityTypeSchema schema = cachedSchema;
+    if (schema == null || schema.isOutdated()) {
+      schema = EntityTypeSchema.create(this);
+      cachedSchema = schema;
     }
-    return cachedHasAttrWithExpression;
+    return schema;
+  }
+
+  void markSchemaMember() {
+    schemaMember = true;
   }
 
   public void removeAttribute(Attribute attr) {
@@ -717,6 +730,18 @@ public class EntityType extends StaticEntity implements Labeled {
     if (ATTRIBUTES.equals(attributeName)) {
       invalidateCachedOwnAttrs();
     }
+    if (schemaMember && (ATTRIBUTES.equals(attributeName) || EXTENDS.equals(attributeName))) {
+      EntityTypeSchema.invalidateAll();
+    }
+  }
+
+  @Override
+  public void set(Entity values) {
+    super.set(values);
+    invalidateCachedOwnAttrs();
+    if (schemaMember) {
+      EntityTypeSchema.invalidateAll();
+    }
   }
 
   protected void setDefaultValues() {
@@ -0,0 +1,189 @@
+package org.molgenis.data.meta.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.molgenis.data.meta.AttributeType;
+import org.molgenis.data.util.EntityTypeUtils;
+
+/**
+ * Immutable snapshot of the atomic attributes of an {@link EntityType} (including the attributes
+ * of the entity types it extends) for code that processes entities row by row. Attribute names,
+ * types and reference entity types are stored in arrays that are indexed in atomic attribute order.
+ *
+ * <p>Use {@link EntityType#getSchema()} to retrieve the schema of an entity type. A schema becomes
+ * outdated when an entity type or attribute that it was created from is modified, {@link
+ * EntityType#getSchema()} then creates a new schema.
+ */
+public final class EntityTypeSchema {
+  /** incremented when an entity type or attribute that is part of a schema is modified */
+  private static final AtomicLong VERSION = new AtomicLong();
+
+  private final long version;
+  private final List<Attribute> atomicAttributes;
+  private final String[] names;
+  private final AttributeType[] dataTypes;
+  private final boolean[] referenceTypes;
+  private final boolean[] computed;
+  private final boolean[] mappedBy;
+  private final EntityType[] refEntityTypes;
+  private final ImmutableMap<String, Integer> indexes;
+  private final Attribute idAttribute;
+  private final Attribute labelAttribute;
+  private final int idIndex;
+  private final int labelIndex;
+  private final boolean hasAttributeWithExpression;
+
+  private EntityTypeSchema(
+      long version,
+      List<Attribute> atomicAttributes,
+      Attribute idAttribute,
+      Attribute labelAttribute) {
+    this.version = version;
+    this.atomicAttributes = ImmutableList.copyOf(atomicAttributes);
+    this.idAttribute = idAttribute;
+    this.labelAttribute = labelAttribute;
+
+    int size = atomicAttributes.size();
+    names = new String[size];
+    dataTypes = new AttributeType[size];
+    referenceTypes = new boolean[size];
+    computed = new boolean[size];
+    mappedBy = new boolean[size];
+    refEntityTypes = new EntityType[size];
+    Map<String, Integer> attributeIndexes = new HashMap<>();
+    boolean hasComputedAttribute = false;
+    for (int i = 0; i < size; i++) {
+      Attribute attribute = atomicAttributes.get(i);
+      names[i] = attribute.getName();
+      dataTypes[i] = attribute.getDataType();
+      referenceTypes[i] = dataTypes[i] != null && EntityTypeUtils.isReferenceType(dataTypes[i]);
+      computed[i] = attribute.getExpression() != null;
+      mappedBy[i] = attribute.isMappedBy();
+      refEntityTypes[i] = referenceTypes[i] ? attribute.getRefEntity() : null;
+      if (names[i] != null) {
+        attributeIndexes.putIfAbsent(names[i], i);
+      }
+      hasComputedAttribute |= computed[i];
+    }
+    indexes = ImmutableMap.copyOf(attributeIndexes);
+    idIndex = idAttribute != null ? getIndex(idAttribute.getName()) : -1;
+    labelIndex = labelAttribute != null ? getIndex(labelAttribute.getName()) : -1;
+    hasAttributeWithExpression = hasComputedAttribute;
+  }
+
+  static EntityTypeSchema create(EntityType entityType) {
+    // read the version before reading the attributes so that concurrent modifications outdate it
+    long version = VERSION.get();
+    List<Attribute> atomicAttributes = new ArrayList<>();
+    entityType.getAtomicAttributes().forEach(atomicAttributes::add);
+    atomicAttributes.forEach(Attribute::markSchemaMember);
+    for (EntityType type = entityType; type != null; type = type.getExtends()) {
+      type.markSchemaMember();
+    }
+    return new EntityTypeSchema(
+        version, atomicAttributes, entityType.getIdAttribute(), entityType.getLabelAttribute());
+  }
+
+  /** Outdates all schemas, called when an entity type or attribute in a schema is modified. */
+  static void invalidateAll() {
+    VERSION.incrementAndGet();
+  }
+
+  boolean isOutdated() {
+    return version != VERSION.get();
+  }
+
+  /** Returns the number of atomic attributes */
+  public int size() {
+    return names.length;
+  }
+
+  /** Returns the atomic attributes in the same order as {@link EntityType#getAtomicAttributes()} */
+  public List<Attribute> getAtomicAttributes() {
+    return atomicAttributes;
+  }
+
+  public Attribute getAttribute(int index) {
+    return atomicAttributes.get(index);
+  }
+
+  public String getName(int index) {
+    return names[index];
+  }
+
+  public AttributeType getDataType(int index) {
+    return dataTypes[index];
+  }
+
+  /** Returns whether the attribute references other entities */
+  public boolean isReferenceType(int index) {
+    return referenceTypes[index];
+  }
+
+  /** Returns whether the attribute value is computed by an expression */
+  public boolean isComputed(int index) {
+    return computed[index];
+  }
+
+  public boolean isMappedBy(int index) {
+    return mappedBy[index];
+  }
+
+  /** Returns the referenced entity type or <code>null</code> for non-reference attributes */
+  @Nullable
+  @CheckForNull
+  public EntityType getRefEntityType(int index) {
+    return refEntityTypes[index];
+  }
+
+  /**
+   * Returns the index of the atomic attribute with the given name
+   *
+   * @return attribute index or -1 if the entity type has no atomic attribute with this name
+   */
+  public int getIndex(String attributeName) {
+    Integer index = indexes.get(attributeName);
+    return index != null ? index : -1;
+  }
+
+  @Nullable
+  @CheckForNull
+  public Attribute getIdAttribute() {
+    return idAttribute;
+  }
+
+  /**
+   * Returns the index of the id attribute
+   *
+   * @return id attribute index or -1 if the entity type has no id attribute
+   */
+  public int getIdIndex() {
+    return idIndex;
+  }
+
+  @Nullable
+  @CheckForNull
+  public Attribute getLabelAttribute() {
+    return labelAttribute;
+  }
+
+  /**
+   * Returns the index of the label attribute
+   *
+   * @return label attribute index or -1 if the entity type has no label attribute
+   */
+  public int getLabelIndex() {
+    return labelIndex;
+  }
+
+  public boolean hasAttributeWithExpression() {
+    return hasAttributeWithExpression;
+  }
+}
@@ -13,7 +13,8 @@ public enum Relation {
   isGeneralizationOf("http://molgenis.org/uml/isGeneralizationOf"),
   hasSourceId("http://molgenis.org/uml/hasSourceId"),
   hasSourceName("http://molgenis.org/uml/hasSourceName"),
-  isAssociatedWith("http://molgenis.org#isAssociatedWith");
+  isAssociatedWith("http://molgenis.org#isAssociatedWith"),
+  hasCachePolicy("http://molgenis.org#hasCachePolicy");
 
   private String iri;
 
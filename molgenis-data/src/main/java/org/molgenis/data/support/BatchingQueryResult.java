@@ -18,6 +18,10 @@ public abstract class BatchingQueryResult<E extends Entity> extends BatchingIter
     this.query = query;
   }
 
+  Query<E> getQuery() {
+    return query;
+  }
+
   @Override
   protected List<E> getBatch(int offset, int batchSize) {
     Query<E> batchQuery;
@@ -9,12 +9,13 @@ import org.molgenis.data.meta.model.EntityType;
  */
 public class BootstrapEntity extends DynamicEntity {
   /**
-   * Constructs an entity with the given entity meta data.
+   * Constructs an entity with the given entity meta data. Values are stored in a map because the
+   * attributes of the entity meta data might not be known yet.
    *
    * @param entityType entity meta
    */
   public BootstrapEntity(EntityType entityType) {
-    super(entityType);
+    super(entityType, false);
   }
 
   protected void validateValueType(String attrName, Object value) {
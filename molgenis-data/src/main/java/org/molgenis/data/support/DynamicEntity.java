@@ -17,11 +17,13 @@ import org.molgenis.data.UnknownAttributeException;
 import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
+import org.molgenis.data.meta.model.EntityTypeSchema;
 import org.molgenis.data.util.EntityTypeUtils;
 import org.molgenis.util.UnexpectedEnumException;
 
 /**
- * Class for entities not defined in pre-existing Java classes
+ * Class for entities not defined in pre-existing Java classes. Values are stored in an array
+ * indexed by the {@link EntityTypeSchema} of the entity type.
  *
  * @see StaticEntity
  */
@@ -29,8 +31,20 @@ public class DynamicEntity implements Entity {
   /** Entity meta data */
   private final EntityType entityType;
 
-  /** Maps attribute names to values. Value class types are determined by attribute data type. */
-  private final Map<String, Object> values;
+  /** Layout of the value slots, <code>null</code> if all values are stored in the value map */
+  private final EntityTypeSchema schema;
+
+  /**
+   * Values indexed by atomic attribute index in the schema. Value class types are determined by
+   * attribute data type.
+   */
+  private final Object[] slots;
+
+  /**
+   * Maps attribute names to values for attributes that are not part of the schema, e.g. attributes
+   * added to the entity type after this entity was created. Created on first use.
+   */
+  private Map<String, Object> values;
 
   /**
    * Constructs an entity with the given entity meta data.
@@ -38,8 +52,20 @@ public class DynamicEntity implements Entity {
    * @param entityType entity meta
    */
   public DynamicEntity(EntityType entityType) {
+    this(entityType, true);
+  }
+
+  /**
+   * Constructs an entity with the given entity meta data.
+   *
+   * @param entityType entity meta
+   * @param useSchema whether to store values in slots based on the entity type schema, if false
+   *     all values are stored in a map
+   */
+  protected DynamicEntity(EntityType entityType, boolean useSchema) {
     this.entityType = requireNonNull(entityType);
-    this.values = newHashMap();
+    this.schema = useSchema ? entityType.getSchema() : null;
+    this.slots = schema != null ? new Object[schema.size()] : null;
   }
 
   /**
@@ -65,6 +91,10 @@ public class DynamicEntity implements Entity {
 
   @Override
   public Object getIdValue() {
+    int idIndex = schema != null ? schema.getIdIndex() : -1;
+    if (idIndex != -1) {
+      return slots[idIndex];
+    }
     // abstract entities might not have an id attribute
     Attribute idAttr = entityType.getIdAttribute();
     return idAttr != null ? get(idAttr.getName()) : null;
@@ -82,6 +112,10 @@ public class DynamicEntity implements Entity {
 
   @Override
   public Object getLabelValue() {
+    int labelIndex = schema != null ? schema.getLabelIndex() : -1;
+    if (labelIndex != -1) {
+      return slots[labelIndex];
+    }
     // abstract entities might not have an label attribute
     Attribute labelAttr = entityType.getLabelAttribute();
     return labelAttr != null ? get(labelAttr.getName()) : null;
@@ -89,7 +123,11 @@ public class DynamicEntity implements Entity {
 
   @Override
   public Object get(String attrName) {
-    return values.get(attrName);
+    int index = getSlotIndex(attrName);
+    if (index != -1) {
+      return slots[index];
+    }
+    return values != null ? values.get(attrName) : null;
   }
 
   @Override
@@ -155,7 +193,15 @@ public class DynamicEntity implements Entity {
   @Override
   public void set(String attrName, Object value) {
     validateValueType(attrName, value);
-    values.put(attrName, value);
+    int index = getSlotIndex(attrName);
+    if (index != -1) {
+      slots[index] = value;
+    } else {
+      if (values == null) {
+        values = newHashMap();
+      }
+      values.put(attrName, value);
+    }
   }
 
   @Override
@@ -163,6 +209,10 @@ public class DynamicEntity implements Entity {
     values.getAttributeNames().forEach(attrName -> set(attrName, values.get(attrName)));
   }
 
+  private int getSlotIndex(String attrName) {
+    return schema != null ? schema.getIndex(attrName) : -1;
+  }
+
   /**
    * Validate is value is of the type defined by the attribute data type.
    *
@@ -0,0 +1,34 @@
+package org.molgenis.data.support;
+
+import java.util.List;
+import javax.annotation.Nullable;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Query;
+
+/**
+ * BatchingQueryResult that retrieves the batches following the first batch by continuing after the
+ * last entity of the previous batch instead of by offset (keyset pagination). Keyset pagination
+ * requires a deterministic query sort.
+ */
+public abstract class KeysetBatchingQueryResult<E extends Entity> extends BatchingQueryResult<E> {
+  public KeysetBatchingQueryResult(int batchSize, Query<E> query) {
+    super(batchSize, query);
+  }
+
+  @Override
+  protected List<E> getBatch(int offset, int batchSize, @Nullable E lastEntity) {
+    if (lastEntity == null) {
+      return getBatch(offset, batchSize);
+    }
+    Query<E> batchQuery = new QueryImpl<>(getQuery()).setOffset(0).setPageSize(batchSize);
+    return getBatchAfter(batchQuery, lastEntity);
+  }
+
+  /**
+   * Returns the batch of entities that follow the given entity in the sort order of the query.
+   *
+   * @param q batch query, the query offset should be ignored
+   * @param lastEntity last entity of the previous batch
+   */
+  protected abstract List<E> getBatchAfter(Query<E> q, E lastEntity);
+}
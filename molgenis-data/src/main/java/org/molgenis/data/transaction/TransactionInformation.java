@@ -1,5 +1,6 @@
 package org.molgenis.data.transaction;
 
+import java.util.Optional;
 import java.util.Set;
 import org.molgenis.data.EntityKey;
 import org.molgenis.data.meta.model.EntityType;
@@ -60,4 +61,15 @@ public interface TransactionInformation {
    * @return Set of {@link String}s with fully qualified names of the dirty repositories
    */
   Set<String> getDirtyRepositories();
+
+  /**
+   * Get the attributes of a repository that have been changed by updates of single entities in
+   * this transaction.
+   *
+   * @param entityTypeId fully qualified name of the repository
+   * @return names of the changed attributes (empty if the repository is clean) or {@link
+   *     Optional#empty()} if entities have been added or deleted or if the changed attributes are
+   *     unknown
+   */
+  Optional<Set<String>> getChangedAttributes(String entityTypeId);
 }
@@ -64,6 +64,11 @@ public class TransactionalRepositoryDecorator<E extends Entity>
     return createReadonlyTransactionTemplate().execute(status -> delegate().count(q));
   }
 
+  /**
+   * The read-only transaction ends when the stream is returned, before it is consumed. Callers
+   * that need the stream to be read within a transaction, e.g. to read it from a database cursor,
+   * should consume it within their own transaction.
+   */
   @Override
   public Stream<E> findAll(Query<E> q) {
     return createReadonlyTransactionTemplate().execute(status -> delegate().findAll(q));
@@ -185,6 +190,16 @@ public class TransactionalRepositoryDecorator<E extends Entity>
     return createWriteTransactionTemplate().execute(status -> delegate().add(entities));
   }
 
+  @Override
+  public void upsertBatch(List<E> entities) {
+    createWriteTransactionTemplate()
+        .execute(
+            status -> {
+              delegate().upsertBatch(entities);
+              return null;
+            });
+  }
+
   @Override
   public Iterator<E> iterator() {
     return createReadonlyTransactionTemplate().execute(status -> delegate().iterator());
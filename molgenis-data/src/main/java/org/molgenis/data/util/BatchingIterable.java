@@ -3,6 +3,7 @@ package org.molgenis.data.util;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import javax.annotation.Nullable;
 
 /**
  * Iterable that returns an iterator that retrieves a new batch of objects after a given batchSize
@@ -35,6 +36,8 @@ public abstract class BatchingIterable<T> implements Iterable<T> {
       private int index = offset;
       /** Element iterator for the current batch */
       private Iterator<T> it;
+      /** Last element returned by this iterator */
+      private T lastElement;
 
       @Override
       public boolean hasNext() {
@@ -67,6 +70,7 @@ public abstract class BatchingIterable<T> implements Iterable<T> {
 
         T element = it.next();
         ++index;
+        lastElement = element;
         return element;
       }
 
@@ -100,7 +104,7 @@ public abstract class BatchingIterable<T> implements Iterable<T> {
         if (nextBatchSize == 0) {
           return Collections.emptyIterator();
         } else {
-          return getBatch(index, nextBatchSize).iterator();
+          return getBatch(index, nextBatchSize, lastElement).iterator();
         }
       }
     };
@@ -112,4 +116,16 @@ public abstract class BatchingIterable<T> implements Iterable<T> {
    * @param offset (startIndex)
    */
   protected abstract Iterable<T> getBatch(int offset, int batchSize);
+
+  /**
+   * Return new batch, should not return null but empty list if no more elements are available.
+   * Implementations that can continue after the last element of the previous batch can override
+   * this method to avoid retrieving a batch by offset.
+   *
+   * @param offset (startIndex)
+   * @param lastElement last element of the previous batch or <code>null</code> for the first batch
+   */
+  protected Iterable<T> getBatch(int offset, int batchSize, @Nullable T lastElement) {
+    return getBatch(offset, batchSize);
+  }
 }
@@ -0,0 +1,68 @@
+package org.molgenis.data.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import javax.annotation.PreDestroy;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+import org.springframework.stereotype.Component;
+
+/**
+ * Executes queries concurrently with the security context of the requesting user. The thread pool
+ * is shared by all components that query concurrently and is shut down with the application
+ * context.
+ */
+@Component
+public class ConcurrentQueryExecutor implements Executor {
+  private static final ThreadLocal<Boolean> IS_QUERY_THREAD = ThreadLocal.withInitial(() -> false);
+
+  private final ExecutorService executorService;
+
+  public ConcurrentQueryExecutor() {
+    this.executorService =
+        new DelegatingSecurityContextExecutorService(
+            Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(),
+                new ThreadFactoryBuilder()
+                    .setNameFormat("molgenis-query-%d")
+                    .setDaemon(true)
+                    .build()));
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    executorService.execute(
+        () -> {
+          IS_QUERY_THREAD.set(true);
+          try {
+            command.run();
+          } finally {
+            IS_QUERY_THREAD.remove();
+          }
+        });
+  }
+
+  public <T> Future<T> submit(Callable<T> callable) {
+    FutureTask<T> futureTask = new FutureTask<>(callable);
+    execute(futureTask);
+    return futureTask;
+  }
+
+  /**
+   * Returns whether the current thread is one of the query threads. Query threads should not wait
+   * for other queries submitted to this executor, because all threads could end up waiting.
+   */
+  public static boolean isQueryThread() {
+    return IS_QUERY_THREAD.get();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    // results of running queries are of no use once the application context is closed
+    executorService.shutdownNow();
+  }
+}
@@ -66,7 +66,16 @@ public class EntityTypeUtils {
    * @return true if an attribute references multiple entities
    */
   public static boolean isMultipleReferenceType(Attribute attr) {
-    AttributeType attrType = attr.getDataType();
+    return isMultipleReferenceType(attr.getDataType());
+  }
+
+  /**
+   * Returns whether the attribute type references multiple entities (e.g. is 'MREF').
+   *
+   * @param attrType attribute type
+   * @return true if an attribute type references multiple entities
+   */
+  public static boolean isMultipleReferenceType(AttributeType attrType) {
     switch (attrType) {
       case CATEGORICAL_MREF:
       case MREF:
@@ -10,8 +10,10 @@ import static org.molgenis.data.util.MolgenisDateFormat.parseLocalDate;
 
 import com.google.common.collect.Iterables;
 import java.time.format.DateTimeParseException;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import org.molgenis.data.Entity;
 import org.molgenis.data.EntityManager;
 import org.molgenis.data.MolgenisDataException;
@@ -415,77 +417,87 @@ public class EntityUtils {
     if (!entity.getEntityType().getId().equals(otherEntity.getEntityType().getId())) return false;
 
     for (Attribute attr : entity.getEntityType().getAtomicAttributes()) {
-      String attrName = attr.getName();
-      switch (attr.getDataType()) {
-        case BOOL:
-          if (!Objects.equals(entity.getBoolean(attrName), otherEntity.getBoolean(attrName)))
-            return false;
-          break;
-        case CATEGORICAL:
-        case FILE:
-        case XREF:
-          Entity xrefValue = entity.getEntity(attrName);
-          Entity otherXrefValue = otherEntity.getEntity(attrName);
-          if (xrefValue == null && otherXrefValue != null) return false;
-          if (xrefValue != null && otherXrefValue == null) return false;
-          if (xrefValue != null
-              && otherXrefValue != null
-              && !xrefValue.getIdValue().equals(otherXrefValue.getIdValue())) return false;
-          break;
-        case CATEGORICAL_MREF:
-        case ONE_TO_MANY:
-        case MREF:
-          List<Entity> entities = newArrayList(entity.getEntities(attrName));
-          List<Entity> otherEntities = newArrayList(otherEntity.getEntities(attrName));
-          if (entities.size() != otherEntities.size()) return false;
-          for (int i = 0; i < entities.size(); ++i) {
-            Entity mrefValue = entities.get(i);
-            Entity otherMrefValue = otherEntities.get(i);
-            if (mrefValue == null && otherMrefValue != null) return false;
-            if (mrefValue != null && otherMrefValue == null) return false;
-            if (mrefValue != null
-                && otherMrefValue != null
-                && !mrefValue.getIdValue().equals(otherMrefValue.getIdValue())) return false;
-          }
-          break;
-        case COMPOUND:
-          throw new RuntimeException(format("Invalid data type [%s]", attr.getDataType()));
-        case DATE:
-          if (!Objects.equals(entity.getLocalDate(attrName), otherEntity.getLocalDate(attrName)))
-            return false;
-          break;
-        case DATE_TIME:
-          if (!Objects.equals(entity.getInstant(attrName), otherEntity.getInstant(attrName)))
-            return false;
-          break;
-        case DECIMAL:
-          if (!Objects.equals(entity.getDouble(attrName), otherEntity.getDouble(attrName)))
-            return false;
-          break;
-        case EMAIL:
-        case ENUM:
-        case HTML:
-        case HYPERLINK:
-        case SCRIPT:
-        case STRING:
-        case TEXT:
-          if (!Objects.equals(entity.getString(attrName), otherEntity.getString(attrName)))
-            return false;
-          break;
-        case INT:
-          if (!Objects.equals(entity.getInt(attrName), otherEntity.getInt(attrName))) return false;
-          break;
-        case LONG:
-          if (!Objects.equals(entity.getLong(attrName), otherEntity.getLong(attrName)))
-            return false;
-          break;
-        default:
-          throw new UnexpectedEnumException(attr.getDataType());
+      if (!equals(entity, otherEntity, attr)) {
+        return false;
       }
     }
     return true;
   }
 
+  /**
+   * Returns the names of the atomic attributes with different values in the given entities of the
+   * same entity type.
+   *
+   * @param entity entity
+   * @param otherEntity other entity with the same entity type
+   * @return names of attributes with different values
+   */
+  public static Set<String> getChangedAttributeNames(Entity entity, Entity otherEntity) {
+    Set<String> changedAttributeNames = new LinkedHashSet<>();
+    for (Attribute attr : entity.getEntityType().getAtomicAttributes()) {
+      if (attr.getExpression() == null && !equals(entity, otherEntity, attr)) {
+        changedAttributeNames.add(attr.getName());
+      }
+    }
+    return changedAttributeNames;
+  }
+
+  /** Returns whether the entities have the same value for the given attribute */
+  private static boolean equals(Entity entity, Entity otherEntity, Attribute attr) {
+    String attrName = attr.getName();
+    switch (attr.getDataType()) {
+      case BOOL:
+        return Objects.equals(entity.getBoolean(attrName), otherEntity.getBoolean(attrName));
+      case CATEGORICAL:
+      case FILE:
+      case XREF:
+        Entity xrefValue = entity.getEntity(attrName);
+        Entity otherXrefValue = otherEntity.getEntity(attrName);
+        if (xrefValue == null || otherXrefValue == null) {
+          return xrefValue == otherXrefValue;
+        }
+        return xrefValue.getIdValue().equals(otherXrefValue.getIdValue());
+      case CATEGORICAL_MREF:
+      case ONE_TO_MANY:
+      case MREF:
+        List<Entity> entities = newArrayList(entity.getEntities(attrName));
+        List<Entity> otherEntities = newArrayList(otherEntity.getEntities(attrName));
+        if (entities.size() != otherEntities.size()) return false;
+        for (int i = 0; i < entities.size(); ++i) {
+          Entity mrefValue = entities.get(i);
+          Entity otherMrefValue = otherEntities.get(i);
+          if (mrefValue == null && otherMrefValue != null) return false;
+          if (mrefValue != null && otherMrefValue == null) return false;
+          if (mrefValue != null
+              && otherMrefValue != null
+              && !mrefValue.getIdValue().equals(otherMrefValue.getIdValue())) return false;
+        }
+        return true;
+      case COMPOUND:
+        throw new RuntimeException(format("Invalid data type [%s]", attr.getDataType()));
+      case DATE:
+        return Objects.equals(entity.getLocalDate(attrName), otherEntity.getLocalDate(attrName));
+      case DATE_TIME:
+        return Objects.equals(entity.getInstant(attrName), otherEntity.getInstant(attrName));
+      case DECIMAL:
+        return Objects.equals(entity.getDouble(attrName), otherEntity.getDouble(attrName));
+      case EMAIL:
+      case ENUM:
+      case HTML:
+      case HYPERLINK:
+      case SCRIPT:
+      case STRING:
+      case TEXT:
+        return Objects.equals(entity.getString(attrName), otherEntity.getString(attrName));
+      case INT:
+        return Objects.equals(entity.getInt(attrName), otherEntity.getInt(attrName));
+      case LONG:
+        return Objects.equals(entity.getLong(attrName), otherEntity.getLong(attrName));
+      default:
+        throw new UnexpectedEnumException(attr.getDataType());
+    }
+  }
+
   public static int hashCode(Entity entity) {
     int h = 0;
     for (Attribute attr : entity.getEntityType().getAtomicAttributes()) {
@@ -1,19 +1,29 @@
 package org.molgenis.data;
 
 import static java.util.Collections.singletonList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.molgenis.data.meta.AttributeType.STRING;
+import static org.molgenis.data.meta.AttributeType.XREF;
 import static org.testng.Assert.assertEquals;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.molgenis.data.meta.model.Attribute;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.populate.EntityPopulator;
 import org.molgenis.data.support.DynamicEntity;
+import org.molgenis.data.util.ConcurrentQueryExecutor;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -23,6 +33,17 @@ public class EntityManagerImplTest {
   private EntityFactoryRegistry entityFactoryRegistry;
   private EntityPopulator entityPopulator;
   private EntityReferenceCreator entityReferenceCreator;
+  private ConcurrentQueryExecutor concurrentQueryExecutor;
+
+  @BeforeClass
+  public void setUpBeforeClass() {
+    concurrentQueryExecutor = new ConcurrentQueryExecutor();
+  }
+
+  @AfterClass
+  public void tearDownAfterClass() {
+    concurrentQueryExecutor.shutdown();
+  }
 
   @BeforeMethod
   public void setUpBeforeMethod() {
@@ -32,12 +53,16 @@ public class EntityManagerImplTest {
     entityReferenceCreator = mock(EntityReferenceCreator.class);
     entityManagerImpl =
         new EntityManagerImpl(
-            dataService, entityFactoryRegistry, entityPopulator, entityReferenceCreator);
+            dataService,
+            entityFactoryRegistry,
+            entityPopulator,
+            entityReferenceCreator,
+            concurrentQueryExecutor);
   }
 
   @Test(expectedExceptions = NullPointerException.class)
   public void EntityManagerImpl() {
-    new EntityManagerImpl(null, null, null, null);
+    new EntityManagerImpl(null, null, null, null, null);
   }
 
   @Test
@@ -84,4 +109,39 @@ public class EntityManagerImplTest {
         entityManagerImpl.resolveReferences(entityType, Stream.of(entity0, entity1), fetch);
     assertEquals(entities.collect(Collectors.toList()), Arrays.asList(entity0, entity1));
   }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void resolveReferencesStreamFetch() {
+    EntityType refEntityType =
+        when(mock(EntityType.class).getId()).thenReturn("refEntity").getMock();
+    Attribute refAttr = when(mock(Attribute.class).getName()).thenReturn("ref").getMock();
+    when(refAttr.getDataType()).thenReturn(XREF);
+    when(refAttr.getRefEntity()).thenReturn(refEntityType);
+    EntityType entityType = when(mock(EntityType.class).getId()).thenReturn("entity").getMock();
+    when(entityType.getAtomicAttributes()).thenReturn(singletonList(refAttr));
+    when(entityType.getAttribute("ref")).thenReturn(refAttr);
+
+    Entity lazyRefEntity = when(mock(Entity.class).getIdValue()).thenReturn("id0").getMock();
+    Entity refEntity = when(mock(Entity.class).getIdValue()).thenReturn("id0").getMock();
+    when(dataService.findAll(eq("refEntity"), any(Stream.class), (Fetch) isNull()))
+        .thenAnswer(invocation -> Stream.of(refEntity));
+
+    // two batches that reference the same entity
+    List<Entity> entities = new ArrayList<>();
+    for (int i = 0; i < 150; i++) {
+      Entity entity = new DynamicEntity(entityType); // do not mock, setters will be called
+      entity.set("ref", lazyRefEntity);
+      entities.add(entity);
+    }
+
+    Fetch fetch = new Fetch().field("ref");
+    List<Entity> resolvedEntities =
+        entityManagerImpl
+            .resolveReferences(entityType, entities.stream(), fetch)
+            .collect(Collectors.toList());
+    assertEquals(resolvedEntities, entities);
+    resolvedEntities.forEach(entity -> assertEquals(entity.getEntity("ref"), refEntity));
+    verify(dataService, times(1)).findAll(eq("refEntity"), any(Stream.class), (Fetch) isNull());
+  }
 }
@@ -1,8 +1,11 @@
 package org.molgenis.data.listeners;
 
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
 import static org.testng.Assert.assertEquals;
 
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -211,6 +214,42 @@ public class EntityListenerRepositoryDecoratorTest {
         captor.getValue().collect(Collectors.toList()), Arrays.asList(entity0, entity1));
   }
 
+  @Test
+  public void upsertBatchOnlyNotifiesListenersOfExistingEntities() {
+    EntityListener entityListener0 =
+        Mockito.when(Mockito.mock(EntityListener.class).getEntityId()).thenReturn(3).getMock();
+    EntityListener entityListener1 =
+        Mockito.when(Mockito.mock(EntityListener.class).getEntityId()).thenReturn(4).getMock();
+    entityListenersService.addEntityListener("entityFullName", entityListener0);
+    entityListenersService.addEntityListener("entityFullName", entityListener1);
+
+    Entity existingEntity =
+        Mockito.when(Mockito.mock(Entity.class).getIdValue()).thenReturn(3).getMock();
+    Entity newEntity =
+        Mockito.when(Mockito.mock(Entity.class).getIdValue()).thenReturn(4).getMock();
+    Entity unlistenedEntity =
+        Mockito.when(Mockito.mock(Entity.class).getIdValue()).thenReturn(5).getMock();
+    Mockito.when(delegateRepository.getExistingIDs(new HashSet<>(Arrays.asList(3, 4))))
+        .thenReturn(singleton(3));
+
+    List<Entity> entities = Arrays.asList(existingEntity, newEntity, unlistenedEntity);
+    entityListenerRepositoryDecorator.upsertBatch(entities);
+
+    Mockito.verify(delegateRepository).upsertBatch(entities);
+    Mockito.verify(entityListener0).postUpdate(existingEntity);
+    Mockito.verify(entityListener1, Mockito.never()).postUpdate(newEntity);
+  }
+
+  @Test
+  public void upsertBatchNoListeners() {
+    Entity entity = Mockito.when(Mockito.mock(Entity.class).getIdValue()).thenReturn(6).getMock();
+    List<Entity> entities = singletonList(entity);
+    entityListenerRepositoryDecorator.upsertBatch(entities);
+
+    Mockito.verify(delegateRepository).upsertBatch(entities);
+    Mockito.verify(delegateRepository, Mockito.never()).getExistingIDs(Mockito.any());
+  }
+
   @SuppressWarnings("resource")
   @Test
   public void removeEntityListener() {
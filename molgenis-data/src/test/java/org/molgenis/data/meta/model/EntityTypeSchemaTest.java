@@ -0,0 +1,101 @@
+package org.molgenis.data.meta.model;
+
+import static org.molgenis.data.meta.AttributeType.COMPOUND;
+import static org.molgenis.data.meta.AttributeType.INT;
+import static org.molgenis.data.meta.AttributeType.STRING;
+import static org.molgenis.data.meta.AttributeType.XREF;
+import static org.molgenis.data.meta.model.EntityType.AttributeRole.ROLE_ID;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import org.molgenis.data.AbstractMolgenisSpringTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class EntityTypeSchemaTest extends AbstractMolgenisSpringTest {
+  @Autowired private EntityTypeFactory entityTypeFactory;
+  @Autowired private AttributeFactory attributeFactory;
+
+  private EntityType refEntityType;
+  private EntityType entityType;
+  private Attribute intAttribute;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    refEntityType =
+        entityTypeFactory
+            .create("refEntityType")
+            .addAttribute(attributeFactory.create().setName("id").setDataType(STRING), ROLE_ID);
+
+    Attribute compoundAttribute = attributeFactory.create().setName("compound");
+    compoundAttribute.setDataType(COMPOUND);
+    intAttribute = attributeFactory.create().setName("int").setDataType(INT);
+    intAttribute.setParent(compoundAttribute);
+    entityType =
+        entityTypeFactory
+            .create("entityType")
+            .addAttribute(attributeFactory.create().setName("id").setDataType(STRING), ROLE_ID)
+            .addAttribute(compoundAttribute)
+            .addAttribute(intAttribute)
+            .addAttribute(
+                attributeFactory
+                    .create()
+                    .setName("xref")
+                    .setDataType(XREF)
+                    .setRefEntity(refEntityType))
+            .addAttribute(
+                attributeFactory.create().setName("computed").setExpression("$('id').value()"));
+  }
+
+  @Test
+  public void testGetSchema() {
+    EntityTypeSchema schema = entityType.getSchema();
+    assertEquals(schema.size(), 4);
+    assertEquals(schema.getName(0), "id");
+    assertEquals(schema.getIndex("int"), 1);
+    assertEquals(schema.getDataType(1), INT);
+    assertSame(schema.getAttribute(1), intAttribute);
+    assertTrue(schema.isReferenceType(2));
+    assertSame(schema.getRefEntityType(2), refEntityType);
+    assertFalse(schema.isReferenceType(1));
+    assertNull(schema.getRefEntityType(1));
+    assertTrue(schema.isComputed(3));
+    assertTrue(schema.hasAttributeWithExpression());
+    assertSame(schema.getIdAttribute(), entityType.getIdAttribute());
+  }
+
+  @Test
+  public void testGetIndexUnknownAttribute() {
+    assertEquals(entityType.getSchema().getIndex("compound"), -1);
+  }
+
+  @Test
+  public void testGetSchemaCached() {
+    assertSame(entityType.getSchema(), entityType.getSchema());
+  }
+
+  @Test
+  public void testGetSchemaAfterAddAttribute() {
+    EntityTypeSchema schema = entityType.getSchema();
+    entityType.addAttribute(attributeFactory.create().setName("string").setDataType(STRING));
+
+    EntityTypeSchema updatedSchema = entityType.getSchema();
+    assertNotSame(updatedSchema, schema);
+    assertEquals(updatedSchema.getIndex("string"), 4);
+  }
+
+  @Test
+  public void testGetSchemaAfterAttributeUpdate() {
+    EntityTypeSchema schema = entityType.getSchema();
+    intAttribute.setDataType(STRING);
+
+    EntityTypeSchema updatedSchema = entityType.getSchema();
+    assertNotSame(updatedSchema, schema);
+    assertEquals(updatedSchema.getDataType(1), STRING);
+  }
+}
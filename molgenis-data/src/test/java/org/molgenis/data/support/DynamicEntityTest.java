@@ -1,11 +1,16 @@
 package org.molgenis.data.support;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Arrays.asList;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.molgenis.data.meta.AttributeType.DECIMAL;
+import static org.molgenis.data.meta.AttributeType.INT;
 import static org.molgenis.data.meta.AttributeType.ONE_TO_MANY;
+import static org.molgenis.data.meta.AttributeType.STRING;
 import static org.molgenis.data.meta.AttributeType.XREF;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 
 import java.util.Iterator;
 import org.molgenis.data.Entity;
@@ -44,6 +49,48 @@ public class DynamicEntityTest {
     set(attrType, value);
   }
 
+  @Test
+  public void testGetSet() {
+    Attribute idAttr = createAttribute("id", STRING);
+    Attribute labelAttr = createAttribute("label", STRING);
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getAtomicAttributes()).thenReturn(asList(idAttr, labelAttr));
+    when(entityType.getIdAttribute()).thenReturn(idAttr);
+    when(entityType.getLabelAttribute()).thenReturn(labelAttr);
+    when(entityType.getAttribute("id")).thenReturn(idAttr);
+    when(entityType.getAttribute("label")).thenReturn(labelAttr);
+
+    DynamicEntity dynamicEntity = new DynamicEntity(entityType);
+    dynamicEntity.set("id", "myId");
+    dynamicEntity.set("label", "myLabel");
+    assertEquals(dynamicEntity.get("id"), "myId");
+    assertEquals(dynamicEntity.getIdValue(), "myId");
+    assertEquals(dynamicEntity.getLabelValue(), "myLabel");
+  }
+
+  @Test
+  public void testGetSetAttributeNotInSchema() {
+    Attribute attr = createAttribute("attr", INT);
+    EntityType entityType = mock(EntityType.class);
+    when(entityType.getAttribute("attr")).thenReturn(attr);
+
+    DynamicEntity dynamicEntity = new DynamicEntity(entityType);
+    dynamicEntity.set("attr", 1);
+    assertEquals(dynamicEntity.getInt("attr"), Integer.valueOf(1));
+  }
+
+  @Test
+  public void testGetUnknownAttribute() {
+    assertNull(new DynamicEntity(mock(EntityType.class)).get("unknown"));
+  }
+
+  private static Attribute createAttribute(String attrName, AttributeType attrType) {
+    Attribute attr = mock(Attribute.class);
+    when(attr.getName()).thenReturn(attrName);
+    when(attr.getDataType()).thenReturn(attrType);
+    return attr;
+  }
+
   private static void set(AttributeType attrType, Object value) {
     EntityType entityType = mock(EntityType.class);
     Attribute attr = mock(Attribute.class);
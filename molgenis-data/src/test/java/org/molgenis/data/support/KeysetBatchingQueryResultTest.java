@@ -0,0 +1,44 @@
+package org.molgenis.data.support;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertEquals;
+
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.molgenis.data.Entity;
+import org.molgenis.data.Query;
+import org.testng.annotations.Test;
+
+public class KeysetBatchingQueryResultTest {
+  @Test
+  public void getBatch() {
+    Entity entity0 = mock(Entity.class);
+    Entity entity1 = mock(Entity.class);
+    Entity entity2 = mock(Entity.class);
+    Query<Entity> query = new QueryImpl<>().offset(10);
+    List<Entity> lastEntities = new ArrayList<>();
+    BatchingQueryResult<Entity> bqr =
+        new KeysetBatchingQueryResult<Entity>(2, query) {
+          @Override
+          protected List<Entity> getBatch(Query<Entity> q) {
+            assertEquals(q.getOffset(), 10);
+            assertEquals(q.getPageSize(), 2);
+            return Arrays.asList(entity0, entity1);
+          }
+
+          @Override
+          protected List<Entity> getBatchAfter(Query<Entity> q, Entity lastEntity) {
+            assertEquals(q.getOffset(), 0);
+            assertEquals(q.getPageSize(), 2);
+            lastEntities.add(lastEntity);
+            return lastEntity == entity1 ? singletonList(entity2) : emptyList();
+          }
+        };
+    assertEquals(Lists.newArrayList(bqr), Arrays.asList(entity0, entity1, entity2));
+    assertEquals(lastEntities, singletonList(entity1));
+  }
+}
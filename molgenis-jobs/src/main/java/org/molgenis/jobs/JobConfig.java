@@ -2,6 +2,7 @@ package org.molgenis.jobs;
 
 import static java.util.Objects.requireNonNull;
 
+import org.molgenis.data.file.FileStore;
 import org.molgenis.jobs.scheduler.SchedulerConfig;
 import org.molgenis.security.token.RunAsUserTokenFactory;
 import org.molgenis.security.user.UserDetailsServiceImpl;
@@ -17,15 +18,18 @@ public class JobConfig {
   private final UserDetailsServiceImpl userDetailsServiceImpl;
   private final RunAsUserTokenFactory runAsUserTokenFactory;
   private final UserLocaleResolver userLocaleResolver;
+  private final FileStore fileStore;
 
   @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection")
   public JobConfig(
       UserDetailsServiceImpl userDetailsServiceImpl,
       RunAsUserTokenFactory runAsUserTokenFactory,
-      UserLocaleResolver userLocaleResolver) {
+      UserLocaleResolver userLocaleResolver,
+      FileStore fileStore) {
     this.userDetailsServiceImpl = requireNonNull(userDetailsServiceImpl);
     this.runAsUserTokenFactory = requireNonNull(runAsUserTokenFactory);
     this.userLocaleResolver = requireNonNull(userLocaleResolver);
+    this.fileStore = requireNonNull(fileStore);
   }
 
   @Bean
@@ -44,8 +48,13 @@ public class JobConfig {
         jobExecutorTokenService(), jobExecutorLocaleService());
   }
 
+  @Bean
+  public JobExecutionLogStore jobExecutionLogStore() {
+    return new JobExecutionLogStoreImpl(fileStore);
+  }
+
   @Bean
   public JobExecutionUpdater jobExecutionUpdater() {
-    return new JobExecutionUpdaterImpl(jobExecutionContextFactory());
+    return new JobExecutionUpdaterImpl(jobExecutionContextFactory(), jobExecutionLogStore());
   }
 }
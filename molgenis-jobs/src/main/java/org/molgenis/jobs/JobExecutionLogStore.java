@@ -0,0 +1,31 @@
+package org.molgenis.jobs;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Append-only storage of the complete logs of job executions. The log attribute of a job execution
+ * only contains the tail of its log.
+ */
+public interface JobExecutionLogStore {
+  /**
+   * Appends a chunk of log messages to the log of a job execution.
+   *
+   * @param jobExecutionId job execution identifier
+   * @param logChunk one or more formatted log messages
+   */
+  void append(String jobExecutionId, String logChunk);
+
+  /**
+   * Writes the log of a job execution to the given output stream.
+   *
+   * @param jobExecutionId job execution identifier
+   * @param outputStream output stream to write the log to
+   * @return <code>true</code> if the log was written, <code>false</code> if no log exists for the
+   *     job execution
+   */
+  boolean writeLog(String jobExecutionId, OutputStream outputStream) throws IOException;
+
+  /** Deletes the log of a job execution if it exists. */
+  void delete(String jobExecutionId);
+}
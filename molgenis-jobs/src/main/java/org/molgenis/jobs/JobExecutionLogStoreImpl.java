@@ -0,0 +1,66 @@
+package org.molgenis.jobs;
+
+import static java.io.File.separator;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.molgenis.data.file.FileStore;
+
+/**
+ * Stores job execution logs in the {@link FileStore}, one file per job execution. Log chunks are
+ * appended to the end of the file so appending does not depend on the size of the log.
+ */
+public class JobExecutionLogStoreImpl implements JobExecutionLogStore {
+  static final String LOG_DIRECTORY = "job-logs";
+
+  private final FileStore fileStore;
+
+  public JobExecutionLogStoreImpl(FileStore fileStore) {
+    this.fileStore = requireNonNull(fileStore);
+  }
+
+  @Override
+  public void append(String jobExecutionId, String logChunk) {
+    Path path = getPath(jobExecutionId);
+    try {
+      Files.createDirectories(path.getParent());
+      Files.write(path, logChunk.getBytes(UTF_8), CREATE, APPEND);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public boolean writeLog(String jobExecutionId, OutputStream outputStream) throws IOException {
+    Path path = getPath(jobExecutionId);
+    if (!Files.isRegularFile(path)) {
+      return false;
+    }
+    Files.copy(path, outputStream);
+    return true;
+  }
+
+  @Override
+  public void delete(String jobExecutionId) {
+    try {
+      Files.deleteIfExists(getPath(jobExecutionId));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private Path getPath(String jobExecutionId) {
+    if (jobExecutionId.contains("/") || jobExecutionId.contains("\\")) {
+      throw new IllegalArgumentException(
+          String.format("Invalid job execution identifier '%s'", jobExecutionId));
+    }
+    return fileStore.getFileUnchecked(LOG_DIRECTORY + separator + jobExecutionId + ".log").toPath();
+  }
+}
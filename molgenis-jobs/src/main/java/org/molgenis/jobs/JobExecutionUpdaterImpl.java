@@ -1,11 +1,28 @@
 package org.molgenis.jobs;
 
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.molgenis.jobs.model.JobExecution.Status.CANCELED;
+import static org.molgenis.jobs.model.JobExecution.Status.FAILED;
+import static org.molgenis.jobs.model.JobExecution.Status.SUCCESS;
+import static org.molgenis.jobs.model.JobExecutionMetaData.STATUS;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import javax.annotation.PreDestroy;
 import org.molgenis.data.DataService;
 import org.molgenis.data.Entity;
+import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.data.support.DynamicEntity;
 import org.molgenis.jobs.model.JobExecution;
 import org.slf4j.Logger;
@@ -15,47 +32,223 @@ import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 
+/**
+ * Persists {@link JobExecution} updates asynchronously. Updates of the same job execution are
+ * coalesced: a job execution is written at most once every {@link #FLUSH_INTERVAL_MILLIS}
+ * milliseconds with its latest values, unless its status changed in which case it is written
+ * immediately. Job executions without changed values are not written.
+ *
+ * <p>The job keeps changing its job execution while updates are written, so the values of the job
+ * execution are copied on the calling thread and only these copies are written.
+ *
+ * <p>Log messages appended since the previous write are appended to the {@link
+ * JobExecutionLogStore} in a single chunk, the job execution itself only contains the tail of the
+ * log.
+ */
 @Component
 public class JobExecutionUpdaterImpl implements JobExecutionUpdater {
   private static final Logger LOG = LoggerFactory.getLogger(JobExecutionUpdater.class);
+  static final long FLUSH_INTERVAL_MILLIS = 1000;
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
 
   private final JobExecutionContextFactory jobExecutionContextFactory;
-  private final ExecutorService executorService;
+  private final JobExecutionLogStore jobExecutionLogStore;
+  private final ScheduledExecutorService executorService;
+  private final long flushIntervalMillis;
   @Autowired private DataService dataService;
 
-  JobExecutionUpdaterImpl(JobExecutionContextFactory jobExecutionContextFactory) {
+  /** job execution identifier --> state of the job execution updates */
+  private final ConcurrentMap<String, UpdateState> updateStates = new ConcurrentHashMap<>();
+
+  JobExecutionUpdaterImpl(
+      JobExecutionContextFactory jobExecutionContextFactory,
+      JobExecutionLogStore jobExecutionLogStore) {
+    this(
+        jobExecutionContextFactory,
+        jobExecutionLogStore,
+        createExecutorService(),
+        FLUSH_INTERVAL_MILLIS);
+  }
+
+  JobExecutionUpdaterImpl(
+      JobExecutionContextFactory jobExecutionContextFactory,
+      JobExecutionLogStore jobExecutionLogStore,
+      ScheduledExecutorService executorService,
+      long flushIntervalMillis) {
     this.jobExecutionContextFactory = requireNonNull(jobExecutionContextFactory);
-    this.executorService = Executors.newSingleThreadExecutor();
+    this.jobExecutionLogStore = requireNonNull(jobExecutionLogStore);
+    this.executorService = requireNonNull(executorService);
+    this.flushIntervalMillis = flushIntervalMillis;
+  }
+
+  private static ScheduledExecutorService createExecutorService() {
+    ScheduledThreadPoolExecutor executorService =
+        new ScheduledThreadPoolExecutor(
+            1,
+            new ThreadFactoryBuilder()
+                .setNameFormat("molgenis-job-execution-updater-%d")
+                .setDaemon(true)
+                .build());
+    // delayed flushes are replaced by the flush on shutdown
+    executorService.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    return executorService;
+  }
+
+  /**
+   * Stops the executor and writes the updates that have not been written yet, so that the latest
+   * state of running job executions is persisted when the application stops.
+   */
+  @PreDestroy
+  void shutdown() {
+    executorService.shutdown();
+    try {
+      if (!executorService.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, SECONDS)) {
+        LOG.warn("Timeout waiting for job execution updates to complete");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    updateStates.values().forEach(this::flush);
   }
 
   @Override
   public void update(JobExecution jobExecution) {
-    JobExecutionContext jobExecutionContext =
-        jobExecutionContextFactory.createJobExecutionContext(jobExecution);
-    executorService.execute(() -> updateInternal(jobExecution, jobExecutionContext));
-  }
+    UpdateState updateState =
+        updateStates.computeIfAbsent(
+            jobExecution.getIdentifier(),
+            identifier ->
+                new UpdateState(
+                    jobExecution.getEntityType(),
+                    identifier,
+                    jobExecutionContextFactory.createJobExecutionContext(jobExecution)));
+
+    Map<String, Object> values = getValues(jobExecution);
+    String unsavedLog = jobExecution.pollUnsavedLog();
 
-  private void updateInternal(JobExecution jobExecution, JobExecutionContext jobExecutionContext) {
-    SecurityContext originalContext = SecurityContextHolder.getContext();
+    Object status = values.get(STATUS);
+    long delay;
+    synchronized (updateState) {
+      updateState.values = values;
+      if (unsavedLog != null) {
+        updateState.unsavedLog.append(unsavedLog);
+      }
+      if (!Objects.equals(status, updateState.status)) {
+        updateState.status = status;
+        delay = 0;
+      } else if (!updateState.flushScheduled) {
+        long elapsedMillis = NANOSECONDS.toMillis(System.nanoTime() - updateState.lastFlushNanos);
+        delay = Math.max(0, flushIntervalMillis - elapsedMillis);
+      } else {
+        return;
+      }
+      updateState.flushScheduled = true;
+    }
     try {
-      SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
-      securityContext.setAuthentication(jobExecutionContext.getAuthentication());
-      SecurityContextHolder.setContext(securityContext);
+      executorService.schedule(() -> flush(updateState), delay, MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      // the application is stopping, write the update on the calling thread
+      flush(updateState);
+    }
+  }
 
-      tryUpdate(jobExecution);
-    } finally {
-      SecurityContextHolder.setContext(originalContext);
+  private static Map<String, Object> getValues(JobExecution jobExecution) {
+    Map<String, Object> values = new HashMap<>();
+    for (Attribute attribute : jobExecution.getEntityType().getAtomicAttributes()) {
+      values.put(attribute.getName(), jobExecution.get(attribute.getName()));
     }
+    return values;
   }
 
-  private void tryUpdate(JobExecution jobExecution) {
-    Entity jobExecutionCopy = new DynamicEntity(jobExecution.getEntityType());
-    jobExecutionCopy.set(jobExecution);
+  private void flush(UpdateState updateState) {
+    synchronized (updateState.flushLock) {
+      Map<String, Object> values;
+      String unsavedLog;
+      synchronized (updateState) {
+        updateState.flushScheduled = false;
+        updateState.lastFlushNanos = System.nanoTime();
+        values = updateState.values;
+        unsavedLog = updateState.unsavedLog.length() > 0 ? updateState.unsavedLog.toString() : null;
+        updateState.unsavedLog.setLength(0);
+      }
+      if (values == null) {
+        // update state was created concurrently, the values follow with the next flush
+        return;
+      }
 
+      if (unsavedLog != null) {
+        appendLog(updateState.identifier, unsavedLog);
+      }
+
+      SecurityContext originalContext = SecurityContextHolder.getContext();
+      try {
+        SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+        securityContext.setAuthentication(updateState.jobExecutionContext.getAuthentication());
+        SecurityContextHolder.setContext(securityContext);
+
+        tryUpdate(updateState, values);
+      } finally {
+        SecurityContextHolder.setContext(originalContext);
+      }
+
+      if (isFinished(values.get(STATUS))) {
+        updateStates.remove(updateState.identifier, updateState);
+      }
+    }
+  }
+
+  private void appendLog(String jobExecutionId, String unsavedLog) {
+    try {
+      jobExecutionLogStore.append(jobExecutionId, unsavedLog);
+    } catch (Exception ex) {
+      LOG.warn("Error appending job execution log", ex);
+    }
+  }
+
+  private void tryUpdate(UpdateState updateState, Map<String, Object> values) {
+    if (values.equals(updateState.persistedValues)) {
+      return;
+    }
+
+    Entity jobExecutionCopy = new DynamicEntity(updateState.entityType);
+    values.forEach(jobExecutionCopy::set);
     try {
       dataService.update(jobExecutionCopy.getEntityType().getId(), jobExecutionCopy);
+      updateState.persistedValues = values;
     } catch (Exception ex) {
       LOG.warn("Error updating job execution", ex);
     }
   }
+
+  private static boolean isFinished(Object status) {
+    return SUCCESS.name().equals(status)
+        || FAILED.name().equals(status)
+        || CANCELED.name().equals(status);
+  }
+
+  /** Updates of a job execution that are not persisted yet */
+  private static class UpdateState {
+    private final EntityType entityType;
+    private final String identifier;
+    private final JobExecutionContext jobExecutionContext;
+    /** ensures that updates are written in order, even when flushed by different threads */
+    private final Object flushLock = new Object();
+
+    // guarded by this
+    private Object status;
+    private boolean flushScheduled;
+    private long lastFlushNanos;
+    private Map<String, Object> values;
+    private final StringBuilder unsavedLog = new StringBuilder();
+
+    // guarded by flushLock
+    private Map<String, Object> persistedValues;
+
+    UpdateState(
+        EntityType entityType, String identifier, JobExecutionContext jobExecutionContext) {
+      this.entityType = requireNonNull(entityType);
+      this.identifier = requireNonNull(identifier);
+      this.jobExecutionContext = requireNonNull(jobExecutionContext);
+      this.lastFlushNanos = System.nanoTime();
+    }
+  }
 }
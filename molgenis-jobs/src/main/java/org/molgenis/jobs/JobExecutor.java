@@ -10,6 +10,7 @@ import com.google.gson.reflect.TypeToken;
 import java.lang.reflect.Type;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import org.molgenis.data.DataService;
 import org.molgenis.data.EntityManager;
@@ -113,16 +114,15 @@ public class JobExecutor {
 
   /**
    * Saves execution in the current thread, then creates a Job and submits that for asynchronous
-   * execution to a specific ExecutorService.
+   * execution to a specific Executor.
    *
    * @param jobExecution the {@link JobExecution} to save and submit.
-   * @param executorService the ExecutorService to run the submitted job on
+   * @param executor the Executor to run the submitted job on
    */
-  public CompletableFuture<Void> submit(
-      JobExecution jobExecution, ExecutorService executorService) {
+  public CompletableFuture<Void> submit(JobExecution jobExecution, Executor executor) {
     overwriteJobExecutionUser(jobExecution);
     Job molgenisJob = saveExecutionAndCreateJob(jobExecution);
-    return CompletableFuture.runAsync(() -> runJob(jobExecution, molgenisJob), executorService)
+    return CompletableFuture.runAsync(() -> runJob(jobExecution, molgenisJob), executor)
         .handle(
             (voidResult, throwable) -> {
               if (throwable != null) {
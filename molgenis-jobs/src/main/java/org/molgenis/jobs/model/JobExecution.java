@@ -1,8 +1,6 @@
 package org.molgenis.jobs.model;
 
-import static org.apache.commons.lang3.StringUtils.abbreviate;
 import static org.apache.commons.lang3.StringUtils.isEmpty;
-import static org.apache.commons.lang3.StringUtils.join;
 import static org.molgenis.jobs.model.JobExecutionMetaData.END_DATE;
 import static org.molgenis.jobs.model.JobExecutionMetaData.FAILURE_EMAIL;
 import static org.molgenis.jobs.model.JobExecutionMetaData.IDENTIFIER;
@@ -41,12 +39,19 @@ public class JobExecution extends StaticEntity {
    */
   public static final int MAX_PROGRESS_MESSAGE_LENGTH = 255;
   /**
-   * If log is larger than this value, it will be truncated. This value shouldn't exceed the max
-   * length of the {@link org.molgenis.data.meta.AttributeType#TEXT}
+   * If log is larger than this value, only its tail will be kept in the log attribute. This value
+   * shouldn't exceed the max length of the {@link org.molgenis.data.meta.AttributeType#TEXT}
    */
   public static final int MAX_LOG_LENGTH = 65535;
 
+  private static final int MAX_LOG_TAIL_LENGTH = MAX_LOG_LENGTH - TRUNCATION_BANNER.length() - 1;
+
+  private final Object logLock = new Object();
+  // guarded by logLock
+  private StringBuilder logTail;
+  private StringBuilder unsavedLog;
   private boolean logTruncated = false;
+  private boolean logChanged = false;
 
   public JobExecution(Entity entity) {
     super(entity);
@@ -151,9 +156,22 @@ public class JobExecution extends StaticEntity {
     set(PROGRESS_MAX, value);
   }
 
+  @Override
+  public Object get(String attributeName) {
+    if (LOG.equals(attributeName)) {
+      updateLog();
+    }
+    return super.get(attributeName);
+  }
+
+  /**
+   * Returns the tail of the execution log, see {@link #MAX_LOG_LENGTH}. The complete log is stored
+   * in the {@link org.molgenis.jobs.JobExecutionLogStore}.
+   */
   @Nullable
   @CheckForNull
   public String getLog() {
+    updateLog();
     return getString(LOG);
   }
 
@@ -206,21 +224,64 @@ public class JobExecution extends StaticEntity {
   }
 
   /**
-   * Appends a log message to the execution log. The first time the log exceeds MAX_LOG_LENGTH, it
-   * gets truncated and the TRUNCATION_BANNER gets added. Subsequent calls to appendLog will be
-   * ignored.
+   * Appends a log message to the execution log. Appending takes constant time: the log attribute
+   * is only updated when it is read. Once the log exceeds MAX_LOG_LENGTH, the log attribute only
+   * contains its tail preceded by the TRUNCATION_BANNER.
    *
    * @param formattedMessage The formatted message to append to the log.
    */
   void appendLog(String formattedMessage) {
-    if (logTruncated) return;
-    String combined = join(getLog(), formattedMessage);
-    if (combined.length() > MAX_LOG_LENGTH) {
-      String truncated = abbreviate(combined, MAX_LOG_LENGTH - TRUNCATION_BANNER.length() * 2 - 2);
-      combined = join(new String[] {TRUNCATION_BANNER, truncated, TRUNCATION_BANNER}, "\n");
-      logTruncated = true;
+    synchronized (logLock) {
+      if (logTail == null) {
+        String log = getString(LOG);
+        logTail = new StringBuilder(log != null ? log : "");
+        unsavedLog = new StringBuilder();
+      }
+      logTail.append(formattedMessage);
+      unsavedLog.append(formattedMessage);
+      // trim the tail in amortized constant time
+      if (logTail.length() > 2 * MAX_LOG_TAIL_LENGTH) {
+        logTail.delete(0, logTail.length() - MAX_LOG_TAIL_LENGTH);
+        logTruncated = true;
+      }
+      logChanged = true;
+    }
+  }
+
+  /**
+   * Returns the log messages that were appended since the previous call and forgets them.
+   *
+   * @return appended log messages or <code>null</code> if no log messages were appended
+   */
+  @Nullable
+  @CheckForNull
+  public String pollUnsavedLog() {
+    synchronized (logLock) {
+      if (unsavedLog == null || unsavedLog.length() == 0) {
+        return null;
+      }
+      String log = unsavedLog.toString();
+      unsavedLog.setLength(0);
+      return log;
+    }
+  }
+
+  private void updateLog() {
+    synchronized (logLock) {
+      if (!logChanged) {
+        return;
+      }
+      String log;
+      if (logTruncated || logTail.length() > MAX_LOG_LENGTH) {
+        logTruncated = true;
+        String tail = logTail.substring(logTail.length() - MAX_LOG_TAIL_LENGTH);
+        log = TRUNCATION_BANNER + '\n' + tail;
+      } else {
+        log = logTail.toString();
+      }
+      setLog(log);
+      logChanged = false;
     }
-    setLog(combined);
   }
 
   public enum Status {
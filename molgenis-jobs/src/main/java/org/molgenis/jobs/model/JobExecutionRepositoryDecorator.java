@@ -1,55 +1,119 @@
 package org.molgenis.jobs.model;
 
+import static java.util.Collections.singletonList;
+import static java.util.Objects.requireNonNull;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Stream;
 import org.molgenis.data.AbstractRepositoryDecorator;
 import org.molgenis.data.Repository;
 import org.molgenis.data.UnknownEntityException;
 import org.molgenis.jobs.ActiveJobExecutionDeleteForbiddenException;
+import org.molgenis.jobs.JobExecutionLogStore;
 import org.molgenis.jobs.model.JobExecution.Status;
 import org.molgenis.util.UnexpectedEnumException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+/**
+ * Repository decorator that prevents deletion of active {@link JobExecution}s and deletes the logs
+ * of deleted job executions from the {@link JobExecutionLogStore}.
+ */
 class JobExecutionRepositoryDecorator extends AbstractRepositoryDecorator<JobExecution> {
+  private static final Logger LOG = LoggerFactory.getLogger(JobExecutionRepositoryDecorator.class);
   private static final int BATCH_SIZE = 1000;
 
-  JobExecutionRepositoryDecorator(Repository<JobExecution> delegateRepository) {
+  private final JobExecutionLogStore jobExecutionLogStore;
+
+  JobExecutionRepositoryDecorator(
+      Repository<JobExecution> delegateRepository, JobExecutionLogStore jobExecutionLogStore) {
     super(delegateRepository);
+    this.jobExecutionLogStore = requireNonNull(jobExecutionLogStore);
   }
 
   @Override
   public void delete(JobExecution jobExecution) {
     validateDeleteAllowed(jobExecution);
     super.delete(jobExecution);
+    deleteLogs(singletonList(jobExecution.getIdentifier()));
   }
 
   @Override
   public void deleteById(Object id) {
-    validateDeleteAllowedById(id);
+    JobExecution jobExecution = getJobExecution(id);
+    validateDeleteAllowed(jobExecution);
     super.deleteById(id);
+    deleteLogs(singletonList(jobExecution.getIdentifier()));
   }
 
   @Override
   public void deleteAll() {
+    List<String> identifiers = new ArrayList<>();
     forEachBatched(
-        jobExecutionBatch -> jobExecutionBatch.forEach(this::validateDeleteAllowed), BATCH_SIZE);
+        jobExecutionBatch ->
+            jobExecutionBatch.forEach(jobExecution -> prepareDelete(jobExecution, identifiers)),
+        BATCH_SIZE);
     super.deleteAll();
+    deleteLogs(identifiers);
   }
 
   @Override
   public void delete(Stream<JobExecution> jobExecutionStream) {
-    super.delete(jobExecutionStream.filter(this::validateDeleteAllowed));
+    List<String> identifiers = new ArrayList<>();
+    super.delete(
+        jobExecutionStream.filter(jobExecution -> prepareDelete(jobExecution, identifiers)));
+    deleteLogs(identifiers);
   }
 
   @Override
   public void deleteAll(Stream<Object> ids) {
-    super.deleteAll(ids.filter(this::validateDeleteAllowedById));
+    List<String> identifiers = new ArrayList<>();
+    super.deleteAll(ids.filter(id -> prepareDelete(getJobExecution(id), identifiers)));
+    deleteLogs(identifiers);
   }
 
-  private boolean validateDeleteAllowedById(Object jobExecutionId) {
+  private JobExecution getJobExecution(Object jobExecutionId) {
     JobExecution jobExecution = findOneById(jobExecutionId);
     if (jobExecution == null) {
       throw new UnknownEntityException(getEntityType(), jobExecutionId);
     }
-    return validateDeleteAllowed(jobExecution);
+    return jobExecution;
+  }
+
+  private boolean prepareDelete(JobExecution jobExecution, List<String> identifiers) {
+    validateDeleteAllowed(jobExecution);
+    identifiers.add(jobExecution.getIdentifier());
+    return true;
+  }
+
+  /**
+   * Deletes the logs of deleted job executions once the transaction has been committed, so that the
+   * logs are kept if the transaction is rolled back.
+   */
+  private void deleteLogs(List<String> identifiers) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+              identifiers.forEach(JobExecutionRepositoryDecorator.this::deleteLog);
+            }
+          });
+    } else {
+      identifiers.forEach(this::deleteLog);
+    }
+  }
+
+  private void deleteLog(String identifier) {
+    try {
+      jobExecutionLogStore.delete(identifier);
+    } catch (UncheckedIOException e) {
+      LOG.warn("Could not delete log of job execution '{}'", identifier);
+    }
   }
 
   private boolean validateDeleteAllowed(JobExecution jobExecution) {
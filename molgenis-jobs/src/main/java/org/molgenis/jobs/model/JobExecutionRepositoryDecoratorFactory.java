@@ -1,19 +1,26 @@
 package org.molgenis.jobs.model;
 
+import static java.util.Objects.requireNonNull;
+
 import org.molgenis.data.AbstractSystemRepositoryDecoratorFactory;
 import org.molgenis.data.Repository;
+import org.molgenis.jobs.JobExecutionLogStore;
 import org.springframework.stereotype.Component;
 
 @Component
 public class JobExecutionRepositoryDecoratorFactory
     extends AbstractSystemRepositoryDecoratorFactory<JobExecution, JobExecutionMetaData> {
 
-  public JobExecutionRepositoryDecoratorFactory(JobExecutionMetaData jobExecutionMetaData) {
+  private final JobExecutionLogStore jobExecutionLogStore;
+
+  public JobExecutionRepositoryDecoratorFactory(
+      JobExecutionMetaData jobExecutionMetaData, JobExecutionLogStore jobExecutionLogStore) {
     super(jobExecutionMetaData);
+    this.jobExecutionLogStore = requireNonNull(jobExecutionLogStore);
   }
 
   @Override
   public Repository<JobExecution> createDecoratedRepository(Repository<JobExecution> repository) {
-    return new JobExecutionRepositoryDecorator(repository);
+    return new JobExecutionRepositoryDecorator(repository, jobExecutionLogStore);
   }
 }
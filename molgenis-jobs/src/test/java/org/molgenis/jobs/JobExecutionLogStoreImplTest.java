@@ -0,0 +1,58 @@
+package org.molgenis.jobs;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import com.google.common.io.Files;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import org.molgenis.data.file.FileStore;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class JobExecutionLogStoreImplTest {
+  private JobExecutionLogStoreImpl jobExecutionLogStore;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() throws IOException {
+    File tempDir = Files.createTempDir();
+    jobExecutionLogStore = new JobExecutionLogStoreImpl(new FileStore(tempDir.getCanonicalPath()));
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testJobExecutionLogStoreImpl() {
+    new JobExecutionLogStoreImpl(null);
+  }
+
+  @Test
+  public void testAppend() throws IOException {
+    jobExecutionLogStore.append("ABCDE", "message 1\n");
+    jobExecutionLogStore.append("ABCDE", "message 2\n");
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    assertTrue(jobExecutionLogStore.writeLog("ABCDE", outputStream));
+    assertEquals(outputStream.toString(UTF_8.name()), "message 1\nmessage 2\n");
+  }
+
+  @Test
+  public void testWriteLogUnknownJobExecution() throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    assertFalse(jobExecutionLogStore.writeLog("ABCDE", outputStream));
+    assertEquals(outputStream.size(), 0);
+  }
+
+  @Test
+  public void testDelete() throws IOException {
+    jobExecutionLogStore.append("ABCDE", "message\n");
+    jobExecutionLogStore.delete("ABCDE");
+    assertFalse(jobExecutionLogStore.writeLog("ABCDE", new ByteArrayOutputStream()));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testAppendInvalidIdentifier() {
+    jobExecutionLogStore.append("../ABCDE", "message\n");
+  }
+}
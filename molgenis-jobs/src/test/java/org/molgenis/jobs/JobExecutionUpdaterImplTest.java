@@ -0,0 +1,181 @@
+package org.molgenis.jobs;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.molgenis.jobs.model.JobExecution.Status.PENDING;
+import static org.molgenis.jobs.model.JobExecution.Status.RUNNING;
+import static org.molgenis.jobs.model.JobExecution.Status.SUCCESS;
+import static org.molgenis.jobs.model.JobExecutionMetaData.PROGRESS_INT;
+import static org.testng.Assert.assertEquals;
+
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.molgenis.data.AbstractMolgenisSpringTest;
+import org.molgenis.data.DataService;
+import org.molgenis.data.Entity;
+import org.molgenis.jobs.config.JobTestConfig;
+import org.molgenis.jobs.model.JobExecution;
+import org.molgenis.jobs.model.JobExecutionMetaData;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@ContextConfiguration(classes = {JobTestConfig.class})
+public class JobExecutionUpdaterImplTest extends AbstractMolgenisSpringTest {
+  @Autowired private JobExecutionMetaData jobExecutionMeta;
+
+  @Mock private JobExecutionContextFactory jobExecutionContextFactory;
+  @Mock private JobExecutionLogStore jobExecutionLogStore;
+  @Mock private ScheduledExecutorService executorService;
+  @Mock private DataService dataService;
+  @Mock private Authentication authentication;
+  @Captor private ArgumentCaptor<Runnable> runnableCaptor;
+
+  private JobExecution jobExecution;
+  private String unsavedLog;
+  private JobExecutionUpdaterImpl jobExecutionUpdater;
+
+  @BeforeMethod
+  public void setUpBeforeMethod() {
+    jobExecution =
+        new JobExecution(jobExecutionMeta) {
+          @Override
+          public String pollUnsavedLog() {
+            String log = unsavedLog;
+            unsavedLog = null;
+            return log;
+          }
+        };
+    jobExecution.setIdentifier("ABCDE");
+    jobExecution.setType("Annotator");
+    jobExecution.setStatus(PENDING);
+    when(jobExecutionContextFactory.createJobExecutionContext(jobExecution))
+        .thenReturn(JobExecutionContext.create(authentication, Locale.ENGLISH));
+
+    jobExecutionUpdater =
+        new JobExecutionUpdaterImpl(
+            jobExecutionContextFactory, jobExecutionLogStore, executorService, 1000);
+    ReflectionTestUtils.setField(jobExecutionUpdater, "dataService", dataService);
+  }
+
+  @Test
+  public void testUpdateCoalescesProgress() {
+    jobExecution.setStatus(RUNNING);
+    jobExecutionUpdater.update(jobExecution);
+    for (int i = 0; i < 100; i++) {
+      jobExecution.setProgressInt(i);
+      jobExecutionUpdater.update(jobExecution);
+    }
+
+    verify(executorService).schedule(runnableCaptor.capture(), eq(0L), eq(MILLISECONDS));
+    runnableCaptor.getValue().run();
+    verify(dataService).update(eq(jobExecutionMeta.getId()), any(Entity.class));
+  }
+
+  @Test
+  public void testUpdateAfterFlush() {
+    jobExecution.setStatus(RUNNING);
+    jobExecutionUpdater.update(jobExecution);
+    verify(executorService).schedule(runnableCaptor.capture(), eq(0L), eq(MILLISECONDS));
+    runnableCaptor.getValue().run();
+
+    jobExecution.setProgressInt(1);
+    jobExecutionUpdater.update(jobExecution);
+    verify(executorService, times(2))
+        .schedule(runnableCaptor.capture(), anyLong(), eq(MILLISECONDS));
+    runnableCaptor.getValue().run();
+
+    verify(dataService, times(2)).update(eq(jobExecutionMeta.getId()), any(Entity.class));
+  }
+
+  @Test
+  public void testUpdateStatusChangeFlushesImmediately() {
+    jobExecution.setStatus(RUNNING);
+    jobExecutionUpdater.update(jobExecution);
+    jobExecution.setStatus(SUCCESS);
+    jobExecutionUpdater.update(jobExecution);
+
+    verify(executorService, times(2)).schedule(any(Runnable.class), eq(0L), eq(MILLISECONDS));
+  }
+
+  @Test
+  public void testUpdateUnchanged() {
+    jobExecution.setStatus(RUNNING);
+    jobExecutionUpdater.update(jobExecution);
+    verify(executorService).schedule(runnableCaptor.capture(), eq(0L), eq(MILLISECONDS));
+    runnableCaptor.getValue().run();
+    runnableCaptor.getValue().run();
+
+    verify(dataService).update(eq(jobExecutionMeta.getId()), any(Entity.class));
+  }
+
+  @Test
+  public void testUpdateWritesValuesAtTimeOfUpdate() {
+    jobExecution.setStatus(RUNNING);
+    jobExecution.setProgressInt(1);
+    jobExecutionUpdater.update(jobExecution);
+    jobExecution.setProgressInt(2);
+
+    verify(executorService).schedule(runnableCaptor.capture(), eq(0L), eq(MILLISECONDS));
+    runnableCaptor.getValue().run();
+
+    ArgumentCaptor<Entity> entityCaptor = ArgumentCaptor.forClass(Entity.class);
+    verify(dataService).update(eq(jobExecutionMeta.getId()), entityCaptor.capture());
+    assertEquals(entityCaptor.getValue().getInt(PROGRESS_INT), Integer.valueOf(1));
+  }
+
+  @Test
+  public void testUpdateAppendsLog() {
+    jobExecution.setStatus(RUNNING);
+    unsavedLog = "message 1\nmessage 2\n";
+    jobExecutionUpdater.update(jobExecution);
+    verify(executorService).schedule(runnableCaptor.capture(), eq(0L), eq(MILLISECONDS));
+    runnableCaptor.getValue().run();
+    runnableCaptor.getValue().run();
+
+    verify(jobExecutionLogStore).append("ABCDE", "message 1\nmessage 2\n");
+  }
+
+  @Test
+  public void testUpdateNotFlushed() {
+    jobExecution.setStatus(RUNNING);
+    jobExecutionUpdater.update(jobExecution);
+    verifyZeroInteractions(dataService);
+  }
+
+  @Test
+  public void testShutdownFlushesPendingUpdates() throws InterruptedException {
+    jobExecution.setStatus(RUNNING);
+    jobExecutionUpdater.update(jobExecution);
+    when(executorService.awaitTermination(anyLong(), eq(SECONDS))).thenReturn(true);
+
+    jobExecutionUpdater.shutdown();
+
+    verify(executorService).shutdown();
+    verify(dataService).update(eq(jobExecutionMeta.getId()), any(Entity.class));
+  }
+
+  @Test
+  public void testUpdateAfterShutdown() {
+    when(executorService.schedule(any(Runnable.class), anyLong(), eq(MILLISECONDS)))
+        .thenThrow(new RejectedExecutionException());
+    jobExecution.setStatus(SUCCESS);
+    jobExecutionUpdater.update(jobExecution);
+
+    verify(dataService).update(eq(jobExecutionMeta.getId()), any(Entity.class));
+  }
+}
@@ -5,11 +5,15 @@ import static java.util.stream.Collectors.toList;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
@@ -20,32 +24,59 @@ import org.molgenis.data.Repository;
 import org.molgenis.data.UnknownEntityException;
 import org.molgenis.data.meta.model.EntityType;
 import org.molgenis.jobs.ActiveJobExecutionDeleteForbiddenException;
+import org.molgenis.jobs.JobExecutionLogStore;
 import org.molgenis.jobs.model.JobExecution.Status;
 import org.molgenis.test.AbstractMockitoTest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 public class JobExecutionRepositoryDecoratorTest extends AbstractMockitoTest {
   @Mock private Repository<JobExecution> delegateRepository;
+  @Mock private JobExecutionLogStore jobExecutionLogStore;
 
   private JobExecutionRepositoryDecorator jobExecutionRepositoryDecorator;
 
   @BeforeMethod
   public void setUpBeforeMethod() {
-    jobExecutionRepositoryDecorator = new JobExecutionRepositoryDecorator(delegateRepository);
+    jobExecutionRepositoryDecorator =
+        new JobExecutionRepositoryDecorator(delegateRepository, jobExecutionLogStore);
   }
 
   @Test(expectedExceptions = NullPointerException.class)
   public void testJobExecutionRepositoryDecorator() {
-    new JobExecutionRepositoryDecorator(null);
+    new JobExecutionRepositoryDecorator(null, null);
   }
 
   @Test
   public void testDeleteAllowed() {
     JobExecution jobExecution = mock(JobExecution.class);
     when(jobExecution.getStatus()).thenReturn(Status.CANCELED).getMock();
+    when(jobExecution.getIdentifier()).thenReturn("myJobExecutionId");
     jobExecutionRepositoryDecorator.delete(jobExecution);
     verify(delegateRepository).delete(jobExecution);
+    verify(jobExecutionLogStore).delete("myJobExecutionId");
+  }
+
+  @Test
+  public void testDeleteLogDeletedAfterCommit() {
+    JobExecution jobExecution = mock(JobExecution.class);
+    when(jobExecution.getStatus()).thenReturn(Status.SUCCESS).getMock();
+    when(jobExecution.getIdentifier()).thenReturn("myJobExecutionId");
+
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      jobExecutionRepositoryDecorator.delete(jobExecution);
+      verify(delegateRepository).delete(jobExecution);
+      verifyZeroInteractions(jobExecutionLogStore);
+
+      TransactionSynchronizationManager.getSynchronizations()
+          .forEach(TransactionSynchronization::afterCommit);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    verify(jobExecutionLogStore).delete("myJobExecutionId");
   }
 
   @Test(expectedExceptions = ActiveJobExecutionDeleteForbiddenException.class)
@@ -55,15 +86,29 @@ public class JobExecutionRepositoryDecoratorTest extends AbstractMockitoTest {
     jobExecutionRepositoryDecorator.delete(jobExecution);
   }
 
+  @Test
+  public void testDeleteLogNotDeleted() {
+    JobExecution jobExecution = mock(JobExecution.class);
+    when(jobExecution.getStatus()).thenReturn(Status.SUCCESS).getMock();
+    when(jobExecution.getIdentifier()).thenReturn("myJobExecutionId");
+    doThrow(new UncheckedIOException(new IOException()))
+        .when(jobExecutionLogStore)
+        .delete("myJobExecutionId");
+    jobExecutionRepositoryDecorator.delete(jobExecution);
+    verify(delegateRepository).delete(jobExecution);
+  }
+
   @Test
   public void testDeleteByIdAllowed() {
     Object jobExecutionId = "myJobExecutionId";
     JobExecution jobExecution = mock(JobExecution.class);
     when(jobExecution.getStatus()).thenReturn(Status.FAILED).getMock();
+    when(jobExecution.getIdentifier()).thenReturn("myJobExecutionId");
     when(delegateRepository.findOneById(jobExecutionId)).thenReturn(jobExecution);
 
     jobExecutionRepositoryDecorator.deleteById(jobExecutionId);
     verify(delegateRepository).deleteById(jobExecutionId);
+    verify(jobExecutionLogStore).delete("myJobExecutionId");
   }
 
   @Test(expectedExceptions = ActiveJobExecutionDeleteForbiddenException.class)
@@ -90,6 +135,7 @@ public class JobExecutionRepositoryDecoratorTest extends AbstractMockitoTest {
   public void testDeleteAllAllowed() {
     JobExecution jobExecution = mock(JobExecution.class);
     when(jobExecution.getStatus()).thenReturn(Status.SUCCESS).getMock();
+    when(jobExecution.getIdentifier()).thenReturn("myJobExecutionId");
     doAnswer(
             invocation -> {
               ((Consumer<List<Entity>>) invocation.getArgument(1))
@@ -101,6 +147,7 @@ public class JobExecutionRepositoryDecoratorTest extends AbstractMockitoTest {
 
     jobExecutionRepositoryDecorator.deleteAll();
     verify(delegateRepository).deleteAll();
+    verify(jobExecutionLogStore).delete("myJobExecutionId");
   }
 
   @SuppressWarnings("unchecked")
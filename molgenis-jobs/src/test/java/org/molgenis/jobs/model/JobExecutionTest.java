@@ -1,6 +1,7 @@
 package org.molgenis.jobs.model;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 import org.apache.commons.lang3.RandomStringUtils;
@@ -45,7 +46,7 @@ public class JobExecutionTest extends AbstractMolgenisSpringTest {
   @Test
   public void testAppendLogTruncates() throws Exception {
     int i = 0;
-    while (StringUtils.length(jobExecution.getLog()) < JobExecution.MAX_LOG_LENGTH) {
+    while (i < 20000) {
       ((JobExecution) jobExecution).appendLog("Small message " + i++ + "\n");
     }
     String truncatedLog = jobExecution.getLog();
@@ -58,12 +59,32 @@ public class JobExecutionTest extends AbstractMolgenisSpringTest {
         truncatedLog.startsWith(JobExecution.TRUNCATION_BANNER),
         "Truncated log should start with TRUNCATION_BANNER");
     assertTrue(
-        truncatedLog.endsWith(JobExecution.TRUNCATION_BANNER),
-        "Truncated log should end with TRUNCATION_BANNER");
+        truncatedLog.endsWith("Small message 19999\n"),
+        "Truncated log should end with the most recent message");
 
-    ((JobExecution) jobExecution).appendLog("Ignored");
-    assertEquals(
-        jobExecution.getLog(), truncatedLog, "Once truncated, the log should stop appending");
+    ((JobExecution) jobExecution).appendLog("Appended");
+    String appendedLog = jobExecution.getLog();
+    assertEquals(appendedLog.length(), JobExecution.MAX_LOG_LENGTH);
+    assertTrue(appendedLog.endsWith("Small message 19999\nAppended"));
+  }
+
+  @Test
+  public void testGetLogAttribute() {
+    ((JobExecution) jobExecution).appendLog("Small message\n");
+    assertEquals(jobExecution.get(JobExecutionMetaData.LOG), "Small message\n");
+  }
+
+  @Test
+  public void testPollUnsavedLog() {
+    String message1 = "Small message 1\n";
+    String message2 = "Small message 2\n";
+
+    assertNull(jobExecution.pollUnsavedLog());
+    ((JobExecution) jobExecution).appendLog(message1);
+    ((JobExecution) jobExecution).appendLog(message2);
+    assertEquals(jobExecution.pollUnsavedLog(), StringUtils.join(message1, message2));
+    assertNull(jobExecution.pollUnsavedLog());
+    assertEquals(jobExecution.getLog(), StringUtils.join(message1, message2));
   }
 
   @Test
@@ -16,6 +16,7 @@ import org.mockito.Mock;
 import org.mockito.quality.Strictness;
 import org.molgenis.data.AbstractMolgenisSpringTest;
 import org.molgenis.data.EntityManagerImpl;
+import org.molgenis.data.util.ConcurrentQueryExecutor;
 import org.molgenis.jobs.JobExecutionConfig;
 import org.molgenis.jobs.JobExecutionContext;
 import org.molgenis.jobs.JobExecutionContextFactory;
@@ -44,6 +45,7 @@ import org.testng.annotations.Test;
       HelloWorldConfig.class,
       JobExecutor.class,
       EntityManagerImpl.class,
+      ConcurrentQueryExecutor.class,
       HelloWorldTest.Config.class,
       JobFactoryRegistry.class,
       JobFactoryRegistrar.class
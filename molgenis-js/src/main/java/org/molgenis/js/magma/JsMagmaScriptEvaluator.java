@@ -23,6 +23,7 @@ import org.molgenis.data.Entity;
 import org.molgenis.data.meta.AttributeType;
 import org.molgenis.data.meta.IllegalAttributeTypeException;
 import org.molgenis.data.meta.model.Attribute;
+import org.molgenis.data.meta.model.EntityTypeSchema;
 import org.molgenis.js.nashorn.NashornScriptEngine;
 import org.molgenis.script.core.ScriptException;
 import org.molgenis.util.UnexpectedEnumException;
@@ -148,15 +149,19 @@ public class JsMagmaScriptEvaluator {
    */
   private Object toScriptEngineValueMap(Entity entity, int depth) {
     if (entity != null) {
-      Object idValue = toScriptEngineValue(entity, entity.getEntityType().getIdAttribute(), 0);
+      EntityTypeSchema entityTypeSchema = entity.getEntityType().getSchema();
+      Attribute idAttribute = entityTypeSchema.getIdAttribute();
+      Object idValue =
+          toScriptEngineValue(entity, idAttribute.getName(), idAttribute.getDataType(), 0);
       if (depth == 0) {
         return idValue;
       } else {
-        Map<String, Object> map = Maps.newHashMap();
-        entity
-            .getEntityType()
-            .getAtomicAttributes()
-            .forEach(attr -> map.put(attr.getName(), toScriptEngineValue(entity, attr, depth)));
+        Map<String, Object> map = Maps.newHashMapWithExpectedSize(entityTypeSchema.size() + 1);
+        for (int i = 0; i < entityTypeSchema.size(); i++) {
+          String attrName = entityTypeSchema.getName(i);
+          AttributeType attrType = entityTypeSchema.getDataType(i);
+          map.put(attrName, toScriptEngineValue(entity, attrName, attrType, depth));
+        }
         map.put(KEY_ID_VALUE, idValue);
         return map;
       }
@@ -165,11 +170,10 @@ public class JsMagmaScriptEvaluator {
     }
   }
 
-  private Object toScriptEngineValue(Entity entity, Attribute attr, int depth) {
+  private Object toScriptEngineValue(
+      Entity entity, String attrName, AttributeType attrType, int depth) {
     Object value = null;
 
-    String attrName = attr.getName();
-    AttributeType attrType = attr.getDataType();
     switch (attrType) {
       case BOOL:
         value = entity.getBoolean(attrName);
@@ -19,6 +19,7 @@ import org.molgenis.data.meta.system.SystemPackageRegistrar;
 import org.molgenis.data.meta.system.SystemPackageRegistry;
 import org.molgenis.data.platform.decorators.SystemRepositoryDecoratorRegistryImpl;
 import org.molgenis.data.security.SystemEntityTypeRegistryImpl;
+import org.molgenis.data.util.ConcurrentQueryExecutor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
@@ -29,6 +30,7 @@ import org.springframework.context.annotation.Import;
 @Import({
   DataConfig.class,
   EntityManagerImpl.class,
+  ConcurrentQueryExecutor.class,
   SystemRepositoryDecoratorRegistryImpl.class,
   EntityFactoryRegistry.class,
   EntityListenersService.class,
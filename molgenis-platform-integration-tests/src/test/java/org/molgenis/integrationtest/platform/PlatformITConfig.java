@@ -20,6 +20,7 @@ import org.molgenis.data.security.DataserviceRoleHierarchy;
 import org.molgenis.data.security.SystemEntityTypeRegistryImpl;
 import org.molgenis.data.security.permission.DataPermissionConfig;
 import org.molgenis.data.validation.ExpressionValidator;
+import org.molgenis.integrationtest.config.FileTestConfig;
 import org.molgenis.integrationtest.config.JsonTestConfig;
 import org.molgenis.integrationtest.config.ScriptTestConfig;
 import org.molgenis.integrationtest.config.SecurityCoreITConfig;
@@ -114,6 +115,7 @@ in org.molgenis.data and subpackages from included modules
   PlatformConfig.class,
   OntologyTestConfig.class,
   JobConfig.class,
+  FileTestConfig.class,
   org.molgenis.data.RepositoryCollectionRegistry.class,
   RepositoryCollectionDecoratorFactoryImpl.class,
   DataSourceAclTablesPopulator.class,
@@ -0,0 +1,198 @@
+package org.molgenis.integrationtest.platform;
+
+import static com.google.common.collect.Lists.reverse;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.molgenis.data.file.model.FileMetaMetadata.FILE_META;
+import static org.molgenis.security.core.runas.RunAsSystemAspect.runAsSystem;
+import static org.testng.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.molgenis.data.DataService;
+import org.molgenis.data.Entity;
+import org.molgenis.data.file.model.FileMeta;
+import org.molgenis.data.file.model.FileMetaFactory;
+import org.molgenis.data.file.model.FileMetaMetadata;
+import org.molgenis.data.index.job.IndexJobScheduler;
+import org.molgenis.data.security.EntityIdentity;
+import org.molgenis.data.security.EntityPermission;
+import org.molgenis.data.security.EntityTypeIdentity;
+import org.molgenis.data.support.QueryImpl;
+import org.molgenis.security.core.PermissionService;
+import org.molgenis.security.core.PermissionSet;
+import org.molgenis.security.core.SidUtils;
+import org.molgenis.security.core.UserPermissionEvaluator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.acls.model.MutableAcl;
+import org.springframework.security.acls.model.MutableAclService;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.Sid;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.security.test.context.support.WithSecurityContextTestExecutionListener;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Verifies that the permission rules that row-level secured repositories add to queries select
+ * the same rows as the access control list service.
+ */
+@ContextConfiguration(classes = {PlatformITConfig.class})
+@TestExecutionListeners(listeners = {WithSecurityContextTestExecutionListener.class})
+public class RowLevelSecurityIT extends AbstractTestNGSpringContextTests {
+  private static final String USERNAME = "rowLevelSecurity-user";
+  private static final String ROLE = "ROW_LEVEL_SECURITY_IT";
+
+  @Autowired private IndexJobScheduler indexJobScheduler;
+  @Autowired private PermissionService permissionService;
+  @Autowired private MutableAclService mutableAclService;
+  @Autowired private UserPermissionEvaluator userPermissionEvaluator;
+  @Autowired private DataService dataService;
+  @Autowired private FileMetaFactory fileMetaFactory;
+
+  private List<FileMeta> files;
+  private List<FileMeta> permittedFiles;
+
+  @BeforeClass
+  public void setUpBeforeClass() throws InterruptedException {
+    // bootstrapper has finished but indexing of bootstrapped data might be in progress
+    indexJobScheduler.waitForAllIndicesStable();
+
+    runAsSystem(this::populate);
+  }
+
+  @AfterClass
+  public void tearDownAfterClass() {
+    runAsSystem(this::depopulate);
+  }
+
+  @WithMockUser(username = USERNAME, roles = ROLE)
+  @Test
+  public void testFindAll() {
+    Set<Object> aclServicePermittedIds = getAclServicePermittedIds();
+    assertEquals(aclServicePermittedIds, getIds(permittedFiles));
+
+    Set<Object> permittedIds =
+        dataService.findAll(FILE_META, createQuery()).map(Entity::getIdValue).collect(toSet());
+    assertEquals(permittedIds, aclServicePermittedIds);
+  }
+
+  @WithMockUser(username = USERNAME, roles = ROLE)
+  @Test
+  public void testCount() {
+    assertEquals(dataService.count(FILE_META, createQuery()), getAclServicePermittedIds().size());
+  }
+
+  private Set<Object> getAclServicePermittedIds() {
+    return files
+        .stream()
+        .filter(
+            file ->
+                userPermissionEvaluator.hasPermission(
+                    new EntityIdentity(file), EntityPermission.READ))
+        .map(FileMeta::getIdValue)
+        .collect(toSet());
+  }
+
+  private QueryImpl<Entity> createQuery() {
+    QueryImpl<Entity> query = new QueryImpl<>();
+    query.in(FileMetaMetadata.ID, files.stream().map(FileMeta::getIdValue).collect(toList()));
+    return query;
+  }
+
+  private static Set<Object> getIds(List<FileMeta> files) {
+    return files.stream().map(FileMeta::getIdValue).collect(toSet());
+  }
+
+  private void populate() {
+    Sid userSid = SidUtils.createUserSid(USERNAME);
+    Sid roleSid = SidUtils.createRoleSid(ROLE);
+
+    files = new ArrayList<>();
+    FileMeta userGranted = addFile("userGranted");
+    FileMeta userDeniedRoleGranted = addFile("userDeniedRoleGranted");
+    FileMeta roleGranted = addFile("roleGranted");
+    FileMeta roleDeniedUserGranted = addFile("roleDeniedUserGranted");
+    FileMeta userDeniedOtherPermission = addFile("userDeniedOtherPermission");
+    addFile("noEntries");
+    FileMeta inherited = addFile("inherited");
+    FileMeta inheritedDenied = addFile("inheritedDenied");
+    FileMeta notInheriting = addFile("notInheriting");
+
+    insertAce(userGranted, PermissionSet.READ, userSid, true);
+    // the user security identity is evaluated before the role security identity
+    insertAce(userDeniedRoleGranted, PermissionSet.READ, roleSid, true);
+    insertAce(userDeniedRoleGranted, PermissionSet.READ, userSid, false);
+    insertAce(roleGranted, PermissionSet.READ, roleSid, true);
+    insertAce(roleDeniedUserGranted, PermissionSet.READ, roleSid, false);
+    insertAce(roleDeniedUserGranted, PermissionSet.READ, userSid, true);
+    // the first entry that matches the read permission of the user is a denying write entry
+    insertAce(userDeniedOtherPermission, PermissionSet.WRITE, userSid, false);
+    insertAce(userDeniedOtherPermission, PermissionSet.READ, userSid, true);
+    setParent(inherited, userGranted, true);
+    insertAce(inheritedDenied, PermissionSet.READ, userSid, false);
+    setParent(inheritedDenied, userGranted, true);
+    setParent(notInheriting, userGranted, false);
+
+    permittedFiles = new ArrayList<>();
+    permittedFiles.add(userGranted);
+    permittedFiles.add(roleGranted);
+    permittedFiles.add(roleDeniedUserGranted);
+    permittedFiles.add(inherited);
+
+    Map<ObjectIdentity, PermissionSet> permissions = new HashMap<>();
+    permissions.put(new EntityTypeIdentity("sys_md_Package"), PermissionSet.READ);
+    permissions.put(new EntityTypeIdentity("sys_md_EntityType"), PermissionSet.READ);
+    permissions.put(new EntityTypeIdentity("sys_md_Attribute"), PermissionSet.READ);
+    permissions.put(new EntityTypeIdentity("sys_dec_DecoratorConfiguration"), PermissionSet.READ);
+    permissions.put(new EntityTypeIdentity(FILE_META), PermissionSet.READ);
+    permissionService.grant(permissions, userSid);
+
+    try {
+      indexJobScheduler.waitForAllIndicesStable();
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private FileMeta addFile(String filename) {
+    FileMeta file = fileMetaFactory.create();
+    file.setContentType("text/plain");
+    file.setFilename(filename + ".txt");
+    file.setSize(1L);
+    file.setUrl("http://example.org/files/" + filename + ".txt");
+    dataService.add(FILE_META, file);
+    files.add(file);
+    return file;
+  }
+
+  private void insertAce(FileMeta file, PermissionSet permissionSet, Sid sid, boolean granting) {
+    MutableAcl acl = (MutableAcl) mutableAclService.readAclById(new EntityIdentity(file));
+    acl.insertAce(acl.getEntries().size(), permissionSet, sid, granting);
+    mutableAclService.updateAcl(acl);
+  }
+
+  private void setParent(FileMeta file, FileMeta parentFile, boolean entriesInheriting) {
+    MutableAcl acl = (MutableAcl) mutableAclService.readAclById(new EntityIdentity(file));
+    acl.setParent(mutableAclService.readAclById(new EntityIdentity(parentFile)));
+    acl.setEntriesInheriting(entriesInheriting);
+    mutableAclService.updateAcl(acl);
+  }
+
+  private void depopulate() {
+    // delete the files with child access control lists first
+    reverse(files).forEach(file -> dataService.delete(FILE_META, file));
+    try {
+      indexJobScheduler.waitForAllIndicesStable();
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
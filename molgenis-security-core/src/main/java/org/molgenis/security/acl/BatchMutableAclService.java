@@ -0,0 +1,28 @@
+package org.molgenis.security.acl;
+
+import java.util.Collection;
+import org.springframework.security.acls.model.AlreadyExistsException;
+import org.springframework.security.acls.model.MutableAclService;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.Permission;
+import org.springframework.security.acls.model.Sid;
+
+/**
+ * {@link MutableAclService} that creates and deletes the ACLs of many object identities at once.
+ */
+public interface BatchMutableAclService extends MutableAclService {
+  /**
+   * Creates ACLs owned by the current user for the given object identities. Each ACL contains one
+   * entry that grants the given permission to the given sid.
+   *
+   * @throws AlreadyExistsException if an ACL exists for one of the object identities, in which case
+   *     no ACLs were created
+   */
+  void createAcls(Collection<ObjectIdentity> objectIdentities, Sid sid, Permission permission);
+
+  /**
+   * Deletes the ACLs and ACEs of the given object identities. Unlike {@link
+   * #deleteAcl(ObjectIdentity, boolean)} ACLs of child object identities are not deleted.
+   */
+  void deleteAcls(Collection<ObjectIdentity> objectIdentities);
+}
@@ -1,10 +1,20 @@
 package org.molgenis.security.acl;
 
+import static com.google.common.collect.Lists.partition;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.joining;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 import javax.sql.DataSource;
 import org.molgenis.security.core.SidUtils;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.security.acls.domain.ObjectIdentityImpl;
 import org.springframework.security.acls.jdbc.JdbcMutableAclService;
 import org.springframework.security.acls.jdbc.LookupStrategy;
 import org.springframework.security.acls.model.Acl;
@@ -12,15 +22,37 @@ import org.springframework.security.acls.model.AclCache;
 import org.springframework.security.acls.model.AlreadyExistsException;
 import org.springframework.security.acls.model.MutableAcl;
 import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.Permission;
 import org.springframework.security.acls.model.Sid;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
 
-/** {@link Transactional} {@link JdbcMutableAclService}. */
-public class TransactionalJdbcMutableAclService extends JdbcMutableAclService {
+/**
+ * {@link Transactional} {@link JdbcMutableAclService} that creates and deletes ACLs in batches with
+ * JDBC batch statements.
+ */
+public class TransactionalJdbcMutableAclService extends JdbcMutableAclService
+    implements BatchMutableAclService {
+  private static final int BATCH_SIZE = 1000;
+
+  private static final String INSERT_OBJECT_IDENTITY =
+      "insert into acl_object_identity (object_id_class, object_id_identity, owner_sid, entries_inheriting) values (?, ?, ?, ?)";
+  private static final String INSERT_ENTRY =
+      "insert into acl_entry (acl_object_identity, ace_order, sid, mask, granting, audit_success, audit_failure) "
+          + "select id, 0, ?, ?, ?, ?, ? from acl_object_identity where object_id_class = ? and object_id_identity = ?";
+  private static final String SELECT_OBJECT_IDENTITY =
+      "select acl_object_identity.object_id_identity from acl_object_identity, acl_class "
+          + "where acl_object_identity.object_id_class = acl_class.id and acl_class.class = ? and acl_object_identity.object_id_identity in ";
+  // entries are deleted by the foreign key on delete cascade
+  private static final String DELETE_OBJECT_IDENTITY =
+      "delete from acl_object_identity where object_id_class = (select id from acl_class where class = ?) and object_id_identity = ?";
+
+  private final AclCache aclCache;
+
   public TransactionalJdbcMutableAclService(
       DataSource dataSource, LookupStrategy lookupStrategy, AclCache aclCache) {
     super(dataSource, lookupStrategy, aclCache);
+    this.aclCache = aclCache;
   }
 
   /**
@@ -50,6 +82,106 @@ public class TransactionalJdbcMutableAclService extends JdbcMutableAclService {
     return (MutableAcl) acl;
   }
 
+  @Transactional
+  @Override
+  public void createAcls(
+      Collection<ObjectIdentity> objectIdentities, Sid sid, Permission permission) {
+    Sid owner = SidUtils.createSecurityContextSid();
+    Long ownerSidId = createOrRetrieveSidPrimaryKey(owner, true);
+    Long sidId = createOrRetrieveSidPrimaryKey(sid, true);
+
+    Map<String, List<ObjectIdentity>> objectIdentitiesByType =
+        objectIdentities.stream().collect(groupingBy(ObjectIdentity::getType));
+    objectIdentitiesByType.forEach(
+        (type, typeObjectIdentities) -> {
+          validateObjectIdentitiesNotExist(type, typeObjectIdentities);
+
+          Class<?> idType = typeObjectIdentities.get(0).getIdentifier().getClass();
+          Long classId = createOrRetrieveClassPrimaryKey(type, true, idType);
+          partition(typeObjectIdentities, BATCH_SIZE)
+              .forEach(
+                  batch -> {
+                    jdbcTemplate.batchUpdate(
+                        INSERT_OBJECT_IDENTITY,
+                        batch,
+                        batch.size(),
+                        (preparedStatement, objectIdentity) -> {
+                          preparedStatement.setLong(1, classId);
+                          preparedStatement.setString(2, objectIdentity.getIdentifier().toString());
+                          preparedStatement.setLong(3, ownerSidId);
+                          preparedStatement.setBoolean(4, true);
+                        });
+                    jdbcTemplate.batchUpdate(
+                        INSERT_ENTRY,
+                        batch,
+                        batch.size(),
+                        (preparedStatement, objectIdentity) -> {
+                          preparedStatement.setLong(1, sidId);
+                          preparedStatement.setInt(2, permission.getMask());
+                          preparedStatement.setBoolean(3, true);
+                          preparedStatement.setBoolean(4, false);
+                          preparedStatement.setBoolean(5, false);
+                          preparedStatement.setLong(6, classId);
+                          preparedStatement.setString(7, objectIdentity.getIdentifier().toString());
+                        });
+                  });
+        });
+  }
+
+  /**
+   * Validates that no ACLs exist for the given object identities before inserting them, because a
+   * failed insert would abort the transaction.
+   */
+  private void validateObjectIdentitiesNotExist(
+      String type, List<ObjectIdentity> objectIdentities) {
+    Set<String> identifiers = new HashSet<>();
+    for (ObjectIdentity objectIdentity : objectIdentities) {
+      if (!identifiers.add(objectIdentity.getIdentifier().toString())) {
+        throw new AlreadyExistsException("Object identity '" + objectIdentity + "' already exists");
+      }
+    }
+
+    partition(objectIdentities, BATCH_SIZE)
+        .forEach(
+            batch -> {
+              String sql =
+                  SELECT_OBJECT_IDENTITY
+                      + batch.stream().map(objectIdentity -> "?").collect(joining(",", "(", ")"));
+              Object[] args =
+                  Stream.concat(
+                          Stream.of(type),
+                          batch
+                              .stream()
+                              .map(objectIdentity -> objectIdentity.getIdentifier().toString()))
+                      .toArray();
+              List<String> existingIdentifiers = jdbcTemplate.queryForList(sql, String.class, args);
+              if (!existingIdentifiers.isEmpty()) {
+                throw new AlreadyExistsException(
+                    "Object identity '"
+                        + new ObjectIdentityImpl(type, existingIdentifiers.get(0))
+                        + "' already exists");
+              }
+            });
+  }
+
+  @Transactional
+  @Override
+  public void deleteAcls(Collection<ObjectIdentity> objectIdentities) {
+    partition(new ArrayList<>(objectIdentities), BATCH_SIZE)
+        .forEach(
+            batch -> {
+              jdbcTemplate.batchUpdate(
+                  DELETE_OBJECT_IDENTITY,
+                  batch,
+                  batch.size(),
+                  (preparedStatement, objectIdentity) -> {
+                    preparedStatement.setString(1, objectIdentity.getType());
+                    preparedStatement.setString(2, objectIdentity.getIdentifier().toString());
+                  });
+              batch.forEach(aclCache::evictFromCache);
+            });
+  }
+
   @Transactional
   @Override
   public void deleteAcl(ObjectIdentity objectIdentity, boolean deleteChildren) {
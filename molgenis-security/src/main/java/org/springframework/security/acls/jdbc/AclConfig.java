@@ -8,6 +8,7 @@ import org.molgenis.data.config.DataSourceConfig;
 import org.molgenis.data.transaction.TransactionManager;
 import org.molgenis.security.NoOpAuditLogger;
 import org.molgenis.security.acl.AclCacheTransactionListener;
+import org.molgenis.security.acl.BatchMutableAclService;
 import org.molgenis.security.acl.BitMaskPermissionGrantingStrategy;
 import org.molgenis.security.acl.MutableAclClassService;
 import org.molgenis.security.acl.MutableAclClassServiceImpl;
@@ -25,10 +26,11 @@ import org.springframework.security.acls.AclPermissionEvaluator;
 import org.springframework.security.acls.domain.AclAuthorizationStrategy;
 import org.springframework.security.acls.domain.AclAuthorizationStrategyImpl;
 import org.springframework.security.acls.domain.AuditLogger;
+import org.springframework.security.acls.domain.SidRetrievalStrategyImpl;
 import org.springframework.security.acls.domain.SpringCacheBasedAclCache;
 import org.springframework.security.acls.model.AclCache;
-import org.springframework.security.acls.model.MutableAclService;
 import org.springframework.security.acls.model.PermissionGrantingStrategy;
+import org.springframework.security.acls.model.SidRetrievalStrategy;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 
@@ -107,8 +109,8 @@ public class AclConfig {
   }
 
   @Bean
-  public MutableAclService aclService() {
-    JdbcMutableAclService aclService =
+  public BatchMutableAclService aclService() {
+    TransactionalJdbcMutableAclService aclService =
         new TransactionalJdbcMutableAclService(dataSource, lookupStrategy(), aclCache());
     aclService.setAclClassIdSupported(true);
     aclService.setAclClassIdUtils(aclClassIdUtils());
@@ -125,8 +127,15 @@ public class AclConfig {
     return aclService;
   }
 
+  @Bean
+  public SidRetrievalStrategy sidRetrievalStrategy() {
+    return new SidRetrievalStrategyImpl();
+  }
+
   @Bean
   public AclPermissionEvaluator aclPermissionEvaluator() {
-    return new AclPermissionEvaluator(aclService());
+    AclPermissionEvaluator aclPermissionEvaluator = new AclPermissionEvaluator(aclService());
+    aclPermissionEvaluator.setSidRetrievalStrategy(sidRetrievalStrategy());
+    return aclPermissionEvaluator;
   }
 }
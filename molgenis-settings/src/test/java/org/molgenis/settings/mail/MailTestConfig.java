@@ -2,6 +2,7 @@ package org.molgenis.settings.mail;
 
 import org.molgenis.data.EntityManagerImpl;
 import org.molgenis.data.listeners.EntityListenersService;
+import org.molgenis.data.util.ConcurrentQueryExecutor;
 import org.molgenis.settings.PropertyType;
 import org.molgenis.settings.SettingsEntityType;
 import org.molgenis.settings.SettingsPackage;
@@ -13,6 +14,7 @@ import org.springframework.context.annotation.Import;
   PropertyType.class,
   MailSettingsImpl.class,
   EntityManagerImpl.class,
+  ConcurrentQueryExecutor.class,
   SettingsEntityType.class,
   SettingsPackage.class,
   EntityListenersService.class,